@@ -0,0 +1,77 @@
+import graphs.shortestpaths.DeltaSteppingSolver;
+import graphs.shortestpaths.IndexedDijkstraSolver;
+import org.locationtech.spatial4j.context.SpatialContext;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmark full single-source shortest paths trees on the {@link MapServer} map with {@link DeltaSteppingSolver} in
+ * pools of 1, 2, 4 and 8 threads against the sequential {@link IndexedDijkstraSolver}, checking that every distance
+ * matches. Run with no arguments to use 20 random sources and a delta of 16 times the mean edge weight, or with the
+ * number of sources and the multiple of the mean edge weight as arguments.
+ *
+ * @see DeltaSteppingSolver
+ * @see IndexedDijkstraSolver
+ */
+public class DeltaSteppingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int sources = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        double multiple = args.length > 1 ? Double.parseDouble(args[1]) : 16.0;
+        MapGraph map = MapServer.loadMap(SpatialContext.GEO);
+        int n = map.vertexCount();
+        double total = 0.0;
+        int edges = 0;
+        for (int v = 0; v < n; v += 1) {
+            for (int e = map.start(v); e < map.end(v); e += 1) {
+                total += map.weight(e);
+                edges += 1;
+            }
+        }
+        double delta = multiple * total / edges;
+        System.out.printf("%d vertices, %d edges, delta %.3g%n", n, edges, delta);
+
+        int[] starts = new Random(373).ints(sources, 0, n).toArray();
+        double[][] expected = new double[sources][n];
+        // Run each configuration twice and time the second run, after the JIT has compiled the search.
+        long time = 0;
+        for (int round = 0; round < 2; round += 1) {
+            long start = System.nanoTime();
+            for (int i = 0; i < sources; i += 1) {
+                IndexedDijkstraSolver solver = new IndexedDijkstraSolver(map, starts[i]);
+                for (int v = 0; v < n; v += 1) {
+                    expected[i][v] = solver.distance(v);
+                }
+            }
+            time = System.nanoTime() - start;
+        }
+        double baseline = time / 1e6 / sources;
+        System.out.printf("Dijkstra         %8.2f ms per tree%n", baseline);
+
+        for (int threads : new int[]{1, 2, 4, 8}) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                int mismatches = 0;
+                for (int round = 0; round < 2; round += 1) {
+                    mismatches = 0;
+                    long start = System.nanoTime();
+                    for (int i = 0; i < sources; i += 1) {
+                        DeltaSteppingSolver solver = new DeltaSteppingSolver(map, starts[i], delta, pool);
+                        for (int v = 0; v < n; v += 1) {
+                            if (solver.distance(v) != expected[i][v]) {
+                                mismatches += 1;
+                            }
+                        }
+                    }
+                    time = System.nanoTime() - start;
+                }
+                double ms = time / 1e6 / sources;
+                System.out.printf("%d thread(s)      %8.2f ms per tree, %.2fx Dijkstra, %d mismatches%n",
+                        threads, ms, baseline / ms, mismatches);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+import org.locationtech.spatial4j.context.SpatialContext;
+
+import java.nio.file.Path;
+
+/**
+ * Compile the OSM and places data into a binary {@link MapGraph} snapshot so that {@link MapServer} can start by
+ * memory-mapping the snapshot instead of parsing XML. Run with no arguments to use the {@link MapServer} defaults, or
+ * with the OSM path, places path, and snapshot path as arguments.
+ *
+ * @see MapGraph#save(Path)
+ * @see MapServer
+ */
+public class MapCompiler {
+
+    public static void main(String[] args) throws Exception {
+        String osmPath = args.length > 0 ? args[0] : MapServer.OSM_DB_PATH;
+        String placesPath = args.length > 1 ? args[1] : MapServer.PLACES_PATH;
+        Path snapshotPath = Path.of(args.length > 2 ? args[2] : MapServer.SNAPSHOT_PATH);
+        long start = System.nanoTime();
+        MapGraph map = new MapGraph(osmPath, placesPath, SpatialContext.GEO);
+        map.save(snapshotPath);
+        System.out.println("Wrote " + snapshotPath + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
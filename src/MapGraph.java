@@ -1,54 +1,121 @@
 import autocomplete.Autocomplete;
 import autocomplete.TreeSetAutocomplete;
 import graphs.AStarGraph;
+import graphs.CSRGraph;
+import graphs.ContractionHierarchy;
 import graphs.Edge;
-import graphs.shortestpaths.AStarSolver;
+import graphs.EdgeGeometry;
+import graphs.EdgeVisitor;
+import graphs.GeoDistance;
+import graphs.IndexedAStarGraph;
+import graphs.Landmarks;
+import graphs.MultiLevelOverlay;
+import graphs.ReversibleGraph;
+import graphs.StronglyConnectedComponents;
+import graphs.shortestpaths.BoundedDijkstraSolver;
+import graphs.shortestpaths.ContractionHierarchySolver;
+import graphs.shortestpaths.IndexedAnytimeAStarSolver;
+import graphs.shortestpaths.ManyToManySolver;
+import graphs.shortestpaths.MultiLevelOverlaySolver;
+import graphs.shortestpaths.SearchBudget;
+import graphs.shortestpaths.SearchBudgetExceededException;
+import graphs.shortestpaths.SearchStats;
 import org.locationtech.spatial4j.context.SpatialContext;
 import org.locationtech.spatial4j.shape.Point;
-import org.xml.sax.Attributes;
-import org.xml.sax.SAXException;
-import org.xml.sax.helpers.DefaultHandler;
 
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.zip.GZIPInputStream;
+import java.util.function.BiFunction;
+import java.util.function.IntToDoubleFunction;
 
 /**
- * {@link AStarGraph} of places as {@link Point} vertices and streets edges weighted by physical distance.
+ * {@link ReversibleGraph} of places as {@code int} vertices and streets edges weighted by physical distance. The road
+ * network is stored as an immutable {@link CSRGraph} with vertex coordinates in parallel latitude and longitude arrays,
+ * so {@link Point} objects are only created for the vertices on a returned route, and is also exposed through the
+ * {@link IndexedAStarGraph} interface for searches that keep their state in arrays. The A* heuristic reads vertex
+ * positions pre-projected by {@link GeoDistance}, so it takes no trigonometry. A map graph can be parsed from OSM data
+ * or memory-mapped from a binary snapshot previously written by {@link #save(Path)}.
+ * <p>
+ * Most OSM nodes on a road only shape its curves between intersections. When the graph is built, each chain of such
+ * nodes is collapsed into one edge between the intersections at its ends, weighted by the length of the chain, so
+ * searches only visit intersections and dead ends. The nodes along each edge are kept in {@link EdgeGeometry}, which
+ * is used to snap locations to the curves of the road and to expand routes and isochrones back to their full shape.
+ * <p>
+ * A map graph is immutable once constructed and safe to share between threads: queries only read the shared structures
+ * while keeping their own search state in per-thread workspaces. Every field is final and set before the constructor
+ * returns, except for the {@link MultiLevelOverlay}, which is only needed for customized weights and is built under a
+ * lock by the first call to {@link #customize(RoadWeight)}. Every {@link Point} returned is a new object owned by the
+ * caller. Customized weights returned by {@link #customize(RoadWeight)} are likewise immutable and may be shared.
  *
- * @see AStarGraph
+ * @see ReversibleGraph
+ * @see IndexedAStarGraph
+ * @see CSRGraph
  * @see MapServer
  */
-public class MapGraph implements AStarGraph<Point> {
+public class MapGraph implements ReversibleGraph<Integer>, IndexedAStarGraph {
+    /**
+     * Magic number identifying a map graph snapshot file ("HMAP").
+     */
+    private static final int SNAPSHOT_MAGIC = 0x484D4150;
+    /**
+     * Snapshot format version, incremented whenever the layout written by {@link #save(Path)} changes.
+     */
+    private static final int SNAPSHOT_VERSION = 4;
+    /**
+     * The number of landmarks selected for the ALT heuristic.
+     */
+    private static final int LANDMARKS = 16;
+    /**
+     * The number of landmarks used by the heuristic of an approximate route query for each pair of seeded start and
+     * goal vertices, chosen per query from those that give the best bounds between them.
+     */
+    private static final int ACTIVE_LANDMARKS = 4;
     private final String osmPath;
     private final String placesPath;
     private final SpatialContext context;
-    private final Map<Point, List<Edge<Point>>> neighbors;
+    private final DoubleBuffer lat;
+    private final DoubleBuffer lon;
+    private final GeoDistance geo;
+    private final CSRGraph graph;
+    private final EdgeGeometry geometry;
+    private final CSRGraph reverse;
+    private final Landmarks landmarks;
+    private final StronglyConnectedComponents components;
+    private final ContractionHierarchy hierarchy;
+    /**
+     * The overlay for customized weights, or null until it is first needed.
+     */
+    private volatile MultiLevelOverlay overlay;
+    private final SpatialIndex index;
+    private final SegmentIndex segments;
     private final Map<String, List<Point>> locations;
     private final Autocomplete autocomplete;
     private final Map<CharSequence, Integer> importance;
 
     /**
-     * Constructs a new map graph from the path to an OSM GZ file and a places TSV.
+     * Constructs a new map graph from the path to an OSM GZ or PBF file and a places TSV.
      *
-     * @param osmPath    The path to a gzipped OSM (XML) file.
+     * @param osmPath    The path to a gzipped OSM (XML) file, or to an OSM PBF file ending in {@code .pbf}.
      * @param placesPath The path to a TSV file representing places and importance.
-     * @throws ParserConfigurationException if a parser cannot be created.
-     * @throws SAXException                 for SAX errors.
-     * @throws IOException                  if a file is not found or if the file is not gzipped.
+     * @throws IOException if a file is not found or if the OSM data is malformed.
      */
-    public MapGraph(String osmPath, String placesPath, SpatialContext context)
-            throws ParserConfigurationException, SAXException, IOException {
+    public MapGraph(String osmPath, String placesPath, SpatialContext context) throws IOException {
         this.osmPath = osmPath;
         this.placesPath = placesPath;
         this.context = context;
 
-        // Parse the OpenStreetMap (OSM) data using the SAXParser XML tree walker.
-        neighbors = new HashMap<>();
+        // Parse the OpenStreetMap (OSM) data in the format given by the file extension.
         Handler handler = new Handler(Set.of(
                 "motorway",
                 "trunk",
@@ -64,22 +131,185 @@ public class MapGraph implements AStarGraph<Point> {
                 "secondary_link",
                 "tertiary_link"
         ));
-        SAXParser saxParser = SAXParserFactory.newInstance().newSAXParser();
-        saxParser.parse(new GZIPInputStream(fileStream(osmPath)), handler);
+        // Read the file twice: first the ways to find the road network nodes, then only those nodes' coordinates.
+        OsmReader reader = OsmReader.forPath(osmPath);
+        try (InputStream in = fileStream(osmPath)) {
+            reader.read(in, handler);
+        }
+        handler.endWays();
+        try (InputStream in = fileStream(osmPath)) {
+            reader.read(in, handler);
+        }
+        handler.endNodes();
+
+        // Pack the road network into compressed sparse row arrays.
+        lat = DoubleBuffer.wrap(handler.lat);
+        lon = DoubleBuffer.wrap(handler.lon);
+        graph = new CSRGraph(handler.vertexCount, handler.from, handler.to, handler.weight, handler.edgeCount);
+        geometry = handler.geometry;
+        reverse = graph.reverse();
+        components = new StronglyConnectedComponents(graph);
+        landmarks = Landmarks.select(graph, reverse, components, LANDMARKS);
+        hierarchy = ContractionHierarchy.build(graph);
+        geo = new GeoDistance(lat, lon);
+        index = new SpatialIndex(geo);
+        segments = new SegmentIndex(graph, lat, lon, geometry);
 
         // Add reachable locations to the Autocomplete engine.
-        locations = handler.byName;
+        handler.byName.replaceAll((name, points) -> List.copyOf(points));
+        locations = Collections.unmodifiableMap(handler.byName);
         autocomplete = new TreeSetAutocomplete();
         autocomplete.addAll(locations.keySet());
 
         // Parse the place-importance data.
-        importance = new HashMap<>();
+        Map<CharSequence, Integer> importance = new HashMap<>();
         try (Scanner input = new Scanner(fileStream(placesPath))) {
             while (input.hasNextLine()) {
                 Scanner line = new Scanner(input.nextLine()).useDelimiter("\t");
                 importance.put(line.next(), line.nextInt());
             }
         }
+        this.importance = Collections.unmodifiableMap(importance);
+    }
+
+    /**
+     * Constructs a map graph by memory-mapping a binary snapshot written by {@link #save(Path)}. The road network,
+     * edge geometry, landmark tables and contraction hierarchy are served directly from the mapped file, so neither
+     * the OSM data nor the routing preprocessing is processed again. The reverse graph, the strongly connected
+     * components and the vertex and segment spatial indices are not stored; they are rebuilt from the mapped graph in
+     * time close to linear in its size, and the named locations are decoded into a new autocomplete index.
+     *
+     * @param snapshotPath the path to the snapshot file.
+     * @param context      the spatial context for creating and comparing points.
+     * @throws IOException if the file cannot be read or is not a snapshot of the current version.
+     */
+    public MapGraph(Path snapshotPath, SpatialContext context) throws IOException {
+        this.context = context;
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Not a map graph snapshot: " + snapshotPath);
+        }
+        int version = buffer.getInt();
+        if (version != SNAPSHOT_VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + " in " + snapshotPath);
+        }
+        osmPath = readString(buffer);
+        placesPath = readString(buffer);
+        buffer.position(buffer.position() + (-buffer.position() & 7));
+
+        // Map the vertex coordinates and road network without copying.
+        int n = buffer.getInt();
+        buffer.getInt();
+        lat = CSRGraph.slice(buffer, 8L * n).asDoubleBuffer();
+        lon = CSRGraph.slice(buffer, 8L * n).asDoubleBuffer();
+        graph = CSRGraph.map(buffer);
+        geometry = EdgeGeometry.map(buffer);
+        reverse = graph.reverse();
+        landmarks = Landmarks.map(buffer);
+        components = new StronglyConnectedComponents(graph);
+        hierarchy = ContractionHierarchy.map(buffer);
+        geo = new GeoDistance(lat, lon);
+        index = new SpatialIndex(geo);
+        segments = new SegmentIndex(graph, lat, lon, geometry);
+
+        // Decode the named locations and add them to the Autocomplete engine.
+        Map<String, List<Point>> locations = new HashMap<>();
+        int names = buffer.getInt();
+        for (int i = 0; i < names; i += 1) {
+            String name = readString(buffer);
+            int size = buffer.getInt();
+            List<Point> points = new ArrayList<>(size);
+            for (int j = 0; j < size; j += 1) {
+                points.add(context.getShapeFactory().pointLatLon(buffer.getDouble(), buffer.getDouble()));
+            }
+            locations.put(name, List.copyOf(points));
+        }
+        this.locations = Collections.unmodifiableMap(locations);
+        autocomplete = new TreeSetAutocomplete();
+        autocomplete.addAll(locations.keySet());
+
+        // Decode the place-importance data.
+        Map<CharSequence, Integer> importance = new HashMap<>();
+        int places = buffer.getInt();
+        for (int i = 0; i < places; i += 1) {
+            importance.put(readString(buffer), buffer.getInt());
+        }
+        this.importance = Collections.unmodifiableMap(importance);
+    }
+
+    /**
+     * Writes this map graph to a versioned binary snapshot file that can be loaded with
+     * {@link #MapGraph(Path, SpatialContext)}.
+     *
+     * @param snapshotPath the path to the snapshot file.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void save(Path snapshotPath) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(snapshotPath)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            writeString(out, osmPath);
+            writeString(out, placesPath);
+            CSRGraph.pad(out, out.size());
+
+            int n = graph.vertexCount();
+            out.writeInt(n);
+            out.writeInt(0);
+            for (int v = 0; v < n; v += 1) {
+                out.writeDouble(lat.get(v));
+            }
+            for (int v = 0; v < n; v += 1) {
+                out.writeDouble(lon.get(v));
+            }
+            graph.write(out);
+            geometry.write(out);
+            landmarks.write(out);
+            hierarchy.write(out);
+
+            out.writeInt(locations.size());
+            for (Map.Entry<String, List<Point>> entry : locations.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (Point point : entry.getValue()) {
+                    out.writeDouble(point.getLat());
+                    out.writeDouble(point.getLon());
+                }
+            }
+            out.writeInt(importance.size());
+            for (Map.Entry<CharSequence, Integer> entry : importance.entrySet()) {
+                writeString(out, entry.getKey().toString());
+                out.writeInt(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string to the given output stream.
+     *
+     * @param out the destination output stream.
+     * @param s   the string to write.
+     * @throws IOException if an I/O error occurs.
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string from the current position of the given buffer.
+     *
+     * @param buffer the source buffer.
+     * @return the decoded string.
+     */
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
     }
 
     /**
@@ -87,22 +317,45 @@ public class MapGraph implements AStarGraph<Point> {
      *
      * @param path a file path.
      * @return an input stream with the contents of the specified file.
+     * @throws FileNotFoundException if the file is not found.
      */
-    private static InputStream fileStream(String path) {
-        return Thread.currentThread().getContextClassLoader().getResourceAsStream(path);
+    private static InputStream fileStream(String path) throws FileNotFoundException {
+        InputStream result = Thread.currentThread().getContextClassLoader().getResourceAsStream(path);
+        if (result == null) {
+            throw new FileNotFoundException(path);
+        }
+        return result;
     }
 
     /**
-     * Returns the location closest to the given target location.
+     * Returns the vertex closest to the given target location, or -1 if the graph is empty.
      *
      * @param target the target location.
-     * @return the id of the location closest to the target.
+     * @return the id of the vertex closest to the target.
      */
-    public Point closest(Point target) {
-        if (neighbors.containsKey(target)) {
-            return target;
-        }
-        return Collections.min(neighbors.keySet(), byEstimatedDistanceFrom(target));
+    public int closest(Point target) {
+        return index.nearest(target.getLat(), target.getLon());
+    }
+
+    /**
+     * Returns up to k vertices closest to the given target location, ordered from closest to farthest.
+     *
+     * @param target the target location.
+     * @param k      the maximum number of vertices to return.
+     * @return the ids of up to k vertices closest to the target, ordered from closest to farthest.
+     */
+    public int[] closest(Point target, int k) {
+        return index.nearest(target.getLat(), target.getLon(), k);
+    }
+
+    /**
+     * Returns the location of the given vertex.
+     *
+     * @param vertex the id of the vertex.
+     * @return the location of the given vertex.
+     */
+    public Point location(int vertex) {
+        return context.getShapeFactory().pointLatLon(lat.get(vertex), lon.get(vertex));
     }
 
     /**
@@ -127,30 +380,703 @@ public class MapGraph implements AStarGraph<Point> {
         if (locationName == null || !locations.containsKey(locationName)) {
             return List.of();
         }
-        List<Point> result = new ArrayList<>(locations.get(locationName));
-        result.sort(byEstimatedDistanceFrom(center));
+        // Score every candidate once rather than on every comparison of the sort.
+        List<Point> points = locations.get(locationName);
+        int k = points.size();
+        double[] lats = new double[k];
+        double[] lons = new double[k];
+        for (int i = 0; i < k; i += 1) {
+            lats[i] = points.get(i).getLat();
+            lons[i] = points.get(i).getLon();
+        }
+        double[] dist = new double[k];
+        GeoDistance.lowerBounds(center.getLat(), center.getLon(), lats, lons, k, dist);
+        Integer[] order = new Integer[k];
+        for (int i = 0; i < k; i += 1) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> dist[i]));
+        // Return copies since spatial4j points are mutable and the stored points are shared between requests.
+        List<Point> result = new ArrayList<>(k);
+        for (int i : order) {
+            result.add(context.getShapeFactory().pointLatLon(lats[i], lons[i]));
+        }
         return result;
     }
 
     /**
-     * Returns a list of points representing the shortest path from the points closest to the start and goal.
+     * Returns a list of points representing the shortest path between the points on the road network closest to the
+     * start and goal. Each location is snapped to the nearest point on a road segment rather than the nearest vertex,
+     * and the route begins and ends at those snapped points. Routes are found by querying the precomputed
+     * {@link ContractionHierarchy}.
      *
      * @param start the {@link Point} to start the shortest path.
      * @param goal  the {@link Point} to end the shortest path.
-     * @return a list of points representing the shortest path from the points closest to the start and goal.
+     * @return a list of points representing the shortest path, or an empty list if the goal is unreachable.
      */
     public List<Point> shortestPath(Point start, Point goal) {
-        return new AStarSolver<>(this, closest(start), closest(goal)).solution();
+        return shortestPath(start, goal, new SearchStats());
+    }
+
+    /**
+     * Returns a list of points representing the shortest path between the points on the road network closest to the
+     * start and goal, adding the work done by the search to the given stats.
+     *
+     * @param start the {@link Point} to start the shortest path.
+     * @param goal  the {@link Point} to end the shortest path.
+     * @param stats the stats to add the search's counters to.
+     * @return a list of points representing the shortest path, or an empty list if the goal is unreachable.
+     * @see #shortestPath(Point, Point)
+     */
+    public List<Point> shortestPath(Point start, Point goal, SearchStats stats) {
+        return route(start, goal, graph::weight,
+                (starts, goals) -> new ContractionHierarchySolver(hierarchy, starts, goals, stats).solution());
+    }
+
+    /**
+     * Returns a list of points representing a route between the points on the road network closest to the start and
+     * goal that is at most {@code 1 + epsilon} times as long as the shortest path, adding the work done by the search
+     * to the given stats. The route is found by {@link IndexedAnytimeAStarSolver}, which finds a first route quickly, proves
+     * it to be within {@code 1 + epsilon} of the shortest, and then improves it until the time budget is spent or the
+     * route is shortest. The search returns once the time budget is spent even if it has not yet proven the bound, or
+     * found any route, and records the bound it did prove in {@link SearchStats#bound()}.
+     *
+     * @param start    the {@link Point} to start the route.
+     * @param goal     the {@link Point} to end the route.
+     * @param epsilon  the allowed relative excess of the route length over the shortest path length.
+     * @param maxNanos the time budget for the search in nanoseconds.
+     * @param stats    the stats to add the search's counters to.
+     * @return a list of points representing the route, or an empty list if the goal is unreachable or no route was
+     * found within the time budget.
+     * @see #shortestPath(Point, Point)
+     */
+    public List<Point> shortestPath(Point start, Point goal, double epsilon, long maxNanos, SearchStats stats) {
+        return shortestPath(start, goal, epsilon, maxNanos, stats, SearchBudget.unlimited());
+    }
+
+    /**
+     * Returns a list of points representing a route between the points on the road network closest to the start and
+     * goal that is at most {@code 1 + epsilon} times as long as the shortest path, like
+     * {@link #shortestPath(Point, Point, double, long, SearchStats)}, but giving up once the whole search exceeds the
+     * given limits, even if no route has been found.
+     *
+     * @param start    the {@link Point} to start the route.
+     * @param goal     the {@link Point} to end the route.
+     * @param epsilon  the allowed relative excess of the route length over the shortest path length.
+     * @param maxNanos the time budget for the search in nanoseconds.
+     * @param stats    the stats to add the search's counters to.
+     * @param limits   the limits on the whole search.
+     * @return a list of points representing the route, or an empty list if the goal is unreachable or no route was
+     * found within the time budget.
+     * @throws SearchBudgetExceededException if the search exceeds the limits.
+     */
+    public List<Point> shortestPath(Point start, Point goal, double epsilon, long maxNanos, SearchStats stats,
+                                    SearchBudget limits) {
+        return route(start, goal, graph::weight, (starts, goals) -> {
+            IndexedAStarGraph active = new ActiveLandmarks(starts.keySet(), goals.keySet());
+            IndexedAnytimeAStarSolver solver = new IndexedAnytimeAStarSolver(active, starts, goals, epsilon, stats,
+                    limits);
+            // Prove the bound first, then spend any time left improving the route, returning at the deadline either way.
+            long deadline = System.nanoTime() + maxNanos;
+            if (solver.refineToBound(maxNanos)) {
+                solver.refine(Long.MAX_VALUE, deadline - System.nanoTime());
+            }
+            return solver.solution();
+        });
+    }
+
+    /**
+     * Returns edge weights for the road network computed by the given function from each edge, which runs along a road
+     * between two intersections, and its physical distance, for use with
+     * {@link #shortestPath(Point, Point, MultiLevelOverlay.Metric, SearchStats)}. Weights must be non-negative, and a
+     * street can be closed by returning positive infinity. Unlike rebuilding the contraction hierarchy, this only
+     * recomputes the cell distances of the {@link MultiLevelOverlay}, which takes seconds. The first call also builds
+     * the overlay partition.
+     *
+     * @param weight the function from each edge to its new weight.
+     * @return the customized metric.
+     * @throws IllegalArgumentException if a weight is negative or NaN.
+     */
+    public MultiLevelOverlay.Metric customize(RoadWeight weight) {
+        double[] weights = new double[graph.edgeCount()];
+        for (int v = 0; v < graph.vertexCount(); v += 1) {
+            for (int e = graph.start(v); e < graph.end(v); e += 1) {
+                weights[e] = weight.weight(v, graph.target(e), graph.weight(e));
+            }
+        }
+        return overlay().customize(weights);
+    }
+
+    /**
+     * Returns the multi-level overlay of the road network, building it on first use.
+     *
+     * @return the multi-level overlay of the road network.
+     */
+    private MultiLevelOverlay overlay() {
+        MultiLevelOverlay result = overlay;
+        if (result == null) {
+            synchronized (this) {
+                result = overlay;
+                if (result == null) {
+                    result = new MultiLevelOverlay(graph, lat, lon);
+                    overlay = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a list of points representing the shortest path between the points on the road network closest to the
+     * start and goal under the given customized edge weights, adding the work done by the search to the given stats.
+     *
+     * @param start  the {@link Point} to start the shortest path.
+     * @param goal   the {@link Point} to end the shortest path.
+     * @param metric the edge weights returned by {@link #customize(RoadWeight)}.
+     * @param stats  the stats to add the search's counters to.
+     * @return a list of points representing the shortest path, or an empty list if the goal is unreachable.
+     * @see #shortestPath(Point, Point)
+     */
+    public List<Point> shortestPath(Point start, Point goal, MultiLevelOverlay.Metric metric, SearchStats stats) {
+        return route(start, goal, metric::weight,
+                (starts, goals) -> new MultiLevelOverlaySolver(overlay(), metric, starts, goals, stats).solution());
+    }
+
+    /**
+     * Returns the distance from each source to each target along the road network in degrees, or positive infinity
+     * where a target is unreachable. Each point is snapped to the nearest road segment in the largest strongly
+     * connected component of the road network, and all distances are found with one bucket-based search per source and per
+     * target in the {@link ContractionHierarchy} rather than one route query per pair.
+     *
+     * @param sources the points to measure distances from.
+     * @param targets the points to measure distances to.
+     * @return the distance from each source (rows) to each target (columns).
+     */
+    public double[][] distances(List<Point> sources, List<Point> targets) {
+        return distances(sources, targets, SearchBudget.unlimited());
+    }
+
+    /**
+     * Returns the distance from each source to each target along the road network in degrees, like
+     * {@link #distances(List, List)}, but giving up once the searches exceed the given limits.
+     *
+     * @param sources the points to measure distances from.
+     * @param targets the points to measure distances to.
+     * @param limits  the limits on the searches.
+     * @return the distance from each source (rows) to each target (columns).
+     * @throws SearchBudgetExceededException if the searches exceed the limits.
+     */
+    public double[][] distances(List<Point> sources, List<Point> targets, SearchBudget limits) {
+        SegmentIndex.Snap[] from = new SegmentIndex.Snap[sources.size()];
+        List<Map<Integer, Double>> starts = new ArrayList<>(sources.size());
+        for (int i = 0; i < from.length; i += 1) {
+            from[i] = snapToLargest(sources.get(i));
+            starts.add(from[i] == null ? Map.of() : startSeeds(from[i], graph::weight));
+        }
+        SegmentIndex.Snap[] to = new SegmentIndex.Snap[targets.size()];
+        List<Map<Integer, Double>> goals = new ArrayList<>(targets.size());
+        for (int j = 0; j < to.length; j += 1) {
+            to[j] = snapToLargest(targets.get(j));
+            goals.add(to[j] == null ? Map.of() : goalSeeds(to[j], graph::weight));
+        }
+        double[][] result = new ManyToManySolver(hierarchy, starts, goals, limits).distances();
+        for (int i = 0; i < from.length; i += 1) {
+            for (int j = 0; j < to.length; j += 1) {
+                if (from[i] != null && to[j] != null) {
+                    result[i][j] = Math.min(result[i][j], direct(from[i], to[j], graph::weight));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Snaps the start and goal to the road network and returns the route found by the given search between the
+     * endpoints of the snapped segments, or the part of the segment between them if both are on the same segment and
+     * it is no longer than the route found by the search.
+     * Locations are snapped to the largest strongly connected component, where every route exists, unless both are
+     * nearest to the same smaller component, such as a parking lot, and the route stays within it. The search is
+     * skipped if the strongly connected components show that the goal is unreachable.
+     *
+     * @param start  the {@link Point} to start the shortest path.
+     * @param goal   the {@link Point} to end the shortest path.
+     * @param weight the weight of each edge.
+     * @param search the search from seeded start vertices to seeded goal vertices returning a path of vertices.
+     * @return a list of points representing the shortest path, or an empty list if the goal is unreachable.
+     */
+    private List<Point> route(Point start, Point goal, IntToDoubleFunction weight,
+                              BiFunction<Map<Integer, Double>, Map<Integer, Double>, List<Integer>> search) {
+        SegmentIndex.Snap source = segments.nearest(start.getLat(), start.getLon());
+        SegmentIndex.Snap target = segments.nearest(goal.getLat(), goal.getLon());
+        if (source == null || target == null) {
+            return List.of();
+        }
+        int sourceComponent = component(source);
+        int targetComponent = component(target);
+        if (sourceComponent < 0 || sourceComponent != targetComponent) {
+            if (sourceComponent != components.largest()) {
+                source = snapToLargest(start);
+            }
+            if (targetComponent != components.largest()) {
+                target = snapToLargest(goal);
+            }
+        }
+        Point first = context.getShapeFactory().pointLatLon(source.lat, source.lon);
+        Point last = context.getShapeFactory().pointLatLon(target.lat, target.lon);
+        Map<Integer, Double> starts = startSeeds(source, weight);
+        Map<Integer, Double> goals = goalSeeds(target, weight);
+        List<Integer> path = mayReach(starts, goals) ? search.apply(starts, goals) : List.of();
+        // A route leaving the segment can beat the part of the segment between two points on it, such as when the
+        // road curves away and back or its customized weight is high, so the segment is only taken if it is shorter.
+        // A closed segment is never taken, even if the search found no path either.
+        double direct = direct(source, target, weight);
+        if (source.sameSegment(target) && Double.isFinite(direct) && direct <= length(path, starts, goals, weight)) {
+            List<Point> result = new ArrayList<>();
+            result.add(first);
+            double to = source.from == target.from ? target.fraction : 1 - target.fraction;
+            addShape(result, source.edge, source.fraction * source.weight, to * source.weight);
+            result.add(last);
+            return result;
+        }
+        if (path.isEmpty()) {
+            return List.of();
+        }
+        // Expand the shape points along the part of each snapped segment and along each edge of the path.
+        List<Point> result = new ArrayList<>(path.size() + 2);
+        result.add(first);
+        int u = path.get(0);
+        addShape(result, source.edge, source.fraction * source.weight, u == source.from ? 0.0 : source.weight);
+        result.add(location(u));
+        for (int i = 1; i < path.size(); i += 1) {
+            int v = path.get(i);
+            int e = edge(u, v, weight);
+            addShape(result, e, 0.0, graph.weight(e));
+            result.add(location(v));
+            u = v;
+        }
+        addShape(result, target.edge, u == target.from ? 0.0 : target.weight, target.fraction * target.weight);
+        result.add(last);
+        return result;
+    }
+
+    /**
+     * Adds the shape points of the given edge that lie strictly between the given distances along the edge to the
+     * route, in order from the first distance to the second.
+     *
+     * @param route the route to add the shape points to.
+     * @param edge  the edge.
+     * @param from  the distance along the edge to start from.
+     * @param to    the distance along the edge to end at.
+     */
+    private void addShape(List<Point> route, int edge, double from, double to) {
+        if (from <= to) {
+            for (int i = geometry.start(edge); i < geometry.end(edge); i += 1) {
+                if (geometry.distance(i) > from && geometry.distance(i) < to) {
+                    route.add(context.getShapeFactory().pointLatLon(geometry.lat(i), geometry.lon(i)));
+                }
+            }
+        } else {
+            for (int i = geometry.end(edge) - 1; i >= geometry.start(edge); i -= 1) {
+                if (geometry.distance(i) < from && geometry.distance(i) > to) {
+                    route.add(context.getShapeFactory().pointLatLon(geometry.lat(i), geometry.lon(i)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the area reachable along the road network within the given distance of the given vertex: every vertex
+     * and shape point within the budget, and the convex hull of those points together with the points where the budget
+     * runs out partway along a road.
+     *
+     * @param vertex the id of the start vertex, such as one returned by {@link #closest(Point)}.
+     * @param budget the maximum distance along the road network in degrees.
+     * @return the reachable vertices and their hull.
+     */
+    public Isochrone isochrone(int vertex, double budget) {
+        return isochrone(vertex, budget, SearchBudget.unlimited());
+    }
+
+    /**
+     * Returns the area reachable along the road network within the given distance of the given vertex, like
+     * {@link #isochrone(int, double)}, but giving up once the search exceeds the given limits.
+     *
+     * @param vertex the id of the start vertex, such as one returned by {@link #closest(Point)}.
+     * @param budget the maximum distance along the road network in degrees.
+     * @param limits the limits on the search.
+     * @return the reachable vertices and their hull.
+     * @throws SearchBudgetExceededException if the search exceeds the limits.
+     */
+    public Isochrone isochrone(int vertex, double budget, SearchBudget limits) {
+        BoundedDijkstraSolver solver = new BoundedDijkstraSolver(
+                graph, Map.of(vertex, 0.0), budget, new SearchStats(), limits
+        );
+        List<Point> reachable = new ArrayList<>(solver.count());
+        double[] lats = new double[2 * solver.count()];
+        double[] lons = new double[2 * solver.count()];
+        int size = 0;
+        for (int i = 0; i < solver.count(); i += 1) {
+            int u = solver.vertex(i);
+            double dist = solver.distance(u);
+            reachable.add(location(u));
+            int needed = 1;
+            for (int e = graph.start(u); e < graph.end(u); e += 1) {
+                needed += 3 * (geometry.end(e) - geometry.start(e) + 1);
+            }
+            if (size + needed > lats.length) {
+                lats = Arrays.copyOf(lats, 2 * lats.length + needed);
+                lons = Arrays.copyOf(lons, lats.length);
+            }
+            lats[size] = lat.get(u);
+            lons[size] = lon.get(u);
+            size += 1;
+            for (int e = graph.start(u); e < graph.end(u); e += 1) {
+                int v = graph.target(e);
+                double vDist = solver.distance(v);
+                if (vDist < Double.POSITIVE_INFINITY && v < u) {
+                    // The road is walked from its other end.
+                    continue;
+                }
+                // Walk the shape points from u to v, each reached from whichever end is nearer, adding the points
+                // where the budget runs out partway between two points in either direction.
+                double w = graph.weight(e);
+                double prevLat = lat.get(u);
+                double prevLon = lon.get(u);
+                double prevDist = dist;
+                double prevOffset = 0.0;
+                for (int k = geometry.start(e); k <= geometry.end(e); k += 1) {
+                    boolean last = k == geometry.end(e);
+                    double offset = last ? w : geometry.distance(k);
+                    double pointLat = last ? lat.get(v) : geometry.lat(k);
+                    double pointLon = last ? lon.get(v) : geometry.lon(k);
+                    double pointDist = last ? vDist : Math.min(dist + offset, vDist + (w - offset));
+                    double length = offset - prevOffset;
+                    if (prevDist <= budget && prevDist + length > budget) {
+                        double fraction = (budget - prevDist) / length;
+                        lats[size] = prevLat + fraction * (pointLat - prevLat);
+                        lons[size] = prevLon + fraction * (pointLon - prevLon);
+                        size += 1;
+                    }
+                    if (pointDist <= budget && pointDist + length > budget) {
+                        double fraction = (budget - pointDist) / length;
+                        lats[size] = pointLat + fraction * (prevLat - pointLat);
+                        lons[size] = pointLon + fraction * (prevLon - pointLon);
+                        size += 1;
+                    }
+                    if (!last && pointDist <= budget) {
+                        reachable.add(context.getShapeFactory().pointLatLon(pointLat, pointLon));
+                        lats[size] = pointLat;
+                        lons[size] = pointLon;
+                        size += 1;
+                    }
+                    prevLat = pointLat;
+                    prevLon = pointLon;
+                    prevDist = pointDist;
+                    prevOffset = offset;
+                }
+            }
+        }
+        return new Isochrone(reachable, hull(lats, lons, size));
+    }
+
+    /**
+     * Returns the convex hull of the first n of the given coordinates as a closed ring in counterclockwise order, using
+     * Andrew's monotone chain algorithm. Longitude and latitude are treated as planar coordinates, which preserves
+     * convexity for areas much smaller than a hemisphere.
+     *
+     * @param lats the latitude of each coordinate.
+     * @param lons the longitude of each coordinate.
+     * @param n    the number of coordinates.
+     * @return the points on the convex hull, with the first point repeated at the end.
+     */
+    private List<Point> hull(double[] lats, double[] lons, int n) {
+        // Drop the coordinates strictly inside the quadrilateral of the westmost, southmost, eastmost and northmost
+        // coordinates, which cannot be on the hull, before sorting the rest.
+        int west = 0;
+        int south = 0;
+        int east = 0;
+        int north = 0;
+        for (int i = 1; i < n; i += 1) {
+            west = lons[i] < lons[west] ? i : west;
+            south = lats[i] < lats[south] ? i : south;
+            east = lons[i] > lons[east] ? i : east;
+            north = lats[i] > lats[north] ? i : north;
+        }
+        Integer[] candidates = new Integer[n];
+        int size = 0;
+        for (int i = 0; i < n; i += 1) {
+            if (cross(lats, lons, west, south, i) <= 0 || cross(lats, lons, south, east, i) <= 0
+                    || cross(lats, lons, east, north, i) <= 0 || cross(lats, lons, north, west, i) <= 0) {
+                candidates[size] = i;
+                size += 1;
+            }
+        }
+        Integer[] order = Arrays.copyOf(candidates, size);
+        n = size;
+        Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> lons[i]).thenComparingDouble(i -> lats[i]));
+        int[] chain = new int[2 * n + 1];
+        int k = 0;
+        for (int pass = 0; pass < 2; pass += 1) {
+            int floor = k;
+            for (int j = 0; j < n; j += 1) {
+                int i = pass == 0 ? order[j] : order[n - 1 - j];
+                while (k >= floor + 2 && cross(lats, lons, chain[k - 2], chain[k - 1], i) <= 0) {
+                    k -= 1;
+                }
+                chain[k] = i;
+                k += 1;
+            }
+            // The last point of each half is the first point of the other.
+            k -= 1;
+        }
+        if (k == 0 && n > 0) {
+            chain[0] = order[0];
+            k = 1;
+        }
+        List<Point> result = new ArrayList<>(k + 1);
+        for (int j = 0; j < k; j += 1) {
+            result.add(context.getShapeFactory().pointLatLon(lats[chain[j]], lons[chain[j]]));
+        }
+        if (!result.isEmpty()) {
+            result.add(result.get(0));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the z-component of the cross product of the vectors from coordinate a to b and from a to c, which is
+     * positive if a, b, c turn counterclockwise.
+     *
+     * @param lats the latitude of each coordinate.
+     * @param lons the longitude of each coordinate.
+     * @param a    the index of the first coordinate.
+     * @param b    the index of the second coordinate.
+     * @param c    the index of the third coordinate.
+     * @return the z-component of the cross product.
+     */
+    private static double cross(double[] lats, double[] lons, int a, int b, int c) {
+        return (lons[b] - lons[a]) * (lats[c] - lats[a]) - (lats[b] - lats[a]) * (lons[c] - lons[a]);
+    }
+
+    /**
+     * Returns the strongly connected component containing both endpoints of the segment of a snapped point, or -1 if
+     * the endpoints are in different components.
+     *
+     * @param snap the snapped point.
+     * @return the strongly connected component of the segment of the snapped point, or -1.
+     */
+    private int component(SegmentIndex.Snap snap) {
+        int c = components.component(snap.from);
+        return c == components.component(snap.to) ? c : -1;
+    }
+
+    /**
+     * Returns the point nearest to the given location on a road segment in the largest strongly connected component of
+     * the road network, or null if the road network is empty.
+     *
+     * @param point the location.
+     * @return the snapped point on a road segment in the largest strongly connected component.
+     */
+    private SegmentIndex.Snap snapToLargest(Point point) {
+        int largest = components.largest();
+        return segments.nearest(point.getLat(), point.getLon(), v -> components.component(v) == largest);
+    }
+
+    /**
+     * Returns false if no seeded goal vertex can be reached from any seeded start vertex, judging only by the strongly
+     * connected components of the road network, which takes constant time per pair.
+     *
+     * @param starts the seeded start vertices.
+     * @param goals  the seeded goal vertices.
+     * @return false if the goal is certainly unreachable.
+     */
+    private boolean mayReach(Map<Integer, Double> starts, Map<Integer, Double> goals) {
+        for (int u : starts.keySet()) {
+            for (int v : goals.keySet()) {
+                if (components.mayReach(u, v)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the distance along the segment between two snapped points on the same segment, or positive infinity if
+     * they are on different segments or the segment is closed in the direction of travel.
+     *
+     * @param source the snapped start.
+     * @param target the snapped goal.
+     * @param weight the weight of each edge.
+     * @return the distance along the segment between the snapped points.
+     */
+    private double direct(SegmentIndex.Snap source, SegmentIndex.Snap target, IntToDoubleFunction weight) {
+        if (!source.sameSegment(target)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double fraction = source.from == target.from ? target.fraction : 1 - target.fraction;
+        double segment = fraction >= source.fraction
+                ? segmentWeight(source.from, source.to, weight)
+                : segmentWeight(source.to, source.from, weight);
+        return Double.isFinite(segment) ? Math.abs(fraction - source.fraction) * segment : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the length of a path returned by a search from the given seeds, including the seed distances at both
+     * ends, or positive infinity if the path is empty.
+     *
+     * @param path   the vertices of the path.
+     * @param starts the seeded start vertices.
+     * @param goals  the seeded goal vertices.
+     * @param weight the weight of each edge.
+     * @return the length of the path.
+     */
+    private double length(List<Integer> path, Map<Integer, Double> starts, Map<Integer, Double> goals,
+                          IntToDoubleFunction weight) {
+        if (path.isEmpty()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double result = starts.get(path.get(0)) + goals.get(path.get(path.size() - 1));
+        for (int i = 1; i < path.size(); i += 1) {
+            result += segmentWeight(path.get(i - 1), path.get(i), weight);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the endpoints of the segment of a snapped start mapped to the weight of the part of the segment from
+     * the snapped point to each endpoint.
+     *
+     * @param source the snapped start.
+     * @param weight the weight of each edge.
+     * @return the seeds for a search from the snapped point.
+     */
+    private Map<Integer, Double> startSeeds(SegmentIndex.Snap source, IntToDoubleFunction weight) {
+        return seeds(
+                source.from, source.fraction * segmentWeight(source.to, source.from, weight),
+                source.to, (1 - source.fraction) * segmentWeight(source.from, source.to, weight)
+        );
+    }
+
+    /**
+     * Returns the endpoints of the segment of a snapped goal mapped to the weight of the part of the segment from each
+     * endpoint to the snapped point.
+     *
+     * @param target the snapped goal.
+     * @param weight the weight of each edge.
+     * @return the seeds for a search to the snapped point.
+     */
+    private Map<Integer, Double> goalSeeds(SegmentIndex.Snap target, IntToDoubleFunction weight) {
+        return seeds(
+                target.from, target.fraction * segmentWeight(target.from, target.to, weight),
+                target.to, (1 - target.fraction) * segmentWeight(target.to, target.from, weight)
+        );
+    }
+
+    /**
+     * Returns the smallest weight of an edge from u to v, or positive infinity if there is no such edge.
+     *
+     * @param u      the originating vertex.
+     * @param v      the destination vertex.
+     * @param weight the weight of each edge.
+     * @return the smallest weight of an edge from u to v.
+     */
+    private double segmentWeight(int u, int v, IntToDoubleFunction weight) {
+        int e = edge(u, v, weight);
+        return e < 0 ? Double.POSITIVE_INFINITY : weight.applyAsDouble(e);
+    }
+
+    /**
+     * Returns the edge from u to v with the smallest weight, or -1 if there is no such edge.
+     *
+     * @param u      the originating vertex.
+     * @param v      the destination vertex.
+     * @param weight the weight of each edge.
+     * @return the edge from u to v with the smallest weight, or -1.
+     */
+    private int edge(int u, int v, IntToDoubleFunction weight) {
+        int result = -1;
+        for (int e = graph.start(u); e < graph.end(u); e += 1) {
+            if (graph.target(e) == v && (result < 0 || weight.applyAsDouble(e) < weight.applyAsDouble(result))) {
+                result = e;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the two seeded vertices mapped to their seed distances, leaving out a vertex whose seed is infinite.
+     *
+     * @param u     the first vertex.
+     * @param uDist the seed distance of the first vertex.
+     * @param v     the second vertex.
+     * @param vDist the seed distance of the second vertex.
+     * @return the seeded vertices mapped to their seed distances.
+     */
+    private static Map<Integer, Double> seeds(int u, double uDist, int v, double vDist) {
+        Map<Integer, Double> result = new HashMap<>(4);
+        if (uDist < Double.POSITIVE_INFINITY) {
+            result.put(u, uDist);
+        }
+        if (vDist < Double.POSITIVE_INFINITY) {
+            result.put(v, vDist);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Edge<Integer>> neighbors(Integer vertex) {
+        return graph.neighbors(vertex);
     }
 
     @Override
-    public List<Edge<Point>> neighbors(Point point) {
-        return neighbors.computeIfAbsent(point, (p) -> List.of());
+    public void forEachEdge(Integer from, EdgeVisitor<Integer> visitor) {
+        graph.forEachEdge(from, visitor);
     }
 
     @Override
-    public double estimatedDistance(Point start, Point end) {
-        return context.calcDistance(start, end);
+    public List<Edge<Integer>> incoming(Integer vertex) {
+        int v = vertex;
+        List<Edge<Integer>> result = new ArrayList<>(reverse.end(v) - reverse.start(v));
+        for (int e = reverse.start(v); e < reverse.end(v); e += 1) {
+            result.add(new Edge<>(reverse.target(e), vertex, reverse.weight(e)));
+        }
+        return result;
+    }
+
+    @Override
+    public void forEachIncomingEdge(Integer to, EdgeVisitor<Integer> visitor) {
+        reverse.forEachEdge(to, visitor);
+    }
+
+    @Override
+    public int vertexCount() {
+        return graph.vertexCount();
+    }
+
+    @Override
+    public int start(int vertex) {
+        return graph.start(vertex);
+    }
+
+    @Override
+    public int end(int vertex) {
+        return graph.end(vertex);
+    }
+
+    @Override
+    public int target(int edge) {
+        return graph.target(edge);
+    }
+
+    @Override
+    public double weight(int edge) {
+        return graph.weight(edge);
+    }
+
+    @Override
+    public double estimatedDistance(int start, int end) {
+        return Math.max(geo.lowerBound(start, end), landmarks.lowerBound(start, end));
     }
 
     @Override
@@ -163,134 +1089,505 @@ public class MapGraph implements AStarGraph<Point> {
     }
 
     /**
-     * Adds an edge to this graph if it doesn't already exist using distance as the weight.
-     *
-     * @param from the originating point of the edge.
-     * @param to the terminating point of the edge.
+     * The area reachable within a distance budget returned by {@link #isochrone(int, double)}.
      */
-    private void addEdge(Point from, Point to) {
-        if (!neighbors.containsKey(from)) {
-            neighbors.put(from, new ArrayList<>());
+    public static class Isochrone {
+        /**
+         * The location of every vertex and shape point within the budget.
+         */
+        public final List<Point> reachable;
+        /**
+         * The convex hull of the reachable area as a closed ring.
+         */
+        public final List<Point> hull;
+
+        Isochrone(List<Point> reachable, List<Point> hull) {
+            this.reachable = Collections.unmodifiableList(reachable);
+            this.hull = Collections.unmodifiableList(hull);
         }
-        neighbors.get(from).add(new Edge<>(from, to, estimatedDistance(from, to)));
     }
 
     /**
-     * Returns a {@link Comparator} by estimated distance from the given start point.
-     *
-     * @param start the given start point for distance comparison.
-     * @return a {@link Comparator} by estimated distance from the given start point.
+     * Computes the weight of each road between two intersections for {@link #customize(RoadWeight)}.
      */
-    private Comparator<Point> byEstimatedDistanceFrom(Point start) {
-        return Comparator.comparingDouble(end -> estimatedDistance(start, end));
+    @FunctionalInterface
+    public interface RoadWeight {
+        /**
+         * Returns the weight of the road from one intersection to another.
+         *
+         * @param from     the intersection at the start of the road.
+         * @param to       the intersection at the end of the road.
+         * @param distance the length of the road in degrees.
+         * @return the weight of the road, or positive infinity to close it.
+         */
+        double weight(int from, int to, double distance);
     }
 
     /**
-     * Parses OSM XML files to construct a MapGraph.
+     * The road network with its A* heuristic restricted to the landmarks that give the best bounds between the seeded
+     * start and goal vertices of one query, so that each evaluation of the heuristic reads a few landmarks rather than
+     * all of them. Any subset of landmarks still gives a consistent lower bound.
      */
-    private class Handler extends DefaultHandler {
+    private class ActiveLandmarks implements IndexedAStarGraph {
+        private final int[] active;
+
+        /**
+         * Chooses the active landmarks for a query between the given seeded vertices.
+         *
+         * @param starts the seeded start vertices.
+         * @param goals  the seeded goal vertices.
+         */
+        ActiveLandmarks(Set<Integer> starts, Set<Integer> goals) {
+            boolean[] chosen = new boolean[landmarks.size()];
+            int count = 0;
+            for (int s : starts) {
+                for (int t : goals) {
+                    for (int i : landmarks.active(s, t, ACTIVE_LANDMARKS)) {
+                        if (!chosen[i]) {
+                            chosen[i] = true;
+                            count += 1;
+                        }
+                    }
+                }
+            }
+            active = new int[count];
+            for (int i = 0, j = 0; i < chosen.length; i += 1) {
+                if (chosen[i]) {
+                    active[j++] = i;
+                }
+            }
+        }
+
+        @Override
+        public List<Edge<Integer>> neighbors(Integer vertex) {
+            return graph.neighbors(vertex);
+        }
+
+        @Override
+        public void forEachEdge(Integer from, EdgeVisitor<Integer> visitor) {
+            graph.forEachEdge(from, visitor);
+        }
+
+        @Override
+        public int vertexCount() {
+            return graph.vertexCount();
+        }
+
+        @Override
+        public int start(int vertex) {
+            return graph.start(vertex);
+        }
+
+        @Override
+        public int end(int vertex) {
+            return graph.end(vertex);
+        }
+
+        @Override
+        public int target(int edge) {
+            return graph.target(edge);
+        }
+
+        @Override
+        public double weight(int edge) {
+            return graph.weight(edge);
+        }
+
+        @Override
+        public double estimatedDistance(int start, int end) {
+            return Math.max(geo.lowerBound(start, end), landmarks.lowerBound(start, end, active));
+        }
+    }
+
+    /**
+     * Receives OSM nodes and ways to construct the vertex coordinate, edge and edge geometry arrays for a MapGraph.
+     * The file is read in two passes so that only the coordinates of nodes on allowed highways are kept: the first
+     * pass records the ways and assigns ids to the nodes they reference, and the second pass stores coordinates for
+     * those nodes and for named places.
+     */
+    private class Handler implements OsmSink {
         private final Set<String> allowedHighwayTypes;
-        private final Map<Long, Point> byId;
         private final Map<String, List<Point>> byName;
-        private String state;
-        private long id;
-        private String name;
-        private boolean validWay;
-        private Point location;
-        private Queue<Point> path;
+        /**
+         * Ids assigned to the OSM nodes referenced by allowed ways, in order of first reference.
+         */
+        private final LongIntMap vertices;
+        /**
+         * Ids of the nodes along each allowed way, with ways separated by -1.
+         */
+        private int[] paths;
+        private int pathsSize;
+        private boolean readingNodes;
+        private double[] lat;
+        private double[] lon;
+        private int vertexCount;
+        private int[] from;
+        private int[] to;
+        private double[] weight;
+        private int edgeCount;
+        private EdgeGeometry geometry;
 
         Handler(Set<String> allowedHighwayTypes) {
             this.allowedHighwayTypes = allowedHighwayTypes;
-            this.byId = new HashMap<>();
             this.byName = new HashMap<>();
-            reset();
+            this.vertices = new LongIntMap();
+            this.paths = new int[1024];
+        }
+
+        @Override
+        public void node(long id, double lat, double lon, String name) {
+            if (!readingNodes) {
+                return;
+            }
+            int vertex = vertices.get(id);
+            if (vertex >= 0) {
+                this.lat[vertex] = lat;
+                this.lon[vertex] = lon;
+            }
+            if (!name.isBlank()) {
+                byName.putIfAbsent(name, new ArrayList<>());
+                byName.get(name).add(context.getShapeFactory().pointLatLon(lat, lon));
+            }
+        }
+
+        @Override
+        public void way(long[] refs, String highway) {
+            if (readingNodes || highway == null || !allowedHighwayTypes.contains(highway) || refs.length == 0) {
+                return;
+            }
+            if (pathsSize + refs.length + 1 > paths.length) {
+                paths = Arrays.copyOf(paths, Math.max(2 * paths.length, pathsSize + refs.length + 1));
+            }
+            for (long ref : refs) {
+                paths[pathsSize++] = vertices.putIfAbsent(ref, vertices.size());
+            }
+            paths[pathsSize++] = -1;
+        }
+
+        /**
+         * Ends the first pass and prepares to store coordinates for the referenced nodes.
+         */
+        void endWays() {
+            readingNodes = true;
+            lat = new double[vertices.size()];
+            lon = new double[vertices.size()];
+            Arrays.fill(lat, Double.NaN);
+        }
+
+        /**
+         * Ends the second pass: drops referenced nodes that are missing from the file and collapses each chain of
+         * segments through nodes that join exactly two segments, which only shape the road between intersections,
+         * into one edge in each direction between the ends of the chain. The remaining nodes are renumbered as
+         * vertices, and the nodes along each chain are kept as the shape points of its edges.
+         */
+        void endNodes() {
+            int n = lat.length;
+            // Collect the segments between consecutive nodes on each way, and the segments at each node.
+            int[] segmentFrom = new int[pathsSize];
+            int[] segmentTo = new int[pathsSize];
+            int segmentCount = 0;
+            int[] incidenceStart = new int[n + 1];
+            int u = -1;
+            for (int i = 0; i < pathsSize; i += 1) {
+                int v = paths[i] >= 0 && !Double.isNaN(lat[paths[i]]) ? paths[i] : -1;
+                if (u >= 0 && v >= 0 && u != v) {
+                    segmentFrom[segmentCount] = u;
+                    segmentTo[segmentCount] = v;
+                    segmentCount += 1;
+                    incidenceStart[u + 1] += 1;
+                    incidenceStart[v + 1] += 1;
+                }
+                u = v;
+            }
+            paths = null;
+            for (int v = 0; v < n; v += 1) {
+                incidenceStart[v + 1] += incidenceStart[v];
+            }
+            int[] incidences = new int[2 * segmentCount];
+            int[] next = Arrays.copyOf(incidenceStart, n);
+            for (int s = 0; s < segmentCount; s += 1) {
+                incidences[next[segmentFrom[s]]++] = s;
+                incidences[next[segmentTo[s]]++] = s;
+            }
+
+            // A node is a junction unless it joins exactly two segments to two different nodes.
+            boolean[] junction = new boolean[n];
+            for (int v = 0; v < n; v += 1) {
+                int start = incidenceStart[v];
+                junction[v] = incidenceStart[v + 1] - start != 2
+                        || other(segmentFrom, segmentTo, incidences[start], v)
+                        == other(segmentFrom, segmentTo, incidences[start + 1], v);
+            }
+
+            // Walk the chain along each segment at each junction, keeping each chain from only one of its ends. A
+            // ring of nodes that are not junctions is walked from one of its nodes once every junction is done.
+            int[] chainStart = new int[segmentCount + 1];
+            int[] chainNodes = new int[2 * segmentCount];
+            int chainCount = 0;
+            int size = 0;
+            boolean[] visited = new boolean[n];
+            for (int pass = 0; pass < 2; pass += 1) {
+                for (int root = 0; root < n; root += 1) {
+                    if (pass == 1 && !junction[root] && !visited[root]) {
+                        junction[root] = true;
+                    } else if (pass == 1 || !junction[root]) {
+                        continue;
+                    }
+                    for (int i = incidenceStart[root]; i < incidenceStart[root + 1]; i += 1) {
+                        int begin = size;
+                        chainNodes[size] = root;
+                        size += 1;
+                        int segment = incidences[i];
+                        int v = other(segmentFrom, segmentTo, segment, root);
+                        while (!junction[v]) {
+                            visited[v] = true;
+                            chainNodes[size] = v;
+                            size += 1;
+                            int first = incidences[incidenceStart[v]];
+                            segment = first != segment ? first : incidences[incidenceStart[v] + 1];
+                            v = other(segmentFrom, segmentTo, segment, v);
+                        }
+                        chainNodes[size] = v;
+                        size += 1;
+                        if (incidences[i] < segment || incidences[i] == segment && segmentFrom[segment] == root) {
+                            chainCount += 1;
+                            chainStart[chainCount] = size;
+                        } else {
+                            size = begin;
+                        }
+                    }
+                }
+            }
+
+            // Routes are stored as vertex sequences, so an edge must be identified by its two ends. Make a shape
+            // point a junction where a chain would otherwise be a loop or run parallel to another chain.
+            Set<Long> direct = new HashSet<>();
+            for (int c = 0; c < chainCount; c += 1) {
+                if (chainStart[c + 1] - chainStart[c] == 2) {
+                    direct.add(pair(chainNodes[chainStart[c]], chainNodes[chainStart[c] + 1]));
+                }
+            }
+            Set<Long> seen = new HashSet<>();
+            for (int c = 0; c < chainCount; c += 1) {
+                int first = chainStart[c];
+                int last = chainStart[c + 1] - 1;
+                if (last - first == 1) {
+                    continue;
+                }
+                long key = pair(chainNodes[first], chainNodes[last]);
+                if (chainNodes[first] == chainNodes[last]) {
+                    junction[chainNodes[first + 1]] = true;
+                    junction[chainNodes[last - 1]] = true;
+                } else if (direct.contains(key) || !seen.add(key)) {
+                    junction[chainNodes[(first + last) / 2]] = true;
+                }
+            }
+
+            // Renumber the junctions as vertices.
+            int[] renumber = new int[n];
+            double[] vertexLat = new double[n];
+            double[] vertexLon = new double[n];
+            for (int v = 0; v < n; v += 1) {
+                if (junction[v] && !Double.isNaN(lat[v])) {
+                    renumber[v] = vertexCount;
+                    vertexLat[vertexCount] = lat[v];
+                    vertexLon[vertexCount] = lon[v];
+                    vertexCount += 1;
+                } else {
+                    renumber[v] = -1;
+                }
+            }
+
+            // Split the chains at junctions into pieces, each of which becomes an edge in each direction.
+            int[] pieceFirst = new int[segmentCount];
+            int[] pieceLast = new int[segmentCount];
+            int pieceCount = 0;
+            int[] offsets = new int[vertexCount + 1];
+            for (int c = 0; c < chainCount; c += 1) {
+                int first = chainStart[c];
+                for (int i = first + 1; i < chainStart[c + 1]; i += 1) {
+                    if (junction[chainNodes[i]]) {
+                        pieceFirst[pieceCount] = first;
+                        pieceLast[pieceCount] = i;
+                        pieceCount += 1;
+                        offsets[renumber[chainNodes[first]] + 1] += 1;
+                        offsets[renumber[chainNodes[i]] + 1] += 1;
+                        first = i;
+                    }
+                }
+            }
+
+            // Add the edges grouped by originating vertex, so that each edge keeps its index in the CSR graph, and
+            // the nodes between the ends of each edge as its shape points.
+            for (int v = 0; v < vertexCount; v += 1) {
+                offsets[v + 1] += offsets[v];
+            }
+            edgeCount = 2 * pieceCount;
+            from = new int[edgeCount];
+            to = new int[edgeCount];
+            weight = new double[edgeCount];
+            int[] edgePiece = new int[edgeCount];
+            int[] shapeOffsets = new int[edgeCount + 1];
+            next = Arrays.copyOf(offsets, vertexCount);
+            for (int p = 0; p < pieceCount; p += 1) {
+                int a = renumber[chainNodes[pieceFirst[p]]];
+                int b = renumber[chainNodes[pieceLast[p]]];
+                int forward = next[a]++;
+                from[forward] = a;
+                to[forward] = b;
+                edgePiece[forward] = p;
+                int backward = next[b]++;
+                from[backward] = b;
+                to[backward] = a;
+                edgePiece[backward] = ~p;
+                shapeOffsets[forward + 1] = pieceLast[p] - pieceFirst[p] - 1;
+                shapeOffsets[backward + 1] = pieceLast[p] - pieceFirst[p] - 1;
+            }
+            for (int e = 0; e < edgeCount; e += 1) {
+                shapeOffsets[e + 1] += shapeOffsets[e];
+            }
+            double[] shapeLat = new double[shapeOffsets[edgeCount]];
+            double[] shapeLon = new double[shapeLat.length];
+            double[] shapeDistance = new double[shapeLat.length];
+            for (int e = 0; e < edgeCount; e += 1) {
+                int p = edgePiece[e] >= 0 ? edgePiece[e] : ~edgePiece[e];
+                int step = edgePiece[e] >= 0 ? 1 : -1;
+                int i = edgePiece[e] >= 0 ? pieceFirst[p] : pieceLast[p];
+                double distance = 0.0;
+                for (int k = shapeOffsets[e]; k <= shapeOffsets[e + 1]; k += 1) {
+                    int a = chainNodes[i];
+                    int b = chainNodes[i + step];
+                    distance += GeoDistance.distance(lat[a], lon[a], lat[b], lon[b]);
+                    if (k < shapeOffsets[e + 1]) {
+                        shapeLat[k] = lat[b];
+                        shapeLon[k] = lon[b];
+                        shapeDistance[k] = distance;
+                    }
+                    i += step;
+                }
+                weight[e] = distance;
+            }
+            geometry = new EdgeGeometry(shapeOffsets, shapeLat, shapeLon, shapeDistance);
+            lat = Arrays.copyOf(vertexLat, vertexCount);
+            lon = Arrays.copyOf(vertexLon, vertexCount);
         }
 
         /**
-         * Reset the handler state before processing a new way or node.
+         * Returns the node at the other end of the given segment from the given node.
+         *
+         * @param segmentFrom the first node of each segment.
+         * @param segmentTo   the second node of each segment.
+         * @param segment     the segment.
+         * @param node        a node at one end of the segment.
+         * @return the node at the other end of the segment.
          */
-        private void reset() {
-            state = "";
-            id = Long.MIN_VALUE;
-            name = "";
-            validWay = false;
-            location = null;
-            path = new ArrayDeque<>();
+        private int other(int[] segmentFrom, int[] segmentTo, int segment, int node) {
+            return segmentFrom[segment] == node ? segmentTo[segment] : segmentFrom[segment];
         }
 
         /**
-         * Called at the beginning of an element.
+         * Returns a key for the unordered pair of the given nodes.
          *
-         * @param uri        The Namespace URI, or the empty string if the element has no Namespace URI or
-         *                   if Namespace processing is not being performed.
-         * @param localName  The local name (without prefix), or the empty string if Namespace
-         *                   processing is not being performed.
-         * @param qName      The qualified name (with prefix), or the empty string if qualified names are
-         *                   not available. This tells us which element we're looking at.
-         * @param attributes The attributes attached to the element. If there are no attributes, it
-         *                   shall be an empty Attributes object.
-         * @see Attributes
+         * @param u the first node.
+         * @param v the second node.
+         * @return a key that is equal for both orders of the nodes.
          */
-        @Override
-        public void startElement(String uri, String localName, String qName, Attributes attributes) {
-            if (qName.equals("node")) {
-                state = "node";
-                id = Long.parseLong(attributes.getValue("id"));
-                location = context.getShapeFactory().pointLatLon(
-                        Double.parseDouble(attributes.getValue("lat")),
-                        Double.parseDouble(attributes.getValue("lon"))
-                );
-            } else if (qName.equals("way")) {
-                state = "way";
-            } else if (state.equals("way") && qName.equals("nd")) {
-                long ref = Long.parseLong(attributes.getValue("ref"));
-                path.add(byId.get(ref));
-            } else if (state.equals("way") && qName.equals("tag")) {
-                String k = attributes.getValue("k");
-                String v = attributes.getValue("v");
-                if (k.equals("highway")) {
-                    validWay = allowedHighwayTypes.contains(v);
+        private long pair(int u, int v) {
+            return (long) Math.min(u, v) << 32 | Math.max(u, v);
+        }
+    }
+
+    /**
+     * Open-addressing hash map from {@code long} keys to non-negative {@code int} values with linear probing. Unlike a
+     * {@code HashMap<Long, Integer>}, entries are stored in two primitive arrays without boxing.
+     */
+    private static class LongIntMap {
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        LongIntMap() {
+            keys = new long[1 << 10];
+            values = new int[1 << 10];
+            Arrays.fill(values, -1);
+        }
+
+        /**
+         * Returns the value for the given key, or -1 if the key is not present.
+         *
+         * @param key the key.
+         * @return the value for the given key, or -1 if the key is not present.
+         */
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = index(key, mask); values[i] >= 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
                 }
-            } else if (state.equals("node") && qName.equals("tag") && attributes.getValue("k").equals("name")) {
-                name = attributes.getValue("v").strip()
-                        .replace('“', '"')
-                        .replace('”', '"')
-                        .replace('‘', '\'')
-                        .replace('’', '\'');
             }
+            return -1;
         }
 
         /**
-         * Called at the end of an element.
+         * Associates the value with the key if the key is not already present.
          *
-         * @param uri       The Namespace URI, or the empty string if the element has no Namespace URI or
-         *                  if Namespace processing is not being performed.
-         * @param localName The local name (without prefix), or the empty string if Namespace
-         *                  processing is not being performed.
-         * @param qName     The qualified name (with prefix), or the empty string if qualified names are
-         *                  not available.
+         * @param key   the key.
+         * @param value the non-negative value.
+         * @return the existing value for the key, or the given value if the key was added.
          */
-        @Override
-        public void endElement(String uri, String localName, String qName) {
-            if (qName.equals("way")) {
-                if (validWay && !path.isEmpty()) {
-                    Point from = path.remove();
-                    while (!path.isEmpty()) {
-                        Point to = path.remove();
-                        addEdge(from, to);
-                        addEdge(to, from);
-                        from = to;
-                    }
+        int putIfAbsent(long key, int value) {
+            int mask = keys.length - 1;
+            int i = index(key, mask);
+            while (values[i] >= 0) {
+                if (keys[i] == key) {
+                    return values[i];
                 }
-                reset();
-            } else if (qName.equals("node")) {
-                byId.put(id, location);
-                if (!name.isBlank()) {
-                    byName.putIfAbsent(name, new ArrayList<>());
-                    byName.get(name).add(location);
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size += 1;
+            if (2 * size > keys.length) {
+                resize();
+            }
+            return value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Doubles the capacity of the table and reinserts all entries.
+         */
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[2 * oldKeys.length];
+            values = new int[2 * oldValues.length];
+            Arrays.fill(values, -1);
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j += 1) {
+                if (oldValues[j] >= 0) {
+                    int i = index(oldKeys[j], mask);
+                    while (values[i] >= 0) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
                 }
-                reset();
             }
         }
+
+        /**
+         * Returns the home slot for the key using Fibonacci hashing.
+         *
+         * @param key  the key.
+         * @param mask the table capacity minus one.
+         * @return the home slot for the key.
+         */
+        private static int index(long key, int mask) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
     }
 }
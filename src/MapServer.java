@@ -1,16 +1,34 @@
+import graphs.shortestpaths.SearchBudget;
+import graphs.shortestpaths.SearchBudgetExceededException;
+import graphs.shortestpaths.SearchStats;
 import io.javalin.Javalin;
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
 import io.javalin.validation.JavalinValidation;
 import io.javalin.validation.Validator;
 import org.apache.commons.codec.binary.Base64InputStream;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.server.Request;
 import org.locationtech.spatial4j.context.SpatialContext;
+import org.locationtech.spatial4j.distance.DistanceUtils;
 import org.locationtech.spatial4j.shape.Point;
 import org.locationtech.spatial4j.shape.ShapeFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Run the {@code huskymaps} server.
@@ -24,25 +42,80 @@ public class MapServer {
     private static final int PORT = 8080;
     /**
      * The OpenStreetMap XML file path. Downloaded from <a href="http://download.bbbike.org/osm/">BBBike</a>
-     * using custom region selection.
+     * using custom region selection. An OSM PBF extract can be used instead by giving a path ending in {@code .pbf}.
      */
-    private static final String OSM_DB_PATH = "seattle.osm.gz";
+    static final String OSM_DB_PATH = "seattle.osm.gz";
     /**
      * The place-importance TSV data file path from OpenStreetMap.
      */
-    private static final String PLACES_PATH = "places.tsv";
+    static final String PLACES_PATH = "places.tsv";
+    /**
+     * The binary map graph snapshot file path written by {@link MapCompiler}. If the file exists, the server maps it
+     * instead of parsing the OSM and places data.
+     */
+    static final String SNAPSHOT_PATH = "seattle.graph";
     /**
      * Maximum number of autocomplete search results.
      */
     private static final int MAX_MATCHES = 10;
+    /**
+     * Maximum number of sources or targets in a distance matrix request.
+     */
+    private static final int MAX_MATRIX_POINTS = 100;
+    /**
+     * Isochrone budgets are rounded up to a multiple of this many meters so that nearby requests share cache entries.
+     */
+    private static final int ISOCHRONE_BUCKET_METERS = 100;
+    /**
+     * Maximum isochrone budget in meters.
+     */
+    private static final int MAX_ISOCHRONE_METERS = 20000;
+    /**
+     * Maximum number of isochrones kept in the cache.
+     */
+    private static final int ISOCHRONE_CACHE_SIZE = 256;
+    /**
+     * The allowed relative excess of an approximate route over the shortest route when only a time budget is given.
+     */
+    private static final double DEFAULT_EPSILON = 0.25;
+    /**
+     * Maximum allowed relative excess of an approximate route over the shortest route.
+     */
+    private static final double MAX_EPSILON = 1.0;
+    /**
+     * The time budget in milliseconds for an approximate route when only an epsilon is given. The search returns at
+     * the end of the budget, so it leaves time to prove the bound on a city-sized map.
+     */
+    private static final int DEFAULT_ROUTE_BUDGET_MS = 50;
+    /**
+     * Maximum time budget in milliseconds for an approximate route.
+     */
+    private static final int MAX_ROUTE_BUDGET_MS = 1000;
+    /**
+     * Time limit in milliseconds for the searches done by one request.
+     */
+    private static final int SEARCH_TIMEOUT_MS = 2000;
 
     public static void main(String[] args) throws Exception {
         SpatialContext context = SpatialContext.GEO;
+        create(context, loadMap(context), URL::openStream).start(port());
+    }
+
+    /**
+     * Returns a new, unstarted server app for the given map graph. Javalin runs the handlers concurrently on Jetty's
+     * thread pool, and they all share the map graph without locking, which is safe because a {@link MapGraph} is
+     * immutable. The only shared mutable state is the isochrone cache, which is synchronized.
+     *
+     * @param context the spatial context of the map graph.
+     * @param map     the map graph.
+     * @param images  the source of map images, normally {@link URL#openStream()}.
+     * @return a new server app for the given map graph.
+     */
+    static Javalin create(SpatialContext context, MapGraph map, ImageSource images) {
         ShapeFactory factory = context.getShapeFactory();
-        MapGraph map = new MapGraph(OSM_DB_PATH, PLACES_PATH, context);
         Javalin app = Javalin.create(config -> {
             config.spaRoot.addFile("/", "index.html");
-        }).start(port());
+        });
         app.get("/map/{lon},{lat},{zoom}/{width}x{height}", ctx -> {
             double lon = ctx.pathParamAsClass("lon", Double.class).get();
             double lat = ctx.pathParamAsClass("lat", Double.class).get();
@@ -55,16 +128,32 @@ public class MapServer {
             Validator<Double> goalLon = ctx.queryParamAsClass("goalLon", Double.class);
             Validator<Double> goalLat = ctx.queryParamAsClass("goalLat", Double.class);
 
+            // While the user drags the map, the client can trade route quality for latency by giving the allowed
+            // relative excess over the shortest route, the time budget, or both.
+            boolean approximate = ctx.queryParam("epsilon") != null || ctx.queryParam("budgetMs") != null;
+            double epsilon = ctx.queryParamAsClass("epsilon", Double.class)
+                    .check(e -> e >= 0 && e <= MAX_EPSILON, "must be from 0 to " + MAX_EPSILON)
+                    .getOrDefault(DEFAULT_EPSILON);
+            int budgetMs = ctx.queryParamAsClass("budgetMs", Integer.class)
+                    .check(ms -> ms > 0 && ms <= MAX_ROUTE_BUDGET_MS, "must be from 1 to " + MAX_ROUTE_BUDGET_MS)
+                    .getOrDefault(DEFAULT_ROUTE_BUDGET_MS);
+
             Point center = factory.pointLatLon(lat, lon);
             List<Point> route = List.of();
             if (JavalinValidation.collectErrors(startLon, startLat, goalLon, goalLat).isEmpty()) {
                 Point start = factory.pointLatLon(startLat.get(), startLon.get());
                 Point goal = factory.pointLatLon(goalLat.get(), goalLon.get());
-                route = map.shortestPath(start, goal);
+                SearchStats stats = new SearchStats();
+                if (approximate) {
+                    route = map.shortestPath(start, goal, epsilon, budgetMs * 1_000_000L, stats, limits(ctx));
+                } else {
+                    route = map.shortestPath(start, goal, stats);
+                }
+                ctx.header("Server-Timing", serverTiming(stats));
             }
             List<Point> locations = map.getLocations(term, center);
             URL staticImageURL = url(center, zoom, width, height, route, locations);
-            ctx.result(new Base64InputStream(staticImageURL.openStream(), true));
+            ctx.result(new Base64InputStream(images.open(staticImageURL), true));
         });
         app.get("/search", ctx -> {
             List<CharSequence> result = map.getLocationsByPrefix(ctx.queryParam("term"));
@@ -73,6 +162,169 @@ public class MapServer {
             }
             ctx.json(result);
         });
+        app.get("/matrix", ctx -> {
+            List<Point> sources = points(factory, ctx.queryParam("sources"));
+            List<Point> targets = points(factory, ctx.queryParam("targets"));
+            double[][] distances = map.distances(sources, targets, limits(ctx));
+            // Respond with whole meters, using null for unreachable targets since JSON has no infinity.
+            Long[][] result = new Long[distances.length][];
+            for (int i = 0; i < distances.length; i += 1) {
+                result[i] = new Long[distances[i].length];
+                for (int j = 0; j < distances[i].length; j += 1) {
+                    if (distances[i][j] < Double.POSITIVE_INFINITY) {
+                        result[i][j] = Math.round(distances[i][j] * DistanceUtils.DEG_TO_KM * 1000);
+                    }
+                }
+            }
+            ctx.json(result);
+        });
+        Map<Long, Map<String, double[][]>> isochrones = Collections.synchronizedMap(
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Long, Map<String, double[][]>> eldest) {
+                        return size() > ISOCHRONE_CACHE_SIZE;
+                    }
+                }
+        );
+        app.get("/isochrone", ctx -> {
+            double lon = ctx.queryParamAsClass("lon", Double.class)
+                    .check(x -> x >= -180 && x <= 180, "must be from -180 to 180")
+                    .get();
+            double lat = ctx.queryParamAsClass("lat", Double.class)
+                    .check(y -> y >= -90 && y <= 90, "must be from -90 to 90")
+                    .get();
+            int meters = ctx.queryParamAsClass("meters", Integer.class)
+                    .check(m -> m > 0 && m <= MAX_ISOCHRONE_METERS, "must be from 1 to " + MAX_ISOCHRONE_METERS)
+                    .get();
+            int vertex = map.closest(factory.pointLatLon(lat, lon));
+            if (vertex < 0) {
+                throw new BadRequestResponse("The map is empty");
+            }
+            int bucket = (meters + ISOCHRONE_BUCKET_METERS - 1) / ISOCHRONE_BUCKET_METERS;
+            long key = (long) vertex * (MAX_ISOCHRONE_METERS / ISOCHRONE_BUCKET_METERS + 1) + bucket;
+            // Compute outside the cache lock so that concurrent misses do not wait on each other.
+            Map<String, double[][]> result = isochrones.get(key);
+            if (result == null) {
+                double budget = bucket * ISOCHRONE_BUCKET_METERS / 1000.0 * DistanceUtils.KM_TO_DEG;
+                MapGraph.Isochrone isochrone = map.isochrone(vertex, budget, limits(ctx));
+                result = Map.of("reachable", coordinates(isochrone.reachable), "hull", coordinates(isochrone.hull));
+                isochrones.put(key, result);
+            }
+            ctx.json(result);
+        });
+        // A search that ran out of time or whose client disconnected leaves no partial result to return.
+        app.exception(SearchBudgetExceededException.class, (e, ctx) -> {
+            ctx.status(HttpStatus.SERVICE_UNAVAILABLE).result(e.getMessage());
+        });
+        return app;
+    }
+
+    /**
+     * Returns a {@code Server-Timing} header value describing the work done by the route search for a request and the
+     * bound proven on the ratio of an approximate route to the shortest route, so that it shows up in the browser's
+     * developer tools and can be collected by load tests.
+     *
+     * @param stats the counters of the route search.
+     * @return the header value.
+     */
+    private static String serverTiming(SearchStats stats) {
+        return String.format(Locale.ROOT,
+                "route;dur=%.3f;desc=\"settled=%d relaxed=%d inserts=%d decreaseKeys=%d bound=%.3f\"",
+                stats.nanos() / 1e6, stats.settled(), stats.relaxed(), stats.inserts(), stats.decreaseKeys(),
+                stats.bound());
+    }
+
+    /**
+     * Returns the limits on the searches done for a request: a time limit of {@link #SEARCH_TIMEOUT_MS}, and
+     * cancellation once the client's connection is closed. Jetty only notices a closed connection when it next reads
+     * from or writes to it, so a disconnect is detected on a best-effort basis.
+     *
+     * @param ctx the request context.
+     * @return the limits on the searches done for the request.
+     */
+    private static SearchBudget limits(Context ctx) {
+        Request request = Request.getBaseRequest(ctx.req());
+        if (request == null) {
+            return new SearchBudget(Long.MAX_VALUE, SEARCH_TIMEOUT_MS * 1_000_000L);
+        }
+        EndPoint endPoint = request.getHttpChannel().getEndPoint();
+        return new SearchBudget(Long.MAX_VALUE, SEARCH_TIMEOUT_MS * 1_000_000L, () -> !endPoint.isOpen());
+    }
+
+    /**
+     * Opens a stream of the static map image at a URL.
+     */
+    interface ImageSource {
+        /**
+         * Returns a stream of the image at the given URL.
+         *
+         * @param url the image URL.
+         * @return a stream of the image at the given URL.
+         * @throws IOException if the image cannot be retrieved.
+         */
+        InputStream open(URL url) throws IOException;
+    }
+
+    /**
+     * Returns the given points as {@code [lon, lat]} pairs in the coordinate order used by GeoJSON.
+     *
+     * @param points the points.
+     * @return the coordinates of the given points.
+     */
+    private static double[][] coordinates(List<Point> points) {
+        double[][] result = new double[points.size()][];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = new double[]{points.get(i).getLon(), points.get(i).getLat()};
+        }
+        return result;
+    }
+
+    /**
+     * Returns the points in a query parameter of semicolon-separated {@code lon,lat} pairs.
+     *
+     * @param factory the shape factory for creating points.
+     * @param param   the query parameter value.
+     * @return the points in the query parameter.
+     * @throws BadRequestResponse if the parameter is missing, malformed, or has too many points.
+     */
+    private static List<Point> points(ShapeFactory factory, String param) {
+        if (param == null || param.isBlank()) {
+            throw new BadRequestResponse("Expected semicolon-separated lon,lat pairs");
+        }
+        String[] pairs = param.split(";");
+        if (pairs.length > MAX_MATRIX_POINTS) {
+            throw new BadRequestResponse("At most " + MAX_MATRIX_POINTS + " points are allowed");
+        }
+        List<Point> result = new ArrayList<>(pairs.length);
+        for (String pair : pairs) {
+            String[] coordinates = pair.split(",");
+            try {
+                if (coordinates.length != 2) {
+                    throw new NumberFormatException(pair);
+                }
+                double lon = Double.parseDouble(coordinates[0]);
+                double lat = Double.parseDouble(coordinates[1]);
+                result.add(factory.pointLatLon(lat, lon));
+            } catch (RuntimeException e) {
+                throw new BadRequestResponse("Invalid lon,lat pair: " + pair);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the map graph from the snapshot file if it exists, or otherwise by parsing the OSM and places data.
+     *
+     * @param context the spatial context for the map graph.
+     * @return the map graph.
+     * @throws Exception if the map graph cannot be loaded.
+     */
+    static MapGraph loadMap(SpatialContext context) throws Exception {
+        Path snapshot = Path.of(System.getenv().getOrDefault("SNAPSHOT", SNAPSHOT_PATH));
+        if (Files.isRegularFile(snapshot)) {
+            return new MapGraph(snapshot, context);
+        }
+        return new MapGraph(OSM_DB_PATH, PLACES_PATH, context);
     }
 
     /**
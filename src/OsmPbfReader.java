@@ -0,0 +1,682 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reader for OpenStreetMap (OSM) PBF files. The file is a sequence of length-prefixed blobs, each holding a
+ * zlib-compressed protocol buffer message. The calling thread reads the blobs in order and submits each data blob to a
+ * worker pool that inflates and decodes its {@code PrimitiveBlock} (plain nodes, dense nodes, and ways with their
+ * tags). Decoded blocks are delivered to the {@link OsmSink} in file order. Protocol buffers are decoded by hand so the
+ * reader has no dependencies beyond the JDK.
+ *
+ * @see <a href="https://wiki.openstreetmap.org/wiki/PBF_Format">PBF Format</a>
+ * @see OsmReader
+ * @see OsmSink
+ */
+public class OsmPbfReader implements OsmReader {
+    /**
+     * Maximum size of a {@code BlobHeader} allowed by the format.
+     */
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+    /**
+     * Maximum size of a {@code Blob}, compressed or uncompressed, allowed by the format.
+     */
+    private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+    /**
+     * Required features of the file that this reader understands.
+     */
+    private static final Set<String> SUPPORTED_FEATURES = Set.of("OsmSchema-V0.6", "DenseNodes");
+    /**
+     * UTF-8 bytes of the tag keys used by {@link OsmSink}.
+     */
+    private static final byte[] NAME = "name".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HIGHWAY = "highway".getBytes(StandardCharsets.UTF_8);
+    /**
+     * Number of threads decoding blocks in parallel.
+     */
+    private final int threads;
+
+    /**
+     * Constructs a reader that decodes blocks on one thread per available processor.
+     */
+    public OsmPbfReader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a reader that decodes blocks on the given number of threads.
+     *
+     * @param threads the number of threads decoding blocks in parallel.
+     */
+    public OsmPbfReader(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        this.threads = threads;
+    }
+
+    @Override
+    public void read(InputStream in, OsmSink sink) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        ExecutorService pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "osm-pbf-decoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<Future<Block>> pending = new ArrayDeque<>();
+        try {
+            int first = data.read();
+            while (first >= 0) {
+                int headerSize = first << 24 | data.readUnsignedByte() << 16
+                        | data.readUnsignedByte() << 8 | data.readUnsignedByte();
+                if (headerSize > MAX_HEADER_SIZE) {
+                    throw new IOException("BlobHeader too large: " + headerSize);
+                }
+                Protobuf header = new Protobuf(readFully(data, headerSize));
+                String type = null;
+                int blobSize = -1;
+                while (header.hasNext()) {
+                    int tag = header.tag();
+                    if (tag >>> 3 == 1) {
+                        type = header.string();
+                    } else if (tag >>> 3 == 3) {
+                        blobSize = (int) header.varint();
+                    } else {
+                        header.skip(tag);
+                    }
+                }
+                if (blobSize < 0 || blobSize > MAX_BLOB_SIZE) {
+                    throw new IOException("Invalid blob size: " + blobSize);
+                }
+                byte[] blob = readFully(data, blobSize);
+                if ("OSMHeader".equals(type)) {
+                    checkHeader(new Protobuf(inflate(blob)));
+                } else if ("OSMData".equals(type)) {
+                    pending.add(pool.submit(() -> decode(new Protobuf(inflate(blob)))));
+                    if (pending.size() >= 2 * threads) {
+                        deliver(pending.remove(), sink);
+                    }
+                }
+                // Blobs of any other type are skipped, as the format requires.
+                first = data.read();
+            }
+            while (!pending.isEmpty()) {
+                deliver(pending.remove(), sink);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for the block to be decoded and delivers its nodes and ways to the sink.
+     *
+     * @param future the pending decoded block.
+     * @param sink   the destination for decoded nodes and ways.
+     * @throws IOException if the block could not be decoded.
+     */
+    private static void deliver(Future<Block> future, OsmSink sink) throws IOException {
+        Block block;
+        try {
+            block = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading OSM data");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        for (int i = 0; i < block.nodeCount; i += 1) {
+            sink.node(block.nodeIds[i], block.nodeLats[i], block.nodeLons[i], block.nodeNames[i]);
+        }
+        int start = 0;
+        for (int i = 0; i < block.wayCount; i += 1) {
+            sink.way(Arrays.copyOfRange(block.refs, start, block.wayEnds[i]), block.highways[i]);
+            start = block.wayEnds[i];
+        }
+    }
+
+    /**
+     * Reads exactly the given number of bytes from the input stream.
+     *
+     * @param in     the input stream.
+     * @param length the number of bytes to read.
+     * @return the bytes read.
+     * @throws IOException if the stream ends early.
+     */
+    private static byte[] readFully(DataInputStream in, int length) throws IOException {
+        byte[] result = new byte[length];
+        in.readFully(result);
+        return result;
+    }
+
+    /**
+     * Returns the uncompressed contents of a {@code Blob} message.
+     *
+     * @param blob the encoded {@code Blob} message.
+     * @return the uncompressed contents of the blob.
+     * @throws IOException if the blob uses an unsupported compression or is corrupt.
+     */
+    private static byte[] inflate(byte[] blob) throws IOException {
+        Protobuf message = new Protobuf(blob);
+        int rawSize = -1;
+        while (message.hasNext()) {
+            int tag = message.tag();
+            int field = tag >>> 3;
+            if (field == 1) {
+                return message.bytes();
+            } else if (field == 2) {
+                rawSize = (int) message.varint();
+            } else if (field == 3) {
+                if (rawSize < 0 || rawSize > MAX_BLOB_SIZE) {
+                    throw new IOException("Invalid raw blob size: " + rawSize);
+                }
+                int length = (int) message.varint();
+                Inflater inflater = new Inflater();
+                try {
+                    inflater.setInput(blob, message.position, length);
+                    byte[] result = new byte[rawSize];
+                    int n = 0;
+                    while (n < rawSize && !inflater.finished()) {
+                        int inflated = inflater.inflate(result, n, rawSize - n);
+                        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            throw new EOFException("Truncated zlib data in blob");
+                        }
+                        n += inflated;
+                    }
+                    return result;
+                } catch (DataFormatException e) {
+                    throw new IOException("Corrupt zlib data in blob", e);
+                } finally {
+                    inflater.end();
+                }
+            } else if (field >= 4 && field <= 7) {
+                throw new IOException("Unsupported blob compression (field " + field + ")");
+            } else {
+                message.skip(tag);
+            }
+        }
+        throw new IOException("Blob has no data");
+    }
+
+    /**
+     * Checks that every required feature listed in the {@code HeaderBlock} is supported.
+     *
+     * @param header the decoded {@code HeaderBlock} message.
+     * @throws IOException if the file requires an unsupported feature.
+     */
+    private static void checkHeader(Protobuf header) throws IOException {
+        while (header.hasNext()) {
+            int tag = header.tag();
+            if (tag >>> 3 == 4) {
+                String feature = header.string();
+                if (!SUPPORTED_FEATURES.contains(feature)) {
+                    throw new IOException("Unsupported required feature: " + feature);
+                }
+            } else {
+                header.skip(tag);
+            }
+        }
+    }
+
+    /**
+     * Decodes the nodes and ways in a {@code PrimitiveBlock} message.
+     *
+     * @param message the decoded {@code PrimitiveBlock} message.
+     * @return the nodes and ways in the block.
+     */
+    private static Block decode(Protobuf message) {
+        Block block = new Block(message.buffer);
+        List<Protobuf> groups = new ArrayList<>();
+        while (message.hasNext()) {
+            int tag = message.tag();
+            switch (tag >>> 3) {
+                case 1:
+                    block.readStringTable(message.message());
+                    break;
+                case 2:
+                    groups.add(message.message());
+                    break;
+                case 17:
+                    block.granularity = message.varint();
+                    break;
+                case 19:
+                    block.latOffset = message.varint();
+                    break;
+                case 20:
+                    block.lonOffset = message.varint();
+                    break;
+                default:
+                    message.skip(tag);
+            }
+        }
+        for (Protobuf group : groups) {
+            while (group.hasNext()) {
+                int tag = group.tag();
+                switch (tag >>> 3) {
+                    case 1:
+                        block.readNode(group.message());
+                        break;
+                    case 2:
+                        block.readDenseNodes(group.message());
+                        break;
+                    case 3:
+                        block.readWay(group.message());
+                        break;
+                    default:
+                        group.skip(tag);
+                }
+            }
+        }
+        return block;
+    }
+
+    /**
+     * The nodes and ways decoded from one {@code PrimitiveBlock}.
+     */
+    private static class Block {
+        /**
+         * The uncompressed block, which holds the bytes of the string table.
+         */
+        private final byte[] buffer;
+        private int[] stringOffsets;
+        private int[] stringLengths;
+        /**
+         * String table indices of the {@code name} and {@code highway} keys, or -1 if absent.
+         */
+        private int nameKey;
+        private int highwayKey;
+        private long granularity;
+        private long latOffset;
+        private long lonOffset;
+        private long[] nodeIds;
+        private double[] nodeLats;
+        private double[] nodeLons;
+        private String[] nodeNames;
+        private int nodeCount;
+        private long[] refs;
+        private int refCount;
+        private int[] wayEnds;
+        private String[] highways;
+        private int wayCount;
+
+        Block(byte[] buffer) {
+            this.buffer = buffer;
+            this.stringOffsets = new int[0];
+            this.stringLengths = new int[0];
+            this.nameKey = -1;
+            this.highwayKey = -1;
+            this.granularity = 100;
+            this.nodeIds = new long[256];
+            this.nodeLats = new double[256];
+            this.nodeLons = new double[256];
+            this.nodeNames = new String[256];
+            this.refs = new long[256];
+            this.wayEnds = new int[16];
+            this.highways = new String[16];
+        }
+
+        /**
+         * Records the location of each string in the {@code StringTable} and finds the keys of interest.
+         *
+         * @param table the {@code StringTable} message.
+         */
+        void readStringTable(Protobuf table) {
+            List<int[]> strings = new ArrayList<>();
+            while (table.hasNext()) {
+                int tag = table.tag();
+                if (tag >>> 3 == 1) {
+                    int length = (int) table.varint();
+                    strings.add(new int[]{table.position, length});
+                    table.position += length;
+                } else {
+                    table.skip(tag);
+                }
+            }
+            stringOffsets = new int[strings.size()];
+            stringLengths = new int[strings.size()];
+            for (int i = 0; i < strings.size(); i += 1) {
+                stringOffsets[i] = strings.get(i)[0];
+                stringLengths[i] = strings.get(i)[1];
+                int end = stringOffsets[i] + stringLengths[i];
+                if (Arrays.equals(buffer, stringOffsets[i], end, NAME, 0, NAME.length)) {
+                    nameKey = i;
+                } else if (Arrays.equals(buffer, stringOffsets[i], end, HIGHWAY, 0, HIGHWAY.length)) {
+                    highwayKey = i;
+                }
+            }
+        }
+
+        /**
+         * Returns the string at the given index of the string table.
+         *
+         * @param index the string table index.
+         * @return the string at the given index of the string table.
+         */
+        String string(int index) {
+            return new String(buffer, stringOffsets[index], stringLengths[index], StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Decodes a plain {@code Node} message.
+         *
+         * @param node the {@code Node} message.
+         */
+        void readNode(Protobuf node) {
+            long id = 0;
+            long lat = 0;
+            long lon = 0;
+            long[] keys = new long[0];
+            long[] vals = new long[0];
+            while (node.hasNext()) {
+                int tag = node.tag();
+                switch (tag >>> 3) {
+                    case 1:
+                        id = Protobuf.zigzag(node.varint());
+                        break;
+                    case 2:
+                        keys = node.packed(tag, false);
+                        break;
+                    case 3:
+                        vals = node.packed(tag, false);
+                        break;
+                    case 8:
+                        lat = Protobuf.zigzag(node.varint());
+                        break;
+                    case 9:
+                        lon = Protobuf.zigzag(node.varint());
+                        break;
+                    default:
+                        node.skip(tag);
+                }
+            }
+            String name = null;
+            for (int i = 0; i < keys.length && i < vals.length; i += 1) {
+                if (keys[i] == nameKey) {
+                    name = string((int) vals[i]);
+                }
+            }
+            addNode(id, lat, lon, name);
+        }
+
+        /**
+         * Decodes a {@code DenseNodes} message, whose ids and coordinates are delta-coded and whose tags are packed
+         * into a single array of key and value indices with a 0 after each node's tags.
+         *
+         * @param dense the {@code DenseNodes} message.
+         */
+        void readDenseNodes(Protobuf dense) {
+            long[] ids = new long[0];
+            long[] lats = new long[0];
+            long[] lons = new long[0];
+            long[] keysVals = new long[0];
+            while (dense.hasNext()) {
+                int tag = dense.tag();
+                switch (tag >>> 3) {
+                    case 1:
+                        ids = dense.packed(tag, true);
+                        break;
+                    case 8:
+                        lats = dense.packed(tag, true);
+                        break;
+                    case 9:
+                        lons = dense.packed(tag, true);
+                        break;
+                    case 10:
+                        keysVals = dense.packed(tag, false);
+                        break;
+                    default:
+                        dense.skip(tag);
+                }
+            }
+            long id = 0;
+            long lat = 0;
+            long lon = 0;
+            int j = 0;
+            for (int i = 0; i < ids.length; i += 1) {
+                id += ids[i];
+                lat += lats[i];
+                lon += lons[i];
+                String name = null;
+                while (j < keysVals.length && keysVals[j] != 0) {
+                    if (keysVals[j] == nameKey) {
+                        name = string((int) keysVals[j + 1]);
+                    }
+                    j += 2;
+                }
+                j += 1;
+                addNode(id, lat, lon, name);
+            }
+        }
+
+        /**
+         * Decodes a {@code Way} message, whose node references are delta-coded.
+         *
+         * @param way the {@code Way} message.
+         */
+        void readWay(Protobuf way) {
+            long[] keys = new long[0];
+            long[] vals = new long[0];
+            long[] deltas = new long[0];
+            while (way.hasNext()) {
+                int tag = way.tag();
+                switch (tag >>> 3) {
+                    case 2:
+                        keys = way.packed(tag, false);
+                        break;
+                    case 3:
+                        vals = way.packed(tag, false);
+                        break;
+                    case 8:
+                        deltas = way.packed(tag, true);
+                        break;
+                    default:
+                        way.skip(tag);
+                }
+            }
+            String highway = null;
+            for (int i = 0; i < keys.length && i < vals.length; i += 1) {
+                if (keys[i] == highwayKey) {
+                    highway = string((int) vals[i]).intern();
+                }
+            }
+            if (refCount + deltas.length > refs.length) {
+                refs = Arrays.copyOf(refs, Math.max(2 * refs.length, refCount + deltas.length));
+            }
+            long ref = 0;
+            for (long delta : deltas) {
+                ref += delta;
+                refs[refCount++] = ref;
+            }
+            if (wayCount == wayEnds.length) {
+                wayEnds = Arrays.copyOf(wayEnds, 2 * wayCount);
+                highways = Arrays.copyOf(highways, 2 * wayCount);
+            }
+            wayEnds[wayCount] = refCount;
+            highways[wayCount] = highway;
+            wayCount += 1;
+        }
+
+        /**
+         * Adds a node with coordinates in units of the block granularity.
+         *
+         * @param id   the OSM node id.
+         * @param lat  the latitude in granularity units.
+         * @param lon  the longitude in granularity units.
+         * @param name the raw name of the node, or null.
+         */
+        private void addNode(long id, long lat, long lon, String name) {
+            if (nodeCount == nodeIds.length) {
+                nodeIds = Arrays.copyOf(nodeIds, 2 * nodeCount);
+                nodeLats = Arrays.copyOf(nodeLats, 2 * nodeCount);
+                nodeLons = Arrays.copyOf(nodeLons, 2 * nodeCount);
+                nodeNames = Arrays.copyOf(nodeNames, 2 * nodeCount);
+            }
+            nodeIds[nodeCount] = id;
+            nodeLats[nodeCount] = 1e-9 * (latOffset + granularity * lat);
+            nodeLons[nodeCount] = 1e-9 * (lonOffset + granularity * lon);
+            nodeNames[nodeCount] = OsmReader.normalizeName(name).intern();
+            nodeCount += 1;
+        }
+    }
+
+    /**
+     * Minimal protocol buffer wire format decoder over a region of a byte array.
+     */
+    private static class Protobuf {
+        private static final int VARINT = 0;
+        private static final int FIXED64 = 1;
+        private static final int LENGTH_DELIMITED = 2;
+        private static final int FIXED32 = 5;
+        private final byte[] buffer;
+        private final int limit;
+        private int position;
+
+        Protobuf(byte[] buffer) {
+            this(buffer, 0, buffer.length);
+        }
+
+        Protobuf(byte[] buffer, int position, int limit) {
+            if (position < 0 || limit > buffer.length || position > limit) {
+                throw new IllegalArgumentException("Message extends past end of buffer");
+            }
+            this.buffer = buffer;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        boolean hasNext() {
+            return position < limit;
+        }
+
+        /**
+         * Returns the next field tag: the field number shifted left by 3, combined with the wire type.
+         *
+         * @return the next field tag.
+         */
+        int tag() {
+            return (int) varint();
+        }
+
+        /**
+         * Returns the next variable-length integer.
+         *
+         * @return the next variable-length integer.
+         */
+        long varint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= limit) {
+                    throw new IllegalArgumentException("Truncated varint");
+                }
+                byte b = buffer[position++];
+                result |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        /**
+         * Returns the signed value of a zigzag-encoded {@code sint64}.
+         *
+         * @param n the zigzag-encoded value.
+         * @return the signed value.
+         */
+        static long zigzag(long n) {
+            return (n >>> 1) ^ -(n & 1);
+        }
+
+        /**
+         * Returns a decoder over the next length-delimited field and advances past it.
+         *
+         * @return a decoder over the next length-delimited field.
+         */
+        Protobuf message() {
+            int length = (int) varint();
+            Protobuf result = new Protobuf(buffer, position, position + length);
+            position += length;
+            return result;
+        }
+
+        byte[] bytes() {
+            int length = (int) varint();
+            byte[] result = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return result;
+        }
+
+        String string() {
+            int length = (int) varint();
+            String result = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return result;
+        }
+
+        /**
+         * Returns the values of a repeated integer field, which may be packed or a single unpacked value.
+         *
+         * @param tag    the tag of the field.
+         * @param signed true for {@code sint32} or {@code sint64} values, false for unsigned values.
+         * @return the values of the field.
+         */
+        long[] packed(int tag, boolean signed) {
+            if ((tag & 7) == VARINT) {
+                long value = varint();
+                return new long[]{signed ? zigzag(value) : value};
+            }
+            Protobuf values = message();
+            long[] result = new long[values.limit - values.position];
+            int size = 0;
+            while (values.hasNext()) {
+                long value = values.varint();
+                result[size++] = signed ? zigzag(value) : value;
+            }
+            return Arrays.copyOf(result, size);
+        }
+
+        /**
+         * Skips the value of a field that is not needed.
+         *
+         * @param tag the tag of the field.
+         */
+        void skip(int tag) {
+            switch (tag & 7) {
+                case VARINT:
+                    varint();
+                    break;
+                case FIXED64:
+                    position += 8;
+                    break;
+                case LENGTH_DELIMITED:
+                    int length = (int) varint();
+                    position += length;
+                    break;
+                case FIXED32:
+                    position += 4;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported wire type " + (tag & 7));
+            }
+        }
+    }
+}
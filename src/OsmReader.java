@@ -0,0 +1,51 @@
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes an OpenStreetMap (OSM) file and delivers its nodes and ways to an {@link OsmSink}.
+ *
+ * @see OsmXmlReader
+ * @see OsmPbfReader
+ * @see OsmSink
+ */
+public interface OsmReader {
+    /**
+     * Reads the input stream and delivers every node and way to the sink on the calling thread, in file order.
+     *
+     * @param in   the OSM input stream.
+     * @param sink the destination for decoded nodes and ways.
+     * @throws IOException if the stream cannot be read or is not in the expected format.
+     */
+    void read(InputStream in, OsmSink sink) throws IOException;
+
+    /**
+     * Returns a reader for the given file path: {@link OsmPbfReader} for {@code .pbf} files and {@link OsmXmlReader}
+     * for gzipped XML files.
+     *
+     * @param path the OSM file path.
+     * @return a reader for the given file path.
+     */
+    static OsmReader forPath(String path) {
+        if (path.endsWith(".pbf")) {
+            return new OsmPbfReader();
+        }
+        return new OsmXmlReader();
+    }
+
+    /**
+     * Returns the name with surrounding whitespace removed and curly quotes replaced by straight quotes.
+     *
+     * @param name the raw name, or null.
+     * @return the normalized name, or the empty string if the name is null.
+     */
+    static String normalizeName(String name) {
+        if (name == null) {
+            return "";
+        }
+        return name.strip()
+                .replace('“', '"')
+                .replace('”', '"')
+                .replace('‘', '\'')
+                .replace('’', '\'');
+    }
+}
@@ -0,0 +1,25 @@
+/**
+ * Receives the nodes and ways decoded from an OpenStreetMap (OSM) file, in file order, on a single thread.
+ *
+ * @see OsmReader
+ * @see MapGraph
+ */
+public interface OsmSink {
+    /**
+     * Called for each node in the file.
+     *
+     * @param id   the OSM node id.
+     * @param lat  the latitude of the node.
+     * @param lon  the longitude of the node.
+     * @param name the normalized name of the node, or the empty string if the node is unnamed.
+     */
+    void node(long id, double lat, double lon, String name);
+
+    /**
+     * Called for each way in the file.
+     *
+     * @param refs    the OSM node ids along the way.
+     * @param highway the value of the way's {@code highway} tag, or null if the way has none.
+     */
+    void way(long[] refs, String highway);
+}
@@ -0,0 +1,447 @@
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Pipelined reader for gzipped OpenStreetMap (OSM) XML files. Reading is split into stages connected by bounded
+ * queues so that each stage runs on its own thread:
+ * <ol>
+ *     <li>A gunzip thread decompresses the file into fixed-size chunks.</li>
+ *     <li>A tokenizer thread streams the chunks through a StAX parser and collects the raw attribute strings of
+ *     nodes and ways into batches.</li>
+ *     <li>A worker pool parses the numbers in each batch, with many batches in flight at once.</li>
+ *     <li>The calling thread delivers the parsed batches to the {@link OsmSink} in file order.</li>
+ * </ol>
+ *
+ * @see OsmReader
+ * @see OsmSink
+ * @see MapGraph
+ */
+public class OsmXmlReader implements OsmReader {
+    /**
+     * Number of decompressed bytes in each chunk passed from the gunzip stage to the tokenizer stage.
+     */
+    private static final int CHUNK_SIZE = 1 << 16;
+    /**
+     * Maximum number of nodes or ways in each batch passed from the tokenizer stage to the parser stage.
+     */
+    private static final int BATCH_SIZE = 4096;
+    /**
+     * Maximum number of decompressed chunks waiting for the tokenizer stage.
+     */
+    private static final int CHUNK_QUEUE_CAPACITY = 16;
+    /**
+     * Empty chunk marking the end of the decompressed stream.
+     */
+    private static final byte[] END_OF_STREAM = new byte[0];
+    /**
+     * Number of threads parsing batches in parallel.
+     */
+    private final int threads;
+
+    /**
+     * Constructs a reader that parses batches on one thread per available processor.
+     */
+    public OsmXmlReader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a reader that parses batches on the given number of threads.
+     *
+     * @param threads the number of threads parsing batches in parallel.
+     */
+    public OsmXmlReader(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Reads the gzipped OSM XML input stream and delivers every node and way to the sink on the calling thread.
+     *
+     * @param gzipped the gzipped OSM XML input stream.
+     * @param sink    the destination for decoded nodes and ways.
+     * @throws IOException if the stream cannot be read, is not gzipped, or is not well-formed XML.
+     */
+    @Override
+    public void read(InputStream gzipped, OsmSink sink) throws IOException {
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(CHUNK_QUEUE_CAPACITY);
+        BlockingQueue<Future<Batch>> batches = new ArrayBlockingQueue<>(2 * threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, task -> daemon(task, "osm-parser"));
+        Thread gunzip = daemon(() -> decompress(gzipped, chunks, failure), "osm-gunzip");
+        InputStream decompressed = new ChunkInputStream(chunks, failure);
+        Thread tokenizer = daemon(() -> tokenize(decompressed, batches, pool), "osm-tokenizer");
+        gunzip.start();
+        tokenizer.start();
+        try {
+            Batch batch = batches.take().get();
+            while (batch != null) {
+                batch.deliver(sink);
+                batch = batches.take().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading OSM data");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            gunzip.interrupt();
+            tokenizer.interrupt();
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns a new daemon thread that runs the given task.
+     *
+     * @param task the task to run.
+     * @param name the name of the thread.
+     * @return a new daemon thread that runs the given task.
+     */
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Gunzip stage: decompresses the input stream into chunks, ending with {@link #END_OF_STREAM}.
+     *
+     * @param gzipped the gzipped input stream.
+     * @param chunks  the destination queue of decompressed chunks.
+     * @param failure the holder for an error that ends the stream early.
+     */
+    private static void decompress(InputStream gzipped, BlockingQueue<byte[]> chunks,
+                                   AtomicReference<IOException> failure) {
+        try {
+            try (InputStream in = new GZIPInputStream(gzipped, CHUNK_SIZE)) {
+                byte[] chunk = in.readNBytes(CHUNK_SIZE);
+                while (chunk.length > 0) {
+                    chunks.put(chunk);
+                    chunk = in.readNBytes(CHUNK_SIZE);
+                }
+            } catch (IOException e) {
+                failure.set(e);
+            }
+            chunks.put(END_OF_STREAM);
+        } catch (InterruptedException e) {
+            // The reader has stopped consuming chunks.
+        }
+    }
+
+    /**
+     * Tokenizer stage: streams the decompressed XML and submits a parse task to the pool for each full batch. The
+     * stage ends with a null batch, or with a failed future if the XML cannot be read.
+     *
+     * @param in      the decompressed XML input stream.
+     * @param batches the destination queue of parsed batches in file order.
+     * @param pool    the worker pool for parsing batches.
+     */
+    private static void tokenize(InputStream in, BlockingQueue<Future<Batch>> batches, ExecutorService pool) {
+        try {
+            try {
+                XMLInputFactory factory = XMLInputFactory.newInstance();
+                factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+                XMLStreamReader xml = factory.createXMLStreamReader(in);
+                Element state = Element.NONE;
+                Batch batch = new Batch(false);
+                while (xml.hasNext()) {
+                    int event = xml.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        switch (xml.getLocalName()) {
+                            case "node":
+                                if (batch.ways || batch.size == BATCH_SIZE) {
+                                    submit(batch, batches, pool);
+                                    batch = new Batch(false);
+                                }
+                                state = Element.NODE;
+                                batch.addNode(xml.getAttributeValue(null, "id"),
+                                        xml.getAttributeValue(null, "lat"),
+                                        xml.getAttributeValue(null, "lon"));
+                                break;
+                            case "way":
+                                if (!batch.ways || batch.size == BATCH_SIZE) {
+                                    submit(batch, batches, pool);
+                                    batch = new Batch(true);
+                                }
+                                state = Element.WAY;
+                                batch.addWay();
+                                break;
+                            case "nd":
+                                if (state == Element.WAY) {
+                                    batch.addRef(xml.getAttributeValue(null, "ref"));
+                                }
+                                break;
+                            case "tag":
+                                String k = xml.getAttributeValue(null, "k");
+                                if (state == Element.NODE && "name".equals(k)
+                                        || state == Element.WAY && "highway".equals(k)) {
+                                    batch.setTag(xml.getAttributeValue(null, "v"));
+                                }
+                                break;
+                            default:
+                                state = Element.NONE;
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT && state != Element.NONE) {
+                        String name = xml.getLocalName();
+                        if (name.equals("node") || name.equals("way")) {
+                            state = Element.NONE;
+                        }
+                    }
+                }
+                submit(batch, batches, pool);
+                batches.put(CompletableFuture.completedFuture(null));
+            } catch (XMLStreamException e) {
+                batches.put(CompletableFuture.failedFuture(new IOException(e)));
+            } catch (RuntimeException e) {
+                batches.put(CompletableFuture.failedFuture(e));
+            }
+        } catch (InterruptedException e) {
+            // The reader has stopped consuming batches.
+        }
+    }
+
+    /**
+     * Submits the batch to the pool for parsing if it is not empty, and enqueues its future result.
+     *
+     * @param batch   the batch of raw attribute strings.
+     * @param batches the destination queue of parsed batches in file order.
+     * @param pool    the worker pool for parsing batches.
+     * @throws InterruptedException if interrupted while waiting for space in the queue.
+     */
+    private static void submit(Batch batch, BlockingQueue<Future<Batch>> batches, ExecutorService pool)
+            throws InterruptedException {
+        if (batch.size > 0) {
+            batches.put(CompletableFuture.supplyAsync(batch::parse, pool));
+        }
+    }
+
+    /**
+     * The OSM element whose children are being tokenized.
+     */
+    private enum Element {
+        NONE, NODE, WAY
+    }
+
+    /**
+     * A batch of consecutive nodes or consecutive ways. The tokenizer stage fills in the raw attribute strings, and
+     * the parser stage converts them to numbers.
+     */
+    private static class Batch {
+        /**
+         * True if this batch contains ways; false if it contains nodes.
+         */
+        private final boolean ways;
+        /**
+         * Node id attributes.
+         */
+        private final String[] ids;
+        /**
+         * Node latitude attributes.
+         */
+        private final String[] lats;
+        /**
+         * Node longitude attributes.
+         */
+        private final String[] lons;
+        /**
+         * Node names or way highway types.
+         */
+        private final String[] tags;
+        /**
+         * Way node reference attributes, flattened across all ways in this batch.
+         */
+        private final List<String> refs;
+        /**
+         * One past the index of the last node reference of each way in {@link #refs}.
+         */
+        private final int[] ends;
+        /**
+         * Number of nodes or ways in this batch.
+         */
+        private int size;
+        private long[] parsedIds;
+        private double[] parsedLats;
+        private double[] parsedLons;
+        private long[] parsedRefs;
+
+        /**
+         * Constructs an empty batch of nodes or ways.
+         *
+         * @param ways true for a batch of ways, false for a batch of nodes.
+         */
+        Batch(boolean ways) {
+            this.ways = ways;
+            this.tags = new String[BATCH_SIZE];
+            if (ways) {
+                this.ids = null;
+                this.lats = null;
+                this.lons = null;
+                this.refs = new ArrayList<>(8 * BATCH_SIZE);
+                this.ends = new int[BATCH_SIZE];
+            } else {
+                this.ids = new String[BATCH_SIZE];
+                this.lats = new String[BATCH_SIZE];
+                this.lons = new String[BATCH_SIZE];
+                this.refs = null;
+                this.ends = null;
+            }
+        }
+
+        void addNode(String id, String lat, String lon) {
+            ids[size] = id;
+            lats[size] = lat;
+            lons[size] = lon;
+            size += 1;
+        }
+
+        void addWay() {
+            ends[size] = refs.size();
+            size += 1;
+        }
+
+        void addRef(String ref) {
+            refs.add(ref);
+            ends[size - 1] = refs.size();
+        }
+
+        void setTag(String value) {
+            tags[size - 1] = value;
+        }
+
+        /**
+         * Parses the raw attribute strings in this batch.
+         *
+         * @return this batch.
+         */
+        Batch parse() {
+            if (ways) {
+                parsedRefs = new long[refs.size()];
+                for (int i = 0; i < parsedRefs.length; i += 1) {
+                    parsedRefs[i] = Long.parseLong(refs.get(i));
+                }
+                for (int i = 0; i < size; i += 1) {
+                    // Highway types repeat on almost every way, so share one copy of each.
+                    tags[i] = tags[i] == null ? null : tags[i].intern();
+                }
+            } else {
+                parsedIds = new long[size];
+                parsedLats = new double[size];
+                parsedLons = new double[size];
+                for (int i = 0; i < size; i += 1) {
+                    parsedIds[i] = Long.parseLong(ids[i]);
+                    parsedLats[i] = Double.parseDouble(lats[i]);
+                    parsedLons[i] = Double.parseDouble(lons[i]);
+                    tags[i] = OsmReader.normalizeName(tags[i]).intern();
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Delivers the parsed nodes or ways in this batch to the sink.
+         *
+         * @param sink the destination for decoded nodes and ways.
+         */
+        void deliver(OsmSink sink) {
+            if (ways) {
+                int start = 0;
+                for (int i = 0; i < size; i += 1) {
+                    sink.way(Arrays.copyOfRange(parsedRefs, start, ends[i]), tags[i]);
+                    start = ends[i];
+                }
+            } else {
+                for (int i = 0; i < size; i += 1) {
+                    sink.node(parsedIds[i], parsedLats[i], parsedLons[i], tags[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Input stream over the chunks produced by the gunzip stage.
+     */
+    private static class ChunkInputStream extends InputStream {
+        private final BlockingQueue<byte[]> chunks;
+        private final AtomicReference<IOException> failure;
+        private byte[] chunk;
+        private int position;
+
+        ChunkInputStream(BlockingQueue<byte[]> chunks, AtomicReference<IOException> failure) {
+            this.chunks = chunks;
+            this.failure = failure;
+            this.chunk = new byte[0];
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return chunk[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            } else if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, chunk.length - position);
+            System.arraycopy(chunk, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        /**
+         * Takes the next chunk from the queue if the current chunk is exhausted.
+         *
+         * @return true if there are bytes available, or false at the end of the stream.
+         * @throws IOException if the gunzip stage failed or the thread was interrupted.
+         */
+        private boolean fill() throws IOException {
+            if (chunk == END_OF_STREAM) {
+                return false;
+            }
+            while (position == chunk.length) {
+                try {
+                    chunk = chunks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while decompressing OSM data");
+                }
+                position = 0;
+                if (chunk == END_OF_STREAM) {
+                    if (failure.get() != null) {
+                        throw failure.get();
+                    }
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
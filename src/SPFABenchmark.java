@@ -0,0 +1,138 @@
+import graphs.Graph;
+import graphs.shortestpaths.BellmanFordSolver;
+import graphs.shortestpaths.IndexedDijkstraSolver;
+import graphs.shortestpaths.SPFASolver;
+import graphs.shortestpaths.ShortestPathSolver;
+import org.locationtech.spatial4j.context.SpatialContext;
+import seamfinding.AdjacencyListSeamFinder;
+import seamfinding.Node;
+import seamfinding.Picture;
+import seamfinding.energy.DualGradientEnergyFunction;
+import seamfinding.energy.EnergyFunction;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark {@link SPFASolver} in each {@link SPFASolver.Mode} against {@link BellmanFordSolver} on the seam-carving
+ * graph of a picture and on the {@link MapServer} map. Seams are checked by their total energy and map paths by their
+ * length against {@link IndexedDijkstraSolver}. Run with no arguments to use {@code HJoceanSmall.png} and 5 random
+ * sources, or with the picture path and the number of sources as arguments.
+ *
+ * @see SPFASolver
+ * @see BellmanFordSolver
+ */
+public class SPFABenchmark {
+    private static final String[] NAMES = {"Bellman-Ford", "SPFA FIFO", "SPFA SLF", "SPFA LLL", "SPFA SLF+LLL"};
+    /**
+     * The number of random goals whose path lengths are checked for each map source.
+     */
+    private static final int GOALS = 100;
+
+    public static void main(String[] args) throws Exception {
+        File file = new File(args.length > 0 ? args[0] : "data/seamcarving/HJoceanSmall.png");
+        int sources = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Picture picture = new Picture(file);
+        EnergyFunction f = new DualGradientEnergyFunction();
+        System.out.printf("%s: %d x %d pixels%n", file.getName(), picture.width(), picture.height());
+        List<ShortestPathSolver.Constructor<Node>> seamSolvers = solvers();
+        for (int i = 0; i < NAMES.length; i += 1) {
+            AdjacencyListSeamFinder finder = new AdjacencyListSeamFinder(seamSolvers.get(i));
+            // Run each solver twice and time the second run, after the JIT has compiled the search.
+            List<Integer> seam = null;
+            long time = 0;
+            for (int round = 0; round < 2; round += 1) {
+                long start = System.nanoTime();
+                seam = finder.findHorizontal(picture, f);
+                time = System.nanoTime() - start;
+            }
+            double energy = 0.0;
+            for (int x = 0; x < seam.size(); x += 1) {
+                energy += f.apply(picture, x, seam.get(x));
+            }
+            System.out.printf("%-14s %10.2f ms, seam energy %.6f%n", NAMES[i], time / 1e6, energy);
+        }
+
+        MapGraph map = MapServer.loadMap(SpatialContext.GEO);
+        int n = map.vertexCount();
+        System.out.printf("map: %d vertices%n", n);
+        Random random = new Random(373);
+        int[] starts = random.ints(sources, 0, n).toArray();
+        int[][] goals = new int[sources][];
+        double[][] expected = new double[sources][GOALS];
+        for (int i = 0; i < sources; i += 1) {
+            goals[i] = random.ints(GOALS, 0, n).toArray();
+            IndexedDijkstraSolver solver = new IndexedDijkstraSolver(map, starts[i]);
+            for (int j = 0; j < GOALS; j += 1) {
+                expected[i][j] = solver.distance(goals[i][j]);
+            }
+        }
+        List<ShortestPathSolver.Constructor<Integer>> mapSolvers = solvers();
+        for (int k = 0; k < NAMES.length; k += 1) {
+            int mismatches = 0;
+            long time = 0;
+            for (int round = 0; round < 2; round += 1) {
+                mismatches = 0;
+                time = 0;
+                for (int i = 0; i < sources; i += 1) {
+                    long start = System.nanoTime();
+                    ShortestPathSolver<Integer> solver = mapSolvers.get(k).run(map, starts[i]);
+                    time += System.nanoTime() - start;
+                    for (int j = 0; j < GOALS; j += 1) {
+                        double length = length(map, solver.solution(goals[i][j]), starts[i]);
+                        if (Math.abs(length - expected[i][j]) > 1e-9 * Math.max(1.0, expected[i][j])) {
+                            mismatches += 1;
+                        }
+                    }
+                }
+            }
+            System.out.printf("%-14s %10.2f ms per tree, %d mismatches%n", NAMES[k], time / 1e6 / sources, mismatches);
+        }
+    }
+
+    /**
+     * Returns the constructors of the benchmarked solvers in the order of {@link #NAMES}.
+     *
+     * @param <V> the type of vertices.
+     * @return the constructors of the benchmarked solvers.
+     */
+    private static <V> List<ShortestPathSolver.Constructor<V>> solvers() {
+        return List.of(
+                BellmanFordSolver::new,
+                (graph, start) -> new SPFASolver<>(graph, start, SPFASolver.Mode.FIFO),
+                (graph, start) -> new SPFASolver<>(graph, start, SPFASolver.Mode.SLF),
+                (graph, start) -> new SPFASolver<>(graph, start, SPFASolver.Mode.LLL),
+                (graph, start) -> new SPFASolver<>(graph, start, SPFASolver.Mode.SLF_LLL)
+        );
+    }
+
+    /**
+     * Returns the length of the given path through the lightest edge between each pair of consecutive vertices, or
+     * positive infinity if the path does not begin at the start.
+     *
+     * @param graph the graph.
+     * @param path  the path.
+     * @param start the start vertex.
+     * @param <V>   the type of vertices.
+     * @return the length of the path.
+     */
+    private static <V> double length(Graph<V> graph, List<V> path, V start) {
+        if (!path.get(0).equals(start)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double length = 0.0;
+        for (int i = 0; i + 1 < path.size(); i += 1) {
+            V next = path.get(i + 1);
+            double[] lightest = {Double.POSITIVE_INFINITY};
+            graph.forEachEdge(path.get(i), (to, weight) -> {
+                if (to.equals(next)) {
+                    lightest[0] = Math.min(lightest[0], weight);
+                }
+            });
+            length += lightest[0];
+        }
+        return length;
+    }
+}
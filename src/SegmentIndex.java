@@ -0,0 +1,413 @@
+import graphs.CSRGraph;
+import graphs.EdgeGeometry;
+
+import java.nio.DoubleBuffer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Static bucketed grid over the road segments of a {@link CSRGraph} for snapping locations to the nearest point on a
+ * road. Each road is drawn as the polyline through the shape points of its edge in {@link EdgeGeometry}, and each
+ * straight piece of the polyline is indexed separately, so snapping follows the curves of a road even though the edge
+ * joins only its two ends. Coordinates are projected with an equirectangular projection centered on the mean latitude
+ * of the graph, which preserves distances closely enough at city scale for nearest-segment comparisons. Each piece is
+ * stored in every grid cell overlapped by its bounding box, and queries scan rings of cells outward from the query
+ * until no unvisited cell can hold a nearer piece.
+ *
+ * @see MapGraph#shortestPath
+ */
+public class SegmentIndex {
+    /**
+     * The maximum number of grid cells along either side of the grid.
+     */
+    private static final int MAX_CELLS_PER_SIDE = 1 << 12;
+    /**
+     * The originating vertex of each segment.
+     */
+    private final int[] segmentFrom;
+    /**
+     * The destination vertex of each segment.
+     */
+    private final int[] segmentTo;
+    /**
+     * The edge from the originating vertex to the destination vertex of each segment.
+     */
+    private final int[] segmentEdge;
+    /**
+     * The weight of the edge for each segment.
+     */
+    private final double[] segmentWeight;
+    /**
+     * The segment of each straight piece.
+     */
+    private final int[] pieceSegment;
+    /**
+     * The projected coordinates of the start and end of each piece.
+     */
+    private final double[] x0;
+    private final double[] y0;
+    private final double[] x1;
+    private final double[] y1;
+    /**
+     * The fraction of the way along its segment of the start and end of each piece, by distance.
+     */
+    private final double[] fraction0;
+    private final double[] fraction1;
+    /**
+     * Cell offsets: the pieces in cell {@code c} are at {@code [cellStart[c], cellStart[c + 1])} in cellPieces.
+     */
+    private final int[] cellStart;
+    /**
+     * The pieces in each cell, grouped by cell.
+     */
+    private final int[] cellPieces;
+    private final double cosLat;
+    private final double minX;
+    private final double minY;
+    private final double cellSize;
+    private final int cols;
+    private final int rows;
+
+    /**
+     * The point on a road segment nearest to a query location.
+     */
+    public static class Snap {
+        /**
+         * The originating vertex of the segment.
+         */
+        public final int from;
+        /**
+         * The destination vertex of the segment.
+         */
+        public final int to;
+        /**
+         * The edge from the originating vertex to the destination vertex.
+         */
+        public final int edge;
+        /**
+         * The weight of the edge between the two vertices.
+         */
+        public final double weight;
+        /**
+         * The fraction of the distance along the segment from the originating vertex to the destination vertex,
+         * between 0 and 1.
+         */
+        public final double fraction;
+        /**
+         * The latitude of the snapped point.
+         */
+        public final double lat;
+        /**
+         * The longitude of the snapped point.
+         */
+        public final double lon;
+
+        private Snap(int from, int to, int edge, double weight, double fraction, double lat, double lon) {
+            this.from = from;
+            this.to = to;
+            this.edge = edge;
+            this.weight = weight;
+            this.fraction = fraction;
+            this.lat = lat;
+            this.lon = lon;
+        }
+
+        /**
+         * Returns true if and only if the given snap lies on the same segment in either direction.
+         *
+         * @param other the other snap.
+         * @return true if and only if the given snap lies on the same segment in either direction.
+         */
+        public boolean sameSegment(Snap other) {
+            return (from == other.from && to == other.to) || (from == other.to && to == other.from);
+        }
+    }
+
+    /**
+     * Constructs a segment grid over the road network. Roads in a map graph are stored as pairs of opposite edges, so
+     * only the edges from a lower to a higher vertex id are indexed, along with any edge that lacks an opposite.
+     *
+     * @param graph    the road network.
+     * @param lat      the latitude of each vertex in degrees.
+     * @param lon      the longitude of each vertex in degrees.
+     * @param geometry the shape points of each edge.
+     */
+    public SegmentIndex(CSRGraph graph, DoubleBuffer lat, DoubleBuffer lon, EdgeGeometry geometry) {
+        int n = graph.vertexCount();
+
+        // Collect one segment per road, and count its pieces and shape points.
+        int m = 0;
+        int pieces = 0;
+        for (int u = 0; u < n; u += 1) {
+            for (int e = graph.start(u); e < graph.end(u); e += 1) {
+                if (indexed(graph, u, graph.target(e))) {
+                    m += 1;
+                    pieces += geometry.end(e) - geometry.start(e) + 1;
+                }
+            }
+        }
+        segmentFrom = new int[m];
+        segmentTo = new int[m];
+        segmentEdge = new int[m];
+        segmentWeight = new double[m];
+        double sumLat = 0.0;
+        for (int v = 0; v < n; v += 1) {
+            sumLat += lat.get(v);
+        }
+        int s = 0;
+        for (int u = 0; u < n; u += 1) {
+            for (int e = graph.start(u); e < graph.end(u); e += 1) {
+                int v = graph.target(e);
+                if (indexed(graph, u, v)) {
+                    segmentFrom[s] = u;
+                    segmentTo[s] = v;
+                    segmentEdge[s] = e;
+                    segmentWeight[s] = graph.weight(e);
+                    s += 1;
+                    for (int i = geometry.start(e); i < geometry.end(e); i += 1) {
+                        sumLat += geometry.lat(i);
+                    }
+                }
+            }
+        }
+        int points = n + pieces - m;
+        cosLat = points == 0 ? 1.0 : Math.cos(Math.toRadians(sumLat / points));
+
+        // Project the polyline of each segment into straight pieces.
+        pieceSegment = new int[pieces];
+        x0 = new double[pieces];
+        y0 = new double[pieces];
+        x1 = new double[pieces];
+        y1 = new double[pieces];
+        fraction0 = new double[pieces];
+        fraction1 = new double[pieces];
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        int p = 0;
+        for (s = 0; s < m; s += 1) {
+            int e = segmentEdge[s];
+            double px = lon.get(segmentFrom[s]) * cosLat;
+            double py = lat.get(segmentFrom[s]);
+            double pf = 0.0;
+            for (int i = geometry.start(e); i <= geometry.end(e); i += 1) {
+                pieceSegment[p] = s;
+                x0[p] = px;
+                y0[p] = py;
+                fraction0[p] = pf;
+                if (i < geometry.end(e)) {
+                    px = geometry.lon(i) * cosLat;
+                    py = geometry.lat(i);
+                    pf = segmentWeight[s] > 0.0 ? geometry.distance(i) / segmentWeight[s] : 0.0;
+                } else {
+                    px = lon.get(segmentTo[s]) * cosLat;
+                    py = lat.get(segmentTo[s]);
+                    pf = segmentWeight[s] > 0.0 ? 1.0 : 0.0;
+                }
+                x1[p] = px;
+                y1[p] = py;
+                fraction1[p] = pf;
+                minX = Math.min(minX, Math.min(x0[p], x1[p]));
+                minY = Math.min(minY, Math.min(y0[p], y1[p]));
+                maxX = Math.max(maxX, Math.max(x0[p], x1[p]));
+                maxY = Math.max(maxY, Math.max(y0[p], y1[p]));
+                p += 1;
+            }
+        }
+
+        // Size cells so that there is about one piece per cell.
+        if (pieces == 0) {
+            this.minX = 0.0;
+            this.minY = 0.0;
+            cellSize = 1.0;
+            cols = 1;
+            rows = 1;
+        } else {
+            double width = maxX - minX;
+            double height = maxY - minY;
+            double size = Math.sqrt(width * height / pieces);
+            if (!(size > 0.0)) {
+                size = Math.max(width, height) / pieces;
+            }
+            size = Math.max(size, Math.max(Math.max(width, height) / MAX_CELLS_PER_SIDE, 1e-9));
+            this.minX = minX;
+            this.minY = minY;
+            cellSize = size;
+            cols = (int) (width / size) + 1;
+            rows = (int) (height / size) + 1;
+        }
+
+        // Bucket the pieces by cell with a counting sort.
+        cellStart = new int[cols * rows + 1];
+        for (int i = 0; i < pieces; i += 1) {
+            forEachCell(i, cell -> cellStart[cell + 1] += 1);
+        }
+        for (int c = 0; c < cols * rows; c += 1) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        cellPieces = new int[cellStart[cols * rows]];
+        int[] next = new int[cols * rows];
+        System.arraycopy(cellStart, 0, next, 0, cols * rows);
+        for (int i = 0; i < pieces; i += 1) {
+            int piece = i;
+            forEachCell(i, cell -> {
+                cellPieces[next[cell]] = piece;
+                next[cell] += 1;
+            });
+        }
+    }
+
+    /**
+     * Returns true if and only if the edge from u to v represents its road in the index.
+     *
+     * @param graph the road network.
+     * @param u     the originating vertex.
+     * @param v     the destination vertex.
+     * @return true if and only if the edge from u to v represents its road in the index.
+     */
+    private static boolean indexed(CSRGraph graph, int u, int v) {
+        if (u < v) {
+            return true;
+        }
+        for (int e = graph.start(v); e < graph.end(v); e += 1) {
+            if (graph.target(e) == u) {
+                return false;
+            }
+        }
+        return u != v;
+    }
+
+    /**
+     * Calls the action with each cell overlapped by the bounding box of the given piece.
+     *
+     * @param piece  the piece index.
+     * @param action the action to call with each cell index.
+     */
+    private void forEachCell(int piece, IntConsumer action) {
+        int col0 = col(Math.min(x0[piece], x1[piece]));
+        int col1 = col(Math.max(x0[piece], x1[piece]));
+        int row0 = row(Math.min(y0[piece], y1[piece]));
+        int row1 = row(Math.max(y0[piece], y1[piece]));
+        for (int r = row0; r <= row1; r += 1) {
+            for (int c = col0; c <= col1; c += 1) {
+                action.accept(r * cols + c);
+            }
+        }
+    }
+
+    private int col(double px) {
+        return Math.max(0, Math.min(cols - 1, (int) Math.floor((px - minX) / cellSize)));
+    }
+
+    private int row(double py) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((py - minY) / cellSize)));
+    }
+
+    /**
+     * Returns the number of segments in this index.
+     *
+     * @return the number of segments in this index.
+     */
+    public int size() {
+        return segmentFrom.length;
+    }
+
+    /**
+     * Returns the point on a road segment nearest to the given coordinates, or null if this index is empty.
+     *
+     * @param lat the latitude of the query in degrees.
+     * @param lon the longitude of the query in degrees.
+     * @return the point on a road segment nearest to the given coordinates, or null if this index is empty.
+     */
+    public Snap nearest(double lat, double lon) {
+        return nearest(lat, lon, v -> true);
+    }
+
+    /**
+     * Returns the point nearest to the given coordinates on a road segment whose endpoints both satisfy the given
+     * predicate, or null if there is no such segment.
+     *
+     * @param lat      the latitude of the query in degrees.
+     * @param lon      the longitude of the query in degrees.
+     * @param endpoint the predicate that both endpoints of the segment must satisfy.
+     * @return the point on a matching road segment nearest to the given coordinates, or null if there is none.
+     */
+    public Snap nearest(double lat, double lon, IntPredicate endpoint) {
+        if (size() == 0) {
+            return null;
+        }
+        double qx = lon * cosLat;
+        double qy = lat;
+        int qc = col(qx);
+        int qr = row(qy);
+        int best = -1;
+        double bestDist = Double.POSITIVE_INFINITY;
+        double bestT = 0.0;
+        int maxRing = Math.max(cols, rows);
+        for (int ring = 0; ring <= maxRing; ring += 1) {
+            for (int r = qr - ring; r <= qr + ring; r += 1) {
+                if (r < 0 || r >= rows) {
+                    continue;
+                }
+                boolean edgeRow = r == qr - ring || r == qr + ring;
+                for (int c = qc - ring; c <= qc + ring; c += edgeRow ? 1 : 2 * ring) {
+                    if (c >= 0 && c < cols) {
+                        int cell = r * cols + c;
+                        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i += 1) {
+                            int piece = cellPieces[i];
+                            int segment = pieceSegment[piece];
+                            if (!endpoint.test(segmentFrom[segment]) || !endpoint.test(segmentTo[segment])) {
+                                continue;
+                            }
+                            double t = project(piece, qx, qy);
+                            double dx = qx - (x0[piece] + t * (x1[piece] - x0[piece]));
+                            double dy = qy - (y0[piece] + t * (y1[piece] - y0[piece]));
+                            double dist = dx * dx + dy * dy;
+                            if (dist < bestDist) {
+                                best = piece;
+                                bestDist = dist;
+                                bestT = t;
+                            }
+                        }
+                    }
+                }
+            }
+            // Cells outside the rings scanned so far are at least this far from the query.
+            double reach = ring * cellSize;
+            if (best >= 0 && bestDist <= reach * reach) {
+                break;
+            }
+        }
+        if (best < 0) {
+            return null;
+        }
+        int segment = pieceSegment[best];
+        double snapX = x0[best] + bestT * (x1[best] - x0[best]);
+        double snapY = y0[best] + bestT * (y1[best] - y0[best]);
+        double fraction = fraction0[best] + bestT * (fraction1[best] - fraction0[best]);
+        return new Snap(
+                segmentFrom[segment], segmentTo[segment], segmentEdge[segment], segmentWeight[segment], fraction,
+                snapY, snapX / cosLat
+        );
+    }
+
+    /**
+     * Returns the fraction of the way along the piece of the point on the piece nearest to the projected query.
+     *
+     * @param piece the piece index.
+     * @param qx    the projected x-coordinate of the query.
+     * @param qy    the projected y-coordinate of the query.
+     * @return the fraction of the way along the piece of the nearest point, between 0 and 1.
+     */
+    private double project(int piece, double qx, double qy) {
+        double dx = x1[piece] - x0[piece];
+        double dy = y1[piece] - y0[piece];
+        double lengthSquared = dx * dx + dy * dy;
+        if (lengthSquared == 0.0) {
+            return 0.0;
+        }
+        double t = ((qx - x0[piece]) * dx + (qy - y0[piece]) * dy) / lengthSquared;
+        return Math.max(0.0, Math.min(1.0, t));
+    }
+}
@@ -0,0 +1,297 @@
+import graphs.GeoDistance;
+
+import java.util.Arrays;
+
+/**
+ * Static k-d tree over a set of latitude-longitude points for nearest-neighbor queries. Each point is converted to a
+ * unit vector in earth-centered 3D coordinates, where straight-line (chord) distance increases with great-circle
+ * distance, so the nearest point in the tree is also the nearest point on the sphere. The tree is implicit: the points
+ * are permuted so that each subtree occupies a contiguous range with its splitting point in the middle.
+ *
+ * @see MapGraph#closest
+ */
+public class SpatialIndex {
+    /**
+     * The point ids in tree order.
+     */
+    private final int[] ids;
+    /**
+     * The unit vector coordinates of the points in tree order, interleaved as x, y, z.
+     */
+    private final double[] xyz;
+    /**
+     * The splitting axis (0, 1, or 2) of the subtree rooted at each position.
+     */
+    private final byte[] axes;
+
+    /**
+     * Constructs a k-d tree over the unit vectors already projected by the given distance kernel, where the id of each
+     * point is its vertex id.
+     *
+     * @param points the projected points.
+     */
+    public SpatialIndex(GeoDistance points) {
+        int n = points.size();
+        ids = new int[n];
+        xyz = new double[3 * n];
+        axes = new byte[n];
+        for (int i = 0; i < n; i += 1) {
+            ids[i] = i;
+            points.unitVector(i, xyz, 3 * i);
+        }
+        build(0, n);
+    }
+
+    /**
+     * Builds the subtree over the tree positions in {@code [lo, hi)} by splitting at the median of the axis with the
+     * widest spread.
+     *
+     * @param lo the first tree position (inclusive).
+     * @param hi the last tree position (exclusive).
+     */
+    private void build(int lo, int hi) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int axis = widestAxis(lo, hi);
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, axis);
+        axes[mid] = (byte) axis;
+        build(lo, mid);
+        build(mid + 1, hi);
+    }
+
+    /**
+     * Returns the axis along which the points in {@code [lo, hi)} have the largest extent.
+     *
+     * @param lo the first tree position (inclusive).
+     * @param hi the last tree position (exclusive).
+     * @return the axis with the largest extent.
+     */
+    private int widestAxis(int lo, int hi) {
+        double[] min = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] max = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int i = lo; i < hi; i += 1) {
+            for (int a = 0; a < 3; a += 1) {
+                min[a] = Math.min(min[a], xyz[3 * i + a]);
+                max[a] = Math.max(max[a], xyz[3 * i + a]);
+            }
+        }
+        int result = 0;
+        for (int a = 1; a < 3; a += 1) {
+            if (max[a] - min[a] > max[result] - min[result]) {
+                result = a;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Rearranges the points in {@code [lo, hi]} so that the point at position k has the k-th smallest coordinate on
+     * the axis, with smaller or equal coordinates before it and larger or equal coordinates after it (quickselect).
+     *
+     * @param lo   the first tree position (inclusive).
+     * @param hi   the last tree position (inclusive).
+     * @param k    the position to select.
+     * @param axis the axis to compare.
+     */
+    private void select(int lo, int hi, int k, int axis) {
+        while (lo < hi) {
+            double pivot = xyz[3 * ((lo + hi) >>> 1) + axis];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (xyz[3 * i + axis] < pivot) {
+                    i += 1;
+                }
+                while (xyz[3 * j + axis] > pivot) {
+                    j -= 1;
+                }
+                if (i <= j) {
+                    swap(i, j);
+                    i += 1;
+                    j -= 1;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Swaps the points at the two tree positions.
+     *
+     * @param i the first tree position.
+     * @param j the second tree position.
+     */
+    private void swap(int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        for (int a = 0; a < 3; a += 1) {
+            double c = xyz[3 * i + a];
+            xyz[3 * i + a] = xyz[3 * j + a];
+            xyz[3 * j + a] = c;
+        }
+    }
+
+    /**
+     * Returns the number of points in this index.
+     *
+     * @return the number of points in this index.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Returns the id of the point nearest to the given coordinates, or -1 if this index is empty.
+     *
+     * @param lat the latitude of the query in degrees.
+     * @param lon the longitude of the query in degrees.
+     * @return the id of the point nearest to the given coordinates, or -1 if this index is empty.
+     */
+    public int nearest(double lat, double lon) {
+        int[] result = nearest(lat, lon, 1);
+        return result.length == 0 ? -1 : result[0];
+    }
+
+    /**
+     * Returns the ids of the k points nearest to the given coordinates, ordered from nearest to farthest. Returns fewer
+     * than k ids only if this index has fewer than k points.
+     *
+     * @param lat the latitude of the query in degrees.
+     * @param lon the longitude of the query in degrees.
+     * @param k   the number of points to return.
+     * @return the ids of the k points nearest to the given coordinates, ordered from nearest to farthest.
+     */
+    public int[] nearest(double lat, double lon, int k) {
+        double[] query = new double[3];
+        GeoDistance.unitVector(lat, lon, query, 0);
+        Neighbors neighbors = new Neighbors(Math.min(k, size()));
+        if (neighbors.capacity > 0) {
+            search(0, size(), query, neighbors);
+        }
+        return neighbors.sortedIds();
+    }
+
+    /**
+     * Searches the subtree over {@code [lo, hi)}, visiting the side of the split containing the query first and the
+     * other side only if it could hold a point closer than the current k-th nearest.
+     *
+     * @param lo        the first tree position (inclusive).
+     * @param hi        the last tree position (exclusive).
+     * @param query     the unit vector of the query.
+     * @param neighbors the nearest points found so far.
+     */
+    private void search(int lo, int hi, double[] query, Neighbors neighbors) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        double dx = xyz[3 * mid] - query[0];
+        double dy = xyz[3 * mid + 1] - query[1];
+        double dz = xyz[3 * mid + 2] - query[2];
+        neighbors.offer(ids[mid], dx * dx + dy * dy + dz * dz);
+        if (hi - lo == 1) {
+            return;
+        }
+        int axis = axes[mid];
+        double diff = query[axis] - xyz[3 * mid + axis];
+        if (diff < 0) {
+            search(lo, mid, query, neighbors);
+            if (diff * diff < neighbors.bound()) {
+                search(mid + 1, hi, query, neighbors);
+            }
+        } else {
+            search(mid + 1, hi, query, neighbors);
+            if (diff * diff < neighbors.bound()) {
+                search(lo, mid, query, neighbors);
+            }
+        }
+    }
+
+    /**
+     * Bounded max-heap of the nearest points found so far, keyed by squared chord distance.
+     */
+    private static class Neighbors {
+        private final int capacity;
+        private final int[] ids;
+        private final double[] dists;
+        private int size;
+
+        Neighbors(int capacity) {
+            this.capacity = capacity;
+            this.ids = new int[capacity];
+            this.dists = new double[capacity];
+        }
+
+        /**
+         * Returns the squared distance that a point must beat to be added.
+         *
+         * @return the squared distance that a point must beat to be added.
+         */
+        double bound() {
+            return size < capacity ? Double.POSITIVE_INFINITY : dists[0];
+        }
+
+        /**
+         * Adds the point if it is nearer than the current k-th nearest point.
+         *
+         * @param id   the point id.
+         * @param dist the squared distance to the point.
+         */
+        void offer(int id, double dist) {
+            if (size < capacity) {
+                int i = size;
+                size += 1;
+                while (i > 0 && dists[(i - 1) / 2] < dist) {
+                    ids[i] = ids[(i - 1) / 2];
+                    dists[i] = dists[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                ids[i] = id;
+                dists[i] = dist;
+            } else if (dist < dists[0]) {
+                int i = 0;
+                while (2 * i + 1 < size) {
+                    int child = 2 * i + 1;
+                    if (child + 1 < size && dists[child + 1] > dists[child]) {
+                        child += 1;
+                    }
+                    if (dists[child] <= dist) {
+                        break;
+                    }
+                    ids[i] = ids[child];
+                    dists[i] = dists[child];
+                    i = child;
+                }
+                ids[i] = id;
+                dists[i] = dist;
+            }
+        }
+
+        /**
+         * Returns the ids of the points in this heap ordered from nearest to farthest.
+         *
+         * @return the ids of the points in this heap ordered from nearest to farthest.
+         */
+        int[] sortedIds() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i += 1) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(dists[a], dists[b]));
+            int[] result = new int[size];
+            for (int i = 0; i < size; i += 1) {
+                result[i] = ids[order[i]];
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package graphs;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable compressed sparse row (CSR) {@link Graph} of {@code int} vertices numbered {@code 0} to {@code n - 1}.
+ * The outgoing edges of vertex {@code v} are stored contiguously at the edge indices {@code start(v)} (inclusive)
+ * to {@code end(v)} (exclusive) in packed target and weight arrays, so iterating over neighbors touches only a few
+ * cache lines and never follows object pointers. The arrays are held in {@link java.nio} buffers so that a graph can
+ * be served either from the heap or directly from a memory-mapped file written by {@link #write(DataOutputStream)}.
+ *
+ * @see IndexedGraph
+ */
+public class CSRGraph implements IndexedGraph {
+    /**
+     * Edge index offsets: the outgoing edges of vertex {@code v} are in {@code [offsets[v], offsets[v + 1])}.
+     */
+    private final IntBuffer offsets;
+    /**
+     * The destination vertex of each edge.
+     */
+    private final IntBuffer targets;
+    /**
+     * The weight of each edge.
+     */
+    private final DoubleBuffer weights;
+
+    /**
+     * Constructs a new CSR graph with {@code n} vertices from the first {@code m} entries of the given parallel edge
+     * arrays. Edges are grouped by originating vertex in a counting sort that preserves their relative order.
+     *
+     * @param n      the number of vertices.
+     * @param from   the originating vertex of each edge.
+     * @param to     the destination vertex of each edge.
+     * @param weight the weight of each edge.
+     * @param m      the number of edges.
+     * @throws IllegalArgumentException if an edge refers to a vertex outside {@code [0, n)}.
+     */
+    public CSRGraph(int n, int[] from, int[] to, double[] weight, int m) {
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[m];
+        double[] weights = new double[m];
+        for (int i = 0; i < m; i += 1) {
+            if (from[i] < 0 || from[i] >= n || to[i] < 0 || to[i] >= n) {
+                throw new IllegalArgumentException("Edge " + from[i] + " -> " + to[i] + " out of bounds");
+            }
+            offsets[from[i] + 1] += 1;
+        }
+        for (int v = 0; v < n; v += 1) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] next = new int[n];
+        System.arraycopy(offsets, 0, next, 0, n);
+        for (int i = 0; i < m; i += 1) {
+            int e = next[from[i]]++;
+            targets[e] = to[i];
+            weights[e] = weight[i];
+        }
+        this.offsets = IntBuffer.wrap(offsets);
+        this.targets = IntBuffer.wrap(targets);
+        this.weights = DoubleBuffer.wrap(weights);
+    }
+
+    /**
+     * Constructs a CSR graph over existing buffers without copying them.
+     *
+     * @param offsets the {@code n + 1} edge index offsets.
+     * @param targets the destination vertex of each edge.
+     * @param weights the weight of each edge.
+     */
+    private CSRGraph(IntBuffer offsets, IntBuffer targets, DoubleBuffer weights) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     * Returns a CSR graph backed by the bytes at the current position of the given buffer, which must have been
+     * produced by {@link #write(DataOutputStream)}. The returned graph reads directly from the buffer (for example, a
+     * memory-mapped file) and the buffer position is advanced past the graph.
+     *
+     * @param buffer the buffer positioned at the start of a written graph.
+     * @return a CSR graph backed by the given buffer.
+     */
+    public static CSRGraph map(ByteBuffer buffer) {
+        int n = buffer.getInt();
+        int m = buffer.getInt();
+        IntBuffer offsets = slice(buffer, 4L * (n + 1)).asIntBuffer();
+        IntBuffer targets = slice(buffer, 4L * m).asIntBuffer();
+        DoubleBuffer weights = slice(buffer, 8L * m).asDoubleBuffer();
+        return new CSRGraph(offsets, targets, weights);
+    }
+
+    /**
+     * Returns a slice of the given number of bytes at the current position of the buffer and advances the position
+     * past the slice, rounded up to the next multiple of 8 bytes.
+     *
+     * @param buffer the source buffer.
+     * @param bytes  the number of bytes in the slice.
+     * @return a slice of the given number of bytes at the current position of the buffer.
+     */
+    public static ByteBuffer slice(ByteBuffer buffer, long bytes) {
+        ByteBuffer result = buffer.slice().order(buffer.order());
+        result.limit(Math.toIntExact(bytes));
+        buffer.position(buffer.position() + Math.toIntExact(align(bytes)));
+        return result;
+    }
+
+    /**
+     * Writes this graph to the given output stream in the format read by {@link #map(ByteBuffer)}. Array sections are
+     * padded to 8-byte boundaries relative to the start of the graph so that mapped views stay aligned.
+     *
+     * @param out the destination output stream.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(vertexCount());
+        out.writeInt(edgeCount());
+        for (int i = 0; i < offsets.limit(); i += 1) {
+            out.writeInt(offsets.get(i));
+        }
+        pad(out, 4L * offsets.limit());
+        for (int e = 0; e < edgeCount(); e += 1) {
+            out.writeInt(targets.get(e));
+        }
+        pad(out, 4L * edgeCount());
+        for (int e = 0; e < edgeCount(); e += 1) {
+            out.writeDouble(weights.get(e));
+        }
+    }
+
+    /**
+     * Writes zero bytes after a section of the given length to reach the next multiple of 8 bytes.
+     *
+     * @param out   the destination output stream.
+     * @param bytes the length of the section that was just written.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static void pad(DataOutputStream out, long bytes) throws IOException {
+        for (long i = bytes; i < align(bytes); i += 1) {
+            out.writeByte(0);
+        }
+    }
+
+    /**
+     * Returns the given number of bytes rounded up to the next multiple of 8.
+     *
+     * @param bytes the number of bytes.
+     * @return the given number of bytes rounded up to the next multiple of 8.
+     */
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Returns a new CSR graph with the same vertices and every edge reversed, so that the outgoing edges of each vertex
+     * in the result correspond to the incoming edges of that vertex in this graph.
+     *
+     * @return a new CSR graph with every edge reversed.
+     */
+    public CSRGraph reverse() {
+        int[] from = new int[edgeCount()];
+        int[] to = new int[edgeCount()];
+        double[] weight = new double[edgeCount()];
+        for (int v = 0; v < vertexCount(); v += 1) {
+            for (int e = start(v); e < end(v); e += 1) {
+                from[e] = targets.get(e);
+                to[e] = v;
+                weight[e] = weights.get(e);
+            }
+        }
+        return new CSRGraph(vertexCount(), from, to, weight, edgeCount());
+    }
+
+    @Override
+    public int vertexCount() {
+        return offsets.limit() - 1;
+    }
+
+    /**
+     * Returns the number of edges in this graph.
+     *
+     * @return the number of edges in this graph.
+     */
+    public int edgeCount() {
+        return targets.limit();
+    }
+
+    @Override
+    public int start(int vertex) {
+        return offsets.get(vertex);
+    }
+
+    @Override
+    public int end(int vertex) {
+        return offsets.get(vertex + 1);
+    }
+
+    @Override
+    public int target(int edge) {
+        return targets.get(edge);
+    }
+
+    @Override
+    public double weight(int edge) {
+        return weights.get(edge);
+    }
+
+    @Override
+    public List<Edge<Integer>> neighbors(Integer vertex) {
+        int v = vertex;
+        List<Edge<Integer>> result = new ArrayList<>(end(v) - start(v));
+        for (int e = start(v); e < end(v); e += 1) {
+            result.add(new Edge<>(vertex, targets.get(e), weights.get(e)));
+        }
+        return result;
+    }
+
+    @Override
+    public void forEachEdge(Integer from, EdgeVisitor<Integer> visitor) {
+        int v = from;
+        for (int e = start(v); e < end(v); e += 1) {
+            visitor.visit(targets.get(e), weights.get(e));
+        }
+    }
+}
@@ -0,0 +1,549 @@
+package graphs;
+
+import graphs.shortestpaths.ContractionHierarchySolver;
+import minpq.IntMinPQ;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Contraction hierarchy over a {@link CSRGraph} for fast exact shortest path queries. Preprocessing contracts the
+ * vertices one at a time in order of importance: each contracted vertex is removed from the remaining graph, and a
+ * shortcut edge is added between each pair of its remaining neighbors whose shortest path ran through it, unless a
+ * local witness search finds another path that is no longer. Every shortest path in the original graph then has an
+ * equally short path in the hierarchy that only goes up in rank and then only down, so a query is a bidirectional
+ * search that only follows edges toward higher-ranked vertices and settles a few hundred vertices at most.
+ * <p>
+ * The result is stored as two CSR graphs: the upward graph holds each edge from its lower-ranked endpoint, and the
+ * downward graph holds each edge into a lower-ranked vertex reversed, so that the backward search of a query also
+ * moves up in rank. Each edge records the middle vertex it shortcuts (or -1 for an original edge), which is enough to
+ * unpack a hierarchy path back into the original vertices.
+ *
+ * @see CSRGraph
+ * @see ContractionHierarchySolver
+ */
+public class ContractionHierarchy {
+    /**
+     * The maximum number of vertices settled by a witness search while estimating the priority of a vertex.
+     */
+    private static final int SIMULATION_SETTLE_LIMIT = 64;
+    /**
+     * The maximum number of vertices settled by a witness search while contracting a vertex.
+     */
+    private static final int CONTRACTION_SETTLE_LIMIT = 512;
+    /**
+     * The position of each vertex in the contraction order.
+     */
+    private final IntBuffer rank;
+    /**
+     * Edges from each vertex to higher-ranked vertices.
+     */
+    private final CSRGraph up;
+    /**
+     * The middle vertex of each upward edge, or -1 for an original edge.
+     */
+    private final IntBuffer upMiddle;
+    /**
+     * Edges into each vertex from higher-ranked vertices, reversed.
+     */
+    private final CSRGraph down;
+    /**
+     * The middle vertex of each downward edge, or -1 for an original edge.
+     */
+    private final IntBuffer downMiddle;
+
+    /**
+     * Constructs a contraction hierarchy over existing buffers without copying them.
+     *
+     * @param rank       the rank of each vertex.
+     * @param up         the upward graph.
+     * @param upMiddle   the middle vertex of each upward edge.
+     * @param down       the downward graph, reversed.
+     * @param downMiddle the middle vertex of each downward edge.
+     */
+    private ContractionHierarchy(IntBuffer rank, CSRGraph up, IntBuffer upMiddle, CSRGraph down,
+                                 IntBuffer downMiddle) {
+        this.rank = rank;
+        this.up = up;
+        this.upMiddle = upMiddle;
+        this.down = down;
+        this.downMiddle = downMiddle;
+    }
+
+    /**
+     * Builds a contraction hierarchy over the given graph. Vertices are ordered by edge difference (the number of
+     * shortcuts contracting the vertex would add minus the number of edges it would remove) plus the number of its
+     * neighbors already contracted, which keeps the contraction spread evenly over the graph. Priorities are updated
+     * for the neighbors of each contracted vertex and lazily re-checked before each contraction.
+     *
+     * @param graph the graph.
+     * @return the contraction hierarchy.
+     */
+    public static ContractionHierarchy build(CSRGraph graph) {
+        int n = graph.vertexCount();
+        Contractor contractor = new Contractor(graph);
+        IntMinPQ pq = new IntMinPQ(n);
+        for (int v = 0; v < n; v += 1) {
+            pq.add(v, contractor.priority(v));
+        }
+        int[] rank = new int[n];
+        int next = 0;
+        while (!pq.isEmpty()) {
+            int v = pq.removeMin();
+            double priority = contractor.priority(v);
+            if (!pq.isEmpty() && priority > pq.peekMinPriority()) {
+                pq.add(v, priority);
+                continue;
+            }
+            rank[v] = next;
+            next += 1;
+            for (int neighbor : contractor.contract(v)) {
+                pq.changePriority(neighbor, contractor.priority(neighbor));
+            }
+        }
+        Edges upEdges = contractor.up;
+        Edges downEdges = contractor.down;
+        return new ContractionHierarchy(
+                IntBuffer.wrap(rank),
+                new CSRGraph(n, upEdges.from, upEdges.to, upEdges.weight, upEdges.size),
+                IntBuffer.wrap(groupByFrom(n, upEdges.from, upEdges.middle, upEdges.size)),
+                new CSRGraph(n, downEdges.from, downEdges.to, downEdges.weight, downEdges.size),
+                IntBuffer.wrap(groupByFrom(n, downEdges.from, downEdges.middle, downEdges.size))
+        );
+    }
+
+    /**
+     * Returns the values of the first m edges reordered into the stable grouping by originating vertex used by the
+     * {@link CSRGraph} constructor, so that they line up with the edge indices of the constructed graph.
+     *
+     * @param n      the number of vertices.
+     * @param from   the originating vertex of each edge.
+     * @param values the value of each edge.
+     * @param m      the number of edges.
+     * @return the values in CSR edge order.
+     */
+    private static int[] groupByFrom(int n, int[] from, int[] values, int m) {
+        int[] next = new int[n + 1];
+        for (int i = 0; i < m; i += 1) {
+            next[from[i] + 1] += 1;
+        }
+        for (int v = 0; v < n; v += 1) {
+            next[v + 1] += next[v];
+        }
+        int[] result = new int[m];
+        for (int i = 0; i < m; i += 1) {
+            result[next[from[i]]] = values[i];
+            next[from[i]] += 1;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a contraction hierarchy backed by the bytes at the current position of the given buffer, which must have
+     * been produced by {@link #write(DataOutputStream)}. The buffer position is advanced past the hierarchy.
+     *
+     * @param buffer the buffer positioned at the start of a written hierarchy.
+     * @return a contraction hierarchy backed by the given buffer.
+     */
+    public static ContractionHierarchy map(ByteBuffer buffer) {
+        int n = buffer.getInt();
+        buffer.getInt();
+        IntBuffer rank = CSRGraph.slice(buffer, 4L * n).asIntBuffer();
+        CSRGraph up = CSRGraph.map(buffer);
+        IntBuffer upMiddle = CSRGraph.slice(buffer, 4L * up.edgeCount()).asIntBuffer();
+        CSRGraph down = CSRGraph.map(buffer);
+        IntBuffer downMiddle = CSRGraph.slice(buffer, 4L * down.edgeCount()).asIntBuffer();
+        return new ContractionHierarchy(rank, up, upMiddle, down, downMiddle);
+    }
+
+    /**
+     * Writes this hierarchy to the given output stream in the format read by {@link #map(ByteBuffer)}.
+     *
+     * @param out the destination output stream.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(rank.limit());
+        out.writeInt(0);
+        writeInts(out, rank);
+        up.write(out);
+        writeInts(out, upMiddle);
+        down.write(out);
+        writeInts(out, downMiddle);
+    }
+
+    /**
+     * Writes the given ints followed by padding to the next multiple of 8 bytes.
+     *
+     * @param out    the destination output stream.
+     * @param values the values to write.
+     * @throws IOException if an I/O error occurs.
+     */
+    private static void writeInts(DataOutputStream out, IntBuffer values) throws IOException {
+        for (int i = 0; i < values.limit(); i += 1) {
+            out.writeInt(values.get(i));
+        }
+        CSRGraph.pad(out, 4L * values.limit());
+    }
+
+    /**
+     * Returns the graph of edges from each vertex to higher-ranked vertices, for the forward search of a query.
+     *
+     * @return the upward graph.
+     */
+    public CSRGraph upward() {
+        return up;
+    }
+
+    /**
+     * Returns the graph of edges into each vertex from higher-ranked vertices, reversed so that each edge is stored at
+     * its destination, for the backward search of a query.
+     *
+     * @return the reversed downward graph.
+     */
+    public CSRGraph downward() {
+        return down;
+    }
+
+    /**
+     * Returns the total number of upward and downward edges, including shortcuts.
+     *
+     * @return the total number of edges in this hierarchy.
+     */
+    public int edgeCount() {
+        return up.edgeCount() + down.edgeCount();
+    }
+
+    /**
+     * Appends the original vertices along the hierarchy edge from u to w to the given path, excluding u and including
+     * w. Shortcuts are expanded recursively, using an explicit stack so that deeply nested shortcuts cannot overflow
+     * the call stack.
+     *
+     * @param u    the originating vertex of a hierarchy edge.
+     * @param w    the destination vertex of the hierarchy edge.
+     * @param path the list to append the vertices to.
+     */
+    public void unpack(int u, int w, List<Integer> path) {
+        int[] stack = new int[16];
+        int size = 0;
+        stack[size] = u;
+        stack[size + 1] = w;
+        size += 2;
+        while (size > 0) {
+            size -= 2;
+            int a = stack[size];
+            int b = stack[size + 1];
+            int middle = middle(a, b);
+            if (middle < 0) {
+                path.add(b);
+            } else {
+                if (size + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                }
+                stack[size] = middle;
+                stack[size + 1] = b;
+                stack[size + 2] = a;
+                stack[size + 3] = middle;
+                size += 4;
+            }
+        }
+    }
+
+    /**
+     * Returns the middle vertex of the hierarchy edge from u to w, or -1 if it is an original edge.
+     *
+     * @param u the originating vertex.
+     * @param w the destination vertex.
+     * @return the middle vertex of the edge, or -1 if it is an original edge.
+     * @throws IllegalArgumentException if the hierarchy has no edge from u to w.
+     */
+    private int middle(int u, int w) {
+        if (rank.get(w) > rank.get(u)) {
+            for (int e = up.start(u); e < up.end(u); e += 1) {
+                if (up.target(e) == w) {
+                    return upMiddle.get(e);
+                }
+            }
+        } else {
+            for (int e = down.start(w); e < down.end(w); e += 1) {
+                if (down.target(e) == u) {
+                    return downMiddle.get(e);
+                }
+            }
+        }
+        throw new IllegalArgumentException("No hierarchy edge " + u + " -> " + w);
+    }
+
+    /**
+     * Growable parallel arrays of edges with middle vertices.
+     */
+    private static class Edges {
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private double[] weight = new double[16];
+        private int[] middle = new int[16];
+        private int size;
+
+        void add(int u, int w, double edgeWeight, int edgeMiddle) {
+            if (size == from.length) {
+                from = Arrays.copyOf(from, 2 * size);
+                to = Arrays.copyOf(to, 2 * size);
+                weight = Arrays.copyOf(weight, 2 * size);
+                middle = Arrays.copyOf(middle, 2 * size);
+            }
+            from[size] = u;
+            to[size] = w;
+            weight[size] = edgeWeight;
+            middle[size] = edgeMiddle;
+            size += 1;
+        }
+    }
+
+    /**
+     * Mutable adjacency lists of the remaining graph during preprocessing, holding at most one edge per ordered pair
+     * of vertices (the shortest).
+     */
+    private static class Contractor {
+        private final int[][] outTarget;
+        private final double[][] outWeight;
+        private final int[][] outMiddle;
+        private final int[] outSize;
+        private final int[][] inSource;
+        private final double[][] inWeight;
+        private final int[][] inMiddle;
+        private final int[] inSize;
+        /**
+         * The number of contracted neighbors of each vertex.
+         */
+        private final int[] deleted;
+        /**
+         * Witness search state, reset after each search through the touched list.
+         */
+        private final double[] dist;
+        private final int[] touched;
+        private final IntMinPQ pq;
+        private final Edges up;
+        private final Edges down;
+
+        Contractor(CSRGraph graph) {
+            int n = graph.vertexCount();
+            outTarget = new int[n][];
+            outWeight = new double[n][];
+            outMiddle = new int[n][];
+            outSize = new int[n];
+            inSource = new int[n][];
+            inWeight = new double[n][];
+            inMiddle = new int[n][];
+            inSize = new int[n];
+            for (int v = 0; v < n; v += 1) {
+                outTarget[v] = new int[4];
+                outWeight[v] = new double[4];
+                outMiddle[v] = new int[4];
+                inSource[v] = new int[4];
+                inWeight[v] = new double[4];
+                inMiddle[v] = new int[4];
+            }
+            deleted = new int[n];
+            dist = new double[n];
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            touched = new int[n];
+            pq = new IntMinPQ(n);
+            up = new Edges();
+            down = new Edges();
+            for (int u = 0; u < n; u += 1) {
+                for (int e = graph.start(u); e < graph.end(u); e += 1) {
+                    if (graph.target(e) != u) {
+                        addEdge(u, graph.target(e), graph.weight(e), -1);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds an edge from u to w, or shortens the existing edge from u to w if the new edge is shorter.
+         */
+        void addEdge(int u, int w, double weight, int middle) {
+            for (int i = 0; i < outSize[u]; i += 1) {
+                if (outTarget[u][i] == w) {
+                    if (weight < outWeight[u][i]) {
+                        outWeight[u][i] = weight;
+                        outMiddle[u][i] = middle;
+                        for (int j = 0; j < inSize[w]; j += 1) {
+                            if (inSource[w][j] == u) {
+                                inWeight[w][j] = weight;
+                                inMiddle[w][j] = middle;
+                            }
+                        }
+                    }
+                    return;
+                }
+            }
+            if (outSize[u] == outTarget[u].length) {
+                outTarget[u] = Arrays.copyOf(outTarget[u], 2 * outSize[u]);
+                outWeight[u] = Arrays.copyOf(outWeight[u], 2 * outSize[u]);
+                outMiddle[u] = Arrays.copyOf(outMiddle[u], 2 * outSize[u]);
+            }
+            outTarget[u][outSize[u]] = w;
+            outWeight[u][outSize[u]] = weight;
+            outMiddle[u][outSize[u]] = middle;
+            outSize[u] += 1;
+            if (inSize[w] == inSource[w].length) {
+                inSource[w] = Arrays.copyOf(inSource[w], 2 * inSize[w]);
+                inWeight[w] = Arrays.copyOf(inWeight[w], 2 * inSize[w]);
+                inMiddle[w] = Arrays.copyOf(inMiddle[w], 2 * inSize[w]);
+            }
+            inSource[w][inSize[w]] = u;
+            inWeight[w][inSize[w]] = weight;
+            inMiddle[w][inSize[w]] = middle;
+            inSize[w] += 1;
+        }
+
+        /**
+         * Returns the contraction priority of v: its edge difference plus its number of contracted neighbors.
+         */
+        double priority(int v) {
+            int shortcuts = shortcuts(v, false);
+            return shortcuts - inSize[v] - outSize[v] + deleted[v];
+        }
+
+        /**
+         * Contracts v: records its remaining edges in the hierarchy, adds the necessary shortcuts between its
+         * neighbors, and removes it from the remaining graph.
+         *
+         * @return the distinct remaining neighbors of v.
+         */
+        int[] contract(int v) {
+            for (int i = 0; i < outSize[v]; i += 1) {
+                up.add(v, outTarget[v][i], outWeight[v][i], outMiddle[v][i]);
+            }
+            for (int i = 0; i < inSize[v]; i += 1) {
+                down.add(v, inSource[v][i], inWeight[v][i], inMiddle[v][i]);
+            }
+            shortcuts(v, true);
+            int[] neighbors = new int[outSize[v] + inSize[v]];
+            int count = 0;
+            for (int i = 0; i < outSize[v]; i += 1) {
+                int w = outTarget[v][i];
+                removeIn(w, v);
+                neighbors[count] = w;
+                count += 1;
+            }
+            for (int i = 0; i < inSize[v]; i += 1) {
+                int u = inSource[v][i];
+                removeOut(u, v);
+                neighbors[count] = u;
+                count += 1;
+            }
+            outSize[v] = 0;
+            inSize[v] = 0;
+            Arrays.sort(neighbors, 0, count);
+            int distinct = 0;
+            for (int i = 0; i < count; i += 1) {
+                if (i == 0 || neighbors[i] != neighbors[i - 1]) {
+                    neighbors[distinct] = neighbors[i];
+                    deleted[neighbors[i]] += 1;
+                    distinct += 1;
+                }
+            }
+            return Arrays.copyOf(neighbors, distinct);
+        }
+
+        private void removeOut(int u, int w) {
+            for (int i = 0; i < outSize[u]; i += 1) {
+                if (outTarget[u][i] == w) {
+                    outSize[u] -= 1;
+                    outTarget[u][i] = outTarget[u][outSize[u]];
+                    outWeight[u][i] = outWeight[u][outSize[u]];
+                    outMiddle[u][i] = outMiddle[u][outSize[u]];
+                    return;
+                }
+            }
+        }
+
+        private void removeIn(int w, int u) {
+            for (int i = 0; i < inSize[w]; i += 1) {
+                if (inSource[w][i] == u) {
+                    inSize[w] -= 1;
+                    inSource[w][i] = inSource[w][inSize[w]];
+                    inWeight[w][i] = inWeight[w][inSize[w]];
+                    inMiddle[w][i] = inMiddle[w][inSize[w]];
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Counts, and if requested adds, the shortcuts needed to contract v: one from each in-neighbor u to each
+         * out-neighbor w unless a witness search from u that avoids v finds a path to w no longer than through v.
+         *
+         * @return the number of shortcuts needed.
+         */
+        int shortcuts(int v, boolean add) {
+            int limit = add ? CONTRACTION_SETTLE_LIMIT : SIMULATION_SETTLE_LIMIT;
+            int result = 0;
+            double maxOut = 0.0;
+            for (int i = 0; i < outSize[v]; i += 1) {
+                maxOut = Math.max(maxOut, outWeight[v][i]);
+            }
+            for (int i = 0; i < inSize[v]; i += 1) {
+                int u = inSource[v][i];
+                double viaIn = inWeight[v][i];
+                int count = witnessSearch(u, v, viaIn + maxOut, limit);
+                for (int j = 0; j < outSize[v]; j += 1) {
+                    int w = outTarget[v][j];
+                    double via = viaIn + outWeight[v][j];
+                    if (w != u && dist[w] > via) {
+                        result += 1;
+                        if (add) {
+                            addEdge(u, w, via, v);
+                        }
+                    }
+                }
+                for (int j = 0; j < count; j += 1) {
+                    dist[touched[j]] = Double.POSITIVE_INFINITY;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Runs Dijkstra's algorithm from the source in the remaining graph without passing through the excluded vertex,
+         * stopping once the next distance exceeds the limit or the settle limit is reached.
+         *
+         * @return the number of touched vertices, whose distances must be reset by the caller.
+         */
+        private int witnessSearch(int source, int excluded, double maxDist, int settleLimit) {
+            int count = 0;
+            dist[source] = 0.0;
+            touched[count] = source;
+            count += 1;
+            pq.add(source, 0.0);
+            int settled = 0;
+            while (!pq.isEmpty() && settled < settleLimit) {
+                if (pq.peekMinPriority() > maxDist) {
+                    break;
+                }
+                int x = pq.removeMin();
+                settled += 1;
+                for (int i = 0; i < outSize[x]; i += 1) {
+                    int y = outTarget[x][i];
+                    double d = dist[x] + outWeight[x][i];
+                    if (y != excluded && d < dist[y]) {
+                        if (dist[y] == Double.POSITIVE_INFINITY) {
+                            touched[count] = y;
+                            count += 1;
+                        }
+                        dist[y] = d;
+                        pq.addOrChangePriority(y, d);
+                    }
+                }
+            }
+            pq.clear();
+            return count;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package graphs;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * The shape of each edge of a {@link CSRGraph} whose edges stand for chains of straight segments, such as a road that
+ * curves between two intersections. For each edge, the intermediate shape points are stored in order from the
+ * originating vertex of the edge together with the distance along the edge to each point, so a search only visits the
+ * endpoints of each chain while the full polyline can still be drawn or snapped to.
+ * <p>
+ * The shape points of edge {@code e} are at the indices {@code start(e)} (inclusive) to {@code end(e)} (exclusive) in
+ * packed coordinate and distance arrays. Like {@link CSRGraph}, the arrays are held in {@link java.nio} buffers so
+ * that the geometry can be served from the heap or memory-mapped from a file written by
+ * {@link #write(DataOutputStream)}.
+ *
+ * @see CSRGraph
+ */
+public class EdgeGeometry {
+    /**
+     * Shape point offsets: the shape points of edge {@code e} are in {@code [offsets[e], offsets[e + 1])}.
+     */
+    private final IntBuffer offsets;
+    /**
+     * The latitude of each shape point in degrees.
+     */
+    private final DoubleBuffer lat;
+    /**
+     * The longitude of each shape point in degrees.
+     */
+    private final DoubleBuffer lon;
+    /**
+     * The distance along its edge from the originating vertex to each shape point.
+     */
+    private final DoubleBuffer distance;
+
+    /**
+     * Constructs the geometry of {@code offsets.length - 1} edges from shape point arrays grouped by edge in the order
+     * of the edge indices of the graph. The arrays are not copied.
+     *
+     * @param offsets  the {@code m + 1} shape point offsets.
+     * @param lat      the latitude of each shape point in degrees.
+     * @param lon      the longitude of each shape point in degrees.
+     * @param distance the distance along its edge from the originating vertex to each shape point.
+     */
+    public EdgeGeometry(int[] offsets, double[] lat, double[] lon, double[] distance) {
+        this(IntBuffer.wrap(offsets), DoubleBuffer.wrap(lat), DoubleBuffer.wrap(lon), DoubleBuffer.wrap(distance));
+    }
+
+    /**
+     * Constructs the geometry over existing buffers without copying them.
+     *
+     * @param offsets  the {@code m + 1} shape point offsets.
+     * @param lat      the latitude of each shape point in degrees.
+     * @param lon      the longitude of each shape point in degrees.
+     * @param distance the distance along its edge from the originating vertex to each shape point.
+     */
+    private EdgeGeometry(IntBuffer offsets, DoubleBuffer lat, DoubleBuffer lon, DoubleBuffer distance) {
+        this.offsets = offsets;
+        this.lat = lat;
+        this.lon = lon;
+        this.distance = distance;
+    }
+
+    /**
+     * Returns edge geometry backed by the bytes at the current position of the given buffer, which must have been
+     * produced by {@link #write(DataOutputStream)}. The buffer position is advanced past the geometry.
+     *
+     * @param buffer the buffer positioned at the start of written edge geometry.
+     * @return edge geometry backed by the given buffer.
+     */
+    public static EdgeGeometry map(ByteBuffer buffer) {
+        int m = buffer.getInt();
+        int size = buffer.getInt();
+        IntBuffer offsets = CSRGraph.slice(buffer, 4L * (m + 1)).asIntBuffer();
+        DoubleBuffer lat = CSRGraph.slice(buffer, 8L * size).asDoubleBuffer();
+        DoubleBuffer lon = CSRGraph.slice(buffer, 8L * size).asDoubleBuffer();
+        DoubleBuffer distance = CSRGraph.slice(buffer, 8L * size).asDoubleBuffer();
+        return new EdgeGeometry(offsets, lat, lon, distance);
+    }
+
+    /**
+     * Writes this geometry to the given output stream in the format read by {@link #map(ByteBuffer)}.
+     *
+     * @param out the destination output stream.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(edgeCount());
+        out.writeInt(size());
+        for (int i = 0; i < offsets.limit(); i += 1) {
+            out.writeInt(offsets.get(i));
+        }
+        CSRGraph.pad(out, 4L * offsets.limit());
+        for (int i = 0; i < size(); i += 1) {
+            out.writeDouble(lat.get(i));
+        }
+        for (int i = 0; i < size(); i += 1) {
+            out.writeDouble(lon.get(i));
+        }
+        for (int i = 0; i < size(); i += 1) {
+            out.writeDouble(distance.get(i));
+        }
+    }
+
+    /**
+     * Returns the number of edges.
+     *
+     * @return the number of edges.
+     */
+    public int edgeCount() {
+        return offsets.limit() - 1;
+    }
+
+    /**
+     * Returns the total number of shape points over all edges.
+     *
+     * @return the total number of shape points.
+     */
+    public int size() {
+        return lat.limit();
+    }
+
+    /**
+     * Returns the index of the first shape point of the given edge.
+     *
+     * @param edge the edge.
+     * @return the index of the first shape point of the edge.
+     */
+    public int start(int edge) {
+        return offsets.get(edge);
+    }
+
+    /**
+     * Returns the index one past the last shape point of the given edge.
+     *
+     * @param edge the edge.
+     * @return the index one past the last shape point of the edge.
+     */
+    public int end(int edge) {
+        return offsets.get(edge + 1);
+    }
+
+    /**
+     * Returns the latitude of the given shape point.
+     *
+     * @param point the index of the shape point.
+     * @return the latitude of the shape point in degrees.
+     */
+    public double lat(int point) {
+        return lat.get(point);
+    }
+
+    /**
+     * Returns the longitude of the given shape point.
+     *
+     * @param point the index of the shape point.
+     * @return the longitude of the shape point in degrees.
+     */
+    public double lon(int point) {
+        return lon.get(point);
+    }
+
+    /**
+     * Returns the distance along its edge from the originating vertex of the edge to the given shape point.
+     *
+     * @param point the index of the shape point.
+     * @return the distance along the edge to the shape point.
+     */
+    public double distance(int point) {
+        return distance.get(point);
+    }
+}
@@ -0,0 +1,19 @@
+package graphs;
+
+/**
+ * Callback for visiting the edges of a {@link Graph} one at a time without creating {@link Edge} objects.
+ *
+ * @param <V> the type of vertices.
+ * @see Graph#forEachEdge(Object, EdgeVisitor)
+ */
+@FunctionalInterface
+public interface EdgeVisitor<V> {
+    /**
+     * Visits an edge to or from the given vertex with the given weight. For outgoing edges, the vertex is the
+     * destination of the edge; for incoming edges, it is the origin.
+     *
+     * @param vertex the vertex at the other end of the edge.
+     * @param weight the weight of the edge.
+     */
+    void visit(V vertex, double weight);
+}
@@ -9,6 +9,7 @@ import java.util.List;
  *
  * @param <V> the type of vertices.
  * @see Edge
+ * @see EdgeVisitor
  * @see ShortestPathSolver
  * @see AStarGraph
  */
@@ -22,4 +23,18 @@ public interface Graph<V> {
      * @return a list of the outgoing edges from the given vertex.
      */
     List<Edge<V>> neighbors(V vertex);
+
+    /**
+     * Calls the visitor with the destination and weight of each outgoing edge from the given vertex, in the order
+     * returned by {@link #neighbors(Object)}. Graphs that can enumerate their edges directly should override this
+     * method so that searches never materialize a list of {@link Edge} objects.
+     *
+     * @param from    the node of interest.
+     * @param visitor the visitor to call for each outgoing edge.
+     */
+    default void forEachEdge(V from, EdgeVisitor<V> visitor) {
+        for (Edge<V> e : neighbors(from)) {
+            visitor.visit(e.to, e.weight);
+        }
+    }
 }
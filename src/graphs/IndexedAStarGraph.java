@@ -0,0 +1,27 @@
+package graphs;
+
+import graphs.shortestpaths.IndexedAnytimeAStarSolver;
+
+/**
+ * {@link IndexedGraph} with a heuristic function to estimate distances between vertices. The heuristic takes
+ * {@code int} vertices so that callers that number vertices can estimate distances without boxing them.
+ *
+ * @see IndexedGraph
+ * @see AStarGraph
+ * @see IndexedAnytimeAStarSolver
+ */
+public interface IndexedAStarGraph extends IndexedGraph, AStarGraph<Integer> {
+    /**
+     * Returns an estimated distance from start to end.
+     *
+     * @param start the beginning vertex.
+     * @param end   the destination vertex.
+     * @return an estimated distance from start to end.
+     */
+    double estimatedDistance(int start, int end);
+
+    @Override
+    default double estimatedDistance(Integer start, Integer end) {
+        return estimatedDistance((int) start, (int) end);
+    }
+}
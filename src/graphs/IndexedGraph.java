@@ -0,0 +1,54 @@
+package graphs;
+
+import graphs.shortestpaths.SearchWorkspace;
+
+/**
+ * {@link Graph} of {@code int} vertices numbered {@code 0} to {@code n - 1} whose outgoing edges are addressed by edge
+ * index. The outgoing edges of vertex {@code v} are at the indices {@code start(v)} (inclusive) to {@code end(v)}
+ * (exclusive), so a search can iterate over them without creating {@link Edge} objects and can keep its state in
+ * arrays indexed by vertex, such as a {@link SearchWorkspace}, rather than in maps of boxed vertices and distances.
+ *
+ * @see Graph
+ * @see CSRGraph
+ * @see SearchWorkspace
+ */
+public interface IndexedGraph extends Graph<Integer> {
+    /**
+     * Returns the number of vertices in this graph.
+     *
+     * @return the number of vertices in this graph.
+     */
+    int vertexCount();
+
+    /**
+     * Returns the index of the first outgoing edge from the given vertex.
+     *
+     * @param vertex the originating vertex.
+     * @return the index of the first outgoing edge from the given vertex.
+     */
+    int start(int vertex);
+
+    /**
+     * Returns one past the index of the last outgoing edge from the given vertex.
+     *
+     * @param vertex the originating vertex.
+     * @return one past the index of the last outgoing edge from the given vertex.
+     */
+    int end(int vertex);
+
+    /**
+     * Returns the destination vertex of the edge at the given index.
+     *
+     * @param edge the edge index.
+     * @return the destination vertex of the edge at the given index.
+     */
+    int target(int edge);
+
+    /**
+     * Returns the weight of the edge at the given index.
+     *
+     * @param edge the edge index.
+     * @return the weight of the edge at the given index.
+     */
+    double weight(int edge);
+}
@@ -0,0 +1,278 @@
+package graphs;
+
+import graphs.shortestpaths.IndexedDijkstraSolver;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Precomputed landmark distances for the ALT (A*, landmarks, triangle inequality) heuristic over a {@link CSRGraph}.
+ * For each landmark L, the table stores the shortest path distance from L to every vertex and from every vertex to L.
+ * By the triangle inequality, {@code d(L, t) - d(L, v)} and {@code d(v, L) - d(t, L)} are both lower bounds on the
+ * distance from v to t, and the maximum over landmarks is a consistent heuristic that is much tighter than straight-line
+ * distance on road networks where the roads do not run straight to the goal.
+ * <p>
+ * Distances are laid out vertex-major so that evaluating the heuristic at a vertex reads one contiguous row per
+ * direction. Unreachable pairs are stored as positive infinity. Like {@link CSRGraph}, the tables are held in
+ * {@link java.nio} buffers so that they can be memory-mapped from a file written by {@link #write(DataOutputStream)}.
+ *
+ * @see CSRGraph
+ * @see AStarGraph
+ */
+public class Landmarks {
+    /**
+     * The landmark vertices.
+     */
+    private final IntBuffer vertices;
+    /**
+     * The distance from landmark {@code i} to vertex {@code v} at index {@code v * k + i}.
+     */
+    private final DoubleBuffer from;
+    /**
+     * The distance from vertex {@code v} to landmark {@code i} at index {@code v * k + i}.
+     */
+    private final DoubleBuffer to;
+    private final int k;
+
+    /**
+     * Constructs landmark tables over existing buffers without copying them.
+     *
+     * @param vertices the landmark vertices.
+     * @param from     the distances from each landmark.
+     * @param to       the distances to each landmark.
+     */
+    private Landmarks(IntBuffer vertices, DoubleBuffer from, DoubleBuffer to) {
+        this.vertices = vertices;
+        this.from = from;
+        this.to = to;
+        this.k = vertices.limit();
+    }
+
+    /**
+     * Selects up to k landmarks by farthest-point selection within the largest strongly connected component and computes
+     * their distance tables. The first landmark is the vertex of that component farthest from an arbitrary vertex of
+     * it, and each further landmark is the vertex of that component farthest from all landmarks chosen so far, which
+     * spreads the landmarks toward the edges of the road network where they give the best bounds. Landmarks on a small
+     * fragment, such as a parking lot, would only bound distances within the fragment.
+     *
+     * @param graph      the graph.
+     * @param reverse    the graph with every edge reversed, as returned by {@link CSRGraph#reverse()}.
+     * @param components the strongly connected components of the graph.
+     * @param k          the maximum number of landmarks.
+     * @return the landmark tables.
+     */
+    public static Landmarks select(CSRGraph graph, CSRGraph reverse, StronglyConnectedComponents components, int k) {
+        int n = graph.vertexCount();
+        int largest = components.largest();
+        k = largest < 0 ? 0 : Math.min(k, components.size(largest));
+        int[] landmarks = new int[k];
+        double[] from = new double[n * k];
+        double[] to = new double[n * k];
+        double[] dist = new double[n];
+        double[] nearest = new double[n];
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+        int next = -1;
+        if (k > 0) {
+            int first = 0;
+            while (components.component(first) != largest) {
+                first += 1;
+            }
+            next = farthest(distances(graph, first, dist), components, largest);
+        }
+        for (int i = 0; i < k; i += 1) {
+            landmarks[i] = next;
+            distances(graph, next, dist);
+            for (int v = 0; v < n; v += 1) {
+                from[v * k + i] = dist[v];
+                nearest[v] = Math.min(nearest[v], dist[v]);
+            }
+            distances(reverse, next, dist);
+            for (int v = 0; v < n; v += 1) {
+                to[v * k + i] = dist[v];
+            }
+            next = farthest(nearest, components, largest);
+        }
+        return new Landmarks(IntBuffer.wrap(landmarks), DoubleBuffer.wrap(from), DoubleBuffer.wrap(to));
+    }
+
+    /**
+     * Returns the vertex of the given component with the largest finite distance.
+     *
+     * @param dist       the distance to each vertex.
+     * @param components the strongly connected components of the graph.
+     * @param component  the component to choose from.
+     * @return the vertex of the component with the largest finite distance.
+     */
+    private static int farthest(double[] dist, StronglyConnectedComponents components, int component) {
+        int result = 0;
+        double best = -1.0;
+        for (int v = 0; v < dist.length; v += 1) {
+            if (dist[v] < Double.POSITIVE_INFINITY && dist[v] > best && components.component(v) == component) {
+                result = v;
+                best = dist[v];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the shortest path distance from the source to every vertex with Dijkstra's algorithm in the calling
+     * thread's search workspace, which is reused for every landmark.
+     *
+     * @param graph  the graph.
+     * @param source the source vertex.
+     * @param dist   the array to fill with the distance to each vertex.
+     * @return the given distance array.
+     */
+    private static double[] distances(CSRGraph graph, int source, double[] dist) {
+        IndexedDijkstraSolver solver = new IndexedDijkstraSolver(graph, source);
+        for (int v = 0; v < dist.length; v += 1) {
+            dist[v] = solver.distance(v);
+        }
+        return dist;
+    }
+
+    /**
+     * Returns landmark tables backed by the bytes at the current position of the given buffer, which must have been
+     * produced by {@link #write(DataOutputStream)}. The buffer position is advanced past the tables.
+     *
+     * @param buffer the buffer positioned at the start of written landmark tables.
+     * @return landmark tables backed by the given buffer.
+     */
+    public static Landmarks map(ByteBuffer buffer) {
+        int k = buffer.getInt();
+        int n = buffer.getInt();
+        IntBuffer vertices = CSRGraph.slice(buffer, 4L * k).asIntBuffer();
+        DoubleBuffer from = CSRGraph.slice(buffer, 8L * n * k).asDoubleBuffer();
+        DoubleBuffer to = CSRGraph.slice(buffer, 8L * n * k).asDoubleBuffer();
+        return new Landmarks(vertices, from, to);
+    }
+
+    /**
+     * Writes these tables to the given output stream in the format read by {@link #map(ByteBuffer)}.
+     *
+     * @param out the destination output stream.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(k);
+        out.writeInt(k == 0 ? 0 : from.limit() / k);
+        for (int i = 0; i < k; i += 1) {
+            out.writeInt(vertices.get(i));
+        }
+        CSRGraph.pad(out, 4L * k);
+        for (int i = 0; i < from.limit(); i += 1) {
+            out.writeDouble(from.get(i));
+        }
+        for (int i = 0; i < to.limit(); i += 1) {
+            out.writeDouble(to.get(i));
+        }
+    }
+
+    /**
+     * Returns the number of landmarks.
+     *
+     * @return the number of landmarks.
+     */
+    public int size() {
+        return k;
+    }
+
+    /**
+     * Returns the landmark vertex at the given index.
+     *
+     * @param i the landmark index.
+     * @return the landmark vertex at the given index.
+     */
+    public int vertex(int i) {
+        return vertices.get(i);
+    }
+
+    /**
+     * Returns the indices of up to the given number of landmarks that give the largest lower bounds on the distance
+     * from the start to the goal. Restricting a search to these active landmarks makes each heuristic evaluation
+     * cheaper while keeping nearly all of the pruning.
+     *
+     * @param start the start vertex.
+     * @param goal  the goal vertex.
+     * @param count the maximum number of landmarks to return.
+     * @return the indices of the best landmarks for the given pair.
+     */
+    public int[] active(int start, int goal, int count) {
+        Integer[] order = new Integer[k];
+        double[] bounds = new double[k];
+        for (int i = 0; i < k; i += 1) {
+            order[i] = i;
+            bounds[i] = bound(start, goal, i);
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(bounds[b], bounds[a]));
+        int[] result = new int[Math.min(count, k)];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    /**
+     * Returns a lower bound on the shortest path distance from v to t using all landmarks.
+     *
+     * @param v the start vertex.
+     * @param t the goal vertex.
+     * @return a lower bound on the shortest path distance from v to t.
+     */
+    public double lowerBound(int v, int t) {
+        double result = 0.0;
+        for (int i = 0; i < k; i += 1) {
+            double bound = bound(v, t, i);
+            if (bound > result) {
+                result = bound;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a lower bound on the shortest path distance from v to t using only the given landmarks.
+     *
+     * @param v      the start vertex.
+     * @param t      the goal vertex.
+     * @param active the indices of the landmarks to use.
+     * @return a lower bound on the shortest path distance from v to t.
+     */
+    public double lowerBound(int v, int t, int[] active) {
+        double result = 0.0;
+        for (int i : active) {
+            double bound = bound(v, t, i);
+            if (bound > result) {
+                result = bound;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the lower bound on the distance from v to t given by a single landmark. Differences of two infinite
+     * distances are NaN and never exceed a bound they are compared against.
+     *
+     * @param v the start vertex.
+     * @param t the goal vertex.
+     * @param i the landmark index.
+     * @return the lower bound on the distance from v to t given by the landmark.
+     */
+    private double bound(int v, int t, int i) {
+        double forward = from.get(t * k + i) - from.get(v * k + i);
+        double backward = to.get(v * k + i) - to.get(t * k + i);
+        double result = 0.0;
+        if (forward > result) {
+            result = forward;
+        }
+        if (backward > result) {
+            result = backward;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,527 @@
+package graphs;
+
+import graphs.shortestpaths.MultiLevelOverlaySolver;
+import minpq.IntMinPQ;
+
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Multi-level overlay over a {@link CSRGraph} for shortest path queries whose edge weights can be changed quickly
+ * (customizable route planning). The vertices are partitioned by recursive coordinate bisection into level-1 cells of
+ * at most a few hundred vertices, and each higher level merges groups of neighboring cells of the level below. A vertex
+ * is a boundary vertex of its cell at some level if it has an edge to or from another cell at that level. The overlay
+ * at each level is a clique over the boundary vertices of each cell, weighted by the shortest distances that stay
+ * inside the cell.
+ * <p>
+ * The partition depends only on the graph, so it is built once. Changing edge weights only requires
+ * {@link #customize(double[])}, which recomputes the clique weights bottom-up, one level at a time and the cells of a
+ * level in parallel, each with Dijkstra's algorithm over the overlay of the level below. A query then runs Dijkstra's
+ * algorithm on the original graph near its endpoints and on the highest overlay level that does not contain an
+ * endpoint everywhere else, and unpacks clique edges by repeating the cell searches that computed them.
+ *
+ * @see CSRGraph
+ * @see MultiLevelOverlaySolver
+ */
+public class MultiLevelOverlay {
+    /**
+     * The maximum number of vertices in a level-1 cell.
+     */
+    private static final int CELL_SIZE = 256;
+    /**
+     * The number of bisections between consecutive levels, so each cell contains {@code 2^LEVEL_BITS} cells of the
+     * level below.
+     */
+    private static final int LEVEL_BITS = 3;
+    private final CSRGraph graph;
+    private final int levels;
+    /**
+     * The level-1 cell of each vertex. The cell of a vertex at level {@code l} is this id shifted right by
+     * {@code (l - 1) * LEVEL_BITS}, so cells are numbered consecutively within each cell of the level above.
+     */
+    private final int[] leaf;
+    /**
+     * The number of vertices in each level-1 cell, as offsets into {@code boundary[0]}.
+     */
+    private final int[] leafOffsets;
+    /**
+     * For each level {@code l >= 1}, the boundary vertices at that level grouped by cell. {@code boundary[0]} holds
+     * every vertex grouped by level-1 cell.
+     */
+    private final int[][] boundary;
+    /**
+     * For each level {@code l >= 1}, the boundary vertices of cell {@code c} are in
+     * {@code boundary[l][offsets[l][c]]} to {@code boundary[l][offsets[l][c + 1]]} (exclusive).
+     */
+    private final int[][] offsets;
+    /**
+     * For each level, the index of each vertex in {@code boundary[l]}, or -1 if it is not a boundary vertex.
+     */
+    private final int[][] position;
+    /**
+     * For each level {@code l >= 1}, the start of the row-major clique matrix of each cell in the clique weights.
+     */
+    private final int[][] cliqueOffsets;
+
+    /**
+     * Constructs the partition and overlay structure for the given graph using the given vertex coordinates. Edge
+     * weights are not used until {@link #customize(double[])}.
+     *
+     * @param graph the graph.
+     * @param lat   the latitude of each vertex in degrees.
+     * @param lon   the longitude of each vertex in degrees.
+     */
+    public MultiLevelOverlay(CSRGraph graph, DoubleBuffer lat, DoubleBuffer lon) {
+        this.graph = graph;
+        int n = graph.vertexCount();
+        int depth = 0;
+        while ((n >> depth) > CELL_SIZE) {
+            depth += 1;
+        }
+        levels = depth == 0 ? 0 : 1 + (depth - 1) / LEVEL_BITS;
+
+        // Split the vertices at the median of the longer side of their bounding box until the cells are small.
+        int[] order = new int[n];
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double meanLat = 0.0;
+        for (int v = 0; v < n; v += 1) {
+            meanLat += lat.get(v) / n;
+        }
+        double cosLat = Math.cos(Math.toRadians(meanLat));
+        for (int v = 0; v < n; v += 1) {
+            order[v] = v;
+            x[v] = lon.get(v) * cosLat;
+            y[v] = lat.get(v);
+        }
+        leaf = new int[n];
+        bisect(order, 0, n, depth, 0, x, y);
+        leafOffsets = new int[(1 << depth) + 1];
+        for (int v = 0; v < n; v += 1) {
+            leafOffsets[leaf[v] + 1] += 1;
+        }
+        for (int c = 0; c < 1 << depth; c += 1) {
+            leafOffsets[c + 1] += leafOffsets[c];
+        }
+
+        // Find the boundary vertices at each level in the same order as the vertices of each cell.
+        boundary = new int[levels + 1][];
+        offsets = new int[levels + 1][];
+        position = new int[levels + 1][];
+        cliqueOffsets = new int[levels + 1][];
+        boundary[0] = order;
+        position[0] = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            position[0][order[i]] = i;
+        }
+        for (int l = 1; l <= levels; l += 1) {
+            boolean[] crossing = new boolean[n];
+            for (int u = 0; u < n; u += 1) {
+                for (int e = graph.start(u); e < graph.end(u); e += 1) {
+                    int w = graph.target(e);
+                    if (cell(l, u) != cell(l, w)) {
+                        crossing[u] = true;
+                        crossing[w] = true;
+                    }
+                }
+            }
+            int cells = cellCount(l);
+            offsets[l] = new int[cells + 1];
+            for (int v = 0; v < n; v += 1) {
+                if (crossing[v]) {
+                    offsets[l][cell(l, v) + 1] += 1;
+                }
+            }
+            cliqueOffsets[l] = new int[cells + 1];
+            for (int c = 0; c < cells; c += 1) {
+                int size = offsets[l][c + 1];
+                offsets[l][c + 1] += offsets[l][c];
+                cliqueOffsets[l][c + 1] = Math.addExact(cliqueOffsets[l][c], Math.multiplyExact(size, size));
+            }
+            boundary[l] = new int[offsets[l][cells]];
+            position[l] = new int[n];
+            Arrays.fill(position[l], -1);
+            int next = 0;
+            for (int v : order) {
+                if (crossing[v]) {
+                    position[l][v] = next;
+                    boundary[l][next] = v;
+                    next += 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Assigns level-1 cells to the vertices in the given range of the order by recursive bisection. The lower half of
+     * each split gets the even child id and the upper half the odd child id, so the order ends up grouped by cell.
+     *
+     * @param order the vertices, reordered in place.
+     * @param lo    the start of the range (inclusive).
+     * @param hi    the end of the range (exclusive).
+     * @param depth the number of bisections remaining.
+     * @param id    the id of the cell for the range.
+     * @param x     the projected horizontal coordinate of each vertex.
+     * @param y     the projected vertical coordinate of each vertex.
+     */
+    private void bisect(int[] order, int lo, int hi, int depth, int id, double[] x, double[] y) {
+        if (depth == 0) {
+            for (int i = lo; i < hi; i += 1) {
+                leaf[order[i]] = id;
+            }
+            return;
+        }
+        double minX = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = lo; i < hi; i += 1) {
+            minX = Math.min(minX, x[order[i]]);
+            maxX = Math.max(maxX, x[order[i]]);
+            minY = Math.min(minY, y[order[i]]);
+            maxY = Math.max(maxY, y[order[i]]);
+        }
+        int mid = (lo + hi) >>> 1;
+        select(order, lo, hi, mid, maxX - minX >= maxY - minY ? x : y);
+        bisect(order, lo, mid, depth - 1, 2 * id, x, y);
+        bisect(order, mid, hi, depth - 1, 2 * id + 1, x, y);
+    }
+
+    /**
+     * Partially sorts the given range of the order so that the vertex at index k has the k-th smallest key, with
+     * smaller or equal keys before it and larger or equal keys after it.
+     *
+     * @param order the vertices, reordered in place.
+     * @param lo    the start of the range (inclusive).
+     * @param hi    the end of the range (exclusive).
+     * @param k     the index to select.
+     * @param key   the key of each vertex.
+     */
+    private static void select(int[] order, int lo, int hi, int k, double[] key) {
+        while (hi - lo > 1) {
+            double pivot = key[order[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi - 1;
+            while (i <= j) {
+                while (key[order[i]] < pivot) {
+                    i += 1;
+                }
+                while (key[order[j]] > pivot) {
+                    j -= 1;
+                }
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i] = order[j];
+                    order[j] = swap;
+                    i += 1;
+                    j -= 1;
+                }
+            }
+            if (k <= j) {
+                hi = j + 1;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns a metric for this overlay with the given edge weights, computing the clique weights of every cell.
+     * Infinite weights close edges.
+     *
+     * @param weights the weight of each edge, indexed like the edges of the graph.
+     * @return the customized metric.
+     * @throws IllegalArgumentException if the number of weights is not the number of edges, or a weight is negative or
+     *                                  NaN.
+     */
+    public Metric customize(double[] weights) {
+        if (weights.length != graph.edgeCount()) {
+            throw new IllegalArgumentException("Expected " + graph.edgeCount() + " weights but got " + weights.length);
+        }
+        for (int e = 0; e < weights.length; e += 1) {
+            // Negated so that NaN fails the check too.
+            if (!(weights[e] >= 0.0)) {
+                throw new IllegalArgumentException("Weight of edge " + e + " is " + weights[e]);
+            }
+        }
+        Metric metric = new Metric(weights.clone());
+        for (int l = 1; l <= levels; l += 1) {
+            int level = l;
+            IntStream.range(0, cellCount(level)).parallel().forEach(cell -> metric.customize(level, cell));
+        }
+        return metric;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm inside the given cell over the overlay of the level below: the original edges for a
+     * level-1 cell, or otherwise the cliques of its subcells and the original edges between them. Nodes are numbered
+     * by their index in the level below relative to the first node of the cell.
+     *
+     * @param metric the edge and clique weights.
+     * @param level  the level of the cell.
+     * @param cell   the cell.
+     * @param source the source node.
+     * @param target the node to stop at, or -1 to search the whole cell.
+     * @param dist   the array to fill with the distance to each node.
+     * @param parent the array to fill with the previous node on the shortest path to each node.
+     * @param pq     an empty priority queue over the nodes of the cell.
+     */
+    private void search(Metric metric, int level, int cell, int source, int target, double[] dist, int[] parent,
+                        IntMinPQ pq) {
+        int below = level - 1;
+        int start = nodesStart(level, cell);
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(parent, -1);
+        dist[source] = 0.0;
+        pq.add(source, 0.0);
+        while (!pq.isEmpty()) {
+            int x = pq.removeMin();
+            if (x == target) {
+                pq.clear();
+                return;
+            }
+            int u = boundary[below][start + x];
+            if (below > 0) {
+                int sub = cell(below, u);
+                int first = offsets[below][sub];
+                int i = position[below][u] - first;
+                for (int j = 0; j < offsets[below][sub + 1] - first; j += 1) {
+                    relax(x, first + j - start, dist[x] + metric.clique(below, sub, i, j), dist, parent, pq);
+                }
+            }
+            for (int e = graph.start(u); e < graph.end(u); e += 1) {
+                int w = graph.target(e);
+                if (cell(level, w) == cell && (below == 0 || cell(below, w) != cell(below, u))) {
+                    relax(x, position[below][w] - start, dist[x] + metric.weights[e], dist, parent, pq);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the distance to node y if the path through node x is shorter.
+     *
+     * @param x      the node the edge comes from.
+     * @param y      the node the edge goes to.
+     * @param d      the distance to y through x.
+     * @param dist   the distance to each node.
+     * @param parent the previous node on the shortest path to each node.
+     * @param pq     the priority queue of nodes.
+     */
+    private static void relax(int x, int y, double d, double[] dist, int[] parent, IntMinPQ pq) {
+        if (d < dist[y]) {
+            dist[y] = d;
+            parent[y] = x;
+            pq.addOrChangePriority(y, d);
+        }
+    }
+
+    /**
+     * Appends the vertices on the shortest path of the clique edge from u to w at the given level to the given path,
+     * excluding u and including w.
+     *
+     * @param metric the metric the clique weights were computed with.
+     * @param level  the level of the clique edge.
+     * @param u      the boundary vertex the edge comes from.
+     * @param w      the boundary vertex of the same cell the edge goes to.
+     * @param path   the list to append vertices to.
+     */
+    public void unpack(Metric metric, int level, int u, int w, List<Integer> path) {
+        int below = level - 1;
+        int cell = cell(level, u);
+        int start = nodesStart(level, cell);
+        int size = nodesStart(level, cell + 1) - start;
+        double[] dist = new double[size];
+        int[] parent = new int[size];
+        int target = position[below][w] - start;
+        search(metric, level, cell, position[below][u] - start, target, dist, parent, new IntMinPQ(size));
+        List<Integer> nodes = new ArrayList<>();
+        for (int x = target; x >= 0; x = parent[x]) {
+            nodes.add(boundary[below][start + x]);
+        }
+        for (int i = nodes.size() - 1; i > 0; i -= 1) {
+            int x = nodes.get(i);
+            int y = nodes.get(i - 1);
+            if (below > 0 && cell(below, x) == cell(below, y)) {
+                unpack(metric, below, x, y, path);
+            } else {
+                path.add(y);
+            }
+        }
+    }
+
+    /**
+     * Returns the index in the level below of the first node inside the given cell. Since cells are numbered
+     * consecutively within the cell above, this is also one past the last node of the previous cell.
+     *
+     * @param level the level of the cell.
+     * @param cell  the cell, or the number of cells at the level.
+     * @return the index in the level below of the first node inside the given cell.
+     */
+    private int nodesStart(int level, int cell) {
+        if (level == 1) {
+            return leafOffsets[cell];
+        }
+        return offsets[level - 1][cell << LEVEL_BITS];
+    }
+
+    /**
+     * Returns the graph.
+     *
+     * @return the graph.
+     */
+    public CSRGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Returns the number of overlay levels above the original graph.
+     *
+     * @return the number of overlay levels above the original graph.
+     */
+    public int levels() {
+        return levels;
+    }
+
+    /**
+     * Returns the number of cells at the given level.
+     *
+     * @param level the level from 1 to {@link #levels()}.
+     * @return the number of cells at the given level.
+     */
+    public int cellCount(int level) {
+        return (leafOffsets.length - 1) >> ((level - 1) * LEVEL_BITS);
+    }
+
+    /**
+     * Returns the cell containing the given vertex at the given level.
+     *
+     * @param level  the level from 1 to {@link #levels()}.
+     * @param vertex the vertex.
+     * @return the cell containing the given vertex at the given level.
+     */
+    public int cell(int level, int vertex) {
+        return leaf[vertex] >> ((level - 1) * LEVEL_BITS);
+    }
+
+    /**
+     * Returns the index of the first boundary vertex of the given cell.
+     *
+     * @param level the level from 1 to {@link #levels()}.
+     * @param cell  the cell.
+     * @return the index of the first boundary vertex of the given cell.
+     */
+    public int boundaryStart(int level, int cell) {
+        return offsets[level][cell];
+    }
+
+    /**
+     * Returns one past the index of the last boundary vertex of the given cell.
+     *
+     * @param level the level from 1 to {@link #levels()}.
+     * @param cell  the cell.
+     * @return one past the index of the last boundary vertex of the given cell.
+     */
+    public int boundaryEnd(int level, int cell) {
+        return offsets[level][cell + 1];
+    }
+
+    /**
+     * Returns the boundary vertex at the given index.
+     *
+     * @param level the level from 1 to {@link #levels()}.
+     * @param index the boundary vertex index.
+     * @return the boundary vertex at the given index.
+     */
+    public int boundaryVertex(int level, int index) {
+        return boundary[level][index];
+    }
+
+    /**
+     * Returns the position of the given boundary vertex among the boundary vertices of its cell, or a negative number
+     * if the vertex is not a boundary vertex at the given level.
+     *
+     * @param level  the level from 1 to {@link #levels()}.
+     * @param vertex the vertex.
+     * @return the position of the given vertex among the boundary vertices of its cell.
+     */
+    public int boundaryIndex(int level, int vertex) {
+        return position[level][vertex] - offsets[level][cell(level, vertex)];
+    }
+
+    /**
+     * Edge weights for a {@link MultiLevelOverlay} together with the clique weights computed from them.
+     */
+    public class Metric {
+        private final double[] weights;
+        private final double[][] cliques;
+
+        /**
+         * Constructs a metric with the given edge weights and uncomputed clique weights.
+         *
+         * @param weights the weight of each edge.
+         */
+        private Metric(double[] weights) {
+            this.weights = weights;
+            cliques = new double[levels + 1][];
+            for (int l = 1; l <= levels; l += 1) {
+                cliques[l] = new double[cliqueOffsets[l][cellCount(l)]];
+            }
+        }
+
+        /**
+         * Computes the clique weights of the given cell from the edge weights and the clique weights of the level
+         * below.
+         *
+         * @param level the level of the cell.
+         * @param cell  the cell.
+         */
+        private void customize(int level, int cell) {
+            int start = nodesStart(level, cell);
+            int size = nodesStart(level, cell + 1) - start;
+            double[] dist = new double[size];
+            int[] parent = new int[size];
+            IntMinPQ pq = new IntMinPQ(size);
+            int first = offsets[level][cell];
+            int b = offsets[level][cell + 1] - first;
+            for (int i = 0; i < b; i += 1) {
+                search(this, level, cell, position[level - 1][boundary[level][first + i]] - start, -1, dist, parent,
+                        pq);
+                for (int j = 0; j < b; j += 1) {
+                    int node = position[level - 1][boundary[level][first + j]] - start;
+                    cliques[level][cliqueOffsets[level][cell] + i * b + j] = dist[node];
+                }
+            }
+        }
+
+        /**
+         * Returns the weight of the edge at the given index.
+         *
+         * @param edge the edge index.
+         * @return the weight of the edge at the given index.
+         */
+        public double weight(int edge) {
+            return weights[edge];
+        }
+
+        /**
+         * Returns the shortest distance inside the given cell from its i-th boundary vertex to its j-th boundary
+         * vertex, or positive infinity if there is no such path.
+         *
+         * @param level the level from 1 to {@link #levels()}.
+         * @param cell  the cell.
+         * @param i     the position of the source among the boundary vertices of the cell.
+         * @param j     the position of the destination among the boundary vertices of the cell.
+         * @return the shortest distance inside the cell between the two boundary vertices.
+         */
+        public double clique(int level, int cell, int i, int j) {
+            int b = offsets[level][cell + 1] - offsets[level][cell];
+            return cliques[level][cliqueOffsets[level][cell] + i * b + j];
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package graphs;
+
+import graphs.shortestpaths.BidirectionalAStarSolver;
+
+import java.util.List;
+
+/**
+ * {@link AStarGraph} that can also list the incoming edges to each vertex, so that searches can run backward from a
+ * goal as well as forward from a start.
+ *
+ * @param <V> the type of vertices.
+ * @see AStarGraph
+ * @see BidirectionalAStarSolver
+ */
+public interface ReversibleGraph<V> extends AStarGraph<V> {
+    /**
+     * Returns a list of the incoming edges to the given vertex. Each edge is directed as in the graph, so its
+     * destination is the given vertex.
+     *
+     * @param vertex the node of interest.
+     * @return a list of the incoming edges to the given vertex.
+     */
+    List<Edge<V>> incoming(V vertex);
+
+    /**
+     * Calls the visitor with the origin and weight of each incoming edge to the given vertex, in the order returned by
+     * {@link #incoming(Object)}. Graphs that can enumerate their edges directly should override this method.
+     *
+     * @param to      the node of interest.
+     * @param visitor the visitor to call for each incoming edge.
+     */
+    default void forEachIncomingEdge(V to, EdgeVisitor<V> visitor) {
+        for (Edge<V> e : incoming(to)) {
+            visitor.visit(e.from, e.weight);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package graphs;
+
+import java.util.Arrays;
+
+/**
+ * Strongly connected components of an {@link IndexedGraph}, computed with an iterative version of Tarjan's algorithm
+ * that keeps its own call stack in arrays, so the depth of the search is not limited by the thread's stack size.
+ * Every vertex can reach every other vertex in its strongly connected component.
+ * <p>
+ * Tarjan's algorithm completes each component only after every component reachable from it, so components are
+ * numbered in reverse topological order: if a vertex can reach a vertex in another component, that component has a
+ * smaller number. Together with the weakly connected component of each vertex, this answers in constant time that
+ * many pairs of vertices are unreachable, such as vertices on different islands or on a road leaving the map, without
+ * running a search.
+ *
+ * @see IndexedGraph
+ */
+public class StronglyConnectedComponents {
+    /**
+     * The strongly connected component of each vertex, in reverse topological order.
+     */
+    private final int[] component;
+    /**
+     * The weakly connected component of each vertex, identified by one of its vertices.
+     */
+    private final int[] weak;
+    /**
+     * The number of vertices in each strongly connected component.
+     */
+    private final int[] sizes;
+    private final int largest;
+
+    /**
+     * Computes the strongly and weakly connected components of the given graph.
+     *
+     * @param graph the graph.
+     */
+    public StronglyConnectedComponents(IndexedGraph graph) {
+        int n = graph.vertexCount();
+        component = new int[n];
+        Arrays.fill(component, -1);
+        // The discovery order of each vertex, and the lowest discovery order reachable through the search tree of
+        // each vertex and at most one edge to a vertex on the stack.
+        int[] order = new int[n];
+        Arrays.fill(order, -1);
+        int[] low = new int[n];
+        // Vertices visited but not yet assigned a component.
+        int[] stack = new int[n];
+        int stackSize = 0;
+        // The call stack of the depth-first search: each vertex and the next of its edges to follow.
+        int[] callVertex = new int[n];
+        int[] callEdge = new int[n];
+        int visited = 0;
+        int count = 0;
+        for (int root = 0; root < n; root += 1) {
+            if (order[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            callVertex[0] = root;
+            callEdge[0] = graph.start(root);
+            order[root] = visited;
+            low[root] = visited;
+            visited += 1;
+            stack[stackSize] = root;
+            stackSize += 1;
+            while (depth >= 0) {
+                int u = callVertex[depth];
+                if (callEdge[depth] < graph.end(u)) {
+                    int v = graph.target(callEdge[depth]);
+                    callEdge[depth] += 1;
+                    if (order[v] < 0) {
+                        order[v] = visited;
+                        low[v] = visited;
+                        visited += 1;
+                        stack[stackSize] = v;
+                        stackSize += 1;
+                        depth += 1;
+                        callVertex[depth] = v;
+                        callEdge[depth] = graph.start(v);
+                    } else if (component[v] < 0) {
+                        low[u] = Math.min(low[u], order[v]);
+                    }
+                } else {
+                    if (low[u] == order[u]) {
+                        // u is the first vertex of its component to be visited: the component is every vertex above
+                        // it on the stack.
+                        int w;
+                        do {
+                            stackSize -= 1;
+                            w = stack[stackSize];
+                            component[w] = count;
+                        } while (w != u);
+                        count += 1;
+                    }
+                    depth -= 1;
+                    if (depth >= 0) {
+                        int parent = callVertex[depth];
+                        low[parent] = Math.min(low[parent], low[u]);
+                    }
+                }
+            }
+        }
+
+        sizes = new int[count];
+        for (int v = 0; v < n; v += 1) {
+            sizes[component[v]] += 1;
+        }
+        int largest = -1;
+        for (int c = 0; c < count; c += 1) {
+            if (largest < 0 || sizes[c] > sizes[largest]) {
+                largest = c;
+            }
+        }
+        this.largest = largest;
+
+        // Union-find over every edge, ignoring direction, for the weakly connected components.
+        weak = new int[n];
+        for (int v = 0; v < n; v += 1) {
+            weak[v] = v;
+        }
+        for (int u = 0; u < n; u += 1) {
+            for (int e = graph.start(u); e < graph.end(u); e += 1) {
+                int a = root(u);
+                int b = root(graph.target(e));
+                if (a != b) {
+                    weak[Math.max(a, b)] = Math.min(a, b);
+                }
+            }
+        }
+        for (int v = 0; v < n; v += 1) {
+            weak[v] = root(v);
+        }
+    }
+
+    /**
+     * Returns the representative of the union-find set containing the given vertex, halving the path to it.
+     *
+     * @param v the vertex.
+     * @return the representative of the set containing the vertex.
+     */
+    private int root(int v) {
+        while (weak[v] != v) {
+            weak[v] = weak[weak[v]];
+            v = weak[v];
+        }
+        return v;
+    }
+
+    /**
+     * Returns the number of strongly connected components.
+     *
+     * @return the number of strongly connected components.
+     */
+    public int count() {
+        return sizes.length;
+    }
+
+    /**
+     * Returns the strongly connected component of the given vertex, numbered in reverse topological order from 0 to
+     * {@link #count()} (exclusive).
+     *
+     * @param vertex the vertex.
+     * @return the strongly connected component of the vertex.
+     */
+    public int component(int vertex) {
+        return component[vertex];
+    }
+
+    /**
+     * Returns the number of vertices in the given strongly connected component.
+     *
+     * @param component the strongly connected component.
+     * @return the number of vertices in the component.
+     */
+    public int size(int component) {
+        return sizes[component];
+    }
+
+    /**
+     * Returns the strongly connected component with the most vertices, or -1 if the graph is empty.
+     *
+     * @return the largest strongly connected component.
+     */
+    public int largest() {
+        return largest;
+    }
+
+    /**
+     * Returns false if there is certainly no path from u to v: they are in different weakly connected components, or
+     * the component of v comes before the component of u in topological order. Returns true if u and v are in the same
+     * strongly connected component, and also for some pairs without a path, which only a search can rule out.
+     *
+     * @param u the originating vertex.
+     * @param v the destination vertex.
+     * @return false if there is certainly no path from u to v.
+     */
+    public boolean mayReach(int u, int v) {
+        return weak[u] == weak[v] && component[u] >= component[v];
+    }
+}
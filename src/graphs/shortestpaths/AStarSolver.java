@@ -1,22 +1,24 @@
 package graphs.shortestpaths;
 
 import graphs.AStarGraph;
-import graphs.Edge;
 import minpq.DoubleMapMinPQ;
 import minpq.MinPQ;
 
 import java.util.*;
 
 /**
- * A* search implementation for single-pair shortest paths in an {@link AStarGraph}.
+ * A* search implementation for single-pair shortest paths in an {@link AStarGraph}, optionally with an inflated
+ * heuristic that trades a bounded loss of route quality for a smaller search.
  *
  * @param <V> the type of vertices.
  * @see AStarGraph
+ * @see AnytimeAStarSolver
  */
 public class AStarSolver<V> {
-    private final Map<V, Edge<V>> edgeTo;
+    private final Map<V, V> parentTo;
     private final Map<V, Double> distTo;
     private final V goal;
+    private final SearchStats stats;
 
     /**
      * Constructs a new instance by executing A* search on the graph from the start to the goal.
@@ -26,27 +28,117 @@ public class AStarSolver<V> {
      * @param goal  the goal vertex.
      */
     public AStarSolver(AStarGraph<V> graph, V start, V goal) {
-        edgeTo = new HashMap<>();
+        this(graph, Map.of(start, 0.0), goal);
+    }
+
+    /**
+     * Constructs a new instance by executing A* search on the graph from a set of start vertices, each seeded with an
+     * initial distance, to the goal. This finds the shortest path from a location that lies between vertices, such as
+     * a point partway along an edge, by seeding each nearby vertex with its distance from that location.
+     *
+     * @param graph  the input graph.
+     * @param starts the start vertices mapped to their initial distances.
+     * @param goal   the goal vertex.
+     */
+    public AStarSolver(AStarGraph<V> graph, Map<V, Double> starts, V goal) {
+        this(graph, starts, goal, new SearchStats());
+    }
+
+    /**
+     * Constructs a new instance by executing A* search on the graph from a set of start vertices, each seeded with an
+     * initial distance, to the goal, recording the work done in the given stats. The search stops as soon as the goal
+     * is settled: with a consistent heuristic, its distance is final at that point.
+     *
+     * @param graph  the input graph.
+     * @param starts the start vertices mapped to their initial distances.
+     * @param goal   the goal vertex.
+     * @param stats  the stats to add this search's counters to.
+     */
+    public AStarSolver(AStarGraph<V> graph, Map<V, Double> starts, V goal, SearchStats stats) {
+        this(graph, starts, goal, 0.0, stats);
+    }
+
+    /**
+     * Constructs a new instance by executing weighted A* search on the graph from a set of start vertices, each seeded
+     * with an initial distance, to the goal, recording the work done in the given stats. Inflating the heuristic by a
+     * factor of {@code 1 + epsilon} steers the search toward the goal so that it settles fewer vertices, and the path
+     * found is at most {@code 1 + epsilon} times as long as the shortest path. An epsilon of 0 finds shortest paths.
+     *
+     * @param graph   the input graph.
+     * @param starts  the start vertices mapped to their initial distances.
+     * @param goal    the goal vertex.
+     * @param epsilon the allowed relative excess of the path length over the shortest path length.
+     * @param stats   the stats to add this search's counters to.
+     * @throws IllegalArgumentException if epsilon is negative.
+     */
+    public AStarSolver(AStarGraph<V> graph, Map<V, Double> starts, V goal, double epsilon, SearchStats stats) {
+        this(graph, starts, goal, epsilon, stats, SearchBudget.unlimited());
+    }
+
+    /**
+     * Constructs a new instance by executing weighted A* search on the graph from a set of start vertices, each seeded
+     * with an initial distance, to the goal within the given budget, recording the work done in the given stats.
+     *
+     * @param graph   the input graph.
+     * @param starts  the start vertices mapped to their initial distances.
+     * @param goal    the goal vertex.
+     * @param epsilon the allowed relative excess of the path length over the shortest path length.
+     * @param stats   the stats to add this search's counters to.
+     * @param budget  the limits on the search.
+     * @throws IllegalArgumentException      if epsilon is negative.
+     * @throws SearchBudgetExceededException if the search exceeds the budget.
+     */
+    public AStarSolver(AStarGraph<V> graph, Map<V, Double> starts, V goal, double epsilon, SearchStats stats,
+                       SearchBudget budget) {
+        if (!(epsilon >= 0)) {
+            throw new IllegalArgumentException("Epsilon must be non-negative: " + epsilon);
+        }
+        long startTime = System.nanoTime();
+        double inflation = 1 + epsilon;
+        parentTo = new HashMap<>();
         distTo = new HashMap<>();
         this.goal = goal;
+        this.stats = stats;
         MinPQ<V> pq = new DoubleMapMinPQ<>();
-        pq.add(start, 0.0);
-        edgeTo.put(start, null);
-        distTo.put(start, 0.0);
+        for (Map.Entry<V, Double> entry : starts.entrySet()) {
+            V start = entry.getKey();
+            double dist = entry.getValue();
+            if (dist < distTo.getOrDefault(start, Double.POSITIVE_INFINITY)) {
+                parentTo.put(start, null);
+                distTo.put(start, dist);
+                pq.addOrChangePriority(start, dist + inflation * graph.estimatedDistance(start, goal));
+                stats.insert();
+            }
+        }
+        long settled = 0;
         while (!pq.isEmpty()) {
             V from = pq.removeMin();
-            for (Edge<V> e : graph.neighbors(from)) {
-                V to = e.to;
+            stats.settle();
+            if (from.equals(goal)) {
+                break;
+            }
+            settled += 1;
+            budget.check(settled);
+            double fromDist = distTo.get(from);
+            graph.forEachEdge(from, (to, weight) -> {
+                stats.relax();
                 double oldDist = distTo.getOrDefault(to, Double.POSITIVE_INFINITY);
-                double newDist = distTo.get(from) + e.weight;
+                double newDist = fromDist + weight;
                 if (newDist < oldDist) {
-                    edgeTo.put(to, e);
+                    parentTo.put(to, from);
                     distTo.put(to, newDist);
-                    double priority = newDist + graph.estimatedDistance(to, goal);
-                    pq.addOrChangePriority(to, priority);
+                    double priority = newDist + inflation * graph.estimatedDistance(to, goal);
+                    if (pq.contains(to)) {
+                        pq.changePriority(to, priority);
+                        stats.decreaseKey();
+                    } else {
+                        pq.add(to, priority);
+                        stats.insert();
+                    }
                 }
-            }
+            });
         }
+        stats.elapse(System.nanoTime() - startTime);
     }
 
     /**
@@ -58,11 +150,20 @@ public class AStarSolver<V> {
         List<V> path = new ArrayList<>();
         V curr = goal;
         path.add(curr);
-        while (edgeTo.get(curr) != null) {
-            curr = edgeTo.get(curr).from;
+        while (parentTo.get(curr) != null) {
+            curr = parentTo.get(curr);
             path.add(curr);
         }
         Collections.reverse(path);
         return path;
     }
+
+    /**
+     * Returns the counters recorded by this search.
+     *
+     * @return the counters recorded by this search.
+     */
+    public SearchStats stats() {
+        return stats;
+    }
 }
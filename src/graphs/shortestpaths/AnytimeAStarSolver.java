@@ -0,0 +1,276 @@
+package graphs.shortestpaths;
+
+import graphs.AStarGraph;
+import minpq.DoubleMapMinPQ;
+import minpq.MinPQ;
+
+import java.util.*;
+
+/**
+ * Anytime weighted A* search for single-pair shortest paths in an {@link AStarGraph}. The search orders vertices by a
+ * heuristic inflated by {@code 1 + epsilon}, so it finds a first path quickly, and then keeps searching to improve
+ * that path until no shorter path can exist. Unlike {@link AStarSolver}, the search runs in slices: each call to
+ * {@link #refine(long, long)} continues from where the last call stopped until a settled-vertex or time budget is
+ * spent, and {@link #solution()} returns the best path found so far.
+ * <p>
+ * A path is recorded as soon as an edge reaches a goal vertex, so the first path found is not always within
+ * {@code 1 + epsilon} of the shortest path: a long edge straight to the goal can be found before a chain of short
+ * edges that the inflated heuristic has not explored yet. {@link #bound()} returns the bound on the ratio proven by
+ * the vertices still in the priority queue, and {@link #refineToBound()} continues the search until that bound is at
+ * most {@code 1 + epsilon}. Vertices that cannot lead to a path shorter than the best one found are pruned, and a
+ * vertex is searched again if a shorter path to it is found later, so the search ends with a shortest path once the
+ * priority queue is empty.
+ * <p>
+ * The goal may lie between vertices: each goal vertex is seeded with the remaining distance from it to the goal
+ * location, in the same way as the start vertices.
+ *
+ * @param <V> the type of vertices.
+ * @see AStarSolver
+ * @see AStarGraph
+ */
+public class AnytimeAStarSolver<V> {
+    /**
+     * The number of vertices settled between checks of the bound in {@link #refineToBound()}.
+     */
+    private static final int BOUND_CHECK_INTERVAL = 256;
+    private final AStarGraph<V> graph;
+    private final Map<V, Double> goals;
+    private final double inflation;
+    private final Map<V, V> parentTo;
+    private final Map<V, Double> distTo;
+    private final MinPQ<V> pq;
+    private final SearchStats stats;
+    private final SearchBudget budget;
+    /**
+     * The number of vertices settled by all calls to {@link #refine(long, long)}.
+     */
+    private long settledTotal;
+    /**
+     * The goal vertex ending the best path found so far, or null if no path has been found.
+     */
+    private V bestGoal;
+    /**
+     * The length of the best path found so far, including the remaining distance from its goal vertex.
+     */
+    private double best;
+
+    /**
+     * Constructs a new instance ready to search the graph from a set of start vertices to a set of goal vertices, each
+     * seeded with a distance. No search is done until {@link #refine(long, long)} is called.
+     *
+     * @param graph   the input graph.
+     * @param starts  the start vertices mapped to their initial distances.
+     * @param goals   the goal vertices mapped to their remaining distances.
+     * @param epsilon the allowed relative excess of each path found over the shortest path length.
+     * @param stats   the stats to add this search's counters to.
+     * @throws IllegalArgumentException if epsilon is negative.
+     */
+    public AnytimeAStarSolver(AStarGraph<V> graph, Map<V, Double> starts, Map<V, Double> goals, double epsilon,
+                              SearchStats stats) {
+        this(graph, starts, goals, epsilon, stats, SearchBudget.unlimited());
+    }
+
+    /**
+     * Constructs a new instance ready to search the graph from a set of start vertices to a set of goal vertices, each
+     * seeded with a distance, within the given budget across all calls to {@link #refine(long, long)}.
+     *
+     * @param graph   the input graph.
+     * @param starts  the start vertices mapped to their initial distances.
+     * @param goals   the goal vertices mapped to their remaining distances.
+     * @param epsilon the allowed relative excess of each path found over the shortest path length.
+     * @param stats   the stats to add this search's counters to.
+     * @param budget  the limits on the whole search.
+     * @throws IllegalArgumentException if epsilon is negative.
+     */
+    public AnytimeAStarSolver(AStarGraph<V> graph, Map<V, Double> starts, Map<V, Double> goals, double epsilon,
+                              SearchStats stats, SearchBudget budget) {
+        if (!(epsilon >= 0)) {
+            throw new IllegalArgumentException("Epsilon must be non-negative: " + epsilon);
+        }
+        this.graph = graph;
+        this.goals = goals;
+        this.inflation = 1 + epsilon;
+        this.stats = stats;
+        this.budget = budget;
+        parentTo = new HashMap<>();
+        distTo = new HashMap<>();
+        pq = new DoubleMapMinPQ<>();
+        best = Double.POSITIVE_INFINITY;
+        for (Map.Entry<V, Double> entry : starts.entrySet()) {
+            if (entry.getValue() < distTo.getOrDefault(entry.getKey(), Double.POSITIVE_INFINITY)) {
+                parentTo.put(entry.getKey(), null);
+                update(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Continues the search until it has settled the given number of vertices or run for the given time, or until the
+     * best path found is a shortest path. The time is checked after each settled vertex. The bound proven when the
+     * search stops is recorded in the stats.
+     *
+     * @param maxSettled the maximum number of vertices to settle.
+     * @param maxNanos   the maximum time to search in nanoseconds.
+     * @return true if the best path found is a shortest path, false if the budget ran out first.
+     * @throws SearchBudgetExceededException if the search exceeds the budget given to the constructor.
+     */
+    public boolean refine(long maxSettled, long maxNanos) {
+        long startTime = System.nanoTime();
+        long settled = 0;
+        while (!pq.isEmpty()) {
+            if (settled >= maxSettled || System.nanoTime() - startTime >= maxNanos) {
+                stats.elapse(System.nanoTime() - startTime);
+                stats.bound(bound());
+                return false;
+            }
+            V from = pq.removeMin();
+            double fromDist = distTo.get(from);
+            if (fromDist + heuristic(from) >= best) {
+                continue;
+            }
+            settled += 1;
+            settledTotal += 1;
+            stats.settle();
+            budget.check(settledTotal);
+            graph.forEachEdge(from, (to, weight) -> {
+                stats.relax();
+                double newDist = fromDist + weight;
+                if (newDist < distTo.getOrDefault(to, Double.POSITIVE_INFINITY)) {
+                    parentTo.put(to, from);
+                    update(to, newDist);
+                }
+            });
+        }
+        stats.elapse(System.nanoTime() - startTime);
+        stats.bound(bound());
+        return true;
+    }
+
+    /**
+     * Continues the search until the best path found is proven to be at most {@code 1 + epsilon} times as long as the
+     * shortest path, or until the search ends. Unlike {@link #refine(long, long)}, there is no time budget, but the
+     * budget given to the constructor still applies.
+     *
+     * @throws SearchBudgetExceededException if the search exceeds the budget given to the constructor.
+     */
+    public void refineToBound() {
+        refineToBound(Long.MAX_VALUE);
+    }
+
+    /**
+     * Continues the search until the best path found is proven to be at most {@code 1 + epsilon} times as long as the
+     * shortest path, or until the search ends or has run for the given time. The time is checked after each settled
+     * vertex, and {@link #bound()} reports the bound achieved if the time runs out first.
+     *
+     * @param maxNanos the maximum time to search in nanoseconds.
+     * @return true if the bound was reached, false if the time ran out first.
+     * @throws SearchBudgetExceededException if the search exceeds the budget given to the constructor.
+     */
+    public boolean refineToBound(long maxNanos) {
+        long startTime = System.nanoTime();
+        while (bound() > inflation) {
+            long remaining = maxNanos - (System.nanoTime() - startTime);
+            if (remaining <= 0) {
+                stats.bound(bound());
+                return false;
+            }
+            if (refine(BOUND_CHECK_INTERVAL, remaining)) {
+                return true;
+            }
+        }
+        stats.bound(bound());
+        return true;
+    }
+
+    /**
+     * Records a shorter distance to the given vertex, updating the best path if the vertex is a goal and adding the
+     * vertex to the priority queue unless it cannot lead to a shorter path than the best one.
+     *
+     * @param vertex the vertex.
+     * @param dist   the new distance to the vertex.
+     */
+    private void update(V vertex, double dist) {
+        distTo.put(vertex, dist);
+        Double remaining = goals.get(vertex);
+        if (remaining != null && dist + remaining < best) {
+            best = dist + remaining;
+            bestGoal = vertex;
+        }
+        double estimate = heuristic(vertex);
+        if (dist + estimate < best) {
+            if (pq.contains(vertex)) {
+                pq.changePriority(vertex, dist + inflation * estimate);
+                stats.decreaseKey();
+            } else {
+                pq.add(vertex, dist + inflation * estimate);
+                stats.insert();
+            }
+        }
+    }
+
+    /**
+     * Returns a lower bound on the distance from the given vertex to the goal location through any goal vertex.
+     *
+     * @param vertex the vertex.
+     * @return a lower bound on the distance from the given vertex to the goal location.
+     */
+    private double heuristic(V vertex) {
+        double result = Double.POSITIVE_INFINITY;
+        for (Map.Entry<V, Double> goal : goals.entrySet()) {
+            result = Math.min(result, graph.estimatedDistance(vertex, goal.getKey()) + goal.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the best path found so far from a start vertex to a goal vertex, or an empty list if no path has been
+     * found yet.
+     *
+     * @return a list of vertices representing the best path found so far.
+     */
+    public List<V> solution() {
+        List<V> path = new ArrayList<>();
+        for (V curr = bestGoal; curr != null; curr = parentTo.get(curr)) {
+            path.add(curr);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Returns the length of the best path found so far, including the seeded distances, or positive infinity if no
+     * path has been found yet.
+     *
+     * @return the length of the best path found so far.
+     */
+    public double distance() {
+        return best;
+    }
+
+    /**
+     * Returns an upper bound on the ratio of the length of the best path found so far to the shortest path length,
+     * which is 1 once the search has ended and positive infinity while no path has been found. The bound is at most
+     * {@code 1 + epsilon} after {@link #refineToBound()} returns.
+     *
+     * @return an upper bound on the ratio of the best path length to the shortest path length.
+     */
+    public double bound() {
+        if (pq.isEmpty()) {
+            return bestGoal == null ? Double.POSITIVE_INFINITY : 1.0;
+        }
+        // Every vertex in the queue has priority at least that of the minimum, and its unweighted estimate is at
+        // least its priority divided by the inflation, which bounds every path not yet found.
+        V min = pq.peekMin();
+        double lower = Math.min(best, (distTo.get(min) + inflation * heuristic(min)) / inflation);
+        return lower >= best ? 1.0 : best / lower;
+    }
+
+    /**
+     * Returns the counters recorded by this search.
+     *
+     * @return the counters recorded by this search.
+     */
+    public SearchStats stats() {
+        return stats;
+    }
+}
@@ -1,6 +1,5 @@
 package graphs.shortestpaths;
 
-import graphs.Edge;
 import graphs.Graph;
 
 import java.util.*;
@@ -12,8 +11,12 @@ import java.util.*;
  * @see ShortestPathSolver
  */
 public class BellmanFordSolver<V> implements ShortestPathSolver<V> {
-    private final Map<V, Edge<V>> edgeTo;
+    private final Map<V, V> parentTo;
     private final Map<V, Double> distTo;
+    /**
+     * Whether the current pass has lowered any distance.
+     */
+    private boolean changed;
 
     /**
      * Constructs a new instance by executing Bellman-Ford algorithm on the graph from the start.
@@ -22,22 +25,41 @@ public class BellmanFordSolver<V> implements ShortestPathSolver<V> {
      * @param start the start vertex.
      */
     public BellmanFordSolver(Graph<V> graph, V start) {
-        edgeTo = new HashMap<>();
+        this(graph, start, SearchBudget.unlimited());
+    }
+
+    /**
+     * Constructs a new instance by executing Bellman-Ford algorithm on the graph from the start within the given
+     * budget. Each vertex whose edges are relaxed in a pass counts as settled.
+     *
+     * @param graph  the input graph.
+     * @param start  the start vertex.
+     * @param budget the limits on the search.
+     * @throws SearchBudgetExceededException if the search exceeds the budget.
+     */
+    public BellmanFordSolver(Graph<V> graph, V start, SearchBudget budget) {
+        parentTo = new HashMap<>();
         distTo = new HashMap<>();
-        edgeTo.put(start, null);
+        parentTo.put(start, null);
         distTo.put(start, 0.0);
         List<V> vertices = vertices(graph, start);
-        for (int i = 1; i < vertices.size(); i += 1) {
+        changed = true;
+        long settled = 0;
+        for (int i = 1; i < vertices.size() && changed; i += 1) {
+            changed = false;
             for (V from : vertices) {
-                for (Edge<V> e : graph.neighbors(from)) {
-                    V to = e.to;
+                settled += 1;
+                budget.check(settled);
+                double fromDist = distTo.getOrDefault(from, Double.POSITIVE_INFINITY);
+                graph.forEachEdge(from, (to, weight) -> {
                     double oldDist = distTo.getOrDefault(to, Double.POSITIVE_INFINITY);
-                    double newDist = distTo.get(from) + e.weight;
+                    double newDist = fromDist + weight;
                     if (newDist < oldDist) {
-                        edgeTo.put(to, e);
+                        parentTo.put(to, from);
                         distTo.put(to, newDist);
+                        changed = true;
                     }
-                }
+                });
             }
         }
     }
@@ -47,8 +69,8 @@ public class BellmanFordSolver<V> implements ShortestPathSolver<V> {
         List<V> path = new ArrayList<>();
         V curr = goal;
         path.add(curr);
-        while (edgeTo.get(curr) != null) {
-            curr = edgeTo.get(curr).from;
+        while (parentTo.get(curr) != null) {
+            curr = parentTo.get(curr);
             path.add(curr);
         }
         Collections.reverse(path);
@@ -64,13 +86,12 @@ public class BellmanFordSolver<V> implements ShortestPathSolver<V> {
         while (!queue.isEmpty()) {
             V from = queue.remove();
             result.add(from);
-            for (Edge<V> e : graph.neighbors(from)) {
-                V to = e.to;
+            graph.forEachEdge(from, (to, weight) -> {
                 if (!visited.contains(to)) {
                     queue.add(to);
                     visited.add(to);
                 }
-            }
+            });
         }
         return result;
     }
@@ -0,0 +1,277 @@
+package graphs.shortestpaths;
+
+import graphs.ReversibleGraph;
+import minpq.DoubleMapMinPQ;
+import minpq.MinPQ;
+
+import java.util.*;
+
+/**
+ * Bidirectional A* search implementation for single-pair shortest paths in a {@link ReversibleGraph}. A forward search
+ * from the start and a backward search from the goal alternate, each expanding the side with the smaller minimum key,
+ * until the sum of the two minimum keys reaches the length of the best path found where the searches meet.
+ * <p>
+ * Both searches use the balanced potential {@code p(v) = (h(v, goal) - h(start, v)) / 2}, negated for the backward
+ * search, which keeps reduced edge weights non-negative in both directions whenever the graph's heuristic is
+ * consistent. The sum of the forward and backward keys of a vertex is then the length of the path through it, so the
+ * searches can stop as soon as the two minimum keys add up to the best path. With a zero heuristic this is
+ * bidirectional Dijkstra's algorithm.
+ * <p>
+ * The balanced potential only uses half of each estimate, so on its own it prunes less than unidirectional A*. Each
+ * search therefore also skips the vertices whose full estimate shows that they cannot lead to a path shorter than the
+ * best one found, and never enqueues the vertices that the estimate shows cannot reach the goal or be reached from
+ * the start.
+ *
+ * @param <V> the type of vertices.
+ * @see ReversibleGraph
+ * @see AStarSolver
+ */
+public class BidirectionalAStarSolver<V> {
+    private final ReversibleGraph<V> graph;
+    private final Map<V, Double> starts;
+    private final Map<V, Double> goals;
+    private final Map<V, V> parentTo;
+    private final Map<V, Double> distTo;
+    private final Map<V, V> parentFrom;
+    private final Map<V, Double> distFrom;
+    /**
+     * The estimated distance from each vertex reached so far to the nearest goal.
+     */
+    private final Map<V, Double> toGoal;
+    /**
+     * The estimated distance from the nearest start to each vertex reached so far.
+     */
+    private final Map<V, Double> fromStart;
+    private final SearchStats stats;
+    private V meeting;
+    private double best;
+
+    /**
+     * Constructs a new instance by executing bidirectional A* search on the graph from the start to the goal.
+     *
+     * @param graph the input graph.
+     * @param start the start vertex.
+     * @param goal  the goal vertex.
+     */
+    public BidirectionalAStarSolver(ReversibleGraph<V> graph, V start, V goal) {
+        this(graph, Map.of(start, 0.0), Map.of(goal, 0.0), new SearchStats());
+    }
+
+    /**
+     * Constructs a new instance by executing bidirectional A* search on the graph from a set of start vertices to a
+     * set of goal vertices, recording the work done in the given stats. Each start vertex is seeded with its distance
+     * from the origin and each goal vertex with its distance to the destination, so that the origin and destination
+     * may lie between vertices, such as partway along an edge.
+     *
+     * @param graph  the input graph.
+     * @param starts the start vertices mapped to their distances from the origin.
+     * @param goals  the goal vertices mapped to their distances to the destination.
+     * @param stats  the stats to add this search's counters to.
+     */
+    public BidirectionalAStarSolver(ReversibleGraph<V> graph, Map<V, Double> starts, Map<V, Double> goals,
+                                    SearchStats stats) {
+        long startTime = System.nanoTime();
+        this.graph = graph;
+        this.starts = starts;
+        this.goals = goals;
+        this.stats = stats;
+        parentTo = new HashMap<>();
+        distTo = new HashMap<>();
+        parentFrom = new HashMap<>();
+        distFrom = new HashMap<>();
+        toGoal = new HashMap<>();
+        fromStart = new HashMap<>();
+        best = Double.POSITIVE_INFINITY;
+        MinPQ<V> forward = new DoubleMapMinPQ<>();
+        MinPQ<V> backward = new DoubleMapMinPQ<>();
+        for (Map.Entry<V, Double> entry : starts.entrySet()) {
+            parentTo.put(entry.getKey(), null);
+            distTo.put(entry.getKey(), entry.getValue());
+            if (toGoal(entry.getKey()) < Double.POSITIVE_INFINITY) {
+                forward.add(entry.getKey(), entry.getValue() + potential(entry.getKey()));
+                stats.insert();
+            }
+        }
+        for (Map.Entry<V, Double> entry : goals.entrySet()) {
+            parentFrom.put(entry.getKey(), null);
+            distFrom.put(entry.getKey(), entry.getValue());
+            if (fromStart(entry.getKey()) < Double.POSITIVE_INFINITY) {
+                backward.add(entry.getKey(), entry.getValue() - potential(entry.getKey()));
+                stats.insert();
+            }
+            meet(entry.getKey());
+        }
+        while (!forward.isEmpty() && !backward.isEmpty()) {
+            V forwardNext = forward.peekMin();
+            V backwardNext = backward.peekMin();
+            double forwardMin = distTo.get(forwardNext) + potential(forwardNext);
+            double backwardMin = distFrom.get(backwardNext) - potential(backwardNext);
+            if (forwardMin + backwardMin >= best) {
+                break;
+            }
+            if (forwardMin <= backwardMin) {
+                V from = forward.removeMin();
+                double fromDist = distTo.get(from);
+                if (fromDist + toGoal(from) >= best) {
+                    continue;
+                }
+                stats.settle();
+                graph.forEachEdge(from, (to, weight) -> {
+                    stats.relax();
+                    relax(forward, to, fromDist + weight, from, parentTo, distTo, 1);
+                });
+            } else {
+                V to = backward.removeMin();
+                double toDist = distFrom.get(to);
+                if (toDist + fromStart(to) >= best) {
+                    continue;
+                }
+                stats.settle();
+                graph.forEachIncomingEdge(to, (from, weight) -> {
+                    stats.relax();
+                    relax(backward, from, toDist + weight, to, parentFrom, distFrom, -1);
+                });
+            }
+        }
+        stats.elapse(System.nanoTime() - startTime);
+    }
+
+    /**
+     * Updates the distance to the given vertex in one search direction if the new distance is shorter.
+     *
+     * @param pq      the priority queue for the search direction.
+     * @param vertex  the vertex reached by the edge.
+     * @param newDist the distance to the vertex through the edge.
+     * @param parent  the other end of the edge used to reach the vertex.
+     * @param parents the shortest paths tree parents for the search direction.
+     * @param dists   the distances for the search direction.
+     * @param sign    1 for the forward search or -1 for the backward search.
+     */
+    private void relax(MinPQ<V> pq, V vertex, double newDist, V parent,
+                       Map<V, V> parents, Map<V, Double> dists, int sign) {
+        if (newDist < dists.getOrDefault(vertex, Double.POSITIVE_INFINITY)) {
+            parents.put(vertex, parent);
+            dists.put(vertex, newDist);
+            meet(vertex);
+            double remaining = sign > 0 ? toGoal(vertex) : fromStart(vertex);
+            if (newDist + remaining >= best) {
+                return;
+            }
+            double priority = newDist + sign * potential(vertex);
+            if (pq.contains(vertex)) {
+                pq.changePriority(vertex, priority);
+                stats.decreaseKey();
+            } else {
+                pq.add(vertex, priority);
+                stats.insert();
+            }
+        }
+    }
+
+    /**
+     * Updates the best path if the given vertex has been reached by both searches through a shorter path.
+     *
+     * @param vertex the vertex to check.
+     */
+    private void meet(V vertex) {
+        Double forward = distTo.get(vertex);
+        Double backward = distFrom.get(vertex);
+        if (forward != null && backward != null && forward + backward < best) {
+            best = forward + backward;
+            meeting = vertex;
+        }
+    }
+
+    /**
+     * Returns the balanced forward potential of the given vertex: half the difference between the estimated distance
+     * to the nearest goal and the estimated distance from the nearest start, each including the goal or start's seed.
+     * The potential is only used for vertices with finite estimates in both directions.
+     *
+     * @param vertex the vertex.
+     * @return the balanced forward potential of the given vertex.
+     */
+    private double potential(V vertex) {
+        return (toGoal(vertex) - fromStart(vertex)) / 2;
+    }
+
+    /**
+     * Returns the estimated distance from the given vertex to the nearest goal, including the goal's seed.
+     *
+     * @param vertex the vertex.
+     * @return the estimated distance from the given vertex to the nearest goal.
+     */
+    private double toGoal(V vertex) {
+        Double result = toGoal.get(vertex);
+        if (result == null) {
+            result = Double.POSITIVE_INFINITY;
+            for (Map.Entry<V, Double> goal : goals.entrySet()) {
+                result = Math.min(result, graph.estimatedDistance(vertex, goal.getKey()) + goal.getValue());
+            }
+            toGoal.put(vertex, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the estimated distance from the nearest start to the given vertex, including the start's seed.
+     *
+     * @param vertex the vertex.
+     * @return the estimated distance from the nearest start to the given vertex.
+     */
+    private double fromStart(V vertex) {
+        Double result = fromStart.get(vertex);
+        if (result == null) {
+            result = Double.POSITIVE_INFINITY;
+            for (Map.Entry<V, Double> start : starts.entrySet()) {
+                result = Math.min(result, start.getValue() + graph.estimatedDistance(start.getKey(), vertex));
+            }
+            fromStart.put(vertex, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the shortest path from one of the start vertices to one of the goal vertices, or an empty list if no goal
+     * is reachable.
+     *
+     * @return a list of vertices representing the shortest path.
+     */
+    public List<V> solution() {
+        List<V> path = new ArrayList<>();
+        if (meeting == null) {
+            return path;
+        }
+        V curr = meeting;
+        path.add(curr);
+        while (parentTo.get(curr) != null) {
+            curr = parentTo.get(curr);
+            path.add(curr);
+        }
+        Collections.reverse(path);
+        curr = meeting;
+        while (parentFrom.get(curr) != null) {
+            curr = parentFrom.get(curr);
+            path.add(curr);
+        }
+        return path;
+    }
+
+    /**
+     * Returns the length of the shortest path including the start and goal seeds, or positive infinity if no goal is
+     * reachable.
+     *
+     * @return the length of the shortest path.
+     */
+    public double distance() {
+        return best;
+    }
+
+    /**
+     * Returns the counters recorded by this search.
+     *
+     * @return the counters recorded by this search.
+     */
+    public SearchStats stats() {
+        return stats;
+    }
+}
@@ -0,0 +1,140 @@
+package graphs.shortestpaths;
+
+import graphs.IndexedGraph;
+import minpq.IntMinPQ;
+
+import java.util.Map;
+
+/**
+ * Dijkstra's algorithm over an {@link IndexedGraph} that only finds the vertices within a distance budget of the start.
+ * Unlike {@link DijkstraSolver}, which runs until the priority queue is exhausted, the search never adds a vertex
+ * beyond the budget to its frontier and stops as soon as the frontier is empty, so its work is proportional to the
+ * size of the reachable area rather than the whole graph.
+ *
+ * @see DijkstraSolver
+ */
+public class BoundedDijkstraSolver {
+    private final SearchWorkspace workspace;
+    private final long search;
+    private final SearchStats stats;
+    private int count;
+
+    /**
+     * Constructs a new instance by finding the vertices within the budget of the start vertex.
+     *
+     * @param graph  the input graph.
+     * @param start  the start vertex.
+     * @param budget the maximum distance from the start.
+     */
+    public BoundedDijkstraSolver(IndexedGraph graph, int start, double budget) {
+        this(graph, Map.of(start, 0.0), budget, new SearchStats());
+    }
+
+    /**
+     * Constructs a new instance by finding the vertices within the budget of a set of start vertices, recording the
+     * work done in the given stats. Each start vertex is seeded with its distance from the origin. The search keeps
+     * its state in the calling thread's workspace, so the results remain valid until the next search that uses it.
+     *
+     * @param graph  the input graph.
+     * @param starts the start vertices mapped to their distances from the origin.
+     * @param budget the maximum distance from the origin.
+     * @param stats  the stats to add this search's counters to.
+     */
+    public BoundedDijkstraSolver(IndexedGraph graph, Map<Integer, Double> starts, double budget, SearchStats stats) {
+        this(graph, starts, budget, stats, SearchBudget.unlimited());
+    }
+
+    /**
+     * Constructs a new instance by finding the vertices within the budget of a set of start vertices, stopping early
+     * if the search exceeds the given limits, and recording the work done in the given stats.
+     *
+     * @param graph  the input graph.
+     * @param starts the start vertices mapped to their distances from the origin.
+     * @param budget the maximum distance from the origin.
+     * @param stats  the stats to add this search's counters to.
+     * @param limits the limits on the search.
+     * @throws SearchBudgetExceededException if the search exceeds the limits.
+     */
+    public BoundedDijkstraSolver(IndexedGraph graph, Map<Integer, Double> starts, double budget, SearchStats stats,
+                                 SearchBudget limits) {
+        long startTime = System.nanoTime();
+        this.stats = stats;
+        workspace = SearchWorkspace.forThread(0);
+        search = workspace.reset(graph.vertexCount());
+        // Every vertex added to the priority queue is within the budget and is eventually settled, so the tentative
+        // distances are final once the queue is empty. Settled vertices are listed in order in the workspace queue.
+        IntMinPQ pq = workspace.pq();
+        int[] settled = workspace.queue();
+        for (Map.Entry<Integer, Double> entry : starts.entrySet()) {
+            if (entry.getValue() <= budget && entry.getValue() < workspace.dist(entry.getKey())) {
+                workspace.set(entry.getKey(), entry.getValue(), -1);
+                pq.addOrChangePriority(entry.getKey(), entry.getValue());
+                stats.insert();
+            }
+        }
+        while (!pq.isEmpty()) {
+            int u = pq.removeMin();
+            stats.settle();
+            settled[count] = u;
+            count += 1;
+            limits.check(count);
+            double dist = workspace.dist(u);
+            for (int e = graph.start(u); e < graph.end(u); e += 1) {
+                stats.relax();
+                int v = graph.target(e);
+                double newDist = dist + graph.weight(e);
+                if (newDist <= budget && newDist < workspace.dist(v)) {
+                    if (workspace.reached(v)) {
+                        stats.decreaseKey();
+                    } else {
+                        stats.insert();
+                    }
+                    workspace.set(v, newDist, u);
+                    pq.addOrChangePriority(v, newDist);
+                }
+            }
+        }
+        stats.elapse(System.nanoTime() - startTime);
+    }
+
+    /**
+     * Returns the number of vertices within the budget.
+     *
+     * @return the number of vertices within the budget.
+     */
+    public int count() {
+        workspace.check(search);
+        return count;
+    }
+
+    /**
+     * Returns the vertex within the budget at the given index, in increasing order of distance.
+     *
+     * @param i the index from 0 to {@link #count()} (exclusive).
+     * @return the vertex within the budget at the given index.
+     */
+    public int vertex(int i) {
+        workspace.check(search);
+        return workspace.queue()[i];
+    }
+
+    /**
+     * Returns the shortest path distance to the given vertex, or positive infinity if it is beyond the budget.
+     *
+     * @param vertex the vertex.
+     * @return the shortest path distance to the given vertex.
+     */
+    public double distance(int vertex) {
+        workspace.check(search);
+        return workspace.dist(vertex);
+    }
+
+    /**
+     * Returns the counters recorded by this search.
+     *
+     * @return the counters recorded by this search.
+     */
+    public SearchStats stats() {
+        return stats;
+    }
+}
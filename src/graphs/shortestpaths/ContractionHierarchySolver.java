@@ -0,0 +1,192 @@
+package graphs.shortestpaths;
+
+import graphs.CSRGraph;
+import graphs.ContractionHierarchy;
+import minpq.IntMinPQ;
+
+import java.util.*;
+
+/**
+ * Single-pair shortest paths query over a {@link ContractionHierarchy}. A forward search from the start follows only
+ * upward edges and a backward search from the goal follows only reversed downward edges, alternating by smaller
+ * minimum distance. Each direction stops once its minimum distance reaches the length of the best path found where the
+ * two searches meet, and the hierarchy path through the meeting vertex is then unpacked into original vertices.
+ *
+ * @see ContractionHierarchy
+ * @see ManyToManySolver
+ */
+public class ContractionHierarchySolver {
+    private final ContractionHierarchy hierarchy;
+    private final SearchWorkspace forward;
+    private final SearchWorkspace backward;
+    private final long forwardSearch;
+    private final long backwardSearch;
+    private final SearchStats stats;
+    private int meeting;
+    private double best;
+
+    /**
+     * Constructs a new instance by querying the hierarchy from the start to the goal.
+     *
+     * @param hierarchy the contraction hierarchy.
+     * @param start     the start vertex.
+     * @param goal      the goal vertex.
+     */
+    public ContractionHierarchySolver(ContractionHierarchy hierarchy, int start, int goal) {
+        this(hierarchy, Map.of(start, 0.0), Map.of(goal, 0.0), new SearchStats());
+    }
+
+    /**
+     * Constructs a new instance by querying the hierarchy from a set of start vertices to a set of goal vertices,
+     * recording the work done in the given stats. Each start vertex is seeded with its distance from the origin and
+     * each goal vertex with its distance to the destination, so that the origin and destination may lie between
+     * vertices, such as partway along an edge. The forward and backward searches keep their state in the calling
+     * thread's workspaces 0 and 1, so the results remain valid until the next search that uses either of them.
+     *
+     * @param hierarchy the contraction hierarchy.
+     * @param starts    the start vertices mapped to their distances from the origin.
+     * @param goals     the goal vertices mapped to their distances to the destination.
+     * @param stats     the stats to add this search's counters to.
+     */
+    public ContractionHierarchySolver(ContractionHierarchy hierarchy, Map<Integer, Double> starts,
+                                      Map<Integer, Double> goals, SearchStats stats) {
+        long startTime = System.nanoTime();
+        this.hierarchy = hierarchy;
+        this.stats = stats;
+        CSRGraph up = hierarchy.upward();
+        CSRGraph down = hierarchy.downward();
+        forward = SearchWorkspace.forThread(0);
+        backward = SearchWorkspace.forThread(1);
+        forwardSearch = forward.reset(up.vertexCount());
+        backwardSearch = backward.reset(down.vertexCount());
+        meeting = -1;
+        best = Double.POSITIVE_INFINITY;
+        IntMinPQ forwardPQ = forward.pq();
+        IntMinPQ backwardPQ = backward.pq();
+        for (Map.Entry<Integer, Double> entry : starts.entrySet()) {
+            relax(entry.getKey(), entry.getValue(), -1, forward, backward);
+        }
+        for (Map.Entry<Integer, Double> entry : goals.entrySet()) {
+            relax(entry.getKey(), entry.getValue(), -1, backward, forward);
+        }
+        while (true) {
+            boolean forwardDone = forwardPQ.isEmpty() || forwardPQ.peekMinPriority() >= best;
+            boolean backwardDone = backwardPQ.isEmpty() || backwardPQ.peekMinPriority() >= best;
+            if (forwardDone && backwardDone) {
+                break;
+            }
+            if (backwardDone || !forwardDone && forwardPQ.peekMinPriority() <= backwardPQ.peekMinPriority()) {
+                int u = forwardPQ.removeMin();
+                stats.settle();
+                if (!stalled(u, down, forward)) {
+                    for (int e = up.start(u); e < up.end(u); e += 1) {
+                        stats.relax();
+                        relax(up.target(e), forward.dist(u) + up.weight(e), u, forward, backward);
+                    }
+                }
+            } else {
+                int u = backwardPQ.removeMin();
+                stats.settle();
+                if (!stalled(u, up, backward)) {
+                    for (int e = down.start(u); e < down.end(u); e += 1) {
+                        stats.relax();
+                        relax(down.target(e), backward.dist(u) + down.weight(e), u, backward, forward);
+                    }
+                }
+            }
+        }
+        stats.elapse(System.nanoTime() - startTime);
+    }
+
+    /**
+     * Returns true if the given vertex can be reached more cheaply through a higher-ranked vertex that this search
+     * direction has already reached (stall-on-demand). Such a vertex cannot be on a shortest up-down path, so its
+     * edges need not be relaxed.
+     *
+     * @param vertex    the vertex being settled.
+     * @param opposite  the graph of edges from higher-ranked vertices into each vertex for this search direction.
+     * @param direction the workspace holding the distances for the search direction.
+     * @return true if the given vertex can be skipped.
+     */
+    static boolean stalled(int vertex, CSRGraph opposite, SearchWorkspace direction) {
+        double dist = direction.dist(vertex);
+        for (int e = opposite.start(vertex); e < opposite.end(vertex); e += 1) {
+            if (direction.dist(opposite.target(e)) + opposite.weight(e) < dist) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Updates the distance to the given vertex in one search direction if the new distance is shorter, and updates the
+     * best path if the other direction has also reached the vertex.
+     *
+     * @param vertex    the vertex reached.
+     * @param newDist   the distance to the vertex.
+     * @param parent    the vertex the edge comes from, or -1 for a seed.
+     * @param direction the workspace for the search direction.
+     * @param other     the workspace for the other search direction.
+     */
+    private void relax(int vertex, double newDist, int parent, SearchWorkspace direction, SearchWorkspace other) {
+        if (newDist < direction.dist(vertex)) {
+            if (direction.reached(vertex)) {
+                stats.decreaseKey();
+            } else {
+                stats.insert();
+            }
+            direction.set(vertex, newDist, parent);
+            direction.pq().addOrChangePriority(vertex, newDist);
+            if (newDist + other.dist(vertex) < best) {
+                best = newDist + other.dist(vertex);
+                meeting = vertex;
+            }
+        }
+    }
+
+    /**
+     * Returns the shortest path in original vertices from one of the start vertices to one of the goal vertices, or an
+     * empty list if no goal is reachable.
+     *
+     * @return a list of vertices representing the shortest path.
+     */
+    public List<Integer> solution() {
+        forward.check(forwardSearch);
+        backward.check(backwardSearch);
+        List<Integer> path = new ArrayList<>();
+        if (meeting < 0) {
+            return path;
+        }
+        List<Integer> upward = new ArrayList<>();
+        for (int v = meeting; v >= 0; v = forward.parent(v)) {
+            upward.add(v);
+        }
+        path.add(upward.get(upward.size() - 1));
+        for (int i = upward.size() - 1; i > 0; i -= 1) {
+            hierarchy.unpack(upward.get(i), upward.get(i - 1), path);
+        }
+        for (int v = meeting; backward.parent(v) >= 0; v = backward.parent(v)) {
+            hierarchy.unpack(v, backward.parent(v), path);
+        }
+        return path;
+    }
+
+    /**
+     * Returns the length of the shortest path including the start and goal seeds, or positive infinity if no goal is
+     * reachable.
+     *
+     * @return the length of the shortest path.
+     */
+    public double distance() {
+        return best;
+    }
+
+    /**
+     * Returns the counters recorded by this search.
+     *
+     * @return the counters recorded by this search.
+     */
+    public SearchStats stats() {
+        return stats;
+    }
+}
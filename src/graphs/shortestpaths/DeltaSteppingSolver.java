@@ -0,0 +1,299 @@
+package graphs.shortestpaths;
+
+import graphs.IndexedGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parallel delta-stepping implementation of the {@link ShortestPathSolver} interface for an {@link IndexedGraph} with
+ * non-negative edge weights. Vertices are kept in buckets of width delta by tentative distance, and the lowest
+ * non-empty bucket is settled in phases: the light edges (weight at most delta) of every vertex in the bucket are
+ * relaxed in parallel until the bucket stays empty, and then the heavy edges of every vertex removed from the bucket
+ * are relaxed in parallel once. Each phase runs on a {@link ForkJoinPool}.
+ * <p>
+ * Distances are stored as the bits of non-negative {@code double} values in an {@link AtomicLongArray}, whose
+ * ordering as {@code long} values matches their numeric ordering, so a relaxation lowers a distance with a
+ * compare-and-set loop rather than a lock. Only a thread whose update is still current records the parent, so the
+ * shortest paths tree stays consistent with the distances, which equal those found by {@link DijkstraSolver}.
+ *
+ * @see ShortestPathSolver
+ * @see DijkstraSolver
+ * @see IndexedGraph
+ */
+public class DeltaSteppingSolver implements ShortestPathSolver<Integer> {
+    /**
+     * The number of vertices at or below which a phase relaxes their edges in a single task.
+     */
+    private static final int GRAIN = 256;
+    /**
+     * The number of locks guarding parent updates, a power of 2.
+     */
+    private static final int STRIPES = 1024;
+    private static final long INFINITY = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+    private final IndexedGraph graph;
+    private final double delta;
+    private final AtomicLongArray distTo;
+    private final int[] parentTo;
+    private final Object[] locks;
+    /**
+     * The vertices whose distance was lowered in the current phase, in the first {@link #improvedCount} entries.
+     */
+    private final int[] improved;
+    private final AtomicInteger improvedCount;
+    /**
+     * The phase in which each vertex was last added to the improved vertices.
+     */
+    private final AtomicIntegerArray improvedPhase;
+    private int phase;
+
+    /**
+     * Constructs a new instance by executing delta-stepping on the graph from the start in the common fork-join pool.
+     *
+     * @param graph the input graph.
+     * @param start the start vertex.
+     * @param delta the bucket width, such as a small multiple of the average edge weight.
+     */
+    public DeltaSteppingSolver(IndexedGraph graph, int start, double delta) {
+        this(graph, start, delta, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new instance by executing delta-stepping on the graph from the start in the given fork-join pool.
+     * A smaller delta relaxes fewer edges more than once but needs more phases, each of which waits for all tasks.
+     *
+     * @param graph the input graph.
+     * @param start the start vertex.
+     * @param delta the bucket width, such as a small multiple of the average edge weight.
+     * @param pool  the pool to run each phase in.
+     * @throws IllegalArgumentException if delta is not positive.
+     */
+    public DeltaSteppingSolver(IndexedGraph graph, int start, double delta, ForkJoinPool pool) {
+        if (!(delta > 0)) {
+            throw new IllegalArgumentException("Delta must be positive: " + delta);
+        }
+        int n = graph.vertexCount();
+        this.graph = graph;
+        this.delta = delta;
+        distTo = new AtomicLongArray(n);
+        for (int v = 0; v < n; v += 1) {
+            distTo.set(v, INFINITY);
+        }
+        parentTo = new int[n];
+        Arrays.fill(parentTo, -1);
+        locks = new Object[STRIPES];
+        for (int i = 0; i < STRIPES; i += 1) {
+            locks[i] = new Object();
+        }
+        improved = new int[n];
+        improvedCount = new AtomicInteger();
+        improvedPhase = new AtomicIntegerArray(n);
+        phase = 1;
+
+        distTo.set(start, Double.doubleToRawLongBits(0.0));
+        Buckets buckets = new Buckets();
+        buckets.add(0, start);
+        int[] frontier = new int[n];
+        int[] removed = new int[n];
+        // The last phase in which each vertex joined the frontier, and one more than the last bucket it was removed
+        // from, to skip duplicate bucket entries.
+        int[] takenPhase = new int[n];
+        int[] removedBucket = new int[n];
+        for (int i = 0; i < buckets.count(); i += 1) {
+            int removedCount = 0;
+            while (buckets.size(i) > 0) {
+                int size = 0;
+                int[] bucket = buckets.get(i);
+                for (int j = 0; j < buckets.size(i); j += 1) {
+                    int v = bucket[j];
+                    if (bucket(v) == i && takenPhase[v] != phase) {
+                        takenPhase[v] = phase;
+                        frontier[size] = v;
+                        size += 1;
+                        if (removedBucket[v] != i + 1) {
+                            removedBucket[v] = i + 1;
+                            removed[removedCount] = v;
+                            removedCount += 1;
+                        }
+                    }
+                }
+                buckets.clear(i);
+                runPhase(pool, frontier, size, true, buckets);
+            }
+            // The distances of the vertices removed from this bucket are final, so their heavy edges are relaxed once.
+            runPhase(pool, removed, removedCount, false, buckets);
+            buckets.release(i);
+        }
+    }
+
+    /**
+     * Relaxes the light or heavy edges of the first count of the given vertices in parallel, and then adds every
+     * vertex whose distance was lowered to the bucket for its new distance.
+     *
+     * @param pool     the pool to run the phase in.
+     * @param vertices the vertices whose edges to relax.
+     * @param count    the number of vertices.
+     * @param light    true to relax edges with weight at most delta, false to relax the other edges.
+     * @param buckets  the buckets to add the improved vertices to.
+     */
+    private void runPhase(ForkJoinPool pool, int[] vertices, int count, boolean light, Buckets buckets) {
+        pool.invoke(new Relax(vertices, 0, count, light));
+        for (int j = 0; j < improvedCount.get(); j += 1) {
+            buckets.add(bucket(improved[j]), improved[j]);
+        }
+        improvedCount.set(0);
+        phase += 1;
+    }
+
+    /**
+     * Returns the index of the bucket containing the tentative distance to the given vertex.
+     *
+     * @param vertex the vertex.
+     * @return the index of the bucket containing the tentative distance to the given vertex.
+     */
+    private int bucket(int vertex) {
+        return (int) (distance(vertex) / delta);
+    }
+
+    /**
+     * Lowers the distance to the given vertex if the new distance is shorter. Safe to call from multiple threads.
+     *
+     * @param vertex  the vertex reached.
+     * @param newDist the distance to the vertex.
+     * @param parent  the vertex the edge comes from.
+     */
+    private void relax(int vertex, double newDist, int parent) {
+        long bits = Double.doubleToRawLongBits(newDist);
+        long oldBits = distTo.get(vertex);
+        while (bits < oldBits) {
+            if (distTo.compareAndSet(vertex, oldBits, bits)) {
+                // A thread that lowered the distance further has recorded or will record its own parent.
+                synchronized (locks[vertex & (STRIPES - 1)]) {
+                    if (distTo.get(vertex) == bits) {
+                        parentTo[vertex] = parent;
+                    }
+                }
+                if (improvedPhase.getAndSet(vertex, phase) != phase) {
+                    improved[improvedCount.getAndIncrement()] = vertex;
+                }
+                return;
+            }
+            oldBits = distTo.get(vertex);
+        }
+    }
+
+    @Override
+    public List<Integer> solution(Integer goal) {
+        List<Integer> path = new ArrayList<>();
+        for (int curr = goal; curr >= 0; curr = parentTo[curr]) {
+            path.add(curr);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Returns the length of the shortest path from the start to the goal, or positive infinity if the goal is
+     * unreachable.
+     *
+     * @param goal the goal vertex.
+     * @return the length of the shortest path from the start to the goal.
+     */
+    public double distance(int goal) {
+        return Double.longBitsToDouble(distTo.get(goal));
+    }
+
+    /**
+     * Task relaxing the light or heavy edges of a range of vertices, split in half until the range is small.
+     */
+    private class Relax extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] vertices;
+        private final int lo;
+        private final int hi;
+        private final boolean light;
+
+        Relax(int[] vertices, int lo, int hi, boolean light) {
+            this.vertices = vertices;
+            this.lo = lo;
+            this.hi = hi;
+            this.light = light;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > GRAIN) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Relax(vertices, lo, mid, light), new Relax(vertices, mid, hi, light));
+                return;
+            }
+            for (int i = lo; i < hi; i += 1) {
+                int u = vertices[i];
+                double dist = distance(u);
+                for (int e = graph.start(u); e < graph.end(u); e += 1) {
+                    double weight = graph.weight(e);
+                    if ((weight <= delta) == light) {
+                        relax(graph.target(e), dist + weight, u);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Growable array of buckets, each a growable list of vertices. Buckets are only accessed between phases.
+     */
+    private static class Buckets {
+        private int[][] vertices = new int[16][];
+        private int[] sizes = new int[16];
+        private int count;
+
+        int count() {
+            return count;
+        }
+
+        int size(int bucket) {
+            return sizes[bucket];
+        }
+
+        int[] get(int bucket) {
+            return vertices[bucket];
+        }
+
+        void add(int bucket, int vertex) {
+            if (bucket >= vertices.length) {
+                int length = Math.max(2 * vertices.length, bucket + 1);
+                vertices = Arrays.copyOf(vertices, length);
+                sizes = Arrays.copyOf(sizes, length);
+            }
+            if (vertices[bucket] == null) {
+                vertices[bucket] = new int[4];
+            } else if (sizes[bucket] == vertices[bucket].length) {
+                vertices[bucket] = Arrays.copyOf(vertices[bucket], 2 * sizes[bucket]);
+            }
+            vertices[bucket][sizes[bucket]] = vertex;
+            sizes[bucket] += 1;
+            count = Math.max(count, bucket + 1);
+        }
+
+        void clear(int bucket) {
+            sizes[bucket] = 0;
+        }
+
+        /**
+         * Frees the storage of a bucket that will not be used again.
+         */
+        void release(int bucket) {
+            vertices[bucket] = null;
+            sizes[bucket] = 0;
+        }
+    }
+}
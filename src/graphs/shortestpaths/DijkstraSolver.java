@@ -1,6 +1,5 @@
 package graphs.shortestpaths;
 
-import graphs.Edge;
 import graphs.Graph;
 import minpq.DoubleMapMinPQ;
 import minpq.MinPQ;
@@ -14,7 +13,7 @@ import java.util.*;
  * @see ShortestPathSolver
  */
 public class DijkstraSolver<V> implements ShortestPathSolver<V> {
-    private final Map<V, Edge<V>> edgeTo;
+    private final Map<V, V> parentTo;
     private final Map<V, Double> distTo;
 
     /**
@@ -24,24 +23,39 @@ public class DijkstraSolver<V> implements ShortestPathSolver<V> {
      * @param start the start vertex.
      */
     public DijkstraSolver(Graph<V> graph, V start) {
-        edgeTo = new HashMap<>();
+        this(graph, start, SearchBudget.unlimited());
+    }
+
+    /**
+     * Constructs a new instance by executing Dijkstra's algorithm on the graph from the start within the given budget.
+     *
+     * @param graph  the input graph.
+     * @param start  the start vertex.
+     * @param budget the limits on the search.
+     * @throws SearchBudgetExceededException if the search exceeds the budget.
+     */
+    public DijkstraSolver(Graph<V> graph, V start, SearchBudget budget) {
+        parentTo = new HashMap<>();
         distTo = new HashMap<>();
         MinPQ<V> pq = new DoubleMapMinPQ<>();
         pq.add(start, 0.0);
-        edgeTo.put(start, null);
+        parentTo.put(start, null);
         distTo.put(start, 0.0);
+        long settled = 0;
         while (!pq.isEmpty()) {
             V from = pq.removeMin();
-            for (Edge<V> e : graph.neighbors(from)) {
-                V to = e.to;
+            settled += 1;
+            budget.check(settled);
+            double fromDist = distTo.get(from);
+            graph.forEachEdge(from, (to, weight) -> {
                 double oldDist = distTo.getOrDefault(to, Double.POSITIVE_INFINITY);
-                double newDist = distTo.get(from) + e.weight;
+                double newDist = fromDist + weight;
                 if (newDist < oldDist) {
-                    edgeTo.put(to, e);
+                    parentTo.put(to, from);
                     distTo.put(to, newDist);
                     pq.addOrChangePriority(to, newDist);
                 }
-            }
+            });
         }
     }
 
@@ -50,8 +64,8 @@ public class DijkstraSolver<V> implements ShortestPathSolver<V> {
         List<V> path = new ArrayList<>();
         V curr = goal;
         path.add(curr);
-        while (edgeTo.get(curr) != null) {
-            curr = edgeTo.get(curr).from;
+        while (parentTo.get(curr) != null) {
+            curr = parentTo.get(curr);
             path.add(curr);
         }
         Collections.reverse(path);
@@ -0,0 +1,294 @@
+package graphs.shortestpaths;
+
+import graphs.IndexedAStarGraph;
+import minpq.IntMinPQ;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Anytime weighted A* search for single-pair shortest paths in an {@link IndexedAStarGraph}. The search is the same as
+ * {@link AnytimeAStarSolver}, but distances and parents are kept in a {@link SearchWorkspace} rather than in maps, so
+ * no vertex or distance is boxed and a warm workspace is reused without allocation. The search state remains valid
+ * until the next search that resets the same workspace, after which every method throws
+ * {@link IllegalStateException}.
+ *
+ * @see AnytimeAStarSolver
+ * @see IndexedAStarGraph
+ * @see SearchWorkspace
+ */
+public class IndexedAnytimeAStarSolver {
+    /**
+     * The number of vertices settled between checks of the bound in {@link #refineToBound()}.
+     */
+    private static final int BOUND_CHECK_INTERVAL = 256;
+    private final IndexedAStarGraph graph;
+    private final int[] goals;
+    /**
+     * The remaining distance from each goal vertex to the goal location, in the order of {@link #goals}.
+     */
+    private final double[] remaining;
+    private final double inflation;
+    private final SearchWorkspace workspace;
+    private final long search;
+    private final SearchStats stats;
+    private final SearchBudget budget;
+    /**
+     * The number of vertices settled by all calls to {@link #refine(long, long)}.
+     */
+    private long settledTotal;
+    /**
+     * The goal vertex ending the best path found so far, or -1 if no path has been found.
+     */
+    private int bestGoal;
+    /**
+     * The length of the best path found so far, including the remaining distance from its goal vertex.
+     */
+    private double best;
+
+    /**
+     * Constructs a new instance ready to search the graph from a set of start vertices to a set of goal vertices, each
+     * seeded with a distance, within the given budget across all calls to {@link #refine(long, long)}, keeping the
+     * search state in the calling thread's workspace. No search is done until {@link #refine(long, long)} is called.
+     *
+     * @param graph   the input graph.
+     * @param starts  the start vertices mapped to their initial distances.
+     * @param goals   the goal vertices mapped to their remaining distances.
+     * @param epsilon the allowed relative excess of each path found over the shortest path length.
+     * @param stats   the stats to add this search's counters to.
+     * @param budget  the limits on the whole search.
+     * @throws IllegalArgumentException if epsilon is negative.
+     */
+    public IndexedAnytimeAStarSolver(IndexedAStarGraph graph, Map<Integer, Double> starts, Map<Integer, Double> goals,
+                                     double epsilon, SearchStats stats, SearchBudget budget) {
+        this(graph, starts, goals, epsilon, stats, budget, SearchWorkspace.forThread(0));
+    }
+
+    /**
+     * Constructs a new instance ready to search the graph from a set of start vertices to a set of goal vertices, each
+     * seeded with a distance, within the given budget across all calls to {@link #refine(long, long)}, keeping the
+     * search state in the given workspace. No search is done until {@link #refine(long, long)} is called.
+     *
+     * @param graph     the input graph.
+     * @param starts    the start vertices mapped to their initial distances.
+     * @param goals     the goal vertices mapped to their remaining distances.
+     * @param epsilon   the allowed relative excess of each path found over the shortest path length.
+     * @param stats     the stats to add this search's counters to.
+     * @param budget    the limits on the whole search.
+     * @param workspace the workspace to keep the search state in.
+     * @throws IllegalArgumentException if epsilon is negative.
+     */
+    public IndexedAnytimeAStarSolver(IndexedAStarGraph graph, Map<Integer, Double> starts, Map<Integer, Double> goals,
+                                     double epsilon, SearchStats stats, SearchBudget budget,
+                                     SearchWorkspace workspace) {
+        if (!(epsilon >= 0)) {
+            throw new IllegalArgumentException("Epsilon must be non-negative: " + epsilon);
+        }
+        this.graph = graph;
+        this.inflation = 1 + epsilon;
+        this.stats = stats;
+        this.budget = budget;
+        this.workspace = workspace;
+        this.goals = new int[goals.size()];
+        this.remaining = new double[goals.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Double> entry : goals.entrySet()) {
+            this.goals[i] = entry.getKey();
+            this.remaining[i] = entry.getValue();
+            i += 1;
+        }
+        search = workspace.reset(graph.vertexCount());
+        bestGoal = -1;
+        best = Double.POSITIVE_INFINITY;
+        for (Map.Entry<Integer, Double> entry : starts.entrySet()) {
+            if (entry.getValue() < workspace.dist(entry.getKey())) {
+                update(entry.getKey(), entry.getValue(), -1);
+            }
+        }
+    }
+
+    /**
+     * Continues the search until it has settled the given number of vertices or run for the given time, or until the
+     * best path found is a shortest path. The time is checked after each settled vertex. The bound proven when the
+     * search stops is recorded in the stats.
+     *
+     * @param maxSettled the maximum number of vertices to settle.
+     * @param maxNanos   the maximum time to search in nanoseconds.
+     * @return true if the best path found is a shortest path, false if the budget ran out first.
+     * @throws IllegalStateException         if a later search has reset the workspace.
+     * @throws SearchBudgetExceededException if the search exceeds the budget given to the constructor.
+     */
+    public boolean refine(long maxSettled, long maxNanos) {
+        workspace.check(search);
+        long startTime = System.nanoTime();
+        IntMinPQ pq = workspace.pq();
+        long settled = 0;
+        while (!pq.isEmpty()) {
+            if (settled >= maxSettled || System.nanoTime() - startTime >= maxNanos) {
+                stats.elapse(System.nanoTime() - startTime);
+                stats.bound(bound());
+                return false;
+            }
+            int from = pq.removeMin();
+            double fromDist = workspace.dist(from);
+            if (fromDist + heuristic(from) >= best) {
+                continue;
+            }
+            settled += 1;
+            settledTotal += 1;
+            stats.settle();
+            budget.check(settledTotal);
+            for (int e = graph.start(from); e < graph.end(from); e += 1) {
+                stats.relax();
+                int to = graph.target(e);
+                double newDist = fromDist + graph.weight(e);
+                if (newDist < workspace.dist(to)) {
+                    update(to, newDist, from);
+                }
+            }
+        }
+        stats.elapse(System.nanoTime() - startTime);
+        stats.bound(bound());
+        return true;
+    }
+
+    /**
+     * Continues the search until the best path found is proven to be at most {@code 1 + epsilon} times as long as the
+     * shortest path, or until the search ends. Unlike {@link #refine(long, long)}, there is no time budget, but the
+     * budget given to the constructor still applies.
+     *
+     * @throws IllegalStateException         if a later search has reset the workspace.
+     * @throws SearchBudgetExceededException if the search exceeds the budget given to the constructor.
+     */
+    public void refineToBound() {
+        refineToBound(Long.MAX_VALUE);
+    }
+
+    /**
+     * Continues the search until the best path found is proven to be at most {@code 1 + epsilon} times as long as the
+     * shortest path, or until the search ends or has run for the given time. The time is checked after each settled
+     * vertex, and {@link #bound()} reports the bound achieved if the time runs out first.
+     *
+     * @param maxNanos the maximum time to search in nanoseconds.
+     * @return true if the bound was reached, false if the time ran out first.
+     * @throws IllegalStateException         if a later search has reset the workspace.
+     * @throws SearchBudgetExceededException if the search exceeds the budget given to the constructor.
+     */
+    public boolean refineToBound(long maxNanos) {
+        long startTime = System.nanoTime();
+        while (bound() > inflation) {
+            long remaining = maxNanos - (System.nanoTime() - startTime);
+            if (remaining <= 0) {
+                stats.bound(bound());
+                return false;
+            }
+            if (refine(BOUND_CHECK_INTERVAL, remaining)) {
+                return true;
+            }
+        }
+        stats.bound(bound());
+        return true;
+    }
+
+    /**
+     * Records a shorter distance to the given vertex, updating the best path if the vertex is a goal and adding the
+     * vertex to the priority queue unless it cannot lead to a shorter path than the best one.
+     *
+     * @param vertex the vertex.
+     * @param dist   the new distance to the vertex.
+     * @param parent the vertex before it on the path, or -1 for a start vertex.
+     */
+    private void update(int vertex, double dist, int parent) {
+        workspace.set(vertex, dist, parent);
+        for (int i = 0; i < goals.length; i += 1) {
+            if (goals[i] == vertex && dist + remaining[i] < best) {
+                best = dist + remaining[i];
+                bestGoal = vertex;
+            }
+        }
+        double estimate = heuristic(vertex);
+        if (dist + estimate < best) {
+            IntMinPQ pq = workspace.pq();
+            if (pq.contains(vertex)) {
+                pq.changePriority(vertex, dist + inflation * estimate);
+                stats.decreaseKey();
+            } else {
+                pq.add(vertex, dist + inflation * estimate);
+                stats.insert();
+            }
+        }
+    }
+
+    /**
+     * Returns a lower bound on the distance from the given vertex to the goal location through any goal vertex.
+     *
+     * @param vertex the vertex.
+     * @return a lower bound on the distance from the given vertex to the goal location.
+     */
+    private double heuristic(int vertex) {
+        double result = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < goals.length; i += 1) {
+            result = Math.min(result, graph.estimatedDistance(vertex, goals[i]) + remaining[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the best path found so far from a start vertex to a goal vertex, or an empty list if no path has been
+     * found yet.
+     *
+     * @return a list of vertices representing the best path found so far.
+     * @throws IllegalStateException if a later search has reset the workspace.
+     */
+    public List<Integer> solution() {
+        workspace.check(search);
+        List<Integer> path = new ArrayList<>();
+        for (int curr = bestGoal; curr >= 0; curr = workspace.parent(curr)) {
+            path.add(curr);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Returns the length of the best path found so far, including the seeded distances, or positive infinity if no
+     * path has been found yet.
+     *
+     * @return the length of the best path found so far.
+     */
+    public double distance() {
+        return best;
+    }
+
+    /**
+     * Returns an upper bound on the ratio of the length of the best path found so far to the shortest path length,
+     * which is 1 once the search has ended and positive infinity while no path has been found. The bound is at most
+     * {@code 1 + epsilon} after {@link #refineToBound()} returns.
+     *
+     * @return an upper bound on the ratio of the best path length to the shortest path length.
+     * @throws IllegalStateException if a later search has reset the workspace.
+     */
+    public double bound() {
+        workspace.check(search);
+        IntMinPQ pq = workspace.pq();
+        if (pq.isEmpty()) {
+            return bestGoal < 0 ? Double.POSITIVE_INFINITY : 1.0;
+        }
+        // Every vertex in the queue has priority at least that of the minimum, and its unweighted estimate is at
+        // least its priority divided by the inflation, which bounds every path not yet found.
+        int min = pq.peekMin();
+        double lower = Math.min(best, (workspace.dist(min) + inflation * heuristic(min)) / inflation);
+        return lower >= best ? 1.0 : best / lower;
+    }
+
+    /**
+     * Returns the counters recorded by this search.
+     *
+     * @return the counters recorded by this search.
+     */
+    public SearchStats stats() {
+        return stats;
+    }
+}
@@ -0,0 +1,84 @@
+package graphs.shortestpaths;
+
+import graphs.IndexedGraph;
+import minpq.IntMinPQ;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Dijkstra's algorithm implementation of the {@link ShortestPathSolver} interface for an {@link IndexedGraph}. Unlike
+ * {@link DijkstraSolver}, distances and parents are kept in a {@link SearchWorkspace} rather than in maps, so no vertex
+ * or distance is boxed and a warm workspace is reused without allocation. The results remain valid until the next
+ * search that uses the same workspace.
+ *
+ * @see ShortestPathSolver
+ * @see DijkstraSolver
+ * @see SearchWorkspace
+ */
+public class IndexedDijkstraSolver implements ShortestPathSolver<Integer> {
+    private final SearchWorkspace workspace;
+    private final long search;
+
+    /**
+     * Constructs a new instance by executing Dijkstra's algorithm on the graph from the start in the calling thread's
+     * workspace.
+     *
+     * @param graph the input graph.
+     * @param start the start vertex.
+     */
+    public IndexedDijkstraSolver(IndexedGraph graph, int start) {
+        this(graph, start, SearchWorkspace.forThread(0));
+    }
+
+    /**
+     * Constructs a new instance by executing Dijkstra's algorithm on the graph from the start in the given workspace.
+     *
+     * @param graph     the input graph.
+     * @param start     the start vertex.
+     * @param workspace the workspace to keep the search state in.
+     */
+    public IndexedDijkstraSolver(IndexedGraph graph, int start, SearchWorkspace workspace) {
+        this.workspace = workspace;
+        search = workspace.reset(graph.vertexCount());
+        IntMinPQ pq = workspace.pq();
+        pq.add(start, 0.0);
+        workspace.set(start, 0.0, -1);
+        while (!pq.isEmpty()) {
+            int from = pq.removeMin();
+            double dist = workspace.dist(from);
+            for (int e = graph.start(from); e < graph.end(from); e += 1) {
+                int to = graph.target(e);
+                double newDist = dist + graph.weight(e);
+                if (newDist < workspace.dist(to)) {
+                    workspace.set(to, newDist, from);
+                    pq.addOrChangePriority(to, newDist);
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<Integer> solution(Integer goal) {
+        workspace.check(search);
+        List<Integer> path = new ArrayList<>();
+        for (int curr = goal; curr >= 0; curr = workspace.parent(curr)) {
+            path.add(curr);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Returns the length of the shortest path from the start to the goal, or positive infinity if the goal is
+     * unreachable.
+     *
+     * @param goal the goal vertex.
+     * @return the length of the shortest path from the start to the goal.
+     */
+    public double distance(int goal) {
+        workspace.check(search);
+        return workspace.dist(goal);
+    }
+}
@@ -0,0 +1,154 @@
+package graphs.shortestpaths;
+
+import graphs.CSRGraph;
+import graphs.ContractionHierarchy;
+import minpq.IntMinPQ;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Many-to-many shortest path distances over a {@link ContractionHierarchy} using buckets. A backward upward search from
+ * each target records its distance in a bucket at every vertex it settles, and a forward upward search from each
+ * source then scans the buckets of the vertices it settles. The distance from a source to a target is the minimum over
+ * the vertices in both search spaces, so each source finds its distances to all targets in one pass rather than one
+ * query per pair. Targets and then sources are searched in parallel on the common fork-join pool.
+ *
+ * @see ContractionHierarchySolver
+ */
+public class ManyToManySolver {
+    private final double[][] distances;
+
+    /**
+     * Constructs a new instance by computing the distance from each source to each target. Like the seeds of
+     * {@link ContractionHierarchySolver}, each source and target is given as a set of vertices mapped to their
+     * distances from the origin or to the destination.
+     *
+     * @param hierarchy the contraction hierarchy.
+     * @param sources   the start vertices of each source mapped to their distances from it.
+     * @param targets   the goal vertices of each target mapped to their distances to it.
+     */
+    public ManyToManySolver(ContractionHierarchy hierarchy, List<Map<Integer, Double>> sources,
+                            List<Map<Integer, Double>> targets) {
+        this(hierarchy, sources, targets, SearchBudget.unlimited());
+    }
+
+    /**
+     * Constructs a new instance by computing the distance from each source to each target, giving up once the
+     * searches exceed the given budget. The time limit and cancellation are checked at the start of each search as
+     * well as during it, since the upward searches are short, and the settled-vertex limit applies to each search.
+     *
+     * @param hierarchy the contraction hierarchy.
+     * @param sources   the start vertices of each source mapped to their distances from it.
+     * @param targets   the goal vertices of each target mapped to their distances to it.
+     * @param budget    the limits on the searches.
+     * @throws SearchBudgetExceededException if a search exceeds the budget.
+     */
+    public ManyToManySolver(ContractionHierarchy hierarchy, List<Map<Integer, Double>> sources,
+                            List<Map<Integer, Double>> targets, SearchBudget budget) {
+        CSRGraph up = hierarchy.upward();
+        CSRGraph down = hierarchy.downward();
+        List<Map<Integer, Double>> backward = new ArrayList<>(targets.size());
+        for (int j = 0; j < targets.size(); j += 1) {
+            backward.add(null);
+        }
+        IntStream.range(0, targets.size()).parallel()
+                .forEach(j -> backward.set(j, searchSpace(down, up, targets.get(j), budget)));
+        Map<Integer, Bucket> buckets = new HashMap<>();
+        for (int j = 0; j < targets.size(); j += 1) {
+            for (Map.Entry<Integer, Double> entry : backward.get(j).entrySet()) {
+                buckets.computeIfAbsent(entry.getKey(), v -> new Bucket()).add(j, entry.getValue());
+            }
+        }
+        distances = new double[sources.size()][];
+        IntStream.range(0, sources.size()).parallel().forEach(i -> {
+            double[] row = new double[targets.size()];
+            Arrays.fill(row, Double.POSITIVE_INFINITY);
+            for (Map.Entry<Integer, Double> entry : searchSpace(up, down, sources.get(i), budget).entrySet()) {
+                Bucket bucket = buckets.get(entry.getKey());
+                if (bucket != null) {
+                    for (int k = 0; k < bucket.size; k += 1) {
+                        row[bucket.targets[k]] = Math.min(row[bucket.targets[k]], entry.getValue() + bucket.dists[k]);
+                    }
+                }
+            }
+            distances[i] = row;
+        });
+    }
+
+    /**
+     * Returns the vertices settled and not stalled by an upward search from the given seeds mapped to their
+     * distances. The search runs until its frontier is empty since it has no single goal to stop at, and keeps its
+     * state in the calling thread's workspace.
+     *
+     * @param graph    the upward graph for the search direction.
+     * @param opposite the graph of edges from higher-ranked vertices into each vertex for the search direction.
+     * @param seeds    the seed vertices mapped to their initial distances.
+     * @param budget   the limits on the search.
+     * @return the settled vertices mapped to their distances.
+     * @throws SearchBudgetExceededException if the search exceeds the budget.
+     */
+    private static Map<Integer, Double> searchSpace(CSRGraph graph, CSRGraph opposite, Map<Integer, Double> seeds,
+                                                    SearchBudget budget) {
+        budget.check(0);
+        SearchWorkspace workspace = SearchWorkspace.forThread(0);
+        workspace.reset(graph.vertexCount());
+        IntMinPQ pq = workspace.pq();
+        for (Map.Entry<Integer, Double> entry : seeds.entrySet()) {
+            if (entry.getValue() < workspace.dist(entry.getKey())) {
+                workspace.set(entry.getKey(), entry.getValue(), -1);
+                pq.addOrChangePriority(entry.getKey(), entry.getValue());
+            }
+        }
+        Map<Integer, Double> result = new HashMap<>();
+        long settled = 0;
+        while (!pq.isEmpty()) {
+            int u = pq.removeMin();
+            settled += 1;
+            budget.check(settled);
+            if (ContractionHierarchySolver.stalled(u, opposite, workspace)) {
+                continue;
+            }
+            double dist = workspace.dist(u);
+            result.put(u, dist);
+            for (int e = graph.start(u); e < graph.end(u); e += 1) {
+                int v = graph.target(e);
+                double newDist = dist + graph.weight(e);
+                if (newDist < workspace.dist(v)) {
+                    workspace.set(v, newDist, u);
+                    pq.addOrChangePriority(v, newDist);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the distance from each source to each target, or positive infinity where a target is unreachable. The
+     * rows follow the order of the sources and the columns the order of the targets.
+     *
+     * @return the distance from each source to each target.
+     */
+    public double[][] distances() {
+        return distances;
+    }
+
+    /**
+     * Growable list of the targets whose backward search settled a vertex and their distances from it.
+     */
+    private static class Bucket {
+        private int[] targets = new int[4];
+        private double[] dists = new double[4];
+        private int size;
+
+        void add(int target, double dist) {
+            if (size == targets.length) {
+                targets = Arrays.copyOf(targets, 2 * size);
+                dists = Arrays.copyOf(dists, 2 * size);
+            }
+            targets[size] = target;
+            dists[size] = dist;
+            size += 1;
+        }
+    }
+}
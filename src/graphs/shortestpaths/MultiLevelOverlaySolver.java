@@ -0,0 +1,208 @@
+package graphs.shortestpaths;
+
+import graphs.CSRGraph;
+import graphs.MultiLevelOverlay;
+import minpq.DoubleMapMinPQ;
+import minpq.MinPQ;
+
+import java.util.*;
+
+/**
+ * Single-pair shortest paths query over a {@link MultiLevelOverlay} with a customized metric. Dijkstra's algorithm
+ * runs from the start vertices, and at each vertex follows the edges of the highest overlay level whose cell around the
+ * vertex contains no start or goal vertex: the clique of that cell and the original edges leaving it. Vertices in the
+ * same level-1 cell as a start or goal follow the original edges. The search stops once its minimum distance reaches
+ * the length of the best path found to a goal, and clique edges on that path are then unpacked into original vertices.
+ *
+ * @see MultiLevelOverlay
+ * @see DijkstraSolver
+ */
+public class MultiLevelOverlaySolver {
+    private final MultiLevelOverlay overlay;
+    private final MultiLevelOverlay.Metric metric;
+    /**
+     * For each level from 1, the cells containing a start or goal vertex.
+     */
+    private final int[][] seedCells;
+    private final Map<Integer, Integer> parentTo;
+    private final Map<Integer, Double> distTo;
+    private final SearchStats stats;
+    private int goal;
+    private double best;
+
+    /**
+     * Constructs a new instance by querying the overlay from the start to the goal.
+     *
+     * @param overlay the multi-level overlay.
+     * @param metric  the customized metric of the overlay.
+     * @param start   the start vertex.
+     * @param goal    the goal vertex.
+     */
+    public MultiLevelOverlaySolver(MultiLevelOverlay overlay, MultiLevelOverlay.Metric metric, int start, int goal) {
+        this(overlay, metric, Map.of(start, 0.0), Map.of(goal, 0.0), new SearchStats());
+    }
+
+    /**
+     * Constructs a new instance by querying the overlay from a set of start vertices to a set of goal vertices,
+     * recording the work done in the given stats. Each start vertex is seeded with its distance from the origin and
+     * each goal vertex with its distance to the destination, so that the origin and destination may lie between
+     * vertices, such as partway along an edge.
+     *
+     * @param overlay the multi-level overlay.
+     * @param metric  the customized metric of the overlay.
+     * @param starts  the start vertices mapped to their distances from the origin.
+     * @param goals   the goal vertices mapped to their distances to the destination.
+     * @param stats   the stats to add this search's counters to.
+     */
+    public MultiLevelOverlaySolver(MultiLevelOverlay overlay, MultiLevelOverlay.Metric metric,
+                                   Map<Integer, Double> starts, Map<Integer, Double> goals, SearchStats stats) {
+        long startTime = System.nanoTime();
+        this.overlay = overlay;
+        this.metric = metric;
+        this.stats = stats;
+        seedCells = new int[overlay.levels() + 1][];
+        for (int l = 1; l <= overlay.levels(); l += 1) {
+            seedCells[l] = new int[starts.size() + goals.size()];
+            int i = 0;
+            for (int v : starts.keySet()) {
+                seedCells[l][i] = overlay.cell(l, v);
+                i += 1;
+            }
+            for (int v : goals.keySet()) {
+                seedCells[l][i] = overlay.cell(l, v);
+                i += 1;
+            }
+        }
+        parentTo = new HashMap<>();
+        distTo = new HashMap<>();
+        goal = -1;
+        best = Double.POSITIVE_INFINITY;
+        MinPQ<Integer> pq = new DoubleMapMinPQ<>();
+        for (Map.Entry<Integer, Double> entry : starts.entrySet()) {
+            relax(pq, entry.getKey(), entry.getValue(), -1);
+        }
+        CSRGraph graph = overlay.graph();
+        while (!pq.isEmpty() && distTo.get(pq.peekMin()) < best) {
+            int u = pq.removeMin();
+            stats.settle();
+            double dist = distTo.get(u);
+            Double toGoal = goals.get(u);
+            if (toGoal != null && dist + toGoal < best) {
+                best = dist + toGoal;
+                goal = u;
+            }
+            int level = level(u);
+            int cell = level == 0 ? -1 : overlay.cell(level, u);
+            if (level > 0) {
+                int first = overlay.boundaryStart(level, cell);
+                int i = overlay.boundaryIndex(level, u);
+                for (int j = 0; j < overlay.boundaryEnd(level, cell) - first; j += 1) {
+                    stats.relax();
+                    relax(pq, overlay.boundaryVertex(level, first + j), dist + metric.clique(level, cell, i, j), u);
+                }
+            }
+            for (int e = graph.start(u); e < graph.end(u); e += 1) {
+                int w = graph.target(e);
+                if (level == 0 || overlay.cell(level, w) != cell) {
+                    stats.relax();
+                    relax(pq, w, dist + metric.weight(e), u);
+                }
+            }
+        }
+        stats.elapse(System.nanoTime() - startTime);
+    }
+
+    /**
+     * Returns the highest level at which the cell containing the given vertex contains no start or goal vertex, or 0
+     * if its level-1 cell contains one. Since cells are nested, every lower level is also free of seeds.
+     *
+     * @param vertex the vertex.
+     * @return the overlay level to search from the given vertex.
+     */
+    private int level(int vertex) {
+        for (int l = overlay.levels(); l > 0; l -= 1) {
+            int cell = overlay.cell(l, vertex);
+            boolean seeded = false;
+            for (int seed : seedCells[l]) {
+                if (seed == cell) {
+                    seeded = true;
+                    break;
+                }
+            }
+            if (!seeded) {
+                return l;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Updates the distance to the given vertex if the new distance is shorter.
+     *
+     * @param pq      the priority queue.
+     * @param vertex  the vertex reached.
+     * @param newDist the distance to the vertex.
+     * @param parent  the vertex the edge comes from, or -1 for a seed.
+     */
+    private void relax(MinPQ<Integer> pq, int vertex, double newDist, int parent) {
+        if (newDist < distTo.getOrDefault(vertex, Double.POSITIVE_INFINITY)) {
+            parentTo.put(vertex, parent);
+            distTo.put(vertex, newDist);
+            if (pq.contains(vertex)) {
+                pq.changePriority(vertex, newDist);
+                stats.decreaseKey();
+            } else {
+                pq.add(vertex, newDist);
+                stats.insert();
+            }
+        }
+    }
+
+    /**
+     * Returns the shortest path in original vertices from one of the start vertices to one of the goal vertices, or an
+     * empty list if no goal is reachable.
+     *
+     * @return a list of vertices representing the shortest path.
+     */
+    public List<Integer> solution() {
+        List<Integer> path = new ArrayList<>();
+        if (goal < 0) {
+            return path;
+        }
+        List<Integer> overlayPath = new ArrayList<>();
+        for (int v = goal; v >= 0; v = parentTo.get(v)) {
+            overlayPath.add(v);
+        }
+        path.add(overlayPath.get(overlayPath.size() - 1));
+        for (int i = overlayPath.size() - 1; i > 0; i -= 1) {
+            int u = overlayPath.get(i);
+            int w = overlayPath.get(i - 1);
+            int level = level(u);
+            if (level > 0 && overlay.cell(level, u) == overlay.cell(level, w)) {
+                overlay.unpack(metric, level, u, w, path);
+            } else {
+                path.add(w);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Returns the length of the shortest path including the start and goal seeds, or positive infinity if no goal is
+     * reachable.
+     *
+     * @return the length of the shortest path.
+     */
+    public double distance() {
+        return best;
+    }
+
+    /**
+     * Returns the counters recorded by this search.
+     *
+     * @return the counters recorded by this search.
+     */
+    public SearchStats stats() {
+        return stats;
+    }
+}
@@ -0,0 +1,34 @@
+package graphs.shortestpaths;
+
+import java.util.List;
+
+/**
+ * Thrown by a {@link ShortestPathSolver} when a cycle of negative weight is reachable from the start, so shortest
+ * paths to the vertices after the cycle do not exist.
+ *
+ * @see SPFASolver
+ */
+public class NegativeCycleException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final List<?> cycle;
+
+    /**
+     * Constructs a new instance reporting the given cycle.
+     *
+     * @param cycle the vertices of the cycle in edge order, starting and ending with the same vertex.
+     */
+    public NegativeCycleException(List<?> cycle) {
+        super("Negative cycle reachable from the start: " + cycle);
+        this.cycle = List.copyOf(cycle);
+    }
+
+    /**
+     * Returns the vertices of the negative cycle in edge order, starting and ending with the same vertex.
+     *
+     * @return the vertices of the negative cycle.
+     */
+    public List<?> cycle() {
+        return cycle;
+    }
+}
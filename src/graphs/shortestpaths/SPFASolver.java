@@ -1,116 +1,294 @@
 package graphs.shortestpaths;
 
-import graphs.Edge;
 import graphs.Graph;
 
 import java.util.*;
 
 /**
  * Shortest Path Faster Algorithm implementation of the {@link ShortestPathSolver} interface.
+ * <p>
+ * Vertices are numbered as they are discovered so that distances, parents and queue membership are kept in primitive
+ * arrays and a {@link BitSet} rather than in hash maps. The order in which improved vertices are processed is chosen
+ * by a {@link Mode}: the Small-Label-First and Large-Label-Last strategies keep vertices with small distances near the
+ * front of the queue, so fewer distances are lowered more than once.
+ * <p>
+ * Edge weights may be negative. Each vertex also records the number of edges on its current path from the start, and
+ * a path with as many edges as there are discovered vertices must repeat a vertex. Following its parents then finds a
+ * cycle of negative weight, which is reported with a {@link NegativeCycleException} instead of looping forever.
  *
  * @param <V> the type of vertices.
  * @see ShortestPathSolver
+ * @see BellmanFordSolver
  */
 public class SPFASolver<V> implements ShortestPathSolver<V> {
-    private final Map<V, Edge<V>> edgeTo;
-    private final Map<V, Double> distTo;
+    /**
+     * Strategies for ordering the queue of vertices whose distance was lowered.
+     */
+    public enum Mode {
+        /**
+         * Add improved vertices to the back of the queue and process them in order.
+         */
+        FIFO,
+        /**
+         * Small-Label-First: add an improved vertex to the front of the queue if its distance is less than the
+         * distance of the vertex at the front, and to the back otherwise.
+         */
+        SLF,
+        /**
+         * Large-Label-Last: before removing a vertex, move the vertices at the front of the queue to the back while
+         * their distance is greater than the average distance in the queue.
+         */
+        LLL,
+        /**
+         * Both {@link #SLF} on insertion and {@link #LLL} on removal.
+         */
+        SLF_LLL
+    }
+
+    /**
+     * The index of each vertex reached from the start.
+     */
+    private final Map<V, Integer> index;
+    /**
+     * The vertex with each index.
+     */
+    private final List<V> vertices;
+    private final boolean smallLabelFirst;
+    private final boolean largeLabelLast;
+    private final IntDeque queue;
+    /**
+     * The indices of the vertices in the queue.
+     */
+    private final BitSet queued;
+    private double[] distTo;
+    private int[] parentTo;
+    /**
+     * The number of edges on the current path from the start to each vertex.
+     */
+    private int[] lengthTo;
+    /**
+     * The sum of the distances to the vertices in the queue.
+     */
+    private double queueSum;
 
     /**
-     * Constructs a new instance by executing SPFA on the graph from the start.
+     * Constructs a new instance by executing SPFA on the graph from the start, processing vertices in FIFO order.
      *
      * @param graph the input graph.
      * @param start the start vertex.
+     * @throws NegativeCycleException if a negative cycle is reachable from the start.
      */
     public SPFASolver(Graph<V> graph, V start) {
-        edgeTo = new HashMap<>();
-        distTo = new HashMap<>();
-        Queue<V> queue = new OptimizedArrayQueueSet<>();
-        queue.add(start);
-        edgeTo.put(start, null);
-        distTo.put(start, 0.0);
+        this(graph, start, Mode.FIFO);
+    }
+
+    /**
+     * Constructs a new instance by executing SPFA on the graph from the start, ordering the queue by the given mode.
+     *
+     * @param graph the input graph.
+     * @param start the start vertex.
+     * @param mode  the strategy for ordering the queue.
+     * @throws NegativeCycleException if a negative cycle is reachable from the start.
+     */
+    public SPFASolver(Graph<V> graph, V start, Mode mode) {
+        this(graph, start, mode, SearchBudget.unlimited());
+    }
+
+    /**
+     * Constructs a new instance by executing SPFA on the graph from the start within the given budget, ordering the
+     * queue by the given mode. Each vertex removed from the queue counts as settled.
+     *
+     * @param graph  the input graph.
+     * @param start  the start vertex.
+     * @param mode   the strategy for ordering the queue.
+     * @param budget the limits on the search.
+     * @throws NegativeCycleException        if a negative cycle is reachable from the start.
+     * @throws SearchBudgetExceededException if the search exceeds the budget.
+     */
+    public SPFASolver(Graph<V> graph, V start, Mode mode, SearchBudget budget) {
+        index = new HashMap<>();
+        vertices = new ArrayList<>();
+        smallLabelFirst = mode == Mode.SLF || mode == Mode.SLF_LLL;
+        largeLabelLast = mode == Mode.LLL || mode == Mode.SLF_LLL;
+        queue = new IntDeque();
+        queued = new BitSet();
+        distTo = new double[16];
+        parentTo = new int[16];
+        lengthTo = new int[16];
+        discover(start);
+        distTo[0] = 0.0;
+        queue.addLast(0);
+        queued.set(0);
+        long settled = 0;
         while (!queue.isEmpty()) {
-            V from = queue.remove();
-            for (Edge<V> e : graph.neighbors(from)) {
-                V to = e.to;
-                double oldDist = distTo.getOrDefault(to, Double.POSITIVE_INFINITY);
-                double newDist = distTo.get(from) + e.weight;
-                if (newDist < oldDist) {
-                    edgeTo.put(to, e);
-                    distTo.put(to, newDist);
-                    queue.add(to);
+            if (largeLabelLast) {
+                double average = queueSum / queue.size();
+                for (int i = queue.size(); i > 1 && distTo[queue.peekFirst()] > average; i -= 1) {
+                    queue.addLast(queue.pollFirst());
+                }
+            }
+            int from = queue.pollFirst();
+            settled += 1;
+            budget.check(settled);
+            queued.clear(from);
+            queueSum -= distTo[from];
+            graph.forEachEdge(vertices.get(from), (to, weight) -> relax(from, to, weight));
+        }
+    }
+
+    /**
+     * Numbers a newly-reached vertex at an infinite distance, growing the arrays if needed.
+     *
+     * @param vertex the vertex.
+     * @return the index of the vertex.
+     */
+    private int discover(V vertex) {
+        int v = vertices.size();
+        index.put(vertex, v);
+        vertices.add(vertex);
+        if (v == distTo.length) {
+            distTo = Arrays.copyOf(distTo, 2 * v);
+            parentTo = Arrays.copyOf(parentTo, 2 * v);
+            lengthTo = Arrays.copyOf(lengthTo, 2 * v);
+        }
+        distTo[v] = Double.POSITIVE_INFINITY;
+        parentTo[v] = -1;
+        lengthTo[v] = 0;
+        return v;
+    }
+
+    /**
+     * Lowers the distance to the given vertex through the edge from the given vertex if that is shorter, and adds it
+     * to the queue if it is not already there.
+     *
+     * @param from   the index of the vertex the edge comes from.
+     * @param to     the vertex the edge goes to.
+     * @param weight the weight of the edge.
+     * @throws NegativeCycleException if the new path to the vertex contains a negative cycle.
+     */
+    private void relax(int from, V to, double weight) {
+        Integer known = index.get(to);
+        int v = known != null ? known : discover(to);
+        double newDist = distTo[from] + weight;
+        if (newDist < distTo[v]) {
+            if (queued.get(v)) {
+                queueSum += newDist - distTo[v];
+            }
+            distTo[v] = newDist;
+            parentTo[v] = from;
+            lengthTo[v] = lengthTo[from] + 1;
+            if (lengthTo[v] >= vertices.size()) {
+                List<V> cycle = cycle(v);
+                if (cycle != null) {
+                    throw new NegativeCycleException(cycle);
                 }
             }
+            if (!queued.get(v)) {
+                queued.set(v);
+                queueSum += newDist;
+                if (smallLabelFirst && !queue.isEmpty() && newDist < distTo[queue.peekFirst()]) {
+                    queue.addFirst(v);
+                } else {
+                    queue.addLast(v);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the cycle found by following parents from the given vertex, or null if the parents lead back to the
+     * start. Every cycle of parents has negative weight, since each parent was set by lowering a distance.
+     *
+     * @param v the index of the vertex to start from.
+     * @return the vertices of the cycle in edge order, starting and ending with the same vertex, or null.
+     */
+    private List<V> cycle(int v) {
+        boolean[] seen = new boolean[vertices.size()];
+        int curr = v;
+        while (curr >= 0 && !seen[curr]) {
+            seen[curr] = true;
+            curr = parentTo[curr];
+        }
+        if (curr < 0) {
+            return null;
+        }
+        List<V> cycle = new ArrayList<>();
+        cycle.add(vertices.get(curr));
+        for (int u = parentTo[curr]; u != curr; u = parentTo[u]) {
+            cycle.add(vertices.get(u));
         }
+        cycle.add(vertices.get(curr));
+        Collections.reverse(cycle);
+        return cycle;
     }
 
     @Override
     public List<V> solution(V goal) {
         List<V> path = new ArrayList<>();
-        V curr = goal;
-        path.add(curr);
-        while (edgeTo.get(curr) != null) {
-            curr = edgeTo.get(curr).from;
-            path.add(curr);
+        Integer curr = index.get(goal);
+        if (curr == null) {
+            path.add(goal);
+            return path;
+        }
+        for (int v = curr; v >= 0; v = parentTo[v]) {
+            path.add(vertices.get(v));
         }
         Collections.reverse(path);
         return path;
     }
 
     /**
-     * Optimized array queue implementation of the {@link Queue} interface.
-     *
-     * @param <E> the type of elements in this queue.
+     * Growable ring buffer of vertex indices that can be added at either end.
      */
-    private static class OptimizedArrayQueueSet<E> extends AbstractQueue<E> {
-        /**
-         * {@link Queue} of elements.
-         */
-        private final Queue<E> queue;
-        /**
-         * {@link Set} of elements in this queue.
-         */
-        private final Set<E> set;
+    private static class IntDeque {
+        private int[] elements = new int[16];
+        private int head;
+        private int size;
 
-        public OptimizedArrayQueueSet() {
-            queue = new ArrayDeque<>();
-            set = new HashSet<>();
+        boolean isEmpty() {
+            return size == 0;
         }
 
-        @Override
-        public boolean contains(Object o) {
-            return set.contains(o);
+        int size() {
+            return size;
         }
 
-        @Override
-        public Iterator<E> iterator() {
-            return queue.iterator();
+        int peekFirst() {
+            return elements[head];
         }
 
-        @Override
-        public boolean offer(E e) {
-            if (set.contains(e)) {
-                return false;
-            }
-            boolean result = queue.offer(e);
-            set.add(e);
-            return result;
+        int pollFirst() {
+            int element = elements[head];
+            head = (head + 1) & (elements.length - 1);
+            size -= 1;
+            return element;
         }
 
-        @Override
-        public E peek() {
-            return queue.peek();
+        void addFirst(int element) {
+            grow();
+            head = (head - 1) & (elements.length - 1);
+            elements[head] = element;
+            size += 1;
         }
 
-        @Override
-        public E poll() {
-            E element = queue.poll();
-            set.remove(element);
-            return element;
+        void addLast(int element) {
+            grow();
+            elements[(head + size) & (elements.length - 1)] = element;
+            size += 1;
         }
 
-        @Override
-        public int size() {
-            return queue.size();
+        /**
+         * Doubles the capacity, a power of 2, if the buffer is full.
+         */
+        private void grow() {
+            if (size == elements.length) {
+                int[] copy = new int[2 * size];
+                for (int i = 0; i < size; i += 1) {
+                    copy[i] = elements[(head + i) & (size - 1)];
+                }
+                elements = copy;
+                head = 0;
+            }
         }
     }
 }
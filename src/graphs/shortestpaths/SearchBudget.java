@@ -0,0 +1,96 @@
+package graphs.shortestpaths;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Limits on the work a shortest paths search may do: a maximum number of settled vertices, a time limit measured from
+ * the creation of the budget, and a cancellation token that can be set by {@link #cancel()} or polled from an outside
+ * condition such as a closed client connection. A solver given a budget checks the settled-vertex limit after every
+ * settled vertex and the time limit and cancellation every {@link #CHECK_INTERVAL} settled vertices, and throws a
+ * {@link SearchBudgetExceededException} as soon as a check fails.
+ * <p>
+ * A budget may be shared by several searches, such as all the searches for one request, in which case the time limit
+ * and cancellation apply to all of them and the settled-vertex limit to each one. It is safe to cancel a budget from
+ * another thread.
+ *
+ * @see SearchBudgetExceededException
+ */
+public class SearchBudget {
+    /**
+     * The number of settled vertices between checks of the time limit and cancellation.
+     */
+    public static final int CHECK_INTERVAL = 256;
+    private static final SearchBudget UNLIMITED = new SearchBudget(Long.MAX_VALUE, Long.MAX_VALUE);
+    private final long maxSettled;
+    private final long startTime;
+    private final long maxNanos;
+    private final BooleanSupplier cancelled;
+    private volatile boolean cancelRequested;
+
+    /**
+     * Constructs a new budget with the given limits, starting the clock now.
+     *
+     * @param maxSettled the maximum number of vertices each search may settle.
+     * @param maxNanos   the time limit in nanoseconds.
+     */
+    public SearchBudget(long maxSettled, long maxNanos) {
+        this(maxSettled, maxNanos, () -> false);
+    }
+
+    /**
+     * Constructs a new budget with the given limits, starting the clock now, that is also cancelled once the given
+     * condition holds. The condition is polled every {@link #CHECK_INTERVAL} settled vertices, so it should be cheap.
+     *
+     * @param maxSettled the maximum number of vertices each search may settle.
+     * @param maxNanos   the time limit in nanoseconds.
+     * @param cancelled  the condition under which to cancel the search.
+     */
+    public SearchBudget(long maxSettled, long maxNanos, BooleanSupplier cancelled) {
+        this.maxSettled = maxSettled;
+        this.maxNanos = maxNanos;
+        this.cancelled = cancelled;
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Returns a budget without limits that is never cancelled.
+     *
+     * @return a budget without limits.
+     */
+    public static SearchBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Cancels every search using this budget at its next check.
+     *
+     * @throws UnsupportedOperationException if this is the {@link #unlimited()} budget.
+     */
+    public void cancel() {
+        if (this == UNLIMITED) {
+            throw new UnsupportedOperationException("The unlimited budget cannot be cancelled");
+        }
+        cancelRequested = true;
+    }
+
+    /**
+     * Checks the budget after a search has settled the given number of vertices.
+     *
+     * @param settled the number of vertices settled by the search so far.
+     * @throws SearchBudgetExceededException if the search has settled too many vertices, has run out of time, or has
+     *                                       been cancelled.
+     */
+    void check(long settled) {
+        if (settled > maxSettled) {
+            throw new SearchBudgetExceededException(SearchBudgetExceededException.Reason.SETTLED, settled);
+        }
+        if (settled % CHECK_INTERVAL == 0 && this != UNLIMITED) {
+            if (cancelRequested || cancelled.getAsBoolean()) {
+                throw new SearchBudgetExceededException(SearchBudgetExceededException.Reason.CANCELLED, settled);
+            }
+            if (System.nanoTime() - startTime >= maxNanos) {
+                throw new SearchBudgetExceededException(SearchBudgetExceededException.Reason.DEADLINE, settled);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package graphs.shortestpaths;
+
+/**
+ * Thrown by a shortest paths search that stopped because it exceeded its {@link SearchBudget}.
+ *
+ * @see SearchBudget
+ */
+public class SearchBudgetExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The limit of the budget that was exceeded.
+     */
+    public enum Reason {
+        /**
+         * The search settled more vertices than allowed.
+         */
+        SETTLED,
+        /**
+         * The search ran past its time limit.
+         */
+        DEADLINE,
+        /**
+         * The search was cancelled.
+         */
+        CANCELLED
+    }
+
+    private final Reason reason;
+    private final long settled;
+
+    /**
+     * Constructs a new instance for a search that stopped for the given reason.
+     *
+     * @param reason  the limit that was exceeded.
+     * @param settled the number of vertices settled by the search when it stopped.
+     */
+    public SearchBudgetExceededException(Reason reason, long settled) {
+        super("Search stopped (" + reason + ") after settling " + settled + " vertices");
+        this.reason = reason;
+        this.settled = settled;
+    }
+
+    /**
+     * Returns the limit that was exceeded.
+     *
+     * @return the limit that was exceeded.
+     */
+    public Reason reason() {
+        return reason;
+    }
+
+    /**
+     * Returns the number of vertices settled by the search when it stopped.
+     *
+     * @return the number of vertices settled by the search when it stopped.
+     */
+    public long settled() {
+        return settled;
+    }
+}
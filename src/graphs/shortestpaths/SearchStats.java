@@ -0,0 +1,110 @@
+package graphs.shortestpaths;
+
+/**
+ * Counters describing the work done by a shortest paths search: how many vertices were settled, how many edges were
+ * relaxed, how many priority queue inserts and decrease-keys were made, and how long the search took. Passing the same
+ * instance to several searches accumulates their totals. An approximate search also records the bound it has proven on
+ * the ratio of its path length to the shortest path length.
+ *
+ * @see AStarSolver
+ */
+public class SearchStats {
+    private long settled;
+    private long relaxed;
+    private long inserts;
+    private long decreaseKeys;
+    private long nanos;
+    private double bound = 1.0;
+
+    /**
+     * Returns the number of vertices removed from the priority queue.
+     *
+     * @return the number of vertices removed from the priority queue.
+     */
+    public long settled() {
+        return settled;
+    }
+
+    /**
+     * Returns the number of edges examined from settled vertices.
+     *
+     * @return the number of edges examined from settled vertices.
+     */
+    public long relaxed() {
+        return relaxed;
+    }
+
+    /**
+     * Returns the number of vertices added to the priority queue.
+     *
+     * @return the number of vertices added to the priority queue.
+     */
+    public long inserts() {
+        return inserts;
+    }
+
+    /**
+     * Returns the number of priority decreases for vertices already in the priority queue.
+     *
+     * @return the number of priority decreases for vertices already in the priority queue.
+     */
+    public long decreaseKeys() {
+        return decreaseKeys;
+    }
+
+    /**
+     * Returns the elapsed wall time in nanoseconds.
+     *
+     * @return the elapsed wall time in nanoseconds.
+     */
+    public long nanos() {
+        return nanos;
+    }
+
+    /**
+     * Returns the bound proven by the most recent approximate search on the ratio of its path length to the shortest
+     * path length, which is 1 if there was no approximate search and positive infinity if the search stopped before
+     * finding a path.
+     *
+     * @return the bound on the ratio of the path length to the shortest path length.
+     */
+    public double bound() {
+        return bound;
+    }
+
+    void settle() {
+        settled += 1;
+    }
+
+    void relax() {
+        relaxed += 1;
+    }
+
+    void insert() {
+        inserts += 1;
+    }
+
+    void decreaseKey() {
+        decreaseKeys += 1;
+    }
+
+    void elapse(long nanos) {
+        this.nanos += nanos;
+    }
+
+    void bound(double bound) {
+        this.bound = bound;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchStats{" +
+                "settled=" + settled +
+                ", relaxed=" + relaxed +
+                ", inserts=" + inserts +
+                ", decreaseKeys=" + decreaseKeys +
+                ", ms=" + nanos / 1e6 +
+                ", bound=" + bound +
+                '}';
+    }
+}
@@ -0,0 +1,188 @@
+package graphs.shortestpaths;
+
+import graphs.IndexedGraph;
+import minpq.IntMinPQ;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reusable search state for an {@link IndexedGraph}: a distance and parent for each vertex, an indexed priority queue
+ * and a FIFO queue. The arrays are allocated once for the largest graph searched and reused by every later search, so
+ * a query on a warm workspace allocates nothing in proportion to the vertices it visits.
+ * <p>
+ * Instead of clearing the arrays between searches, each vertex also records the generation in which its distance was
+ * last set, and {@link #reset(int)} starts a new search in constant time by incrementing the generation. A distance or
+ * parent recorded in an earlier generation reads as unreached. The generation carries over when the arrays grow, and
+ * on the rare search where it would overflow, the arrays are cleared and it starts again from 1. Because that reuses
+ * old generations, each search is also numbered by a separate {@code long} counter that never repeats, and a solver
+ * checks that number before reading its results.
+ * <p>
+ * A workspace is not thread-safe. {@link #forThread(int)} returns workspaces owned by the calling thread, and the
+ * results of a solver that uses one remain valid only until the next search that resets the same workspace.
+ *
+ * @see IndexedGraph
+ * @see IndexedDijkstraSolver
+ * @see IndexedAnytimeAStarSolver
+ * @see BoundedDijkstraSolver
+ * @see ContractionHierarchySolver
+ */
+public class SearchWorkspace {
+    private static final ThreadLocal<List<SearchWorkspace>> WORKSPACES = ThreadLocal.withInitial(ArrayList::new);
+    private double[] dist = new double[0];
+    private int[] parent = new int[0];
+    /**
+     * The generation in which the distance and parent of each vertex were last set.
+     */
+    private int[] epoch = new int[0];
+    private int[] queue = new int[0];
+    /**
+     * The generation in which each vertex was last added to the queue, or 0 once it has been removed.
+     */
+    private int[] queued = new int[0];
+    private IntMinPQ pq = new IntMinPQ(0);
+    private int generation;
+    /**
+     * The number of searches started with this workspace, which identifies the current search.
+     */
+    private long searches;
+
+    /**
+     * Returns the calling thread's workspace with the given index, creating it on first use. A search that needs more
+     * than one workspace at a time, such as one per direction of a bidirectional search, uses a different index for
+     * each; other searches use index 0.
+     *
+     * @param index the index of the workspace.
+     * @return the calling thread's workspace with the given index.
+     */
+    public static SearchWorkspace forThread(int index) {
+        List<SearchWorkspace> workspaces = WORKSPACES.get();
+        while (workspaces.size() <= index) {
+            workspaces.add(new SearchWorkspace());
+        }
+        return workspaces.get(index);
+    }
+
+    /**
+     * Starts a new search over vertices in {@code [0, n)}, growing the arrays if needed. Every vertex becomes
+     * unreached and unqueued, and the priority queue becomes empty.
+     *
+     * @param n the number of vertices in the graph to search.
+     * @return the number of the new search, which no earlier search of this workspace had.
+     */
+    long reset(int n) {
+        if (epoch.length < n) {
+            dist = new double[n];
+            parent = new int[n];
+            epoch = new int[n];
+            queue = new int[n];
+            queued = new int[n];
+            pq = new IntMinPQ(n);
+        } else {
+            pq.clear();
+        }
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(epoch, 0);
+            Arrays.fill(queued, 0);
+            generation = 0;
+        }
+        generation += 1;
+        searches += 1;
+        return searches;
+    }
+
+    /**
+     * Throws an exception unless the given search is the current one, that is, unless no search has reset this
+     * workspace since the search that returned the number.
+     *
+     * @param search the search number returned by {@link #reset(int)}.
+     * @throws IllegalStateException if a later search has reset this workspace.
+     */
+    void check(long search) {
+        if (search != searches) {
+            throw new IllegalStateException("Search results were overwritten by a later search");
+        }
+    }
+
+    /**
+     * Returns true if the given vertex has been reached in the current search.
+     *
+     * @param vertex the vertex.
+     * @return true if the given vertex has been reached in the current search.
+     */
+    boolean reached(int vertex) {
+        return epoch[vertex] == generation;
+    }
+
+    /**
+     * Returns the distance to the given vertex, or positive infinity if it has not been reached.
+     *
+     * @param vertex the vertex.
+     * @return the distance to the given vertex.
+     */
+    double dist(int vertex) {
+        return epoch[vertex] == generation ? dist[vertex] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the parent of the given vertex in the search tree, or -1 if it is a start vertex or has not been reached.
+     *
+     * @param vertex the vertex.
+     * @return the parent of the given vertex.
+     */
+    int parent(int vertex) {
+        return epoch[vertex] == generation ? parent[vertex] : -1;
+    }
+
+    /**
+     * Records the distance to the given vertex and its parent in the search tree, marking it reached.
+     *
+     * @param vertex the vertex.
+     * @param dist   the distance to the vertex.
+     * @param parent the parent of the vertex, or -1 for a start vertex.
+     */
+    void set(int vertex, double dist, int parent) {
+        this.dist[vertex] = dist;
+        this.parent[vertex] = parent;
+        epoch[vertex] = generation;
+    }
+
+    /**
+     * Returns the priority queue, which is empty at the start of each search.
+     *
+     * @return the priority queue.
+     */
+    IntMinPQ pq() {
+        return pq;
+    }
+
+    /**
+     * Returns an array with room for every vertex, for use as a FIFO queue or a list of vertices.
+     *
+     * @return an array with room for every vertex.
+     */
+    int[] queue() {
+        return queue;
+    }
+
+    /**
+     * Returns true if the given vertex has been marked as in the queue during the current search.
+     *
+     * @param vertex the vertex.
+     * @return true if the given vertex is in the queue.
+     */
+    boolean queued(int vertex) {
+        return queued[vertex] == generation;
+    }
+
+    /**
+     * Marks whether the given vertex is in the queue.
+     *
+     * @param vertex the vertex.
+     * @param queued true if the vertex has been added to the queue, false if it has been removed.
+     */
+    void setQueued(int vertex, boolean queued) {
+        this.queued[vertex] = queued ? generation : 0;
+    }
+}
@@ -1,19 +1,38 @@
 package graphs.shortestpaths;
 
-import graphs.Edge;
 import graphs.Graph;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * Topological sorting implementation of the {@link ShortestPathSolver} interface for <b>directed acyclic graphs</b>.
+ * <p>
+ * The vertices reachable from the start are numbered in breadth-first order, calling
+ * {@link Graph#forEachEdge(Object, graphs.EdgeVisitor)} once per vertex and storing the edges in primitive arrays.
+ * Kahn's algorithm then orders the vertices in levels, where every edge goes from a lower level to a higher one. Each
+ * vertex pulls its distance and parent from its incoming edges, so the search needs no recursion and its depth is
+ * not limited by the call stack. Since the vertices in a level do not depend on each other, their distances can be
+ * computed in parallel on the common fork-join pool.
  *
  * @param <V> the type of vertices.
  * @see ShortestPathSolver
  */
 public class ToposortDAGSolver<V> implements ShortestPathSolver<V> {
-    private final Map<V, Edge<V>> edgeTo;
-    private final Map<V, Double> distTo;
+    /**
+     * The number of vertices in a level at or above which a parallel solver relaxes the level in parallel.
+     */
+    private static final int PARALLEL_LEVEL = 1024;
+    /**
+     * The index of each vertex reachable from the start.
+     */
+    private final Map<V, Integer> index;
+    /**
+     * The vertex with each index.
+     */
+    private final List<V> vertices;
+    private final double[] distTo;
+    private final int[] parentTo;
 
     /**
      * Constructs a new instance by executing the toposort-DAG-shortest-paths algorithm on the graph from the start.
@@ -22,59 +41,160 @@ public class ToposortDAGSolver<V> implements ShortestPathSolver<V> {
      * @param start the start vertex.
      */
     public ToposortDAGSolver(Graph<V> graph, V start) {
-        edgeTo = new HashMap<>();
-        distTo = new HashMap<>();
-        // TODO: Replace with your code
-        edgeTo.put(start, null);
-        distTo.put(start, 0.0);
-        Set<V> visited = new HashSet<>();
-        List<V> results = new ArrayList();
+        this(graph, start, false);
+    }
 
-        dfsPostOrder(graph, start, visited, results);
-        Collections.reverse(results);
+    /**
+     * Constructs a new instance by executing the toposort-DAG-shortest-paths algorithm on the graph from the start,
+     * optionally relaxing the vertices in each large topological level in parallel.
+     *
+     * @param graph    the input graph.
+     * @param start    the start vertex.
+     * @param parallel true to relax large levels in parallel.
+     * @throws IllegalArgumentException if a cycle is reachable from the start.
+     */
+    public ToposortDAGSolver(Graph<V> graph, V start, boolean parallel) {
+        index = new HashMap<>();
+        vertices = new ArrayList<>();
+        // Number the reachable vertices in breadth-first order and record their outgoing edges.
+        index.put(start, 0);
+        vertices.add(start);
+        int[] offsets = new int[16];
+        EdgeList edges = new EdgeList();
+        for (int u = 0; u < vertices.size(); u += 1) {
+            if (u + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+            }
+            graph.forEachEdge(vertices.get(u), (to, weight) -> {
+                Integer v = index.get(to);
+                if (v == null) {
+                    v = vertices.size();
+                    index.put(to, v);
+                    vertices.add(to);
+                }
+                edges.add(v, weight);
+            });
+            offsets[u + 1] = edges.size;
+        }
+        int n = vertices.size();
+        int m = edges.size;
 
-        for(V vertex : results) {
-            for(Edge<V> e : graph.neighbors(vertex)) {
-                double oldDistance = distTo.getOrDefault(e.to, Double.POSITIVE_INFINITY);
-                double newDistance = distTo.get(e.from) + e.weight;
-                if(newDistance < oldDistance) {
-                    edgeTo.put(e.to, e);
-                    distTo.put(e.to, newDistance);
+        // Group the edges by destination so that each vertex can read its incoming edges.
+        int[] inOffsets = new int[n + 1];
+        for (int e = 0; e < m; e += 1) {
+            inOffsets[edges.targets[e] + 1] += 1;
+        }
+        for (int v = 0; v < n; v += 1) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        int[] inSources = new int[m];
+        double[] inWeights = new double[m];
+        int[] next = Arrays.copyOf(inOffsets, n);
+        for (int u = 0; u < n; u += 1) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e += 1) {
+                int i = next[edges.targets[e]]++;
+                inSources[i] = u;
+                inWeights[i] = edges.weights[e];
+            }
+        }
 
+        // Kahn's algorithm: a vertex joins the next level once all of its incoming edges have been removed, so all of
+        // its incoming edges come from earlier levels and its distance can be computed from them.
+        int[] inDegree = new int[n];
+        for (int v = 0; v < n; v += 1) {
+            inDegree[v] = inOffsets[v + 1] - inOffsets[v];
+        }
+        distTo = new double[n];
+        parentTo = new int[n];
+        parentTo[0] = -1;
+        int[] order = new int[n];
+        int size = inDegree[0] == 0 ? 1 : 0;
+        int levelStart = 0;
+        while (levelStart < size) {
+            int levelEnd = size;
+            if (parallel && levelEnd - levelStart >= PARALLEL_LEVEL) {
+                IntStream.range(levelStart, levelEnd).parallel()
+                        .forEach(i -> pull(order[i], inOffsets, inSources, inWeights));
+            } else {
+                for (int i = levelStart; i < levelEnd; i += 1) {
+                    pull(order[i], inOffsets, inSources, inWeights);
+                }
+            }
+            for (int i = levelStart; i < levelEnd; i += 1) {
+                int u = order[i];
+                for (int e = offsets[u]; e < offsets[u + 1]; e += 1) {
+                    int v = edges.targets[e];
+                    inDegree[v] -= 1;
+                    if (inDegree[v] == 0) {
+                        order[size] = v;
+                        size += 1;
+                    }
                 }
             }
+            levelStart = levelEnd;
+        }
+        if (size < n) {
+            throw new IllegalArgumentException("Graph has a cycle reachable from " + start);
         }
     }
 
     /**
-     * Recursively adds nodes from the graph to the result in DFS postorder from the start vertex.
+     * Sets the distance to the given vertex to the shortest distance through its incoming edges, all of which must
+     * come from vertices whose distances are final. The start vertex has no incoming edges and keeps distance 0.
      *
-     * @param graph   the input graph.
-     * @param start   the start vertex.
-     * @param visited the set of visited vertices.
-     * @param result  the destination for adding nodes.
+     * @param v         the index of the vertex.
+     * @param inOffsets the incoming edges of vertex {@code v} are in {@code [inOffsets[v], inOffsets[v + 1])}.
+     * @param inSources the originating vertex of each incoming edge.
+     * @param inWeights the weight of each incoming edge.
      */
-    private void dfsPostOrder(Graph<V> graph, V start, Set<V> visited, List<V> result) {
-        // TODO: Replace with your code
-        visited.add(start);
-        for(Edge<V> edge : graph.neighbors(start)) {
-            if (!visited.contains(edge.to)) {
-                dfsPostOrder(graph, edge.to, visited, result);
+    private void pull(int v, int[] inOffsets, int[] inSources, double[] inWeights) {
+        if (v == 0) {
+            return;
+        }
+        double best = Double.POSITIVE_INFINITY;
+        int parent = -1;
+        for (int i = inOffsets[v]; i < inOffsets[v + 1]; i += 1) {
+            double dist = distTo[inSources[i]] + inWeights[i];
+            if (dist < best) {
+                best = dist;
+                parent = inSources[i];
             }
         }
-        result.add(start);
+        distTo[v] = best;
+        parentTo[v] = parent;
     }
 
     @Override
     public List<V> solution(V goal) {
         List<V> path = new ArrayList<>();
-        V curr = goal;
-        path.add(curr);
-        while (edgeTo.get(curr) != null) {
-            curr = edgeTo.get(curr).from;
-            path.add(curr);
+        Integer curr = index.get(goal);
+        if (curr == null) {
+            path.add(goal);
+            return path;
+        }
+        for (int v = curr; v >= 0; v = parentTo[v]) {
+            path.add(vertices.get(v));
         }
         Collections.reverse(path);
         return path;
     }
+
+    /**
+     * Growable parallel arrays of edge destinations and weights.
+     */
+    private static class EdgeList {
+        private int[] targets = new int[16];
+        private double[] weights = new double[16];
+        private int size;
+
+        void add(int target, double weight) {
+            if (size == targets.length) {
+                targets = Arrays.copyOf(targets, 2 * size);
+                weights = Arrays.copyOf(weights, 2 * size);
+            }
+            targets[size] = target;
+            weights[size] = weight;
+            size += 1;
+        }
+    }
 }
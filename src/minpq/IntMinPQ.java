@@ -0,0 +1,210 @@
+package minpq;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Indexed binary heap of {@code int} elements in {@code [0, capacity)} with {@code double} priorities. This is the
+ * primitive counterpart of {@link MinPQ} for graphs whose vertices are numbered: positions and priorities are kept in
+ * arrays indexed by element, so no element is ever boxed and {@link #clear()} only touches the elements in the heap.
+ *
+ * @see MinPQ
+ * @see OptimizedHeapMinPQ
+ */
+public class IntMinPQ {
+    /**
+     * The elements in heap order.
+     */
+    private final int[] heap;
+    /**
+     * The index of each element in the heap, or -1 if the element is not in the heap.
+     */
+    private final int[] position;
+    /**
+     * The priority of each element in the heap.
+     */
+    private final double[] priority;
+    private int size;
+
+    /**
+     * Constructs an empty instance for elements in {@code [0, capacity)}.
+     *
+     * @param capacity one past the largest element.
+     */
+    public IntMinPQ(int capacity) {
+        heap = new int[capacity];
+        position = new int[capacity];
+        priority = new double[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    /**
+     * Adds an element with the given priority value.
+     *
+     * @param element  the element to add.
+     * @param priority the priority value for the element.
+     * @throws IllegalArgumentException if element is already present.
+     */
+    public void add(int element, double priority) {
+        if (contains(element)) {
+            throw new IllegalArgumentException("Already contains " + element);
+        }
+        this.priority[element] = priority;
+        position[element] = size;
+        size += 1;
+        siftUp(element, size - 1);
+    }
+
+    /**
+     * Adds an element with the given priority value if it is not already present. Otherwise, updates the priority
+     * value of the existing element.
+     *
+     * @param element  the element to add or update.
+     * @param priority the priority value for the element.
+     */
+    public void addOrChangePriority(int element, double priority) {
+        if (contains(element)) {
+            changePriority(element, priority);
+        } else {
+            add(element, priority);
+        }
+    }
+
+    /**
+     * Returns true if the given element is present.
+     *
+     * @param element the element to check.
+     * @return true if the given element is present.
+     */
+    public boolean contains(int element) {
+        return position[element] >= 0;
+    }
+
+    /**
+     * Returns the element with the minimum priority value.
+     *
+     * @return the element with the minimum priority value.
+     * @throws NoSuchElementException if this priority queue is empty.
+     */
+    public int peekMin() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("PQ is empty");
+        }
+        return heap[0];
+    }
+
+    /**
+     * Returns the minimum priority value.
+     *
+     * @return the minimum priority value.
+     * @throws NoSuchElementException if this priority queue is empty.
+     */
+    public double peekMinPriority() {
+        return priority[peekMin()];
+    }
+
+    /**
+     * Returns and removes the element with the minimum priority value.
+     *
+     * @return the element with the minimum priority value.
+     * @throws NoSuchElementException if this priority queue is empty.
+     */
+    public int removeMin() {
+        int result = peekMin();
+        position[result] = -1;
+        size -= 1;
+        if (size > 0) {
+            siftDown(heap[size], 0);
+        }
+        return result;
+    }
+
+    /**
+     * Updates the priority value of the given element.
+     *
+     * @param element  the element to update.
+     * @param priority the updated priority value.
+     * @throws NoSuchElementException if the element is not present.
+     */
+    public void changePriority(int element, double priority) {
+        if (!contains(element)) {
+            throw new NoSuchElementException("PQ does not contain " + element);
+        }
+        double oldPriority = this.priority[element];
+        this.priority[element] = priority;
+        if (priority < oldPriority) {
+            siftUp(element, position[element]);
+        } else {
+            siftDown(element, position[element]);
+        }
+    }
+
+    /**
+     * Returns the number of elements in this priority queue.
+     *
+     * @return the number of elements in this priority queue.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if this priority queue contains no elements.
+     *
+     * @return true if this priority queue contains no elements.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all elements from this priority queue.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i += 1) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Moves the element toward the root from the given heap index until its parent has a smaller or equal priority.
+     *
+     * @param element the element to place.
+     * @param i       the heap index to start from.
+     */
+    private void siftUp(int element, int i) {
+        double p = priority[element];
+        while (i > 0 && priority[heap[(i - 1) / 2]] > p) {
+            heap[i] = heap[(i - 1) / 2];
+            position[heap[i]] = i;
+            i = (i - 1) / 2;
+        }
+        heap[i] = element;
+        position[element] = i;
+    }
+
+    /**
+     * Moves the element toward the leaves from the given heap index until its children have larger or equal priority.
+     *
+     * @param element the element to place.
+     * @param i       the heap index to start from.
+     */
+    private void siftDown(int element, int i) {
+        double p = priority[element];
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && priority[heap[child + 1]] < priority[heap[child]]) {
+                child += 1;
+            }
+            if (priority[heap[child]] >= p) {
+                break;
+            }
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = element;
+        position[element] = i;
+    }
+}
@@ -1,6 +1,7 @@
 package seamfinding;
 
 import graphs.Edge;
+import graphs.EdgeVisitor;
 import graphs.Graph;
 import graphs.shortestpaths.ShortestPathSolver;
 import seamfinding.energy.EnergyFunction;
@@ -77,6 +78,13 @@ public class AdjacencyListSeamFinder implements SeamFinder {
                 }
                 return result;
             }
+
+            @Override
+            public void forEachEdge(Picture picture, EnergyFunction f, EdgeVisitor<Node> visitor) {
+                for (int j = 0; j < picture.height(); j += 1) {
+                    visitor.visit(pixels[0][j], f.apply(picture, 0, j));
+                }
+            }
         };
         /**
          * Sink {@link Node} for the adjacency list graph.
@@ -86,6 +94,11 @@ public class AdjacencyListSeamFinder implements SeamFinder {
             public List<Edge<Node>> neighbors(Picture picture, EnergyFunction f) {
                 return List.of(); // Sink has no neighbors
             }
+
+            @Override
+            public void forEachEdge(Picture picture, EnergyFunction f, EdgeVisitor<Node> visitor) {
+                // Sink has no neighbors
+            }
         };
 
         /**
@@ -127,6 +140,11 @@ public class AdjacencyListSeamFinder implements SeamFinder {
             return node.neighbors(picture, f);
         }
 
+        @Override
+        public void forEachEdge(Node from, EdgeVisitor<Node> visitor) {
+            from.forEachEdge(picture, f, visitor);
+        }
+
         /**
          * A pixel in the {@link PixelGraph} representation of the {@link Picture} with {@link EnergyFunction}-weighted
          * edges to neighbors.
@@ -157,6 +175,14 @@ public class AdjacencyListSeamFinder implements SeamFinder {
                 return neighbors;
             }
 
+            @Override
+            public void forEachEdge(Picture picture, EnergyFunction f, EdgeVisitor<Node> visitor) {
+                for (int i = 0; i < neighbors.size(); i += 1) {
+                    Edge<Node> e = neighbors.get(i);
+                    visitor.visit(e.to, e.weight);
+                }
+            }
+
             @Override
             public String toString() {
                 return "(" + x + ", " + y + ")";
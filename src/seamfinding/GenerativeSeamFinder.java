@@ -1,6 +1,7 @@
 package seamfinding;
 
 import graphs.Edge;
+import graphs.EdgeVisitor;
 import graphs.Graph;
 import graphs.shortestpaths.ShortestPathSolver;
 import seamfinding.energy.EnergyFunction;
@@ -77,6 +78,13 @@ public class GenerativeSeamFinder implements SeamFinder {
                 }
                 return result;
             }
+
+            @Override
+            public void forEachEdge(Picture picture, EnergyFunction f, EdgeVisitor<Node> visitor) {
+                for (int j = 0; j < picture.height(); j += 1) {
+                    visitor.visit(new Pixel(0, j), f.apply(picture, 0, j));
+                }
+            }
         };
         /**
          * Sink {@link Node} for the adjacency list graph.
@@ -87,6 +95,11 @@ public class GenerativeSeamFinder implements SeamFinder {
                 // TODO: Replace with your code
                 return List.of();
             }
+
+            @Override
+            public void forEachEdge(Picture picture, EnergyFunction f, EdgeVisitor<Node> visitor) {
+                // Sink has no neighbors
+            }
         };
 
         /**
@@ -106,6 +119,11 @@ public class GenerativeSeamFinder implements SeamFinder {
             return node.neighbors(picture, f);
         }
 
+        @Override
+        public void forEachEdge(Node from, EdgeVisitor<Node> visitor) {
+            from.forEachEdge(picture, f, visitor);
+        }
+
         /**
          * A pixel in the {@link PixelGraph} representation of the {@link Picture} with {@link EnergyFunction}-weighted
          * edges to neighbors.
@@ -148,6 +166,17 @@ public class GenerativeSeamFinder implements SeamFinder {
                 return result;
             }
 
+            @Override
+            public void forEachEdge(Picture picture, EnergyFunction f, EdgeVisitor<Node> visitor) {
+                if (x == picture.width() - 1) {
+                    visitor.visit(sink, 0);
+                } else {
+                    for (int i = Math.max(0, y - 1); i <= Math.min(picture.height() - 1, y + 1); i += 1) {
+                        visitor.visit(new Pixel(x + 1, i), f.apply(picture, x + 1, i));
+                    }
+                }
+            }
+
             @Override
             public String toString() {
                 return "(" + x + ", " + y + ")";
@@ -1,6 +1,7 @@
 package seamfinding;
 
 import graphs.Edge;
+import graphs.EdgeVisitor;
 import seamfinding.energy.EnergyFunction;
 
 import java.util.List;
@@ -21,4 +22,18 @@ public interface Node {
      * @return the {@link List} of right-up, right-middle, and right-down neighbors (if they exist) for this node.
      */
     List<Edge<Node>> neighbors(Picture picture, EnergyFunction f);
+
+    /**
+     * Calls the visitor with each right-up, right-middle, and right-down neighbor (if they exist) for this node and
+     * the weight of the edge to it, without creating a {@link List} or {@link Edge} objects.
+     *
+     * @param picture the input picture.
+     * @param f       the input energy function.
+     * @param visitor the visitor to call for each neighbor.
+     */
+    default void forEachEdge(Picture picture, EnergyFunction f, EdgeVisitor<Node> visitor) {
+        for (Edge<Node> e : neighbors(picture, f)) {
+            visitor.visit(e.to, e.weight);
+        }
+    }
 }
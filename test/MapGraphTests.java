@@ -0,0 +1,189 @@
+import graphs.shortestpaths.SearchStats;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.locationtech.spatial4j.context.SpatialContext;
+import org.locationtech.spatial4j.shape.Point;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the road network built by {@link MapGraph} from {@link #OSM_PATH}, a hand-written map whose roads are
+ * chains of nodes that must be collapsed into edges between intersections: a road with a parallel detour, two parallel
+ * chains between the same intersections, a loop that starts and ends at one intersection, and a ring with no
+ * intersections at all.
+ *
+ * @see MapGraph
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class MapGraphTests {
+    /**
+     * The OSM test fixture on the test classpath.
+     */
+    private static final String OSM_PATH = "chains.osm.gz";
+    /**
+     * Error tolerance for coordinates.
+     */
+    private static final double EPSILON = 1e-9;
+    private final SpatialContext context = SpatialContext.GEO;
+    private MapGraph map;
+
+    @BeforeAll
+    void setup() throws Exception {
+        map = new MapGraph(OSM_PATH, MapServer.PLACES_PATH, context);
+    }
+
+    @Test
+    void chainsBecomeEdgesBetweenIntersections() {
+        // 6 intersections and dead ends, a shape point splitting the detour and one of the parallel chains, 2 shape
+        // points splitting the loop and 3 nodes of the ring.
+        assertEquals(13, map.vertexCount());
+        int edges = 0;
+        Set<Long> pairs = new HashSet<>();
+        for (int u = 0; u < map.vertexCount(); u += 1) {
+            for (int e = map.start(u); e < map.end(u); e += 1) {
+                int v = map.target(e);
+                edges += 1;
+                assertNotEquals(u, v, "Self-loop");
+                assertTrue(pairs.add((long) u << 32 | v), "Parallel edges");
+                assertEquals(map.weight(e), weight(v, u), "Opposite edge");
+                assertTrue(map.weight(e) + EPSILON >= map.estimatedDistance(u, v), "Inadmissible estimate");
+            }
+        }
+        assertEquals(30, edges);
+        for (double[] node : new double[][]{
+                {47.600, -122.300}, {47.600, -122.290}, {47.600, -122.310}, {47.590, -122.310}, {47.585, -122.310},
+                {47.600, -122.280}, {47.602, -122.278}, {47.598, -122.278}
+        }) {
+            Point location = map.location(map.closest(point(node[0], node[1])));
+            assertEquals(node[0], location.getLat(), EPSILON);
+            assertEquals(node[1], location.getLon(), EPSILON);
+        }
+    }
+
+    @Test
+    void routeAroundLoopKeepsShapePoints() {
+        // From the road to the loop to the middle of the far side of the loop, which is shorter through node 11.
+        List<Point> route = map.shortestPath(point(47.6, -122.285), point(47.6012, -122.2769));
+        assertContains(route, 47.600, -122.280);
+        assertContains(route, 47.602, -122.278);
+        assertNotContains(route, 47.598, -122.278);
+    }
+
+    @Test
+    void routeAroundRingKeepsShapePoints() {
+        List<Point> route = map.shortestPath(point(47.6212, -122.2992), point(47.6188, -122.2972));
+        assertFalse(route.isEmpty());
+        // Either way around the ring passes a node between the two roads.
+        boolean west = contains(route, 47.620, -122.300);
+        boolean east = contains(route, 47.620, -122.296);
+        assertTrue(west != east, () -> "Route " + route);
+    }
+
+    @Test
+    void sameSegmentRouteStaysOnSegment() {
+        Point start = point(47.6, -122.298);
+        Point goal = point(47.6, -122.292);
+        assertEquals(2, map.shortestPath(start, goal).size());
+        assertEquals(2, map.shortestPath(start, goal, 0.0, 0, new SearchStats()).size());
+        assertEquals(2, map.shortestPath(start, goal, map.customize((from, to, distance) -> distance),
+                new SearchStats()).size());
+    }
+
+    @Test
+    void sameSegmentRouteDetoursWhenDirectionIsClosed() {
+        int a = map.closest(point(47.600, -122.300));
+        int b = map.closest(point(47.600, -122.290));
+        Point start = point(47.6, -122.298);
+        Point goal = point(47.6, -122.292);
+        // Closing the road toward the goal leaves only the detour to the north.
+        List<Point> route = map.shortestPath(start, goal,
+                map.customize((from, to, distance) -> from == a && to == b ? Double.POSITIVE_INFINITY : distance),
+                new SearchStats());
+        assertEquals(6, route.size(), () -> "Route " + route);
+        assertContains(route, 47.600, -122.300);
+        assertContains(route, 47.605, -122.300);
+        assertContains(route, 47.605, -122.290);
+        assertContains(route, 47.600, -122.290);
+        // Closing the opposite direction does not affect the route along the segment.
+        assertEquals(2, map.shortestPath(start, goal,
+                map.customize((from, to, distance) -> from == b && to == a ? Double.POSITIVE_INFINITY : distance),
+                new SearchStats()).size());
+    }
+
+    @Test
+    void approximateRouteReturnsAtDeadline() {
+        Point start = point(47.6, -122.285);
+        Point goal = point(47.6012, -122.2769);
+        SearchStats late = new SearchStats();
+        assertEquals(List.of(), map.shortestPath(start, goal, 0.5, 0, late));
+        assertEquals(Double.POSITIVE_INFINITY, late.bound());
+
+        SearchStats stats = new SearchStats();
+        assertEquals(map.shortestPath(start, goal), map.shortestPath(start, goal, 0.5, Long.MAX_VALUE, stats));
+        assertEquals(1.0, stats.bound());
+    }
+
+    @Test
+    void closedRoadsLeaveNoRoute() {
+        // Both points are on the same segment, but every edge is closed.
+        Point start = point(47.6, -122.298);
+        Point goal = point(47.6, -122.292);
+        assertEquals(List.of(), map.shortestPath(start, goal,
+                map.customize((from, to, distance) -> Double.POSITIVE_INFINITY), new SearchStats()));
+        assertEquals(List.of(), map.shortestPath(point(47.6, -122.285), point(47.6012, -122.2769),
+                map.customize((from, to, distance) -> Double.POSITIVE_INFINITY), new SearchStats()));
+    }
+
+    /**
+     * Returns the weight of the edge from u to v, or positive infinity if there is none.
+     *
+     * @param u the originating vertex.
+     * @param v the destination vertex.
+     * @return the weight of the edge from u to v.
+     */
+    private double weight(int u, int v) {
+        for (int e = map.start(u); e < map.end(u); e += 1) {
+            if (map.target(e) == v) {
+                return map.weight(e);
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the point at the given coordinates.
+     *
+     * @param lat the latitude.
+     * @param lon the longitude.
+     * @return the point at the given coordinates.
+     */
+    private Point point(double lat, double lon) {
+        return context.getShapeFactory().pointLatLon(lat, lon);
+    }
+
+    /**
+     * Returns true if the route passes through the given coordinates.
+     *
+     * @param route the points of the route.
+     * @param lat   the latitude.
+     * @param lon   the longitude.
+     * @return true if the route passes through the given coordinates.
+     */
+    private static boolean contains(List<Point> route, double lat, double lon) {
+        return route.stream()
+                .anyMatch(p -> Math.abs(p.getLat() - lat) < EPSILON && Math.abs(p.getLon() - lon) < EPSILON);
+    }
+
+    private static void assertContains(List<Point> route, double lat, double lon) {
+        assertTrue(contains(route, lat, lon), () -> "Route " + route + " does not pass " + lat + ", " + lon);
+    }
+
+    private static void assertNotContains(List<Point> route, double lat, double lon) {
+        assertFalse(contains(route, lat, lon), () -> "Route " + route + " passes " + lat + ", " + lon);
+    }
+}
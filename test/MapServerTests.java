@@ -0,0 +1,162 @@
+import io.javalin.Javalin;
+import org.junit.jupiter.api.*;
+import org.locationtech.spatial4j.context.SpatialContext;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress tests for {@link MapServer} handling concurrent requests against one shared {@link MapGraph}. Map images are
+ * replaced by the MapBox URL that would have been requested, which encodes the route and locations, so every response
+ * can be compared with the response to the same request made alone. The map is built from {@link #OSM_PATH}, a small
+ * grid of curving roads over downtown Seattle with places named after entries in {@code places.tsv}, so the tests do
+ * not need the full OSM extract.
+ *
+ * @see MapServer
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class MapServerTests {
+    /**
+     * The OSM test fixture on the test classpath.
+     */
+    private static final String OSM_PATH = "seattle-grid.osm.gz";
+    /**
+     * Number of threads sending requests at the same time.
+     */
+    private static final int THREADS = 16;
+    /**
+     * Number of times each thread sends every request.
+     */
+    private static final int ROUNDS = 3;
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final List<String> paths = new ArrayList<>();
+    private final Map<String, String> expected = new HashMap<>();
+    private Javalin app;
+
+    @BeforeAll
+    void setup() throws Exception {
+        SpatialContext context = SpatialContext.GEO;
+        MapGraph map = new MapGraph(OSM_PATH, MapServer.PLACES_PATH, context);
+        app = MapServer.create(context, map, url -> new ByteArrayInputStream(
+                url.toString().getBytes(StandardCharsets.UTF_8)
+        )).start(0);
+
+        Random random = new Random(373);
+        String[] terms = {"Seattle", "University", "Pike", "Space Needle", ""};
+        for (int i = 0; i < 40; i += 1) {
+            paths.add(String.format(Locale.ROOT,
+                    "/map/-122.33,47.61,13/800x600?startLon=%f&startLat=%f&goalLon=%f&goalLat=%f&term=%s",
+                    -122.33 + 0.1 * (random.nextDouble() - 0.5), 47.61 + 0.1 * (random.nextDouble() - 0.5),
+                    -122.33 + 0.1 * (random.nextDouble() - 0.5), 47.61 + 0.1 * (random.nextDouble() - 0.5),
+                    terms[i % terms.length].replace(" ", "%20")
+            ));
+        }
+        String[] prefixes = {"S", "Se", "Un", "Pi", "Gr", "Ca", "A", "Wa", "Ba", "Fr"};
+        for (String prefix : prefixes) {
+            paths.add("/search?term=" + prefix);
+        }
+        for (String path : paths) {
+            expected.put(path, get(path));
+        }
+    }
+
+    @AfterAll
+    void teardown() {
+        if (app != null) {
+            app.stop();
+        }
+    }
+
+    @Test
+    void concurrentRequestsMatchSequentialResponses() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t += 1) {
+                List<String> order = new ArrayList<>(paths);
+                Collections.shuffle(order, new Random(t));
+                futures.add(pool.submit(() -> {
+                    int checked = 0;
+                    for (int round = 0; round < ROUNDS; round += 1) {
+                        for (String path : order) {
+                            assertEquals(expected.get(path), get(path), path);
+                            checked += 1;
+                        }
+                    }
+                    return checked;
+                }));
+            }
+            int checked = 0;
+            for (Future<Integer> future : futures) {
+                checked += future.get();
+            }
+            assertEquals(THREADS * ROUNDS * paths.size(), checked);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void routesAreNotEmpty() {
+        long routes = expected.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith("/map"))
+                .map(entry -> new String(Base64.getMimeDecoder().decode(entry.getValue()), StandardCharsets.UTF_8))
+                .filter(url -> url.contains("path-"))
+                .count();
+        assertTrue(routes > 0, "expected some requests to draw a route");
+    }
+
+    @Test
+    void routesReportSearchStats() throws Exception {
+        String path = paths.get(0);
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + app.port() + path)).build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        String timing = response.headers().firstValue("Server-Timing").orElse("");
+        assertTrue(timing.matches("route;dur=[0-9.]+;desc=\"settled=[0-9]+ relaxed=[0-9]+ .*\""), timing);
+    }
+
+    @Test
+    void isochroneRejectsInvalidCoordinates() throws Exception {
+        assertEquals(200, status("/isochrone?lon=-122.33&lat=47.61&meters=500"));
+        for (String point : new String[]{"lon=-122.33&lat=91", "lon=-200&lat=47.61", "lon=NaN&lat=47.61",
+                "lon=-122.33&lat=Infinity", "lon=-122.33&lat=north", "lon=-122.33"}) {
+            assertEquals(400, status("/isochrone?" + point + "&meters=500"), point);
+        }
+    }
+
+    /**
+     * Returns the status code of the response to a GET request for the given path.
+     *
+     * @param path the request path and query.
+     * @return the response status code.
+     * @throws Exception if the request fails.
+     */
+    private int status(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + app.port() + path)).build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    /**
+     * Returns the body of the response to a GET request for the given path, failing unless the status is 200.
+     *
+     * @param path the request path and query.
+     * @return the response body.
+     * @throws Exception if the request fails.
+     */
+    private String get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + app.port() + path)).build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), path);
+        return response.body();
+    }
+}
@@ -0,0 +1,101 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link OsmPbfReader} class. The reader parses {@link #PBF_PATH}, a small hand-written map with the same
+ * nodes and ways as {@link OsmXmlReaderTests#XML_PATH}, and must deliver the same events to the {@link OsmSink} as the
+ * {@link OsmXmlReader}. The fixture mixes plain and dense node groups, zlib and raw blobs, and an unknown blob type
+ * that readers must skip.
+ *
+ * @see OsmPbfReader
+ */
+public class OsmPbfReaderTests {
+    /**
+     * The PBF test fixture on the test classpath.
+     */
+    private static final String PBF_PATH = "tiny.osm.pbf";
+    /**
+     * Offsets of the blobs in {@link #PBF_PATH}, each starting with the 4-byte length of its BlobHeader.
+     */
+    private static final int[] BLOB_OFFSETS = {0, 53, 70, 236, 332, 442, 540};
+    /**
+     * Offset of the zlib data in the first OSMData blob of {@link #PBF_PATH}.
+     */
+    private static final int ZLIB_OFFSET = 92;
+
+    @Test
+    void deliversSameNodesAndWaysAsXmlReader() throws IOException {
+        assertEquals(read(new OsmXmlReader(), OsmXmlReaderTests.bytes(OsmXmlReaderTests.XML_PATH)),
+                read(new OsmPbfReader(), bytes(PBF_PATH)));
+    }
+
+    @Test
+    void oneThreadDeliversSameNodesAndWays() throws IOException {
+        assertEquals(read(new OsmPbfReader(), bytes(PBF_PATH)), read(new OsmPbfReader(1), bytes(PBF_PATH)));
+    }
+
+    @Test
+    void forPathChoosesReaderByExtension() {
+        assertTrue(OsmReader.forPath(PBF_PATH) instanceof OsmPbfReader);
+        assertTrue(OsmReader.forPath(OsmXmlReaderTests.XML_PATH) instanceof OsmXmlReader);
+    }
+
+    @Test
+    void truncatedPbfThrows() throws IOException {
+        byte[] pbf = bytes(PBF_PATH);
+        for (int length = 1; length < pbf.length; length += 1) {
+            if (Arrays.binarySearch(BLOB_OFFSETS, length) >= 0) {
+                // Ending between blobs is a valid, shorter file.
+                continue;
+            }
+            byte[] truncated = Arrays.copyOf(pbf, length);
+            assertThrows(IOException.class, () -> read(new OsmPbfReader(), truncated), "Truncated to " + length);
+        }
+    }
+
+    @Test
+    void corruptPbfThrows() throws IOException {
+        byte[] pbf = bytes(PBF_PATH);
+
+        byte[] zlib = pbf.clone();
+        zlib[ZLIB_OFFSET] = 0;
+        assertThrows(IOException.class, () -> read(new OsmPbfReader(), zlib));
+
+        byte[] headerSize = pbf.clone();
+        headerSize[BLOB_OFFSETS[2]] = 0x7f;
+        assertThrows(IOException.class, () -> read(new OsmPbfReader(), headerSize));
+
+        byte[] notPbf = "<?xml version='1.0'?>".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> read(new OsmPbfReader(), notPbf));
+    }
+
+    @Test
+    void xmlReaderRejectsPbf() throws IOException {
+        byte[] pbf = bytes(PBF_PATH);
+        assertThrows(IOException.class, () -> read(new OsmXmlReader(), pbf));
+    }
+
+    /**
+     * Returns the events delivered by the reader for the given file contents.
+     *
+     * @see OsmXmlReaderTests#read(OsmReader, byte[])
+     */
+    private static List<String> read(OsmReader reader, byte[] data) throws IOException {
+        return OsmXmlReaderTests.read(reader, data);
+    }
+
+    /**
+     * Returns the contents of the given resource on the test classpath.
+     *
+     * @see OsmXmlReaderTests#bytes(String)
+     */
+    private static byte[] bytes(String path) throws IOException {
+        return OsmXmlReaderTests.bytes(path);
+    }
+}
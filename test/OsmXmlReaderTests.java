@@ -0,0 +1,124 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link OsmXmlReader} class. The reader parses {@link #XML_PATH}, a small hand-written map, and must
+ * deliver its nodes and ways to the {@link OsmSink} in order.
+ *
+ * @see OsmXmlReader
+ */
+public class OsmXmlReaderTests {
+    /**
+     * The gzipped XML test fixture on the test classpath.
+     */
+    static final String XML_PATH = "tiny.osm.gz";
+
+    /**
+     * An {@link OsmSink} that records every node and way it receives as a line of text.
+     */
+    private static class Recorder implements OsmSink {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void node(long id, double lat, double lon, String name) {
+            events.add(String.format(Locale.ROOT, "node %d %.7f %.7f %s", id, lat, lon, name));
+        }
+
+        @Override
+        public void way(long[] refs, String highway) {
+            events.add("way " + Arrays.toString(refs) + " " + highway);
+        }
+    }
+
+    @Test
+    void deliversNodesAndWays() throws IOException {
+        assertEquals(List.of(
+                "node 1 47.6500000 -122.3500000 ",
+                "node 2 47.6510000 -122.3500000 Fremont Troll",
+                "node 3 47.6520000 -122.3490000 ",
+                "node 4 47.6520000 -122.3470000 \"Lenin\" Statue's Café",
+                "node 5 47.6530000 -122.3470000 ",
+                "node 8 47.6599999 -122.3400001 ",
+                "node 21 47.6540000 -122.3450000 ",
+                "node 9000000001 47.6550000 -122.3599999 ",
+                "node 9000000002 47.6560000 -122.3590000 Gas Works Park",
+                "way [1, 2, 3, 4] residential",
+                "way [4, 5, 21, 8] primary",
+                "way [3, 9000000001, 9000000002] null",
+                "way [5, 1] footway"
+        ), read(new OsmXmlReader(), bytes(XML_PATH)));
+    }
+
+    @Test
+    void oneThreadDeliversSameNodesAndWays() throws IOException {
+        assertEquals(read(new OsmXmlReader(), bytes(XML_PATH)), read(new OsmXmlReader(1), bytes(XML_PATH)));
+    }
+
+    @Test
+    void corruptXmlThrows() throws IOException {
+        byte[] xml = bytes(XML_PATH);
+        byte[] truncated = Arrays.copyOf(xml, xml.length / 2);
+        assertThrows(IOException.class, () -> read(new OsmXmlReader(), truncated));
+
+        byte[] notGzipped = "<osm></osm>".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> read(new OsmXmlReader(), notGzipped));
+
+        byte[] malformed = gzip("<osm><node id=\"1\" lat=\"47.65\" lon=\"-122.35\"><tag k=\"name\"</osm>");
+        assertThrows(IOException.class, () -> read(new OsmXmlReader(), malformed));
+    }
+
+    /**
+     * Returns the events delivered by the reader for the given file contents.
+     *
+     * @param reader the reader.
+     * @param data   the file contents.
+     * @return the nodes and ways delivered by the reader, in order.
+     * @throws IOException if the reader fails.
+     */
+    static List<String> read(OsmReader reader, byte[] data) throws IOException {
+        Recorder recorder = new Recorder();
+        reader.read(new ByteArrayInputStream(data), recorder);
+        return recorder.events;
+    }
+
+    /**
+     * Returns the contents of the given resource on the test classpath.
+     *
+     * @param path the resource path.
+     * @return the contents of the resource.
+     * @throws IOException if the resource is missing or cannot be read.
+     */
+    static byte[] bytes(String path) throws IOException {
+        try (InputStream in = OsmXmlReaderTests.class.getClassLoader().getResourceAsStream(path)) {
+            assertNotNull(in, "Missing test resource " + path);
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Returns the gzipped UTF-8 encoding of the given text.
+     *
+     * @param text the text.
+     * @return the gzipped text.
+     * @throws IOException if compression fails.
+     */
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(result)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return result.toByteArray();
+    }
+}
@@ -0,0 +1,294 @@
+import graphs.CSRGraph;
+import graphs.EdgeGeometry;
+import graphs.GeoDistance;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.nio.DoubleBuffer;
+import java.util.*;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link SegmentIndex} class against a brute-force scan of every road. The roads join random points
+ * and curve through a few random shape points. Most roads are stored as a pair of opposite edges and the rest as a
+ * single one-way edge.
+ *
+ * @see SegmentIndex
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SegmentIndexTests {
+    /**
+     * Error tolerance for projected distances.
+     */
+    private static final double EPSILON = 1e-12;
+    private static final int N = 1000;
+    private final double[] lat = new double[N];
+    private final double[] lon = new double[N];
+    /**
+     * The shape points of each road from its lower to its higher vertex, keyed by {@link #key(int, int)}.
+     */
+    private final Map<Long, double[][]> shapes = new HashMap<>();
+    private CSRGraph graph;
+    private SegmentIndex index;
+    private double cosLat;
+
+    @BeforeAll
+    void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        double sumLat = 0.0;
+        int points = N;
+        for (int v = 0; v < N; v += 1) {
+            lat[v] = 47.55 + random.nextDouble(0.1);
+            lon[v] = -122.40 + random.nextDouble(0.1);
+            sumLat += lat[v];
+        }
+        List<int[]> edges = new ArrayList<>();
+        while (shapes.size() < 2 * N) {
+            int u = random.nextInt(N);
+            int v = random.nextInt(N);
+            if (u == v || Math.abs(lat[u] - lat[v]) > 0.01 || Math.abs(lon[u] - lon[v]) > 0.01
+                    || shapes.containsKey(key(u, v))) {
+                continue;
+            }
+            int a = Math.min(u, v);
+            int b = Math.max(u, v);
+            double[][] shape = new double[random.nextInt(4)][];
+            for (int i = 0; i < shape.length; i += 1) {
+                double t = (i + 1.0) / (shape.length + 1);
+                shape[i] = new double[]{
+                        lat[a] + t * (lat[b] - lat[a]) + random.nextDouble(-0.002, 0.002),
+                        lon[a] + t * (lon[b] - lon[a]) + random.nextDouble(-0.002, 0.002)
+                };
+                sumLat += shape[i][0];
+                points += 1;
+            }
+            shapes.put(key(u, v), shape);
+            if (random.nextInt(4) == 0) {
+                edges.add(new int[]{u, v});
+            } else {
+                edges.add(new int[]{u, v});
+                edges.add(new int[]{v, u});
+            }
+        }
+        cosLat = Math.cos(Math.toRadians(sumLat / points));
+
+        int m = edges.size();
+        int[] from = new int[m];
+        int[] to = new int[m];
+        double[] weight = new double[m];
+        for (int e = 0; e < m; e += 1) {
+            from[e] = edges.get(e)[0];
+            to[e] = edges.get(e)[1];
+            weight[e] = length(polyline(from[e], to[e]));
+        }
+        graph = new CSRGraph(N, from, to, weight, m);
+
+        // Store the shape points of each edge in the order of the edges in the graph.
+        int[] offsets = new int[m + 1];
+        List<double[]> shapePoints = new ArrayList<>();
+        List<Double> distances = new ArrayList<>();
+        for (int u = 0; u < N; u += 1) {
+            for (int e = graph.start(u); e < graph.end(u); e += 1) {
+                double[][] polyline = polyline(u, graph.target(e));
+                double distance = 0.0;
+                for (int i = 1; i < polyline.length - 1; i += 1) {
+                    distance += GeoDistance.distance(polyline[i - 1][0], polyline[i - 1][1],
+                            polyline[i][0], polyline[i][1]);
+                    shapePoints.add(polyline[i]);
+                    distances.add(distance);
+                }
+                offsets[e + 1] = shapePoints.size();
+            }
+        }
+        double[] shapeLat = new double[shapePoints.size()];
+        double[] shapeLon = new double[shapePoints.size()];
+        double[] shapeDistance = new double[shapePoints.size()];
+        for (int i = 0; i < shapeLat.length; i += 1) {
+            shapeLat[i] = shapePoints.get(i)[0];
+            shapeLon[i] = shapePoints.get(i)[1];
+            shapeDistance[i] = distances.get(i);
+        }
+        index = new SegmentIndex(graph, DoubleBuffer.wrap(lat), DoubleBuffer.wrap(lon),
+                new EdgeGeometry(offsets, shapeLat, shapeLon, shapeDistance));
+    }
+
+    @Test
+    void indexesEachRoadOnce() {
+        assertEquals(shapes.size(), index.size());
+    }
+
+    @Test
+    void nearestMatchesBruteForce() {
+        assertQueries(v -> true);
+    }
+
+    @Test
+    void nearestWithEndpointPredicateMatchesBruteForce() {
+        assertQueries(v -> v % 3 != 0);
+        assertNull(index.nearest(47.6, -122.35, v -> false));
+    }
+
+    @Test
+    void emptyIndex() {
+        CSRGraph empty = new CSRGraph(1, new int[0], new int[0], new double[0], 0);
+        SegmentIndex none = new SegmentIndex(empty, DoubleBuffer.wrap(new double[]{47.6}),
+                DoubleBuffer.wrap(new double[]{-122.3}),
+                new EdgeGeometry(new int[1], new double[0], new double[0], new double[0]));
+        assertEquals(0, none.size());
+        assertNull(none.nearest(47.6, -122.3));
+    }
+
+    /**
+     * Checks random queries, some far outside the roads, against the nearest point on every road whose endpoints
+     * satisfy the predicate.
+     *
+     * @param endpoint the predicate that both endpoints of a road must satisfy.
+     */
+    private void assertQueries(IntPredicate endpoint) {
+        SplittableRandom random = new SplittableRandom(43);
+        for (int query = 0; query < 500; query += 1) {
+            double qLat = 47.5 + random.nextDouble(0.2);
+            double qLon = -122.45 + random.nextDouble(0.2);
+            double best = Double.POSITIVE_INFINITY;
+            for (long key : shapes.keySet()) {
+                int a = (int) (key >>> 32);
+                int b = (int) key;
+                if (endpoint.test(a) && endpoint.test(b)) {
+                    best = Math.min(best, distance(qLat, qLon, polyline(a, b)));
+                }
+            }
+            SegmentIndex.Snap snap = index.nearest(qLat, qLon, endpoint);
+            assertTrue(endpoint.test(snap.from) && endpoint.test(snap.to));
+            assertTrue(snap.fraction >= 0.0 && snap.fraction <= 1.0);
+            assertEquals(best, project(qLat, qLon, snap.lat, snap.lon), EPSILON);
+            // The snapped point lies on the road between its endpoints.
+            double[][] polyline = polyline(snap.from, snap.to);
+            assertEquals(0.0, distance(snap.lat, snap.lon, polyline), EPSILON);
+            assertEquals(graph.weight(snap.edge), snap.weight);
+            assertEquals(snap.from, fromOf(snap.edge));
+            assertEquals(snap.to, graph.target(snap.edge));
+            double along = snap.fraction * length(polyline);
+            double[] point = pointAt(polyline, along);
+            assertEquals(0.0, project(point[0], point[1], snap.lat, snap.lon), 1e-9);
+        }
+    }
+
+    /**
+     * Returns the vertices of the road from u to v: u, its shape points in order, and v.
+     *
+     * @param u the first vertex.
+     * @param v the last vertex.
+     * @return the latitude and longitude of each point along the road.
+     */
+    private double[][] polyline(int u, int v) {
+        double[][] shape = shapes.get(key(u, v));
+        double[][] result = new double[shape.length + 2][];
+        result[0] = new double[]{lat[u], lon[u]};
+        result[result.length - 1] = new double[]{lat[v], lon[v]};
+        for (int i = 0; i < shape.length; i += 1) {
+            result[u < v ? i + 1 : shape.length - i] = shape[i];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the great-circle length of the polyline.
+     *
+     * @param polyline the points of the polyline.
+     * @return the length of the polyline in degrees.
+     */
+    private static double length(double[][] polyline) {
+        double result = 0.0;
+        for (int i = 1; i < polyline.length; i += 1) {
+            result += GeoDistance.distance(polyline[i - 1][0], polyline[i - 1][1], polyline[i][0], polyline[i][1]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the point at the given great-circle distance along the polyline, interpolating linearly within a piece.
+     *
+     * @param polyline the points of the polyline.
+     * @param along    the distance along the polyline.
+     * @return the latitude and longitude of the point.
+     */
+    private static double[] pointAt(double[][] polyline, double along) {
+        for (int i = 1; i < polyline.length; i += 1) {
+            double[] p = polyline[i - 1];
+            double[] q = polyline[i];
+            double piece = GeoDistance.distance(p[0], p[1], q[0], q[1]);
+            if (along <= piece || i == polyline.length - 1) {
+                double t = piece > 0.0 ? Math.min(1.0, along / piece) : 0.0;
+                return new double[]{p[0] + t * (q[0] - p[0]), p[1] + t * (q[1] - p[1])};
+            }
+            along -= piece;
+        }
+        return polyline[0];
+    }
+
+    /**
+     * Returns the projected distance from the query to the nearest point on the polyline.
+     *
+     * @param qLat     the latitude of the query.
+     * @param qLon     the longitude of the query.
+     * @param polyline the points of the polyline.
+     * @return the projected distance to the polyline.
+     */
+    private double distance(double qLat, double qLon, double[][] polyline) {
+        double qx = qLon * cosLat;
+        double result = Double.POSITIVE_INFINITY;
+        for (int i = 1; i < polyline.length; i += 1) {
+            double x0 = polyline[i - 1][1] * cosLat;
+            double y0 = polyline[i - 1][0];
+            double dx = polyline[i][1] * cosLat - x0;
+            double dy = polyline[i][0] - y0;
+            double lengthSquared = dx * dx + dy * dy;
+            double t = lengthSquared == 0.0 ? 0.0 : ((qx - x0) * dx + (qLat - y0) * dy) / lengthSquared;
+            t = Math.max(0.0, Math.min(1.0, t));
+            result = Math.min(result, Math.hypot(qx - (x0 + t * dx), qLat - (y0 + t * dy)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the projected distance between two points.
+     *
+     * @param lat1 the latitude of the first point.
+     * @param lon1 the longitude of the first point.
+     * @param lat2 the latitude of the second point.
+     * @param lon2 the longitude of the second point.
+     * @return the projected distance between the points.
+     */
+    private double project(double lat1, double lon1, double lat2, double lon2) {
+        return Math.hypot((lon1 - lon2) * cosLat, lat1 - lat2);
+    }
+
+    /**
+     * Returns the originating vertex of the given edge.
+     *
+     * @param edge the edge.
+     * @return the originating vertex of the edge.
+     */
+    private int fromOf(int edge) {
+        for (int u = 0; u < N; u += 1) {
+            if (graph.start(u) <= edge && edge < graph.end(u)) {
+                return u;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a key for the unordered pair of the given vertices, with the lower vertex in the upper 32 bits.
+     *
+     * @param u the first vertex.
+     * @param v the second vertex.
+     * @return a key that is equal for both orders of the vertices.
+     */
+    private static long key(int u, int v) {
+        return (long) Math.min(u, v) << 32 | Math.max(u, v);
+    }
+}
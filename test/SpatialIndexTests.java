@@ -0,0 +1,64 @@
+import graphs.GeoDistance;
+import org.junit.jupiter.api.Test;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link SpatialIndex} class against a brute-force scan of every point.
+ *
+ * @see SpatialIndex
+ */
+public class SpatialIndexTests {
+
+    @Test
+    void nearestMatchesBruteForce() {
+        SplittableRandom random = new SplittableRandom(41);
+        int n = 3000;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int v = 0; v < n; v += 1) {
+            // Clusters of nearby points, as at the intersections of a road network.
+            int cluster = random.nextInt(100);
+            lat[v] = 47.5 + 0.002 * cluster + random.nextDouble(0.0005);
+            lon[v] = -122.4 + 0.003 * (cluster % 10) + random.nextDouble(0.0005);
+        }
+        GeoDistance geo = new GeoDistance(DoubleBuffer.wrap(lat), DoubleBuffer.wrap(lon));
+        SpatialIndex index = new SpatialIndex(geo);
+        assertEquals(n, index.size());
+        double[] bounds = new double[n];
+        for (int query = 0; query < 200; query += 1) {
+            double qLat = 47.49 + random.nextDouble(0.22);
+            double qLon = -122.41 + random.nextDouble(0.05);
+            // The chord lower bound increases with great-circle distance, so it orders points the same way.
+            GeoDistance.lowerBounds(qLat, qLon, lat, lon, n, bounds);
+            int[] expected = IntStream.range(0, n).boxed()
+                    .sorted(Comparator.comparingDouble(v -> bounds[v]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            assertEquals(expected[0], index.nearest(qLat, qLon));
+            for (int k : new int[]{1, 2, 10, 50}) {
+                assertArrayEquals(Arrays.copyOf(expected, k), index.nearest(qLat, qLon, k));
+            }
+        }
+    }
+
+    @Test
+    void fewerPointsThanK() {
+        double[] lat = {47.6, 47.7, 47.5};
+        double[] lon = {-122.3, -122.3, -122.3};
+        SpatialIndex index = new SpatialIndex(new GeoDistance(DoubleBuffer.wrap(lat), DoubleBuffer.wrap(lon)));
+        assertArrayEquals(new int[]{0, 2, 1}, index.nearest(47.58, -122.3, 5));
+        assertArrayEquals(new int[0], index.nearest(47.58, -122.3, 0));
+
+        SpatialIndex empty = new SpatialIndex(new GeoDistance(DoubleBuffer.wrap(new double[0]),
+                DoubleBuffer.wrap(new double[0])));
+        assertEquals(-1, empty.nearest(47.6, -122.3));
+        assertArrayEquals(new int[0], empty.nearest(47.6, -122.3, 3));
+    }
+}
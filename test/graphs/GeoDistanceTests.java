@@ -0,0 +1,70 @@
+package graphs;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.spatial4j.context.SpatialContext;
+
+import java.nio.DoubleBuffer;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link GeoDistance} class.
+ *
+ * @see GeoDistance
+ */
+public class GeoDistanceTests {
+
+    @Test
+    void lowerBoundNeverExceedsDistance() {
+        SplittableRandom random = new SplittableRandom(7);
+        int n = 2000;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int v = 0; v < n; v += 1) {
+            if (v % 2 == 0) {
+                // City scale, including points a few millimeters apart.
+                double scale = v % 4 == 0 ? 0.2 : 1e-7;
+                lat[v] = 47.6 + random.nextDouble(-scale, scale);
+                lon[v] = -122.3 + random.nextDouble(-scale, scale);
+            } else {
+                lat[v] = random.nextDouble(-90.0, 90.0);
+                lon[v] = random.nextDouble(-180.0, 180.0);
+            }
+        }
+        GeoDistance geo = new GeoDistance(DoubleBuffer.wrap(lat), DoubleBuffer.wrap(lon));
+        assertEquals(n, geo.size());
+        double[] bounds = new double[n];
+        for (int u = 0; u < n; u += 97) {
+            GeoDistance.lowerBounds(lat[u], lon[u], lat, lon, n, bounds);
+            for (int v = 0; v < n; v += 1) {
+                double distance = GeoDistance.distance(lat[u], lon[u], lat[v], lon[v]);
+                double bound = geo.lowerBound(u, v);
+                double batch = bounds[v];
+                assertTrue(bound >= 0.0);
+                assertTrue(bound <= distance, () -> "Bound " + bound + " exceeds distance " + distance);
+                assertTrue(batch <= distance, () -> "Bound " + batch + " exceeds distance " + distance);
+                if (distance < 1.0) {
+                    // Nearly exact at city scale.
+                    assertEquals(distance, bound, 1e-9 + distance * 1e-4);
+                }
+            }
+        }
+        assertEquals(0.0, geo.lowerBound(0, 0));
+    }
+
+    @Test
+    void distanceMatchesSpatialContext() {
+        SplittableRandom random = new SplittableRandom(8);
+        SpatialContext context = SpatialContext.GEO;
+        for (int i = 0; i < 1000; i += 1) {
+            double lat1 = random.nextDouble(-90.0, 90.0);
+            double lon1 = random.nextDouble(-180.0, 180.0);
+            double lat2 = random.nextDouble(-90.0, 90.0);
+            double lon2 = random.nextDouble(-180.0, 180.0);
+            double expected = context.calcDistance(context.getShapeFactory().pointLatLon(lat1, lon1),
+                    context.getShapeFactory().pointLatLon(lat2, lon2));
+            assertEquals(expected, GeoDistance.distance(lat1, lon1, lat2, lon2), 1e-9);
+        }
+    }
+}
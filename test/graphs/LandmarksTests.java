@@ -0,0 +1,75 @@
+package graphs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link Landmarks} class.
+ *
+ * @see Landmarks
+ */
+public class LandmarksTests {
+    /**
+     * Error tolerance for path lengths.
+     */
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void landmarksAreInLargestComponent() {
+        // Vertices 0 to 2 form a small fragment that a one-way road enters from a large cycle of vertices 3 to
+        // 102, so nothing outside the fragment is reachable from vertex 0.
+        int n = 103;
+        int m = 4 + 2 * (n - 3);
+        int[] from = new int[m];
+        int[] to = new int[m];
+        double[] weight = new double[m];
+        int e = 0;
+        for (int[] edge : new int[][]{{0, 1}, {1, 2}, {2, 0}, {3, 2}}) {
+            from[e] = edge[0];
+            to[e] = edge[1];
+            weight[e] = 1.0;
+            e += 1;
+        }
+        for (int v = 3; v < n; v += 1) {
+            int w = v == n - 1 ? 3 : v + 1;
+            from[e] = v;
+            to[e] = w;
+            weight[e] = 1.0;
+            from[e + 1] = w;
+            to[e + 1] = v;
+            weight[e + 1] = 1.0;
+            e += 2;
+        }
+        CSRGraph graph = new CSRGraph(n, from, to, weight, m);
+        StronglyConnectedComponents components = new StronglyConnectedComponents(graph);
+        Landmarks landmarks = Landmarks.select(graph, graph.reverse(), components, 4);
+        assertEquals(4, landmarks.size());
+        for (int i = 0; i < landmarks.size(); i += 1) {
+            assertEquals(components.largest(), components.component(landmarks.vertex(i)));
+        }
+        // Landmarks spread around the cycle bound distances between any two of its vertices.
+        assertTrue(landmarks.lowerBound(3, 53) > 0.0);
+    }
+
+    @Test
+    void lowerBoundNeverExceedsDistance() {
+        SplittableRandom random = new SplittableRandom(11);
+        CSRGraph graph = TestGraphs.random(random, 500, 2000);
+        Landmarks landmarks = Landmarks.select(graph, graph.reverse(), new StronglyConnectedComponents(graph), 8);
+        for (int s = 0; s < graph.vertexCount(); s += 25) {
+            double[] expected = TestGraphs.distances(graph, s);
+            for (int t = 0; t < graph.vertexCount(); t += 1) {
+                assertTrue(landmarks.lowerBound(s, t) <= expected[t] + EPSILON);
+            }
+        }
+    }
+
+    @Test
+    void emptyGraphHasNoLandmarks() {
+        CSRGraph graph = new CSRGraph(0, new int[0], new int[0], new double[0], 0);
+        assertEquals(0, Landmarks.select(graph, graph.reverse(), new StronglyConnectedComponents(graph), 4).size());
+    }
+}
@@ -0,0 +1,113 @@
+package graphs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link StronglyConnectedComponents} class.
+ *
+ * @see StronglyConnectedComponents
+ */
+public class StronglyConnectedComponentsTests {
+
+    @Test
+    void componentsMatchReachability() {
+        SplittableRandom random = new SplittableRandom(17);
+        for (int trial = 0; trial < 20; trial += 1) {
+            // Sparse enough for many components of different sizes.
+            int n = 150;
+            CSRGraph graph = TestGraphs.random(random, n, 120 + random.nextInt(120));
+            StronglyConnectedComponents components = new StronglyConnectedComponents(graph);
+            boolean[][] reaches = new boolean[n][];
+            for (int u = 0; u < n; u += 1) {
+                reaches[u] = reachable(graph, u);
+            }
+            int[] sizes = new int[components.count()];
+            for (int u = 0; u < n; u += 1) {
+                sizes[components.component(u)] += 1;
+                for (int v = 0; v < n; v += 1) {
+                    boolean same = components.component(u) == components.component(v);
+                    assertEquals(reaches[u][v] && reaches[v][u], same);
+                    if (reaches[u][v]) {
+                        assertTrue(components.mayReach(u, v), () -> "Path exists but mayReach is false");
+                        // Components are numbered in reverse topological order.
+                        assertTrue(components.component(u) >= components.component(v));
+                    }
+                }
+            }
+            int largest = 0;
+            for (int c = 0; c < sizes.length; c += 1) {
+                assertEquals(sizes[c], components.size(c));
+                largest = Math.max(largest, sizes[c]);
+            }
+            assertEquals(largest, components.size(components.largest()));
+        }
+    }
+
+    @Test
+    void differentWeakComponentsAreUnreachable() {
+        // Two cycles 0 -> 1 -> 0 and 2 -> 3 -> 2 with no edge between them, and 4 -> 0.
+        CSRGraph graph = new CSRGraph(5, new int[]{0, 1, 2, 3, 4}, new int[]{1, 0, 3, 2, 0},
+                new double[]{1.0, 1.0, 1.0, 1.0, 1.0}, 5);
+        StronglyConnectedComponents components = new StronglyConnectedComponents(graph);
+        assertEquals(3, components.count());
+        assertTrue(components.mayReach(4, 1));
+        assertFalse(components.mayReach(1, 4));
+        assertFalse(components.mayReach(0, 2));
+        assertFalse(components.mayReach(2, 0));
+        assertFalse(components.mayReach(4, 3));
+    }
+
+    @Test
+    void longPathDoesNotOverflowStack() {
+        // A cycle through a million vertices would need a million nested calls in a recursive search.
+        int n = 1_000_000;
+        int[] from = new int[n];
+        int[] to = new int[n];
+        for (int v = 0; v < n; v += 1) {
+            from[v] = v;
+            to[v] = (v + 1) % n;
+        }
+        StronglyConnectedComponents components = new StronglyConnectedComponents(
+                new CSRGraph(n, from, to, new double[n], n));
+        assertEquals(1, components.count());
+        assertEquals(n, components.size(components.largest()));
+    }
+
+    @Test
+    void emptyGraph() {
+        StronglyConnectedComponents components = new StronglyConnectedComponents(
+                new CSRGraph(0, new int[0], new int[0], new double[0], 0));
+        assertEquals(0, components.count());
+        assertEquals(-1, components.largest());
+    }
+
+    /**
+     * Returns whether each vertex is reachable from the start, found by depth-first search.
+     *
+     * @param graph the graph.
+     * @param start the start vertex.
+     * @return whether each vertex is reachable from the start.
+     */
+    private static boolean[] reachable(IndexedGraph graph, int start) {
+        boolean[] result = new boolean[graph.vertexCount()];
+        int[] stack = new int[graph.vertexCount()];
+        int size = 0;
+        result[start] = true;
+        stack[size++] = start;
+        while (size > 0) {
+            int u = stack[--size];
+            for (int e = graph.start(u); e < graph.end(u); e += 1) {
+                int v = graph.target(e);
+                if (!result[v]) {
+                    result[v] = true;
+                    stack[size++] = v;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,93 @@
+package graphs;
+
+import graphs.shortestpaths.DijkstraSolver;
+import graphs.shortestpaths.ShortestPathSolver;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Random graphs and reference shortest path distances shared by the graph and solver tests.
+ *
+ * @see CSRGraph
+ * @see DijkstraSolver
+ */
+public final class TestGraphs {
+    private TestGraphs() {
+    }
+
+    /**
+     * Returns a graph with the given number of vertices and random directed edges with weights from 0 to 10. Some
+     * vertices may be unreachable, and the graph may contain self-loops and parallel edges.
+     *
+     * @param random the source of randomness.
+     * @param n      the number of vertices.
+     * @param m      the number of edges.
+     * @return a random graph.
+     */
+    public static CSRGraph random(SplittableRandom random, int n, int m) {
+        int[] from = new int[m];
+        int[] to = new int[m];
+        double[] weight = new double[m];
+        for (int i = 0; i < m; i += 1) {
+            from[i] = random.nextInt(n);
+            to[i] = random.nextInt(n);
+            weight[i] = random.nextDouble(10.0);
+        }
+        return new CSRGraph(n, from, to, weight, m);
+    }
+
+    /**
+     * Returns the shortest path distance from the start to every vertex, computed with {@link DijkstraSolver}, or
+     * positive infinity for the vertices that are unreachable from the start.
+     *
+     * @param graph the graph.
+     * @param start the start vertex.
+     * @return the shortest path distance from the start to every vertex.
+     */
+    public static double[] distances(IndexedGraph graph, int start) {
+        return lengths(graph, new DijkstraSolver<>(graph, start), start);
+    }
+
+    /**
+     * Returns the length of the path found by the solver from the start to every vertex, or positive infinity for the
+     * vertices whose path does not begin at the start.
+     *
+     * @param graph  the graph.
+     * @param solver the solver run on the graph from the start.
+     * @param start  the start vertex.
+     * @return the length of the path found by the solver from the start to every vertex.
+     */
+    public static double[] lengths(IndexedGraph graph, ShortestPathSolver<Integer> solver, int start) {
+        double[] result = new double[graph.vertexCount()];
+        for (int v = 0; v < result.length; v += 1) {
+            List<Integer> path = solver.solution(v);
+            result[v] = path.get(0) == start ? length(graph, path) : Double.POSITIVE_INFINITY;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the length of the given path using the lightest edge between each pair of consecutive vertices, or
+     * positive infinity if two consecutive vertices are not joined by an edge.
+     *
+     * @param graph the graph.
+     * @param path  the vertices of the path.
+     * @return the length of the path.
+     */
+    public static double length(IndexedGraph graph, List<Integer> path) {
+        double result = 0.0;
+        for (int i = 1; i < path.size(); i += 1) {
+            int u = path.get(i - 1);
+            int v = path.get(i);
+            double best = Double.POSITIVE_INFINITY;
+            for (int e = graph.start(u); e < graph.end(u); e += 1) {
+                if (graph.target(e) == v) {
+                    best = Math.min(best, graph.weight(e));
+                }
+            }
+            result += best;
+        }
+        return result;
+    }
+}
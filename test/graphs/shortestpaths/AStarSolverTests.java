@@ -0,0 +1,130 @@
+package graphs.shortestpaths;
+
+import graphs.AStarGraph;
+import graphs.CSRGraph;
+import graphs.Edge;
+import graphs.EdgeVisitor;
+import graphs.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link AStarSolver} class.
+ *
+ * @see AStarSolver
+ */
+public class AStarSolverTests {
+    /**
+     * Error tolerance for path lengths.
+     */
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * A graph with a heuristic given by an array of estimates of the distance from each vertex to a single goal.
+     */
+    private static class Estimates implements AStarGraph<Integer> {
+        private final CSRGraph graph;
+        private final double[] estimates;
+
+        Estimates(CSRGraph graph, double[] estimates) {
+            this.graph = graph;
+            this.estimates = estimates;
+        }
+
+        @Override
+        public List<Edge<Integer>> neighbors(Integer vertex) {
+            return graph.neighbors(vertex);
+        }
+
+        @Override
+        public void forEachEdge(Integer from, EdgeVisitor<Integer> visitor) {
+            graph.forEachEdge(from, visitor);
+        }
+
+        @Override
+        public double estimatedDistance(Integer start, Integer end) {
+            return estimates[start];
+        }
+    }
+
+    @Test
+    void stopsOnceGoalIsSettled() {
+        // A chain 0 -> 1 -> 2 -> 3 -> 4 of weight 1 per edge, a shortcut 0 -> 2 of weight 5, and a branch
+        // 0 -> 5 -> ... -> 9 of weight 1.5 per edge. Vertex 10 is isolated.
+        int[] from = {0, 1, 2, 3, 0, 0, 5, 6, 7, 8};
+        int[] to = {1, 2, 3, 4, 2, 5, 6, 7, 8, 9};
+        double[] weight = {1, 1, 1, 1, 5, 1.5, 1.5, 1.5, 1.5, 1.5};
+        CSRGraph graph = new CSRGraph(11, from, to, weight, from.length);
+        AStarGraph<Integer> dijkstra = new Estimates(graph, new double[11]);
+
+        // Without a heuristic, the search settles 0, 1, 5 and then the goal 2, which it first reached through the
+        // shortcut and then more cheaply through 1.
+        SearchStats stats = new SearchStats();
+        AStarSolver<Integer> solver = new AStarSolver<>(dijkstra, Map.of(0, 0.0), 2, stats);
+        assertEquals(List.of(0, 1, 2), solver.solution());
+        assertSame(stats, solver.stats());
+        assertEquals(4, stats.settled());
+        assertEquals(5, stats.relaxed());
+        assertEquals(5, stats.inserts());
+        assertEquals(1, stats.decreaseKeys());
+
+        // A search for the unreachable vertex settles every vertex reachable from the start.
+        SearchStats full = new SearchStats();
+        new AStarSolver<>(dijkstra, Map.of(0, 0.0), 10, full);
+        assertEquals(10, full.settled());
+        assertEquals(10, full.relaxed());
+        assertTrue(stats.settled() < full.settled());
+
+        // With the exact distance to the goal as the heuristic, only the vertices of the shortest path are settled.
+        double[] exact = TestGraphs.distances(graph.reverse(), 2);
+        SearchStats guided = new SearchStats();
+        AStarSolver<Integer> guidedSolver = new AStarSolver<>(new Estimates(graph, exact), Map.of(0, 0.0), 2, guided);
+        assertEquals(List.of(0, 1, 2), guidedSolver.solution());
+        assertEquals(3, guided.settled());
+
+        // Passing the same stats to another search adds to its counters.
+        new AStarSolver<>(dijkstra, Map.of(0, 0.0), 2, stats);
+        assertEquals(8, stats.settled());
+        assertEquals(2, stats.decreaseKeys());
+        assertTrue(stats.nanos() >= 0);
+    }
+
+    @Test
+    void weightedPathsAreWithinBound() {
+        SplittableRandom random = new SplittableRandom(24);
+        for (int trial = 0; trial < 50; trial += 1) {
+            CSRGraph graph = TestGraphs.random(random, 300, 1200);
+            int start = random.nextInt(300);
+            int goal = (start + 1 + random.nextInt(299)) % 300;
+            double shortest = TestGraphs.distances(graph, start)[goal];
+            if (shortest == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+            // Half the exact distance to the goal is a consistent heuristic that is far from exact.
+            double[] estimates = TestGraphs.distances(graph.reverse(), goal);
+            for (int v = 0; v < estimates.length; v += 1) {
+                estimates[v] = estimates[v] < Double.POSITIVE_INFINITY ? estimates[v] / 2 : 0.0;
+            }
+            for (double epsilon : new double[]{0.0, 0.1, 0.5, 2.0}) {
+                AStarSolver<Integer> solver = new AStarSolver<>(new Estimates(graph, estimates), Map.of(start, 0.0),
+                        goal, epsilon, new SearchStats());
+                List<Integer> path = solver.solution();
+                assertEquals(start, path.get(0));
+                double length = TestGraphs.length(graph, path);
+                assertTrue(length <= (1 + epsilon) * shortest + EPSILON,
+                        () -> "Path of length " + length + " exceeds " + (1 + epsilon) + " times " + shortest);
+                if (epsilon == 0.0) {
+                    assertEquals(shortest, length, EPSILON);
+                }
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new AStarSolver<>(
+                new Estimates(TestGraphs.random(random, 2, 1), new double[2]), Map.of(0, 0.0), 1, -0.1,
+                new SearchStats()));
+    }
+}
@@ -0,0 +1,138 @@
+package graphs.shortestpaths;
+
+import graphs.AStarGraph;
+import graphs.CSRGraph;
+import graphs.Edge;
+import graphs.EdgeVisitor;
+import graphs.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link AnytimeAStarSolver} class.
+ *
+ * @see AnytimeAStarSolver
+ */
+public class AnytimeAStarSolverTests {
+    /**
+     * Error tolerance for path lengths.
+     */
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * A graph with a heuristic given by an array of estimates of the distance from each vertex to a single goal.
+     */
+    private static class Estimates implements AStarGraph<Integer> {
+        private final CSRGraph graph;
+        private final double[] estimates;
+
+        Estimates(CSRGraph graph, double[] estimates) {
+            this.graph = graph;
+            this.estimates = estimates;
+        }
+
+        @Override
+        public List<Edge<Integer>> neighbors(Integer vertex) {
+            return graph.neighbors(vertex);
+        }
+
+        @Override
+        public void forEachEdge(Integer from, EdgeVisitor<Integer> visitor) {
+            graph.forEachEdge(from, visitor);
+        }
+
+        @Override
+        public double estimatedDistance(Integer start, Integer end) {
+            return estimates[start];
+        }
+    }
+
+    @Test
+    void directEdgeBeforeShorterChain() {
+        // A direct edge of weight 100 from 0 to 1, and a chain of 300 edges of weight 0.01 from 0 through 2..300 to 1.
+        int n = 301;
+        int[] from = new int[301];
+        int[] to = new int[301];
+        double[] weight = new double[301];
+        from[0] = 0;
+        to[0] = 1;
+        weight[0] = 100.0;
+        for (int i = 1; i <= 300; i += 1) {
+            from[i] = i == 1 ? 0 : i;
+            to[i] = i == 300 ? 1 : i + 1;
+            weight[i] = 0.01;
+        }
+        CSRGraph graph = new CSRGraph(n, from, to, weight, 301);
+        double shortest = TestGraphs.distances(graph, 0)[1];
+        assertEquals(3.0, shortest, EPSILON);
+
+        AnytimeAStarSolver<Integer> solver = new AnytimeAStarSolver<>(
+                new Estimates(graph, new double[n]), Map.of(0, 0.0), Map.of(1, 0.0), 0.1, new SearchStats());
+        assertFalse(solver.refine(1, Long.MAX_VALUE));
+        assertEquals(100.0, solver.distance(), EPSILON);
+        assertTrue(solver.bound() > 1.1);
+        assertTrue(solver.bound() >= solver.distance() / shortest);
+
+        solver.refineToBound();
+        assertTrue(solver.bound() <= 1.1);
+        assertTrue(solver.distance() <= 1.1 * shortest + EPSILON, () -> "Route of length " + solver.distance());
+        assertEquals(solver.distance(), TestGraphs.length(graph, solver.solution()), EPSILON);
+    }
+
+    @Test
+    void refineToBoundStopsAtDeadline() {
+        SplittableRandom random = new SplittableRandom(23);
+        CSRGraph graph = TestGraphs.random(random, 2000, 8000);
+        double[] estimates = new double[graph.vertexCount()];
+        SearchStats stats = new SearchStats();
+        AnytimeAStarSolver<Integer> solver = new AnytimeAStarSolver<>(new Estimates(graph, estimates),
+                Map.of(0, 0.0), Map.of(1, 0.0), 0.0, stats);
+        // Without time, the search returns at once, before it has found any path.
+        assertFalse(solver.refineToBound(0));
+        assertEquals(0, stats.settled());
+        assertEquals(Double.POSITIVE_INFINITY, solver.bound());
+        assertEquals(solver.bound(), stats.bound());
+
+        assertTrue(solver.refineToBound(Long.MAX_VALUE));
+        assertTrue(solver.bound() <= 1.0);
+        assertEquals(solver.bound(), stats.bound());
+    }
+
+    @Test
+    void refineToBoundOnRandomGraphs() {
+        SplittableRandom random = new SplittableRandom(22);
+        for (int trial = 0; trial < 50; trial += 1) {
+            CSRGraph graph = TestGraphs.random(random, 300, 1200);
+            int start = random.nextInt(300);
+            int goal = (start + 1 + random.nextInt(299)) % 300;
+            double shortest = TestGraphs.distances(graph, start)[goal];
+            // Half the exact distance to the goal is a consistent heuristic that is far from exact.
+            double[] estimates = TestGraphs.distances(graph.reverse(), goal);
+            for (int v = 0; v < estimates.length; v += 1) {
+                estimates[v] = estimates[v] < Double.POSITIVE_INFINITY ? estimates[v] / 2 : 0.0;
+            }
+            for (double epsilon : new double[]{0.0, 0.1, 0.5, 2.0}) {
+                AnytimeAStarSolver<Integer> solver = new AnytimeAStarSolver<>(new Estimates(graph, estimates),
+                        Map.of(start, 0.0), Map.of(goal, 0.0), epsilon, new SearchStats());
+                solver.refineToBound();
+                if (shortest == Double.POSITIVE_INFINITY) {
+                    assertEquals(Double.POSITIVE_INFINITY, solver.distance());
+                    assertTrue(solver.solution().isEmpty());
+                    continue;
+                }
+                assertTrue(solver.distance() <= (1 + epsilon) * shortest + EPSILON);
+                assertTrue(solver.bound() >= solver.distance() / shortest - EPSILON);
+                assertEquals(solver.distance(), TestGraphs.length(graph, solver.solution()), EPSILON);
+
+                assertTrue(solver.refine(Long.MAX_VALUE, Long.MAX_VALUE));
+                assertEquals(shortest, solver.distance(), EPSILON);
+                assertEquals(1.0, solver.bound());
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package graphs.shortestpaths;
+
+import graphs.CSRGraph;
+import graphs.Edge;
+import graphs.EdgeVisitor;
+import graphs.Landmarks;
+import graphs.ReversibleGraph;
+import graphs.StronglyConnectedComponents;
+import graphs.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link BidirectionalAStarSolver} class.
+ *
+ * @see BidirectionalAStarSolver
+ */
+public class BidirectionalAStarSolverTests {
+    /**
+     * Error tolerance for path lengths.
+     */
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * A graph with its reverse and a heuristic given by landmark lower bounds, or no heuristic if there are none.
+     */
+    private static class Reversible implements ReversibleGraph<Integer> {
+        private final CSRGraph graph;
+        private final CSRGraph reverse;
+        private final Landmarks landmarks;
+
+        Reversible(CSRGraph graph, Landmarks landmarks) {
+            this.graph = graph;
+            this.reverse = graph.reverse();
+            this.landmarks = landmarks;
+        }
+
+        @Override
+        public List<Edge<Integer>> neighbors(Integer vertex) {
+            return graph.neighbors(vertex);
+        }
+
+        @Override
+        public void forEachEdge(Integer from, EdgeVisitor<Integer> visitor) {
+            graph.forEachEdge(from, visitor);
+        }
+
+        @Override
+        public List<Edge<Integer>> incoming(Integer vertex) {
+            List<Edge<Integer>> result = new ArrayList<>();
+            reverse.forEachEdge(vertex, (from, weight) -> result.add(new Edge<>(from, vertex, weight)));
+            return result;
+        }
+
+        @Override
+        public void forEachIncomingEdge(Integer to, EdgeVisitor<Integer> visitor) {
+            reverse.forEachEdge(to, visitor);
+        }
+
+        @Override
+        public double estimatedDistance(Integer start, Integer end) {
+            return landmarks == null ? 0.0 : landmarks.lowerBound(start, end);
+        }
+    }
+
+    @Test
+    void matchesDijkstraSolver() {
+        SplittableRandom random = new SplittableRandom(31);
+        for (int trial = 0; trial < 10; trial += 1) {
+            CSRGraph graph = TestGraphs.random(random, 300, 900);
+            Landmarks landmarks = Landmarks.select(graph, graph.reverse(), new StronglyConnectedComponents(graph), 4);
+            for (Reversible reversible : List.of(new Reversible(graph, null), new Reversible(graph, landmarks))) {
+                for (int query = 0; query < 20; query += 1) {
+                    int start = random.nextInt(300);
+                    int goal = random.nextInt(300);
+                    double expected = TestGraphs.distances(graph, start)[goal];
+                    BidirectionalAStarSolver<Integer> solver = new BidirectionalAStarSolver<>(reversible, start, goal);
+                    assertEquals(expected, solver.distance(), EPSILON);
+                    List<Integer> path = solver.solution();
+                    if (expected == Double.POSITIVE_INFINITY) {
+                        assertTrue(path.isEmpty());
+                    } else {
+                        assertEquals(start, path.get(0));
+                        assertEquals(goal, path.get(path.size() - 1));
+                        assertEquals(expected, TestGraphs.length(graph, path), EPSILON);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void seedsAddToDistance() {
+        SplittableRandom random = new SplittableRandom(32);
+        CSRGraph graph = TestGraphs.random(random, 200, 800);
+        Landmarks landmarks = Landmarks.select(graph, graph.reverse(), new StronglyConnectedComponents(graph), 4);
+        Reversible reversible = new Reversible(graph, landmarks);
+        for (int query = 0; query < 50; query += 1) {
+            int s1 = random.nextInt(200);
+            int s2 = (s1 + 1 + random.nextInt(199)) % 200;
+            int g1 = random.nextInt(200);
+            int g2 = (g1 + 1 + random.nextInt(199)) % 200;
+            double[] from1 = TestGraphs.distances(graph, s1);
+            double[] from2 = TestGraphs.distances(graph, s2);
+            double expected = Math.min(
+                    Math.min(1.0 + from1[g1] + 2.0, 1.0 + from1[g2] + 0.5),
+                    Math.min(3.0 + from2[g1] + 2.0, 3.0 + from2[g2] + 0.5)
+            );
+            Map<Integer, Double> starts = Map.of(s1, 1.0, s2, 3.0);
+            Map<Integer, Double> goals = Map.of(g1, 2.0, g2, 0.5);
+            BidirectionalAStarSolver<Integer> solver = new BidirectionalAStarSolver<>(reversible, starts, goals,
+                    new SearchStats());
+            assertEquals(expected, solver.distance(), EPSILON);
+            List<Integer> path = solver.solution();
+            if (expected < Double.POSITIVE_INFINITY) {
+                double length = starts.get(path.get(0)) + TestGraphs.length(graph, path)
+                        + goals.get(path.get(path.size() - 1));
+                assertEquals(expected, length, EPSILON);
+            }
+        }
+    }
+
+    @Test
+    void settlesFewerVerticesThanDijkstraOnGrid() {
+        // A 50 by 50 grid with unit edges in both directions, searched from corner to corner.
+        int side = 50;
+        int n = side * side;
+        int m = 4 * side * (side - 1);
+        int[] from = new int[m];
+        int[] to = new int[m];
+        double[] weight = new double[m];
+        int e = 0;
+        for (int v = 0; v < n; v += 1) {
+            for (int w : new int[]{v % side < side - 1 ? v + 1 : -1, v + side < n ? v + side : -1}) {
+                if (w >= 0) {
+                    from[e] = v;
+                    to[e] = w;
+                    from[e + 1] = w;
+                    to[e + 1] = v;
+                    weight[e] = 1.0;
+                    weight[e + 1] = 1.0;
+                    e += 2;
+                }
+            }
+        }
+        CSRGraph graph = new CSRGraph(n, from, to, weight, m);
+        SearchStats bidirectional = new SearchStats();
+        BidirectionalAStarSolver<Integer> solver = new BidirectionalAStarSolver<>(new Reversible(graph, null),
+                Map.of(0, 0.0), Map.of(n - 1, 0.0), bidirectional);
+        assertEquals(2 * (side - 1), solver.distance(), EPSILON);
+        SearchStats unidirectional = new SearchStats();
+        new AStarSolver<>(new Reversible(graph, null), Map.of(0, 0.0), n - 1, unidirectional);
+        assertTrue(bidirectional.settled() < unidirectional.settled(),
+                () -> bidirectional.settled() + " settled, but " + unidirectional.settled() + " by Dijkstra");
+    }
+}
@@ -0,0 +1,78 @@
+package graphs.shortestpaths;
+
+import graphs.CSRGraph;
+import graphs.ContractionHierarchy;
+import graphs.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link ContractionHierarchySolver} class.
+ *
+ * @see ContractionHierarchySolver
+ */
+public class ContractionHierarchySolverTests {
+    /**
+     * Error tolerance for path lengths.
+     */
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void matchesDijkstraSolver() {
+        SplittableRandom random = new SplittableRandom(11);
+        for (int trial = 0; trial < 10; trial += 1) {
+            CSRGraph graph = TestGraphs.random(random, 300, 900);
+            ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+            for (int query = 0; query < 20; query += 1) {
+                int start = random.nextInt(300);
+                int goal = random.nextInt(300);
+                double expected = TestGraphs.distances(graph, start)[goal];
+                ContractionHierarchySolver solver = new ContractionHierarchySolver(hierarchy, start, goal);
+                assertEquals(expected, solver.distance(), EPSILON);
+                List<Integer> path = solver.solution();
+                if (expected == Double.POSITIVE_INFINITY) {
+                    assertTrue(path.isEmpty());
+                } else {
+                    assertEquals(start, path.get(0));
+                    assertEquals(goal, path.get(path.size() - 1));
+                    assertEquals(expected, TestGraphs.length(graph, path), EPSILON);
+                }
+            }
+        }
+    }
+
+    @Test
+    void seedsAddToDistance() {
+        SplittableRandom random = new SplittableRandom(12);
+        CSRGraph graph = TestGraphs.random(random, 200, 800);
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+        for (int query = 0; query < 50; query += 1) {
+            int s1 = random.nextInt(200);
+            int s2 = (s1 + 1 + random.nextInt(199)) % 200;
+            int g1 = random.nextInt(200);
+            int g2 = (g1 + 1 + random.nextInt(199)) % 200;
+            double[] from1 = TestGraphs.distances(graph, s1);
+            double[] from2 = TestGraphs.distances(graph, s2);
+            double expected = Math.min(
+                    Math.min(1.0 + from1[g1] + 2.0, 1.0 + from1[g2] + 0.5),
+                    Math.min(3.0 + from2[g1] + 2.0, 3.0 + from2[g2] + 0.5)
+            );
+            Map<Integer, Double> starts = Map.of(s1, 1.0, s2, 3.0);
+            Map<Integer, Double> goals = Map.of(g1, 2.0, g2, 0.5);
+            ContractionHierarchySolver solver = new ContractionHierarchySolver(hierarchy, starts, goals,
+                    new SearchStats());
+            assertEquals(expected, solver.distance(), EPSILON);
+            List<Integer> path = solver.solution();
+            if (expected < Double.POSITIVE_INFINITY) {
+                double length = starts.get(path.get(0)) + TestGraphs.length(graph, path)
+                        + goals.get(path.get(path.size() - 1));
+                assertEquals(expected, length, EPSILON);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package graphs.shortestpaths;
+
+import graphs.CSRGraph;
+import graphs.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link DeltaSteppingSolver} class.
+ *
+ * @see DeltaSteppingSolver
+ */
+public class DeltaSteppingSolverTests {
+    /**
+     * Error tolerance for path lengths.
+     */
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void matchesDijkstraSolver() {
+        SplittableRandom random = new SplittableRandom(14);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int trial = 0; trial < 10; trial += 1) {
+                // Enough vertices that some phases are split into several tasks.
+                CSRGraph graph = TestGraphs.random(random, 3000, 12000);
+                int start = random.nextInt(3000);
+                double[] expected = TestGraphs.distances(graph, start);
+                for (double delta : new double[]{0.5, 5.0, 100.0}) {
+                    DeltaSteppingSolver solver = new DeltaSteppingSolver(graph, start, delta, pool);
+                    double[] lengths = TestGraphs.lengths(graph, solver, start);
+                    for (int v = 0; v < expected.length; v += 1) {
+                        assertEquals(expected[v], solver.distance(v), EPSILON);
+                        assertEquals(expected[v], lengths[v], EPSILON);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void rejectsNonPositiveDelta() {
+        CSRGraph graph = TestGraphs.random(new SplittableRandom(14), 10, 20);
+        assertThrows(IllegalArgumentException.class, () -> new DeltaSteppingSolver(graph, 0, 0.0));
+        assertThrows(IllegalArgumentException.class, () -> new DeltaSteppingSolver(graph, 0, Double.NaN));
+    }
+}
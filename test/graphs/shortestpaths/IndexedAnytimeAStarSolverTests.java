@@ -0,0 +1,150 @@
+package graphs.shortestpaths;
+
+import graphs.CSRGraph;
+import graphs.Edge;
+import graphs.EdgeVisitor;
+import graphs.IndexedAStarGraph;
+import graphs.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link IndexedAnytimeAStarSolver} class against {@link AnytimeAStarSolver}, which runs the same search
+ * over maps of boxed vertices.
+ *
+ * @see IndexedAnytimeAStarSolver
+ */
+public class IndexedAnytimeAStarSolverTests {
+    /**
+     * Error tolerance for path lengths.
+     */
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * A graph with a heuristic given by an array of estimates of the distance from each vertex to a single goal.
+     */
+    private static class Estimates implements IndexedAStarGraph {
+        private final CSRGraph graph;
+        private final double[] estimates;
+
+        Estimates(CSRGraph graph, double[] estimates) {
+            this.graph = graph;
+            this.estimates = estimates;
+        }
+
+        @Override
+        public List<Edge<Integer>> neighbors(Integer vertex) {
+            return graph.neighbors(vertex);
+        }
+
+        @Override
+        public void forEachEdge(Integer from, EdgeVisitor<Integer> visitor) {
+            graph.forEachEdge(from, visitor);
+        }
+
+        @Override
+        public int vertexCount() {
+            return graph.vertexCount();
+        }
+
+        @Override
+        public int start(int vertex) {
+            return graph.start(vertex);
+        }
+
+        @Override
+        public int end(int vertex) {
+            return graph.end(vertex);
+        }
+
+        @Override
+        public int target(int edge) {
+            return graph.target(edge);
+        }
+
+        @Override
+        public double weight(int edge) {
+            return graph.weight(edge);
+        }
+
+        @Override
+        public double estimatedDistance(int start, int end) {
+            return estimates[start];
+        }
+    }
+
+    @Test
+    void matchesAnytimeAStarSolver() {
+        SplittableRandom random = new SplittableRandom(26);
+        for (int trial = 0; trial < 50; trial += 1) {
+            CSRGraph graph = TestGraphs.random(random, 300, 1200);
+            int start = random.nextInt(300);
+            int goal = (start + 1 + random.nextInt(299)) % 300;
+            double[] estimates = TestGraphs.distances(graph.reverse(), goal);
+            for (int v = 0; v < estimates.length; v += 1) {
+                estimates[v] = estimates[v] < Double.POSITIVE_INFINITY ? estimates[v] / 2 : 0.0;
+            }
+            Estimates estimated = new Estimates(graph, estimates);
+            Map<Integer, Double> starts = Map.of(start, 0.0);
+            Map<Integer, Double> goals = Map.of(goal, 0.0);
+            for (double epsilon : new double[]{0.0, 0.5, 2.0}) {
+                SearchStats expectedStats = new SearchStats();
+                AnytimeAStarSolver<Integer> expected = new AnytimeAStarSolver<>(estimated, starts, goals, epsilon,
+                        expectedStats);
+                SearchStats stats = new SearchStats();
+                IndexedAnytimeAStarSolver solver = new IndexedAnytimeAStarSolver(estimated, starts, goals, epsilon,
+                        stats, SearchBudget.unlimited());
+                expected.refineToBound();
+                solver.refineToBound();
+                assertEquals(expected.distance(), solver.distance(), EPSILON);
+                assertEquals(expected.bound(), solver.bound(), EPSILON);
+                assertEquals(expectedStats.settled(), stats.settled());
+                assertEquals(expectedStats.relaxed(), stats.relaxed());
+                if (solver.distance() < Double.POSITIVE_INFINITY) {
+                    assertEquals(solver.distance(), TestGraphs.length(graph, solver.solution()), EPSILON);
+                } else {
+                    assertTrue(solver.solution().isEmpty());
+                }
+
+                assertTrue(solver.refine(Long.MAX_VALUE, Long.MAX_VALUE));
+                assertEquals(TestGraphs.distances(graph, start)[goal], solver.distance(), EPSILON);
+            }
+        }
+    }
+
+    @Test
+    void seedsAddToDistance() {
+        SplittableRandom random = new SplittableRandom(27);
+        CSRGraph graph = TestGraphs.random(random, 200, 800);
+        Estimates estimated = new Estimates(graph, new double[graph.vertexCount()]);
+        Map<Integer, Double> starts = Map.of(0, 1.5, 1, 0.25);
+        Map<Integer, Double> goals = Map.of(2, 0.5, 3, 2.0);
+        AnytimeAStarSolver<Integer> expected = new AnytimeAStarSolver<>(estimated, starts, goals, 0.0,
+                new SearchStats());
+        IndexedAnytimeAStarSolver solver = new IndexedAnytimeAStarSolver(estimated, starts, goals, 0.0,
+                new SearchStats(), SearchBudget.unlimited());
+        expected.refineToBound();
+        solver.refineToBound();
+        assertEquals(expected.distance(), solver.distance(), EPSILON);
+        assertEquals(expected.solution(), solver.solution());
+    }
+
+    @Test
+    void resultsExpireWithNextSearch() {
+        SplittableRandom random = new SplittableRandom(28);
+        CSRGraph graph = TestGraphs.random(random, 100, 400);
+        Estimates estimated = new Estimates(graph, new double[graph.vertexCount()]);
+        IndexedAnytimeAStarSolver first = new IndexedAnytimeAStarSolver(estimated, Map.of(0, 0.0), Map.of(1, 0.0),
+                0.0, new SearchStats(), SearchBudget.unlimited());
+        first.refineToBound();
+        new IndexedAnytimeAStarSolver(estimated, Map.of(1, 0.0), Map.of(0, 0.0), 0.0, new SearchStats(),
+                SearchBudget.unlimited());
+        assertThrows(IllegalStateException.class, first::solution);
+        assertThrows(IllegalStateException.class, () -> first.refine(1, Long.MAX_VALUE));
+    }
+}
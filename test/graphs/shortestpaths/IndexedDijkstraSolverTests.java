@@ -0,0 +1,42 @@
+package graphs.shortestpaths;
+
+import graphs.CSRGraph;
+import graphs.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link IndexedDijkstraSolver} class.
+ *
+ * @see IndexedDijkstraSolver
+ */
+public class IndexedDijkstraSolverTests {
+    /**
+     * Error tolerance for path lengths.
+     */
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void matchesDijkstraSolver() {
+        SplittableRandom random = new SplittableRandom(16);
+        for (int trial = 0; trial < 20; trial += 1) {
+            CSRGraph graph = TestGraphs.random(random, 200, 600);
+            int start = random.nextInt(200);
+            double[] expected = TestGraphs.distances(graph, start);
+            IndexedDijkstraSolver solver = new IndexedDijkstraSolver(graph, start);
+            for (int v = 0; v < 200; v += 1) {
+                assertEquals(expected[v], solver.distance(v), EPSILON);
+                if (expected[v] < Double.POSITIVE_INFINITY) {
+                    List<Integer> path = solver.solution(v);
+                    assertEquals(start, path.get(0));
+                    assertEquals(v, path.get(path.size() - 1));
+                    assertEquals(expected[v], TestGraphs.length(graph, path), EPSILON);
+                }
+            }
+        }
+    }
+}
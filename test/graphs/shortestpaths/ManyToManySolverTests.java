@@ -0,0 +1,70 @@
+package graphs.shortestpaths;
+
+import graphs.CSRGraph;
+import graphs.ContractionHierarchy;
+import graphs.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link ManyToManySolver} class.
+ *
+ * @see ManyToManySolver
+ */
+public class ManyToManySolverTests {
+    /**
+     * Error tolerance for path lengths.
+     */
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void matchesDijkstraSolver() {
+        SplittableRandom random = new SplittableRandom(23);
+        for (int trial = 0; trial < 10; trial += 1) {
+            CSRGraph graph = TestGraphs.random(random, 200, 500);
+            ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+            int[] sources = random.ints(15, 0, 200).toArray();
+            int[] targets = random.ints(12, 0, 200).toArray();
+            double[][] distances = new ManyToManySolver(hierarchy, seeds(sources), seeds(targets)).distances();
+            assertEquals(sources.length, distances.length);
+            for (int i = 0; i < sources.length; i += 1) {
+                double[] expected = TestGraphs.distances(graph, sources[i]);
+                assertEquals(targets.length, distances[i].length);
+                for (int j = 0; j < targets.length; j += 1) {
+                    assertEquals(expected[targets[j]], distances[i][j], EPSILON);
+                }
+            }
+        }
+    }
+
+    @Test
+    void cancelledBudgetStopsSearches() {
+        CSRGraph graph = TestGraphs.random(new SplittableRandom(23), 200, 500);
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+        SearchBudget budget = new SearchBudget(Long.MAX_VALUE, Long.MAX_VALUE);
+        budget.cancel();
+        SearchBudgetExceededException e = assertThrows(SearchBudgetExceededException.class,
+                () -> new ManyToManySolver(hierarchy, seeds(new int[]{0, 1}), seeds(new int[]{2, 3}), budget));
+        assertEquals(SearchBudgetExceededException.Reason.CANCELLED, e.reason());
+    }
+
+    /**
+     * Returns one seed map per vertex, seeding only that vertex with distance 0.
+     *
+     * @param vertices the vertices.
+     * @return one seed map per vertex.
+     */
+    private static List<Map<Integer, Double>> seeds(int[] vertices) {
+        List<Map<Integer, Double>> result = new ArrayList<>(vertices.length);
+        for (int v : vertices) {
+            result.add(Map.of(v, 0.0));
+        }
+        return result;
+    }
+}
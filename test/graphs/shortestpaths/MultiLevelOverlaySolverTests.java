@@ -0,0 +1,144 @@
+package graphs.shortestpaths;
+
+import graphs.CSRGraph;
+import graphs.MultiLevelOverlay;
+import graphs.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.nio.DoubleBuffer;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link MultiLevelOverlaySolver} class.
+ *
+ * @see MultiLevelOverlaySolver
+ * @see MultiLevelOverlay
+ */
+public class MultiLevelOverlaySolverTests {
+    /**
+     * Error tolerance for path lengths.
+     */
+    private static final double EPSILON = 1e-9;
+    /**
+     * Number of vertices, enough for the overlay to have two levels.
+     */
+    private static final int N = 5000;
+
+    @Test
+    void matchesDijkstraSolver() {
+        SplittableRandom random = new SplittableRandom(12);
+        CSRGraph graph = TestGraphs.random(random, N, 4 * N);
+        MultiLevelOverlay overlay = overlay(random, graph);
+        assertEquals(2, overlay.levels());
+        double[] weights = new double[graph.edgeCount()];
+        for (int e = 0; e < weights.length; e += 1) {
+            weights[e] = graph.weight(e);
+        }
+        assertQueries(random, graph, overlay, overlay.customize(weights));
+    }
+
+    @Test
+    void customizedWeightsMatchDijkstraSolver() {
+        SplittableRandom random = new SplittableRandom(13);
+        CSRGraph graph = TestGraphs.random(random, N, 4 * N);
+        MultiLevelOverlay overlay = overlay(random, graph);
+        // Replace every weight and close one edge in ten, then compare with a graph that has only the open edges.
+        double[] weights = new double[graph.edgeCount()];
+        int[] from = new int[graph.edgeCount()];
+        int[] to = new int[graph.edgeCount()];
+        int m = 0;
+        for (int u = 0; u < N; u += 1) {
+            for (int e = graph.start(u); e < graph.end(u); e += 1) {
+                weights[e] = random.nextInt(10) == 0 ? Double.POSITIVE_INFINITY : random.nextDouble(5.0);
+                if (weights[e] < Double.POSITIVE_INFINITY) {
+                    from[m] = u;
+                    to[m] = graph.target(e);
+                    m += 1;
+                }
+            }
+        }
+        double[] open = new double[m];
+        for (int u = 0, i = 0; u < N; u += 1) {
+            for (int e = graph.start(u); e < graph.end(u); e += 1) {
+                if (weights[e] < Double.POSITIVE_INFINITY) {
+                    open[i] = weights[e];
+                    i += 1;
+                }
+            }
+        }
+        CSRGraph customized = new CSRGraph(N, from, to, open, m);
+        assertQueries(random, customized, overlay, overlay.customize(weights));
+    }
+
+    @Test
+    void customizeRejectsWrongNumberOfWeights() {
+        SplittableRandom random = new SplittableRandom(14);
+        CSRGraph graph = TestGraphs.random(random, 100, 300);
+        MultiLevelOverlay overlay = overlay(random, graph);
+        assertThrows(IllegalArgumentException.class, () -> overlay.customize(new double[299]));
+    }
+
+    @Test
+    void customizeRejectsNegativeAndNaNWeights() {
+        SplittableRandom random = new SplittableRandom(15);
+        CSRGraph graph = TestGraphs.random(random, 100, 300);
+        MultiLevelOverlay overlay = overlay(random, graph);
+        for (double invalid : new double[]{-1.0, -Double.MIN_VALUE, Double.NEGATIVE_INFINITY, Double.NaN}) {
+            double[] weights = new double[graph.edgeCount()];
+            weights[random.nextInt(weights.length)] = invalid;
+            assertThrows(IllegalArgumentException.class, () -> overlay.customize(weights), () -> "Weight " + invalid);
+        }
+        double[] closed = new double[graph.edgeCount()];
+        closed[0] = Double.POSITIVE_INFINITY;
+        assertNotNull(overlay.customize(closed));
+    }
+
+    /**
+     * Returns an overlay of the graph with every vertex at a random location in a small area.
+     *
+     * @param random the source of randomness.
+     * @param graph  the graph.
+     * @return an overlay of the graph.
+     */
+    private static MultiLevelOverlay overlay(SplittableRandom random, CSRGraph graph) {
+        double[] lat = new double[graph.vertexCount()];
+        double[] lon = new double[graph.vertexCount()];
+        for (int v = 0; v < lat.length; v += 1) {
+            lat[v] = 47.5 + random.nextDouble(0.2);
+            lon[v] = -122.4 + random.nextDouble(0.2);
+        }
+        return new MultiLevelOverlay(graph, DoubleBuffer.wrap(lat), DoubleBuffer.wrap(lon));
+    }
+
+    /**
+     * Checks random queries of the overlay under the metric against {@link DijkstraSolver} on the reference graph.
+     *
+     * @param random    the source of randomness.
+     * @param reference a graph with the same shortest paths as the metric.
+     * @param overlay   the overlay.
+     * @param metric    the customized metric.
+     */
+    private static void assertQueries(SplittableRandom random, CSRGraph reference, MultiLevelOverlay overlay,
+                                      MultiLevelOverlay.Metric metric) {
+        for (int query = 0; query < 20; query += 1) {
+            int start = random.nextInt(N);
+            double[] expected = TestGraphs.distances(reference, start);
+            for (int i = 0; i < 5; i += 1) {
+                int goal = random.nextInt(N);
+                MultiLevelOverlaySolver solver = new MultiLevelOverlaySolver(overlay, metric, start, goal);
+                assertEquals(expected[goal], solver.distance(), EPSILON);
+                List<Integer> path = solver.solution();
+                if (expected[goal] == Double.POSITIVE_INFINITY) {
+                    assertTrue(path.isEmpty());
+                } else {
+                    assertEquals(start, path.get(0));
+                    assertEquals(goal, path.get(path.size() - 1));
+                    assertEquals(expected[goal], TestGraphs.length(reference, path), EPSILON);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package graphs.shortestpaths;
+
+import graphs.CSRGraph;
+import graphs.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link SPFASolver} class in every {@link SPFASolver.Mode}.
+ *
+ * @see SPFASolver
+ * @see NegativeCycleException
+ */
+public class SPFASolverTests {
+    /**
+     * Error tolerance for path lengths.
+     */
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void matchesDijkstraSolver() {
+        SplittableRandom random = new SplittableRandom(18);
+        for (int trial = 0; trial < 10; trial += 1) {
+            CSRGraph graph = TestGraphs.random(random, 200, 600);
+            int start = random.nextInt(200);
+            double[] expected = TestGraphs.distances(graph, start);
+            for (SPFASolver.Mode mode : SPFASolver.Mode.values()) {
+                assertArrayEquals(expected, TestGraphs.lengths(graph, new SPFASolver<>(graph, start, mode), start),
+                        EPSILON, mode::toString);
+            }
+        }
+    }
+
+    @Test
+    void matchesBellmanFordSolverWithNegativeWeights() {
+        SplittableRandom random = new SplittableRandom(18);
+        for (int trial = 0; trial < 10; trial += 1) {
+            CSRGraph graph = withPotentials(random, TestGraphs.random(random, 200, 600));
+            int start = random.nextInt(200);
+            double[] expected = TestGraphs.lengths(graph, new BellmanFordSolver<>(graph, start), start);
+            for (SPFASolver.Mode mode : SPFASolver.Mode.values()) {
+                assertArrayEquals(expected, TestGraphs.lengths(graph, new SPFASolver<>(graph, start, mode), start),
+                        EPSILON, mode::toString);
+            }
+        }
+    }
+
+    @Test
+    void reportsNegativeCycle() {
+        // 0 -> 1 -> 2 -> 1 where the cycle between 1 and 2 has weight -1, and 3 -> 3 is unreachable from 0.
+        CSRGraph graph = new CSRGraph(4, new int[]{0, 1, 2, 3}, new int[]{1, 2, 1, 3},
+                new double[]{1.0, -3.0, 2.0, -1.0}, 4);
+        for (SPFASolver.Mode mode : SPFASolver.Mode.values()) {
+            NegativeCycleException e = assertThrows(NegativeCycleException.class,
+                    () -> new SPFASolver<>(graph, 0, mode));
+            assertNegativeCycle(graph, e.cycle());
+            assertEquals(3, e.cycle().size());
+        }
+        CSRGraph unreachable = new CSRGraph(4, new int[]{0, 3}, new int[]{1, 3}, new double[]{1.0, -1.0}, 2);
+        assertEquals(List.of(0, 1), new SPFASolver<>(unreachable, 0).solution(1));
+    }
+
+    @Test
+    void negativeCyclesOnRandomGraphs() {
+        SplittableRandom random = new SplittableRandom(19);
+        int cycles = 0;
+        int solved = 0;
+        for (int trial = 0; trial < 100; trial += 1) {
+            CSRGraph graph = TestGraphs.random(random, 100, 200);
+            // Shift the weights so that some edges are negative and some graphs have a negative cycle.
+            int[] from = new int[graph.edgeCount()];
+            int[] to = new int[graph.edgeCount()];
+            double[] weight = new double[graph.edgeCount()];
+            for (int u = 0; u < graph.vertexCount(); u += 1) {
+                for (int e = graph.start(u); e < graph.end(u); e += 1) {
+                    from[e] = u;
+                    to[e] = graph.target(e);
+                    weight[e] = graph.weight(e) - 1.5;
+                }
+            }
+            CSRGraph shifted = new CSRGraph(100, from, to, weight, graph.edgeCount());
+            int start = random.nextInt(100);
+            for (SPFASolver.Mode mode : SPFASolver.Mode.values()) {
+                try {
+                    SPFASolver<Integer> solver = new SPFASolver<>(shifted, start, mode);
+                    // Without a reachable negative cycle, no edge from a reachable vertex can shorten a path.
+                    double[] lengths = TestGraphs.lengths(shifted, solver, start);
+                    for (int u = 0; u < 100; u += 1) {
+                        for (int e = shifted.start(u); e < shifted.end(u) && lengths[u] < Double.POSITIVE_INFINITY;
+                             e += 1) {
+                            assertTrue(lengths[shifted.target(e)] <= lengths[u] + shifted.weight(e) + EPSILON);
+                        }
+                    }
+                    solved += 1;
+                } catch (NegativeCycleException e) {
+                    assertNegativeCycle(shifted, e.cycle());
+                    cycles += 1;
+                }
+            }
+        }
+        assertTrue(cycles > 0);
+        assertTrue(solved > 0);
+    }
+
+    /**
+     * Returns a graph with the same edges as the given graph, where each edge weight is changed by the difference of
+     * random potentials of its ends. Paths between two vertices all change by the same amount, so shortest paths are
+     * the same, but many edge weights are negative and there are no negative cycles.
+     *
+     * @param random the source of randomness.
+     * @param graph  the graph with non-negative edge weights.
+     * @return the reweighted graph.
+     */
+    private static CSRGraph withPotentials(SplittableRandom random, CSRGraph graph) {
+        int n = graph.vertexCount();
+        double[] potential = random.doubles(n, 0.0, 10.0).toArray();
+        int[] from = new int[graph.edgeCount()];
+        int[] to = new int[graph.edgeCount()];
+        double[] weight = new double[graph.edgeCount()];
+        for (int u = 0; u < n; u += 1) {
+            for (int e = graph.start(u); e < graph.end(u); e += 1) {
+                from[e] = u;
+                to[e] = graph.target(e);
+                weight[e] = graph.weight(e) + potential[u] - potential[to[e]];
+            }
+        }
+        return new CSRGraph(n, from, to, weight, graph.edgeCount());
+    }
+
+    /**
+     * Checks that the vertices form a closed walk along edges of the graph with negative total weight.
+     *
+     * @param graph the graph.
+     * @param cycle the vertices of the cycle, starting and ending with the same vertex.
+     */
+    private static void assertNegativeCycle(CSRGraph graph, List<?> cycle) {
+        assertTrue(cycle.size() >= 2, () -> "Cycle " + cycle);
+        assertEquals(cycle.get(0), cycle.get(cycle.size() - 1), () -> "Cycle " + cycle);
+        List<Integer> vertices = cycle.stream().map(v -> (Integer) v).collect(Collectors.toList());
+        double weight = TestGraphs.length(graph, vertices);
+        assertTrue(weight < 0, () -> "Cycle " + cycle + " has weight " + weight);
+    }
+}
@@ -0,0 +1,63 @@
+package graphs.shortestpaths;
+
+import graphs.CSRGraph;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link SearchWorkspace} class through the solvers that keep their state in it.
+ *
+ * @see SearchWorkspace
+ */
+public class SearchWorkspaceTests {
+
+    /**
+     * Returns a graph with the given number of vertices and a single edge from 0 to 1 of the given weight.
+     *
+     * @param n      the number of vertices.
+     * @param weight the weight of the edge from 0 to 1.
+     * @return a graph with a single edge from 0 to 1.
+     */
+    private static CSRGraph singleEdge(int n, double weight) {
+        return new CSRGraph(n, new int[]{0}, new int[]{1}, new double[]{weight}, 1);
+    }
+
+    @Test
+    void resultsReadableUntilNextSearch() {
+        BoundedDijkstraSolver solver = new BoundedDijkstraSolver(singleEdge(2, 5.0), 0, 100.0);
+        assertEquals(2, solver.count());
+        assertEquals(5.0, solver.distance(1));
+        assertEquals(5.0, solver.distance(1));
+    }
+
+    @Test
+    void laterSearchInvalidatesResults() {
+        BoundedDijkstraSolver stale = new BoundedDijkstraSolver(singleEdge(2, 5.0), 0, 100.0);
+        BoundedDijkstraSolver fresh = new BoundedDijkstraSolver(singleEdge(2, 42.0), 0, 100.0);
+        assertEquals(42.0, fresh.distance(1));
+        assertThrows(IllegalStateException.class, () -> stale.distance(1));
+    }
+
+    @Test
+    void laterSearchOnLargerGraphInvalidatesResults() throws Throwable {
+        // Run on a new thread so that the first search allocates the thread's workspace and the second grows it.
+        Throwable[] failure = new Throwable[1];
+        Thread thread = new Thread(() -> {
+            try {
+                BoundedDijkstraSolver stale = new BoundedDijkstraSolver(singleEdge(2, 5.0), 0, 100.0);
+                BoundedDijkstraSolver fresh = new BoundedDijkstraSolver(singleEdge(1 << 20, 42.0), 0, 100.0);
+                assertEquals(42.0, fresh.distance(1));
+                assertThrows(IllegalStateException.class, () -> stale.distance(1));
+                assertThrows(IllegalStateException.class, stale::count);
+            } catch (Throwable e) {
+                failure[0] = e;
+            }
+        });
+        thread.start();
+        thread.join();
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+}
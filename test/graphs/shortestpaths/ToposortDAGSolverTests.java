@@ -0,0 +1,110 @@
+package graphs.shortestpaths;
+
+import graphs.CSRGraph;
+import graphs.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link ToposortDAGSolver} class.
+ *
+ * @see ToposortDAGSolver
+ */
+public class ToposortDAGSolverTests {
+    /**
+     * Error tolerance for path lengths.
+     */
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void matchesDijkstraSolver() {
+        SplittableRandom random = new SplittableRandom(20);
+        for (int trial = 0; trial < 10; trial += 1) {
+            CSRGraph graph = dag(random, 300, 1200, 0.0);
+            int start = random.nextInt(50);
+            double[] expected = TestGraphs.distances(graph, start);
+            for (boolean parallel : new boolean[]{false, true}) {
+                ShortestPathSolver<Integer> solver = new ToposortDAGSolver<>(graph, start, parallel);
+                assertArrayEquals(expected, TestGraphs.lengths(graph, solver, start), EPSILON);
+            }
+        }
+    }
+
+    @Test
+    void matchesBellmanFordSolverWithNegativeWeights() {
+        SplittableRandom random = new SplittableRandom(20);
+        for (int trial = 0; trial < 10; trial += 1) {
+            CSRGraph graph = dag(random, 300, 1200, -5.0);
+            int start = random.nextInt(50);
+            double[] expected = TestGraphs.lengths(graph, new BellmanFordSolver<>(graph, start), start);
+            for (boolean parallel : new boolean[]{false, true}) {
+                ShortestPathSolver<Integer> solver = new ToposortDAGSolver<>(graph, start, parallel);
+                assertArrayEquals(expected, TestGraphs.lengths(graph, solver, start), EPSILON);
+            }
+        }
+    }
+
+    @Test
+    void parallelLevelsMatchBellmanFordSolver() {
+        // Layers of 2000 vertices with edges only from each layer to the next, so every level is relaxed in parallel.
+        SplittableRandom random = new SplittableRandom(21);
+        int layers = 4;
+        int width = 2000;
+        int n = 1 + layers * width;
+        int m = width + (layers - 1) * 3 * width;
+        int[] from = new int[m];
+        int[] to = new int[m];
+        double[] weight = new double[m];
+        int e = 0;
+        for (int v = 1; v <= width; v += 1, e += 1) {
+            to[e] = v;
+            weight[e] = random.nextDouble(10.0) - 5.0;
+        }
+        for (int layer = 1; layer < layers; layer += 1) {
+            for (int i = 0; i < 3 * width; i += 1, e += 1) {
+                from[e] = 1 + (layer - 1) * width + random.nextInt(width);
+                to[e] = 1 + layer * width + random.nextInt(width);
+                weight[e] = random.nextDouble(10.0) - 5.0;
+            }
+        }
+        CSRGraph graph = new CSRGraph(n, from, to, weight, m);
+        double[] expected = TestGraphs.lengths(graph, new BellmanFordSolver<>(graph, 0), 0);
+        assertArrayEquals(expected, TestGraphs.lengths(graph, new ToposortDAGSolver<>(graph, 0, true), 0), EPSILON);
+    }
+
+    @Test
+    void rejectsReachableCycle() {
+        CSRGraph graph = new CSRGraph(3, new int[]{0, 1, 2}, new int[]{1, 2, 1}, new double[]{1.0, 1.0, 1.0}, 3);
+        assertThrows(IllegalArgumentException.class, () -> new ToposortDAGSolver<>(graph, 0));
+        // A cycle that is not reachable from the start is ignored.
+        CSRGraph unreachable = new CSRGraph(4, new int[]{1, 2, 3}, new int[]{2, 1, 0}, new double[]{1.0, 1.0, 1.0}, 3);
+        assertEquals(List.of(3, 0), new ToposortDAGSolver<>(unreachable, 3).solution(0));
+    }
+
+    /**
+     * Returns a directed acyclic graph with random edges from lower to higher vertices and weights from the given
+     * minimum to 10 more than the minimum.
+     *
+     * @param random the source of randomness.
+     * @param n      the number of vertices.
+     * @param m      the number of edges.
+     * @param min    the minimum edge weight.
+     * @return a random directed acyclic graph.
+     */
+    private static CSRGraph dag(SplittableRandom random, int n, int m, double min) {
+        int[] from = new int[m];
+        int[] to = new int[m];
+        double[] weight = new double[m];
+        for (int i = 0; i < m; i += 1) {
+            int u = random.nextInt(n - 1);
+            from[i] = u;
+            to[i] = u + 1 + random.nextInt(n - 1 - u);
+            weight[i] = min + random.nextDouble(10.0);
+        }
+        return new CSRGraph(n, from, to, weight, m);
+    }
+}
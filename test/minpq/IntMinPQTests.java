@@ -0,0 +1,94 @@
+package minpq;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link IntMinPQ} class.
+ *
+ * @see IntMinPQ
+ */
+public class IntMinPQTests {
+
+    @Test
+    void randomOperationsMatchDoubleMapMinPQ() {
+        SplittableRandom random = new SplittableRandom(373);
+        int capacity = 500;
+        IntMinPQ testing = new IntMinPQ(capacity);
+        MinPQ<Integer> reference = new DoubleMapMinPQ<>();
+        for (int step = 0; step < 100_000; step += 1) {
+            int element = random.nextInt(capacity);
+            // Random priorities are distinct, so both queues agree on the order of removal.
+            double priority = random.nextDouble();
+            int operation = random.nextInt(10);
+            if (operation < 4) {
+                testing.addOrChangePriority(element, priority);
+                reference.addOrChangePriority(element, priority);
+            } else if (operation < 6 && reference.contains(element)) {
+                testing.changePriority(element, priority);
+                reference.changePriority(element, priority);
+            } else if (operation < 9 && !reference.isEmpty()) {
+                assertEquals(reference.peekMin(), testing.peekMin());
+                assertEquals(reference.removeMin(), testing.removeMin());
+            } else if (operation == 9 && random.nextInt(100) == 0) {
+                testing.clear();
+                while (!reference.isEmpty()) {
+                    reference.removeMin();
+                }
+            }
+            assertEquals(reference.size(), testing.size());
+            assertEquals(reference.isEmpty(), testing.isEmpty());
+            assertEquals(reference.contains(element), testing.contains(element));
+        }
+        while (!reference.isEmpty()) {
+            assertEquals(reference.removeMin(), testing.removeMin());
+        }
+        assertTrue(testing.isEmpty());
+    }
+
+    @Test
+    void priorityOfMinimum() {
+        IntMinPQ pq = new IntMinPQ(4);
+        pq.add(3, 2.5);
+        pq.add(0, 1.5);
+        pq.add(2, 4.0);
+        assertEquals(0, pq.peekMin());
+        assertEquals(1.5, pq.peekMinPriority());
+        pq.changePriority(2, 0.5);
+        assertEquals(2, pq.peekMin());
+        assertEquals(0.5, pq.peekMinPriority());
+        pq.changePriority(2, 3.0);
+        assertEquals(0, pq.removeMin());
+        assertEquals(3, pq.removeMin());
+        assertEquals(2, pq.removeMin());
+    }
+
+    @Test
+    void clearAllowsElementsToBeAddedAgain() {
+        IntMinPQ pq = new IntMinPQ(3);
+        pq.add(0, 1.0);
+        pq.add(1, 2.0);
+        pq.clear();
+        assertTrue(pq.isEmpty());
+        assertFalse(pq.contains(0));
+        pq.add(0, 3.0);
+        pq.add(1, 2.0);
+        assertEquals(1, pq.removeMin());
+        assertEquals(0, pq.removeMin());
+    }
+
+    @Test
+    void invalidOperationsThrow() {
+        IntMinPQ pq = new IntMinPQ(3);
+        assertThrows(NoSuchElementException.class, pq::peekMin);
+        assertThrows(NoSuchElementException.class, pq::peekMinPriority);
+        assertThrows(NoSuchElementException.class, pq::removeMin);
+        assertThrows(NoSuchElementException.class, () -> pq.changePriority(1, 1.0));
+        pq.add(1, 1.0);
+        assertThrows(IllegalArgumentException.class, () -> pq.add(1, 2.0));
+    }
+}